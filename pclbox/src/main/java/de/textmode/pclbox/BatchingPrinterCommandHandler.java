@@ -0,0 +1,150 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Implementation of {@link PrinterCommandHandler} that collects the {@link PrinterCommand} objects in batches
+ * and passes every full batch to a {@link PrinterCommandBatchHandler}. The remaining printer commands are passed
+ * by {@link #flush()}, which has to be invoked after the data stream has been parsed:
+ *
+ * <pre>
+ * final BatchingPrinterCommandHandler batcher = new BatchingPrinterCommandHandler(batchHandler, 1000, false);
+ * new PclParser(input, batcher).parse();
+ * batcher.flush();
+ * </pre>
+ *
+ * <p>If the printer commands are batched by type, every batch contains printer commands of a single type
+ * and the array of the batch has the type of the printer commands (i. e. a batch of text is passed as a
+ * {@link TextCommand TextCommand[]}), so the handler can cast the array instead of dispatching every single
+ * printer command (like a {@link PrinterCommandVisitor} does). The printer commands within a batch are in
+ * the order of the data stream, but the batches of different types are passed whenever they are full.
+ */
+public final class BatchingPrinterCommandHandler implements PrinterCommandHandler, Flushable {
+
+    private static final int TEXT = 0;
+    private static final int CONTROL_CHARACTER = 1;
+    private static final int TWO_BYTE_PCL = 2;
+    private static final int PARAMETERIZED_PCL = 3;
+    private static final int PJL = 4;
+    private static final int HPGL = 5;
+    private static final int OTHER = 6;
+
+    private final PrinterCommandBatchHandler batchHandler;
+    private final PrinterCommand[][] batches;
+    private final int[] counts;
+
+    /**
+     * Constructor that is given the {@link PrinterCommandBatchHandler} and the size of the batches.
+     *
+     * @param batchHandler   the {@link PrinterCommandBatchHandler} that handles the batches.
+     * @param batchSize   the maximum number of {@link PrinterCommand} objects per batch.
+     * @param byType   true if every batch shall contain the printer commands of a single type.
+     */
+    public BatchingPrinterCommandHandler(
+            final PrinterCommandBatchHandler batchHandler,
+            final int batchSize,
+            final boolean byType) {
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be greater than zero");
+        }
+
+        this.batchHandler = batchHandler;
+        if (byType) {
+            this.batches = new PrinterCommand[][] {
+                new TextCommand[batchSize],
+                new ControlCharacterCommand[batchSize],
+                new TwoBytePclCommand[batchSize],
+                new ParameterizedPclCommand[batchSize],
+                new PjlCommand[batchSize],
+                new HpglCommand[batchSize],
+                new PrinterCommand[batchSize],
+            };
+        } else {
+            this.batches = new PrinterCommand[][] {new PrinterCommand[batchSize]};
+        }
+        this.counts = new int[this.batches.length];
+    }
+
+    @Override
+    public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+        final int type = this.batches.length == 1 ? 0 : typeOf(command);
+        final PrinterCommand[] batch = this.batches[type];
+
+        batch[this.counts[type]++] = command;
+        if (this.counts[type] == batch.length) {
+            this.flush(type);
+        }
+    }
+
+    /**
+     * Passes the printer commands that have not been passed yet to the {@link PrinterCommandBatchHandler}
+     * (as one batch per type if the printer commands are batched by type).
+     *
+     * @throws IOException if the {@link PrinterCommandBatchHandler} has failed.
+     */
+    @Override
+    public void flush() throws IOException {
+        for (int type = 0; type < this.batches.length; ++type) {
+            if (this.counts[type] > 0) {
+                this.flush(type);
+            }
+        }
+    }
+
+    /**
+     * Passes the batch of the given type to the {@link PrinterCommandBatchHandler}. The references to the
+     * printer commands are cleared afterwards, so they can be garbage collected while the array is reused.
+     */
+    private void flush(final int type) throws IOException {
+        final PrinterCommand[] batch = this.batches[type];
+        final int count = this.counts[type];
+
+        this.counts[type] = 0;
+        try {
+            this.batchHandler.handlePrinterCommands(batch, count);
+        } finally {
+            Arrays.fill(batch, 0, count, null);
+        }
+    }
+
+    /**
+     * Returns the index of the batch for the given printer command.
+     */
+    private static int typeOf(final PrinterCommand command) {
+        if (command instanceof ParameterizedPclCommand) {
+            return PARAMETERIZED_PCL;
+        } else if (command instanceof TextCommand) {
+            return TEXT;
+        } else if (command instanceof ControlCharacterCommand) {
+            return CONTROL_CHARACTER;
+        } else if (command instanceof TwoBytePclCommand) {
+            return TWO_BYTE_PCL;
+        } else if (command instanceof HpglCommand) {
+            return HPGL;
+        } else if (command instanceof PjlCommand) {
+            return PJL;
+        } else {
+            return OTHER;
+        }
+    }
+}
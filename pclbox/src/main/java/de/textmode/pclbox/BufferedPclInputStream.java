@@ -0,0 +1,200 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementation of {@link PclInputStream} that buffers another {@link PclInputStream}.
+ * The parsers read the data stream byte by byte, so without a buffer every single byte
+ * would result in a call of the underlying stream (which is a system call for files).
+ *
+ * <p>The current position is tracked by this class, so {@link #tell()} never needs to ask the
+ * underlying stream. A {@link #seek(long)} to an offset that lies within the current buffer
+ * is just an adjustment of the read position.
+ */
+final class BufferedPclInputStream implements PclInputStream, PclInputWindow {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int END_OF_STREAM = -1;
+    private static final long UNKNOWN_OFFSET = -1;
+
+    private final PclInputStream input;
+    private final byte[] buffer;
+    private final ByteBuffer window;
+
+    private long bufferOffset;
+    private int position;
+    private int count;
+
+    /**
+     * Constructor that is given the underlying {@link PclInputStream}. A buffer with the
+     * default size is used.
+     *
+     * @param input   the underlying {@link PclInputStream}.
+     */
+    BufferedPclInputStream(final PclInputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor that is given the underlying {@link PclInputStream} and the size of the buffer.
+     *
+     * @param input   the underlying {@link PclInputStream}.
+     * @param bufferSize   the size of the buffer in bytes.
+     */
+    BufferedPclInputStream(final PclInputStream input, final int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be greater than zero");
+        }
+
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+        this.window = ByteBuffer.wrap(this.buffer).order(ByteOrder.LITTLE_ENDIAN);
+        this.bufferOffset = UNKNOWN_OFFSET; // determined lazily, the constructor shall not do any I/O
+        this.position = 0;
+        this.count = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.position >= this.count && !this.fill()) {
+            return END_OF_STREAM;
+        }
+
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        // Unlike a plain InputStream we try to read as many bytes as requested. The parsers
+        // read data sections with a single read() call and expect to get the whole section...
+        int total = 0;
+        while (total < len) {
+            final int available = this.count - this.position;
+            if (available > 0) {
+                final int chunk = Math.min(available, len - total);
+                System.arraycopy(this.buffer, this.position, b, off + total, chunk);
+                this.position += chunk;
+                total += chunk;
+            } else if (len - total >= this.buffer.length) {
+                // Large reads bypass the buffer - there is no point in copying the data twice.
+                final long offset = this.tell();
+                final int read = this.input.read(b, off + total, len - total);
+                if (read == END_OF_STREAM) {
+                    break;
+                }
+                this.bufferOffset = offset + read;
+                this.position = 0;
+                this.count = 0;
+                total += read;
+            } else if (!this.fill()) {
+                break;
+            }
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (this.bufferOffset != UNKNOWN_OFFSET
+                && offset >= this.bufferOffset
+                && offset <= this.bufferOffset + this.count) {
+            this.position = (int) (offset - this.bufferOffset);
+        } else {
+            this.input.seek(offset);
+            this.bufferOffset = offset;
+            this.position = 0;
+            this.count = 0;
+        }
+    }
+
+    @Override
+    public long tell() throws IOException {
+        if (this.bufferOffset == UNKNOWN_OFFSET) {
+            this.bufferOffset = this.input.tell();
+        }
+        return this.bufferOffset + this.position;
+    }
+
+    @Override
+    public ByteBuffer getWindow() {
+        return this.window;
+    }
+
+    @Override
+    public int getWindowPosition() {
+        return this.position;
+    }
+
+    @Override
+    public int getWindowLimit() {
+        return this.count;
+    }
+
+    @Override
+    public void setWindowPosition(final int position) {
+        this.position = position;
+    }
+
+    @Override
+    public boolean fillWindow() throws IOException {
+        return this.position < this.count || this.fill();
+    }
+
+    @Override
+    public boolean isWindowStable() {
+        return false;
+    }
+
+    /**
+     * Refills the (completely consumed) buffer from the underlying {@link PclInputStream}.
+     *
+     * @return false if the end of the underlying stream has been reached.
+     */
+    private boolean fill() throws IOException {
+        this.bufferOffset = this.tell() + this.count - this.position;
+        this.position = 0;
+        this.count = 0;
+
+        final int read = this.input.read(this.buffer, 0, this.buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+
+        this.count = read;
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Helper methods for ranges of byte arrays (the JDK only supports whole arrays).
+ */
+final class ByteArrays {
+
+    /**
+     * Private constructor - only static methods.
+     */
+    private ByteArrays() {
+    }
+
+    /**
+     * Returns a hash code for the given range of a byte array. The hash code is the same as the hash code
+     * {@link java.util.Arrays#hashCode(byte[])} returns for an array with the content of the range.
+     *
+     * @param array   the byte array.
+     * @param start   the index of the first byte of the range.
+     * @param length   the length of the range.
+     *
+     * @return the hash code of the range.
+     */
+    static int hashCode(final byte[] array, final int start, final int length) {
+        int result = 1;
+        for (int ix = start; ix < start + length; ++ix) {
+            result = 31 * result + array[ix];
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given ranges of two byte arrays have the same length and content.
+     *
+     * @param array1   the first byte array.
+     * @param start1   the index of the first byte of the range within the first array.
+     * @param length1   the length of the range within the first array.
+     * @param array2   the second byte array.
+     * @param start2   the index of the first byte of the range within the second array.
+     * @param length2   the length of the range within the second array.
+     *
+     * @return true if both ranges have the same length and content.
+     */
+    static boolean equals(
+            final byte[] array1,
+            final int start1,
+            final int length1,
+            final byte[] array2,
+            final int start2,
+            final int length2) {
+
+        if (length1 != length2) {
+            return false;
+        }
+
+        for (int ix = 0; ix < length1; ++ix) {
+            if (array1[start1 + ix] != array2[start2 + ix]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,153 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A reusable {@link CharSequence} that is backed by a growing char array. The parsers collect values and
+ * parameters in a {@link CharArraySequence} and pass it to the {@link PrinterCommandEventHandler}, so no
+ * {@link String} has to be created for every command. The content is only valid during the callback.
+ */
+final class CharArraySequence implements CharSequence {
+
+    private char[] chars;
+    private int start;
+    private int end;
+
+    /**
+     * Constructor that is given the initial capacity.
+     *
+     * @param capacity   the initial capacity.
+     */
+    CharArraySequence(final int capacity) {
+        this.chars = new char[capacity];
+    }
+
+    /**
+     * Removes all characters.
+     */
+    void clear() {
+        this.start = 0;
+        this.end = 0;
+    }
+
+    /**
+     * Appends a character (a byte of the data stream).
+     *
+     * @param value   the character to append.
+     */
+    void append(final int value) {
+        if (this.end == this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, this.chars.length * 2);
+        }
+        this.chars[this.end++] = (char) value;
+    }
+
+    /**
+     * Returns the backing char array, so the parsers can append characters in a tight loop. The array has at
+     * least the given capacity (counted from the start of this {@link CharArraySequence}).
+     *
+     * @param capacity   the minimum capacity of the array.
+     *
+     * @return the backing char array.
+     */
+    char[] array(final int capacity) {
+        if (this.start + capacity > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length * 2, this.start + capacity));
+        }
+        return this.chars;
+    }
+
+    /**
+     * Sets the length of this {@link CharArraySequence} after characters have been written to the array
+     * returned by {@link #array(int)}.
+     *
+     * @param length   the new length.
+     */
+    void setLength(final int length) {
+        this.end = this.start + length;
+    }
+
+    /**
+     * Removes all leading and trailing characters that are less than or equal to a space (like
+     * {@link String#trim()} does).
+     */
+    void trim() {
+        while (this.start < this.end && this.chars[this.start] <= ' ') {
+            ++this.start;
+        }
+        while (this.end > this.start && this.chars[this.end - 1] <= ' ') {
+            --this.end;
+        }
+    }
+
+    /**
+     * Returns true if this {@link CharArraySequence} starts with the given prefix.
+     *
+     * @param prefix   the prefix to be checked.
+     *
+     * @return true if this {@link CharArraySequence} starts with the given prefix.
+     */
+    boolean startsWith(final String prefix) {
+        if (prefix.length() > this.length()) {
+            return false;
+        }
+
+        for (int ix = 0; ix < prefix.length(); ++ix) {
+            if (this.chars[this.start + ix] != prefix.charAt(ix)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if this {@link CharArraySequence} contains exactly the characters of the given {@link String}.
+     *
+     * @param other   the {@link String} to be compared.
+     *
+     * @return true if this {@link CharArraySequence} contains exactly the given characters.
+     */
+    boolean contentEquals(final String other) {
+        return this.length() == other.length() && this.startsWith(other);
+    }
+
+    @Override
+    public int length() {
+        return this.end - this.start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= this.length()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (length " + this.length() + ")");
+        }
+        return this.chars[this.start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int from, final int to) {
+        return this.toString().substring(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.chars, this.start, this.length());
+    }
+}
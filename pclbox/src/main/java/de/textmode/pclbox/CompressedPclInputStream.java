@@ -0,0 +1,333 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.textmode.pclbox.DeflateDecoder.Checkpoint;
+
+/**
+ * Base class of the {@link PclInputStream} implementations that decompress DEFLATE compressed data
+ * (gzip files and entries of zip archives). All offsets ({@link #tell()} and {@link #seek(long)}) are
+ * offsets within the uncompressed data.
+ *
+ * <p>Seeking forward decompresses (and discards) the data up to the requested offset. Seeking backwards
+ * has to restart decompression from the beginning - unless a checkpoint index is used. If the checkpoint
+ * interval is greater than zero, the state of the decompressor is stored (at the next block boundary)
+ * every time the given number of uncompressed bytes has been decoded. A {@link #seek(long)} then resumes
+ * decompression at the nearest checkpoint before the requested offset. Every checkpoint takes up to
+ * 32 KB of memory, so the interval should not be too small (a few megabytes is a good choice).
+ */
+abstract class CompressedPclInputStream implements PclInputStream, PclInputWindow {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int END_OF_STREAM = -1;
+
+    private final PclInputStream input;
+    private final DeflateDecoder decoder;
+    private final long checkpointInterval;
+    private final List<Checkpoint> checkpoints;
+    private final byte[] buffer;
+    private final ByteBuffer window;
+
+    private boolean started;
+    private long bufferOffset;
+    private int position;
+    private int count;
+
+    /**
+     * Constructor that is given the {@link PclInputStream} with the compressed data and the checkpoint
+     * interval.
+     *
+     * @param input   the {@link PclInputStream} that contains the compressed data.
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     */
+    CompressedPclInputStream(final PclInputStream input, final long checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("The checkpoint interval must not be negative");
+        }
+
+        this.input = input;
+        this.decoder = new DeflateDecoder(input);
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new ArrayList<>();
+        this.buffer = new byte[BUFFER_SIZE];
+        this.window = ByteBuffer.wrap(this.buffer).order(ByteOrder.LITTLE_ENDIAN);
+        this.started = false; // the constructor shall not do any I/O
+        this.bufferOffset = 0;
+        this.position = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Positions the {@link PclInputStream} with the compressed data to the beginning of the data and
+     * prepares the {@link DeflateDecoder} (by invoking {@link DeflateDecoder#startStream()}).
+     */
+    abstract void start() throws IOException;
+
+    /**
+     * Decompresses up to len bytes. Implementations use {@link #decode(byte[], int, int)}.
+     *
+     * @return the number of decompressed bytes or -1 if the end of the uncompressed data has been reached.
+     */
+    abstract int inflate(final byte[] b, final int off, final int len) throws IOException;
+
+    /**
+     * Invoked after the decompression has been resumed at a checkpoint.
+     */
+    abstract void restored();
+
+    /**
+     * Positions to the given uncompressed offset without decompression, if the data allows it.
+     *
+     * @return true if the position has been changed, false if the data has to be decompressed.
+     */
+    boolean seekDirectly(final long offset) throws IOException {
+        return false;
+    }
+
+    /**
+     * Returns the {@link PclInputStream} with the compressed data.
+     *
+     * @return the {@link PclInputStream} with the compressed data.
+     */
+    final PclInputStream getInput() {
+        return this.input;
+    }
+
+    /**
+     * Returns the {@link DeflateDecoder}.
+     *
+     * @return the {@link DeflateDecoder}.
+     */
+    final DeflateDecoder getDecoder() {
+        return this.decoder;
+    }
+
+    /**
+     * Returns the number of checkpoints that have been taken so far.
+     *
+     * @return the number of checkpoints.
+     */
+    final int getCheckpointCount() {
+        return this.checkpoints.size();
+    }
+
+    /**
+     * Decodes up to len bytes with the {@link DeflateDecoder} and takes a checkpoint if required.
+     *
+     * @return the number of decoded bytes or -1 if the end of the DEFLATE stream has been reached.
+     */
+    final int decode(final byte[] b, final int off, final int len) throws IOException {
+        if (this.checkpointInterval > 0 && this.decoder.isAtBlockBoundary()) {
+            final long last = this.checkpoints.isEmpty()
+                    ? 0
+                    : this.checkpoints.get(this.checkpoints.size() - 1).getUncompressedOffset();
+
+            if (this.decoder.getTotalOut() >= last + this.checkpointInterval) {
+                this.checkpoints.add(this.decoder.checkpoint());
+            }
+        }
+
+        return this.decoder.decode(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.checkpoints.clear();
+        this.input.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.position >= this.count && !this.fill()) {
+            return END_OF_STREAM;
+        }
+
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        // Like BufferedPclInputStream we try to read as many bytes as requested...
+        int total = 0;
+        while (total < len) {
+            if (this.position >= this.count && !this.fill()) {
+                break;
+            }
+
+            final int chunk = Math.min(this.count - this.position, len - total);
+            System.arraycopy(this.buffer, this.position, b, off + total, chunk);
+            this.position += chunk;
+            total += chunk;
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (this.started && offset >= this.bufferOffset && offset <= this.bufferOffset + this.count) {
+            this.position = (int) (offset - this.bufferOffset);
+            return;
+        }
+
+        if (!this.started) {
+            this.restart();
+        }
+
+        if (this.seekDirectly(offset)) {
+            this.reset(offset);
+            return;
+        }
+
+        final Checkpoint checkpoint = this.findCheckpoint(offset);
+        final long decoded = this.bufferOffset + this.count;
+
+        if (checkpoint != null && (checkpoint.getUncompressedOffset() > decoded || offset < this.bufferOffset)) {
+            this.decoder.restore(checkpoint);
+            this.restored();
+            this.reset(checkpoint.getUncompressedOffset());
+        } else if (offset < this.bufferOffset) {
+            this.restart();
+        }
+
+        // Now decompress (and discard) the data up to the requested offset...
+        while (offset > this.bufferOffset + this.count) {
+            this.position = this.count;
+            if (!this.fill()) {
+                throw new IOException("An error occurred when trying to position to offset " + offset);
+            }
+        }
+
+        this.position = (int) (offset - this.bufferOffset);
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.bufferOffset + this.position;
+    }
+
+    @Override
+    public ByteBuffer getWindow() {
+        return this.window;
+    }
+
+    @Override
+    public int getWindowPosition() {
+        return this.position;
+    }
+
+    @Override
+    public int getWindowLimit() {
+        return this.count;
+    }
+
+    @Override
+    public void setWindowPosition(final int position) {
+        this.position = position;
+    }
+
+    @Override
+    public boolean fillWindow() throws IOException {
+        return this.position < this.count || this.fill();
+    }
+
+    @Override
+    public boolean isWindowStable() {
+        return false;
+    }
+
+    /**
+     * Returns the checkpoint with the greatest uncompressed offset that is not greater than the given offset.
+     *
+     * @return the checkpoint or null if there is no such checkpoint.
+     */
+    private Checkpoint findCheckpoint(final long offset) {
+        int low = 0;
+        int high = this.checkpoints.size() - 1;
+        Checkpoint result = null;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final Checkpoint checkpoint = this.checkpoints.get(middle);
+            if (checkpoint.getUncompressedOffset() <= offset) {
+                result = checkpoint;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Restarts decompression at the beginning of the data.
+     */
+    private void restart() throws IOException {
+        this.decoder.setTotalOut(0);
+        this.start();
+        this.started = true;
+        this.reset(0);
+    }
+
+    /**
+     * Empties the buffer, the next decompressed byte will be located at the given offset.
+     */
+    private void reset(final long offset) {
+        this.bufferOffset = offset;
+        this.position = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Refills the (completely consumed) buffer with decompressed data.
+     *
+     * @return false if the end of the uncompressed data has been reached.
+     */
+    private boolean fill() throws IOException {
+        if (!this.started) {
+            this.restart();
+        }
+
+        this.reset(this.bufferOffset + this.count);
+
+        final int read = this.inflate(this.buffer, 0, this.buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+
+        this.count = read;
+        return true;
+    }
+}
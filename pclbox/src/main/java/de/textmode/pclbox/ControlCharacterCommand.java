@@ -64,6 +64,16 @@ public final class ControlCharacterCommand extends PrinterCommand {
      */
     public static final int SHIFT_IN = 15;
 
+    /**
+     * Canonical command strings, indexed by the (unsigned) control character.
+     */
+    private static final String[] COMMAND_STRINGS = new String[256];
+
+    static {
+        for (int ix = 0; ix < COMMAND_STRINGS.length; ++ix) {
+            COMMAND_STRINGS[ix] = String.format("0x%02X", ix);
+        }
+    }
 
     private final byte controlCharacter;
 
@@ -136,7 +146,12 @@ public final class ControlCharacterCommand extends PrinterCommand {
 
     @Override
     public String toCommandString() {
-        return String.format("0x%02X", this.getControlCharacter());
+        return COMMAND_STRINGS[this.getControlCharacter() & 0xFF];
+    }
+
+    @Override
+    public int getCommandCode() {
+        return CONTROL_CHARACTER_COMMAND_CODE | this.getControlCharacter() & 0xFF;
     }
 
     @Override
@@ -23,6 +23,11 @@ import java.io.IOException;
  */
 abstract class DataStreamParser {
 
+    /**
+     * Returned by {@link #parse()} if the parser has been suspended (see {@link PclParserContext#requestSuspend()}).
+     */
+    static final int SUSPENDED = -2;
+
     private final PclParserContext ctx;
 
     /**
@@ -54,20 +59,57 @@ abstract class DataStreamParser {
     }
 
     /**
-     * Gets the {@link PrinterCommandHandler} that handles the read {@link PrinterCommand}.
+     * Gets the {@link PrinterCommandEventHandler} that is invoked for every parsed printer command.
      *
-     * @return the {@link PrinterCommandHandler}.
+     * @return the {@link PrinterCommandEventHandler}.
      */
-    PrinterCommandHandler getPrinterCommandHandler() {
-        return this.ctx.getPrinterCommandHandler();
+    PrinterCommandEventHandler getEventHandler() {
+        return this.ctx.getEventHandler();
     }
 
     /**
-     * Parses the data stream. For every parsed {@link PrinterCommand} the {@link PrinterCommandHandler} is invoked.
+     * Parses the data stream. For every parsed printer command the {@link PrinterCommandEventHandler} is invoked.
      *
      * @return the last byte read from the data stream that has caused the parser to stop (i. e. the PJL parser
      *     will return 0x1B if it hits the first PCL command). This may also be -1 if the end of the data stream
-     *     has been reached.
+     *     has been reached. If a suspension has been requested by the handler, the parser returns {@link #SUSPENDED}
+     *     after the current printer command - calling this method again resumes parsing where it has been suspended.
      */
     abstract int parse() throws IOException, PclException;
+
+    /**
+     * Restores the state in which the parser has been suspended the last time, so the next call of {@link #parse()}
+     * resumes parsing there again. This is used if the parser has been resumed but the data stream has not contained
+     * enough bytes to get to the next printer command (see {@link PclPushParser}). Note that the caller has to
+     * reposition the {@link PclInputStream} to the offset it had when the parser has been suspended.
+     */
+    abstract void rollback();
+
+    /**
+     * Returns the bytes that may complete the printer command the parser has started to parse when it has been
+     * suspended (the printer command that is parsed again after a {@link #rollback()}). If the data stream that
+     * follows the suspension contains none of these bytes, a resumed parser would just run out of bytes within the
+     * same printer command again (see {@link PclPushParser}).
+     *
+     * @return a table of 256 entries that is true for the bytes that may complete the printer command or
+     *     <code>null</code> if any byte may complete it (or the parser has not been suspended).
+     */
+    boolean[] getPendingTerminators() {
+        return null;
+    }
+
+    /**
+     * Builds a table for {@link #getPendingTerminators()} that is true for the given bytes.
+     *
+     * @param terminators   the bytes that may complete a printer command.
+     *
+     * @return the table of 256 entries.
+     */
+    static boolean[] createTerminators(final int... terminators) {
+        final boolean[] result = new boolean[256];
+        for (final int terminator : terminators) {
+            result[terminator] = true;
+        }
+        return result;
+    }
 }
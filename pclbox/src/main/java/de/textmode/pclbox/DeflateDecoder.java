@@ -0,0 +1,617 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A decoder for raw DEFLATE data (RFC 1951) that reads the compressed data from a {@link PclInputStream}.
+ *
+ * <p>Unlike {@link java.util.zip.Inflater} this decoder can take a {@link Checkpoint} of its state at
+ * every block boundary and resume decoding at such a {@link Checkpoint} later. A {@link Checkpoint}
+ * consists of the bit position within the compressed data, the uncompressed offset and the last 32 KB
+ * of uncompressed data (the window that back references may refer to). This allows random access to
+ * compressed data without decompressing everything from the beginning.
+ */
+final class DeflateDecoder {
+
+    static final int WINDOW_SIZE = 32 * 1024;
+
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+    private static final int END_OF_STREAM = -1;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_STORED = 1;
+    private static final int STATE_HUFFMAN = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final int END_OF_BLOCK = 256;
+    private static final int MAX_BITS = 15;
+
+    private static final int[] LENGTH_BASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227,
+        258 };
+
+    private static final int[] LENGTH_EXTRA = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+
+    private static final int[] DISTANCE_BASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097,
+        6145, 8193, 12289, 16385, 24577 };
+
+    private static final int[] DISTANCE_EXTRA = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+
+    private static final int[] CODE_LENGTH_ORDER = {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private static final Huffman FIXED_LITERAL_LENGTH;
+    private static final Huffman FIXED_DISTANCE;
+
+    static {
+        final int[] lengths = new int[288];
+        Arrays.fill(lengths, 0, 144, 8);
+        Arrays.fill(lengths, 144, 256, 9);
+        Arrays.fill(lengths, 256, 280, 7);
+        Arrays.fill(lengths, 280, 288, 8);
+        FIXED_LITERAL_LENGTH = new Huffman(lengths, lengths.length);
+
+        final int[] distances = new int[30];
+        Arrays.fill(distances, 5);
+        FIXED_DISTANCE = new Huffman(distances, distances.length);
+    }
+
+    private final PclInputStream input;
+    private final byte[] window = new byte[WINDOW_SIZE];
+
+    private long bitBuffer;
+    private int bitCount;
+    private int paddingBits;
+
+    private int windowPosition;
+    private long totalOut;
+    private long streamOut;
+
+    private int state;
+    private boolean lastBlock;
+    private int storedRemaining;
+    private int copyLength;
+    private int copyDistance;
+    private Huffman literalLengthCodes;
+    private Huffman distanceCodes;
+
+    /**
+     * Constructor that is given the {@link PclInputStream} that contains the compressed data.
+     * Decoding starts at the current position of the {@link PclInputStream}.
+     *
+     * @param input   the {@link PclInputStream} that contains the compressed data.
+     */
+    DeflateDecoder(final PclInputStream input) {
+        this.input = input;
+        this.state = STATE_DONE;
+    }
+
+    /**
+     * Starts decoding of a new DEFLATE stream at the current position of the {@link PclInputStream}. The
+     * total number of decoded bytes is not reset (a gzip file may consist of multiple DEFLATE streams).
+     */
+    void startStream() {
+        this.bitBuffer = 0;
+        this.bitCount = 0;
+        this.paddingBits = 0;
+        this.streamOut = 0;
+        this.state = STATE_HEADER;
+        this.lastBlock = false;
+        this.copyLength = 0;
+    }
+
+    /**
+     * Resets the total number of decoded bytes.
+     *
+     * @param offset   the new total number of decoded bytes.
+     */
+    void setTotalOut(final long offset) {
+        this.totalOut = offset;
+    }
+
+    /**
+     * Returns the total number of decoded bytes.
+     *
+     * @return the total number of decoded bytes.
+     */
+    long getTotalOut() {
+        return this.totalOut;
+    }
+
+    /**
+     * Returns true if the end of the current DEFLATE stream has been reached.
+     *
+     * @return true if the end of the current DEFLATE stream has been reached.
+     */
+    boolean isFinished() {
+        return this.state == STATE_DONE && this.copyLength == 0;
+    }
+
+    /**
+     * Returns true if the decoder is located at a block boundary, so a {@link Checkpoint} can be taken.
+     *
+     * @return true if a {@link Checkpoint} can be taken.
+     */
+    boolean isAtBlockBoundary() {
+        return this.state == STATE_HEADER && this.copyLength == 0 && !this.lastBlock && this.paddingBits == 0;
+    }
+
+    /**
+     * Takes a {@link Checkpoint} at the current block boundary.
+     *
+     * @return the {@link Checkpoint}.
+     */
+    Checkpoint checkpoint() throws IOException {
+        assert this.isAtBlockBoundary();
+
+        final byte[] history = new byte[(int) Math.min(WINDOW_SIZE, this.streamOut)];
+        for (int ix = 0; ix < history.length; ++ix) {
+            history[ix] = this.window[(this.windowPosition - history.length + ix) & WINDOW_MASK];
+        }
+
+        return new Checkpoint(this.totalOut, this.input.tell() * 8 - this.bitCount, history);
+    }
+
+    /**
+     * Resumes decoding at the given {@link Checkpoint}.
+     *
+     * @param checkpoint   the {@link Checkpoint} where the decoding resumes.
+     */
+    void restore(final Checkpoint checkpoint) throws IOException {
+        this.startStream();
+
+        final int bitOffset = (int) (checkpoint.compressedBitOffset & 7);
+        this.input.seek(checkpoint.compressedBitOffset >>> 3);
+        if (bitOffset != 0) {
+            final int value = this.input.read();
+            if (value == END_OF_STREAM) {
+                throw this.createEndOfFileException();
+            }
+            this.bitBuffer = value >>> bitOffset;
+            this.bitCount = 8 - bitOffset;
+        }
+
+        System.arraycopy(checkpoint.history, 0, this.window, 0, checkpoint.history.length);
+        this.windowPosition = checkpoint.history.length & WINDOW_MASK;
+        this.streamOut = checkpoint.history.length;
+        this.totalOut = checkpoint.uncompressedOffset;
+    }
+
+    /**
+     * Positions the {@link PclInputStream} to the first byte after the end of the current DEFLATE stream.
+     * Must only be called if {@link #isFinished()} returns true.
+     */
+    void finishStream() throws IOException {
+        assert this.isFinished();
+
+        // The bit buffer may contain whole bytes that do not belong to the DEFLATE stream...
+        final int unusedBytes = (this.bitCount - this.paddingBits) >>> 3;
+        this.input.seek(this.input.tell() - unusedBytes);
+        this.bitBuffer = 0;
+        this.bitCount = 0;
+        this.paddingBits = 0;
+    }
+
+    /**
+     * Decodes up to len bytes.
+     *
+     * @param b   the buffer into which the decoded data is written.
+     * @param off   the start offset in array b at which the data is written.
+     * @param len   the maximum number of bytes to decode.
+     *
+     * @return the number of decoded bytes or -1 if the end of the DEFLATE stream has been reached.
+     */
+    int decode(final byte[] b, final int off, final int len) throws IOException {
+        int produced = 0;
+
+        while (produced < len) {
+            if (this.copyLength > 0) {
+                final int count = Math.min(this.copyLength, len - produced);
+                int from = this.windowPosition - this.copyDistance;
+                for (int ix = 0; ix < count; ++ix) {
+                    final byte value = this.window[from++ & WINDOW_MASK];
+                    this.window[this.windowPosition] = value;
+                    this.windowPosition = (this.windowPosition + 1) & WINDOW_MASK;
+                    b[off + produced++] = value;
+                }
+                this.copyLength -= count;
+                continue;
+            }
+
+            if (this.state == STATE_HUFFMAN) {
+                final int symbol = this.decodeSymbol(this.literalLengthCodes);
+                if (symbol < END_OF_BLOCK) {
+                    this.window[this.windowPosition] = (byte) symbol;
+                    this.windowPosition = (this.windowPosition + 1) & WINDOW_MASK;
+                    b[off + produced++] = (byte) symbol;
+                } else if (symbol == END_OF_BLOCK) {
+                    this.state = this.lastBlock ? STATE_DONE : STATE_HEADER;
+                } else {
+                    this.decodeBackReference(symbol - 257, produced);
+                }
+            } else if (this.state == STATE_STORED) {
+                if (this.storedRemaining == 0) {
+                    this.state = this.lastBlock ? STATE_DONE : STATE_HEADER;
+                    continue;
+                }
+
+                final int count = Math.min(this.storedRemaining, len - produced);
+                this.readStored(b, off + produced, count);
+                produced += count;
+                this.storedRemaining -= count;
+            } else if (this.state == STATE_HEADER) {
+                if (produced > 0) {
+                    // Return at every block boundary, so the caller has the chance to take a checkpoint.
+                    break;
+                }
+                this.decodeBlockHeader();
+            } else {
+                break;
+            }
+        }
+
+        this.totalOut += produced;
+        this.streamOut += produced;
+
+        return produced == 0 && this.isFinished() ? END_OF_STREAM : produced;
+    }
+
+    /**
+     * Decodes the length and distance of a back reference.
+     */
+    private void decodeBackReference(final int lengthSymbol, final int produced) throws IOException {
+        if (lengthSymbol >= LENGTH_BASE.length) {
+            throw this.createCorruptDataException("invalid length symbol");
+        }
+
+        final int length = LENGTH_BASE[lengthSymbol] + this.bits(LENGTH_EXTRA[lengthSymbol]);
+
+        final int distanceSymbol = this.decodeSymbol(this.distanceCodes);
+        if (distanceSymbol >= DISTANCE_BASE.length) {
+            throw this.createCorruptDataException("invalid distance symbol");
+        }
+
+        final int distance = DISTANCE_BASE[distanceSymbol] + this.bits(DISTANCE_EXTRA[distanceSymbol]);
+        if (distance > this.streamOut + produced) {
+            throw this.createCorruptDataException("distance too far back");
+        }
+
+        this.copyLength = length;
+        this.copyDistance = distance;
+    }
+
+    /**
+     * Reads stored (uncompressed) data.
+     */
+    private void readStored(final byte[] b, final int off, final int len) throws IOException {
+        int ix = 0;
+
+        // At first, use the whole bytes that are still in the bit buffer...
+        while (ix < len && this.bitCount >= 8) {
+            b[off + ix++] = (byte) this.bits(8);
+        }
+
+        while (ix < len) {
+            final int read = this.input.read(b, off + ix, len - ix);
+            if (read == END_OF_STREAM) {
+                throw this.createEndOfFileException();
+            }
+            ix += read;
+        }
+
+        for (int pos = off; pos < off + len; ++pos) {
+            this.window[this.windowPosition] = b[pos];
+            this.windowPosition = (this.windowPosition + 1) & WINDOW_MASK;
+        }
+    }
+
+    /**
+     * Decodes the header of the next block.
+     */
+    private void decodeBlockHeader() throws IOException {
+        this.lastBlock = this.bits(1) == 1;
+
+        switch (this.bits(2)) {
+        case 0:
+            // Stored blocks start at a byte boundary...
+            this.bits(this.bitCount & 7);
+            final int length = this.bits(16);
+            final int complement = this.bits(16);
+            if (length != (~complement & 0xFFFF)) {
+                throw this.createCorruptDataException("stored block length does not match its complement");
+            }
+            this.storedRemaining = length;
+            this.state = STATE_STORED;
+            break;
+
+        case 1:
+            this.literalLengthCodes = FIXED_LITERAL_LENGTH;
+            this.distanceCodes = FIXED_DISTANCE;
+            this.state = STATE_HUFFMAN;
+            break;
+
+        case 2:
+            this.decodeDynamicCodes();
+            this.state = STATE_HUFFMAN;
+            break;
+
+        default:
+            throw this.createCorruptDataException("invalid block type");
+        }
+    }
+
+    /**
+     * Decodes the Huffman codes of a block with dynamic Huffman codes.
+     */
+    private void decodeDynamicCodes() throws IOException {
+        final int literalLengthCount = this.bits(5) + 257;
+        final int distanceCount = this.bits(5) + 1;
+        final int codeLengthCount = this.bits(4) + 4;
+
+        if (literalLengthCount > 286 || distanceCount > 30) {
+            throw this.createCorruptDataException("too many length or distance codes");
+        }
+
+        final int[] codeLengthLengths = new int[19];
+        for (int ix = 0; ix < codeLengthCount; ++ix) {
+            codeLengthLengths[CODE_LENGTH_ORDER[ix]] = this.bits(3);
+        }
+
+        final Huffman codeLengthCodes = new Huffman(codeLengthLengths, codeLengthLengths.length);
+        if (!codeLengthCodes.isComplete()) {
+            throw this.createCorruptDataException("incomplete code length codes");
+        }
+
+        final int[] lengths = new int[literalLengthCount + distanceCount];
+        int ix = 0;
+        while (ix < lengths.length) {
+            final int symbol = this.decodeSymbol(codeLengthCodes);
+            if (symbol < 16) {
+                lengths[ix++] = symbol;
+                continue;
+            }
+
+            final int value;
+            final int repeat;
+            if (symbol == 16) {
+                if (ix == 0) {
+                    throw this.createCorruptDataException("repeat without previous length");
+                }
+                value = lengths[ix - 1];
+                repeat = 3 + this.bits(2);
+            } else if (symbol == 17) {
+                value = 0;
+                repeat = 3 + this.bits(3);
+            } else {
+                value = 0;
+                repeat = 11 + this.bits(7);
+            }
+
+            if (ix + repeat > lengths.length) {
+                throw this.createCorruptDataException("too many code lengths");
+            }
+
+            Arrays.fill(lengths, ix, ix + repeat, value);
+            ix += repeat;
+        }
+
+        if (lengths[END_OF_BLOCK] == 0) {
+            throw this.createCorruptDataException("missing end of block code");
+        }
+
+        this.literalLengthCodes = new Huffman(lengths, literalLengthCount);
+        this.distanceCodes = new Huffman(Arrays.copyOfRange(lengths, literalLengthCount, lengths.length),
+                distanceCount);
+    }
+
+    /**
+     * Decodes the next symbol with the given {@link Huffman} codes.
+     */
+    private int decodeSymbol(final Huffman codes) throws IOException {
+        this.need(MAX_BITS);
+
+        final int entry = codes.fast[(int) this.bitBuffer & Huffman.FAST_MASK];
+        if (entry != 0) {
+            this.drop(entry & 0x0F);
+            return entry >>> 4;
+        }
+
+        // Slow path for long codes (bit by bit, the codes are stored most significant bit first).
+        int code = 0;
+        int first = 0;
+        int index = 0;
+        for (int length = 1; length <= MAX_BITS; ++length) {
+            code |= (int) (this.bitBuffer >>> (length - 1)) & 1;
+            final int count = codes.counts[length];
+            if (code - count < first) {
+                this.drop(length);
+                return codes.symbols[index + (code - first)];
+            }
+            index += count;
+            first += count;
+            first <<= 1;
+            code <<= 1;
+        }
+
+        throw this.createCorruptDataException("invalid Huffman code");
+    }
+
+    /**
+     * Reads the given number of bits (0 to 16).
+     */
+    private int bits(final int count) throws IOException {
+        this.need(count);
+        final int result = (int) this.bitBuffer & ((1 << count) - 1);
+        this.drop(count);
+        return result;
+    }
+
+    /**
+     * Makes sure that the bit buffer contains at least the given number of bits. At the end of the
+     * compressed data the bit buffer is padded with zeros, because the last symbol may be shorter than
+     * the number of requested bits. Consuming the padding is detected by {@link #drop(int)}.
+     */
+    private void need(final int count) throws IOException {
+        while (this.bitCount < count) {
+            final int value = this.input.read();
+            if (value == END_OF_STREAM) {
+                this.paddingBits += 8;
+            } else {
+                this.bitBuffer |= (long) value << this.bitCount;
+            }
+            this.bitCount += 8;
+        }
+    }
+
+    /**
+     * Removes the given number of bits from the bit buffer.
+     */
+    private void drop(final int count) throws IOException {
+        this.bitBuffer >>>= count;
+        this.bitCount -= count;
+
+        if (this.bitCount < this.paddingBits) {
+            throw this.createEndOfFileException();
+        }
+    }
+
+    /**
+     * Returns a new {@link EOFException} for compressed data that ends unexpectedly.
+     */
+    private EOFException createEndOfFileException() {
+        return new EOFException("The compressed data stream unexpectedly ends. The data stream may be corrupted.");
+    }
+
+    /**
+     * Returns a new {@link IOException} for corrupt compressed data.
+     */
+    private IOException createCorruptDataException(final String reason) {
+        return new IOException("The compressed data stream is corrupt (" + reason + ")");
+    }
+
+    /**
+     * Canonical Huffman codes with a lookup table for short codes.
+     */
+    private static final class Huffman {
+
+        private static final int FAST_BITS = 9;
+        private static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+        private final int[] counts = new int[MAX_BITS + 1];
+        private final int[] symbols;
+        private final int[] fast = new int[1 << FAST_BITS];
+
+        /**
+         * Builds the codes for the given code lengths.
+         *
+         * @param lengths   the code length of each symbol (0 if the symbol is not used).
+         * @param count   the number of symbols.
+         */
+        Huffman(final int[] lengths, final int count) {
+            this.symbols = new int[count];
+
+            for (int symbol = 0; symbol < count; ++symbol) {
+                ++this.counts[lengths[symbol]];
+            }
+            this.counts[0] = 0;
+
+            final int[] offsets = new int[MAX_BITS + 2];
+            for (int length = 1; length <= MAX_BITS; ++length) {
+                offsets[length + 1] = offsets[length] + this.counts[length];
+            }
+
+            for (int symbol = 0; symbol < count; ++symbol) {
+                if (lengths[symbol] != 0) {
+                    this.symbols[offsets[lengths[symbol]]++] = symbol;
+                }
+            }
+
+            // Build the lookup table for all codes that are not longer than FAST_BITS. The table is
+            // indexed with the (reversed) bits as they appear in the bit buffer.
+            int code = 0;
+            int index = 0;
+            for (int length = 1; length <= FAST_BITS; ++length) {
+                for (int ix = 0; ix < this.counts[length]; ++ix) {
+                    final int reversed = Integer.reverse(code) >>> (32 - length);
+                    final int entry = this.symbols[index] << 4 | length;
+                    for (int fill = reversed; fill < this.fast.length; fill += 1 << length) {
+                        this.fast[fill] = entry;
+                    }
+                    ++code;
+                    ++index;
+                }
+                code <<= 1;
+            }
+        }
+
+        /**
+         * Returns true if the codes are complete (every bit sequence is a valid code).
+         *
+         * @return true if the codes are complete.
+         */
+        boolean isComplete() {
+            int left = 1;
+            for (int length = 1; length <= MAX_BITS; ++length) {
+                left <<= 1;
+                left -= this.counts[length];
+                if (left < 0) {
+                    return false;
+                }
+            }
+            return left == 0;
+        }
+    }
+
+    /**
+     * A {@link Checkpoint} stores everything that is required to resume decoding at a block boundary.
+     */
+    static final class Checkpoint {
+
+        private final long uncompressedOffset;
+        private final long compressedBitOffset;
+        private final byte[] history;
+
+        /**
+         * Constructor of a {@link Checkpoint}.
+         *
+         * @param uncompressedOffset   the total number of decoded bytes at the block boundary.
+         * @param compressedBitOffset   the bit position of the block within the compressed data.
+         * @param history   the last (up to) 32 KB of decoded data of the current DEFLATE stream.
+         */
+        Checkpoint(final long uncompressedOffset, final long compressedBitOffset, final byte[] history) {
+            this.uncompressedOffset = uncompressedOffset;
+            this.compressedBitOffset = compressedBitOffset;
+            this.history = history;
+        }
+
+        /**
+         * Returns the uncompressed offset of this {@link Checkpoint}.
+         *
+         * @return the uncompressed offset of this {@link Checkpoint}.
+         */
+        long getUncompressedOffset() {
+            return this.uncompressedOffset;
+        }
+    }
+}
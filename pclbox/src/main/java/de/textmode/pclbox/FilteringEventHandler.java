@@ -0,0 +1,110 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link PrinterCommandEventHandler} that passes just the printer commands to another
+ * {@link PrinterCommandEventHandler} that are accepted by a {@link PrinterCommandFilter}.
+ */
+final class FilteringEventHandler implements PrinterCommandEventHandler {
+
+    private final PrinterCommandEventHandler handler;
+    private final PrinterCommandFilter filter;
+
+    /**
+     * Constructor that is given the {@link PrinterCommandEventHandler} and the {@link PrinterCommandFilter}.
+     *
+     * @param handler   the {@link PrinterCommandEventHandler} that gets the accepted printer commands.
+     * @param filter   the {@link PrinterCommandFilter} that accepts the printer commands.
+     */
+    FilteringEventHandler(final PrinterCommandEventHandler handler, final PrinterCommandFilter filter) {
+        this.handler = handler;
+        this.filter = filter;
+    }
+
+    @Override
+    public void handleText(final long offset, final byte[] buffer, final int start, final int length)
+            throws IOException {
+
+        if (this.filter.isTextAccepted()) {
+            this.handler.handleText(offset, buffer, start, length);
+        }
+    }
+
+    @Override
+    public void handleControlCharacter(final long offset, final int controlCharacter) throws IOException {
+        if (this.filter.isControlCharacterAccepted()) {
+            this.handler.handleControlCharacter(offset, controlCharacter);
+        }
+    }
+
+    @Override
+    public void handleTwoBytePclCommand(final long offset, final int operationCharacter) throws IOException {
+        if (this.filter.isTwoBytePclCommandAccepted(operationCharacter)) {
+            this.handler.handleTwoBytePclCommand(offset, operationCharacter);
+        }
+    }
+
+    @Override
+    public void handleParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter,
+            final long value,
+            final CharSequence valueText,
+            final long dataOffset,
+            final byte[] dataSection,
+            final int dataStart,
+            final int dataLength) throws IOException {
+
+        if (this.filter.isParameterizedPclCommandAccepted(
+                parameterizedCharacter, groupCharacter, terminationCharacter)) {
+
+            this.handler.handleParameterizedPclCommand(
+                    offset,
+                    parameterizedCharacter,
+                    groupCharacter,
+                    terminationCharacter,
+                    value,
+                    valueText,
+                    dataOffset,
+                    dataSection,
+                    dataStart,
+                    dataLength);
+        }
+    }
+
+    @Override
+    public void handlePjlCommand(final long offset, final CharSequence command) throws IOException {
+        if (this.filter.isPjlCommandAccepted()) {
+            this.handler.handlePjlCommand(offset, command);
+        }
+    }
+
+    @Override
+    public void handleHpglCommand(final long offset, final int command, final CharSequence parameters)
+            throws IOException {
+
+        if (this.filter.isHpglCommandAccepted(command)) {
+            this.handler.handleHpglCommand(offset, command, parameters);
+        }
+    }
+}
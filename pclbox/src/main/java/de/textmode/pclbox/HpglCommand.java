@@ -27,8 +27,34 @@ public final class HpglCommand extends PrinterCommand {
 
     private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
 
+    private static final int LETTERS = 26;
+
+    /**
+     * Number of entries of a table that is indexed by {@link #tableIndex(int)}.
+     */
+    static final int TABLE_SIZE = LETTERS * LETTERS;
+
+    /**
+     * Canonical command strings, indexed by {@link #tableIndex(int)}.
+     */
+    private static final String[] COMMAND_STRINGS = new String[TABLE_SIZE];
+
+    static {
+        for (int ix = 0; ix < COMMAND_STRINGS.length; ++ix) {
+            COMMAND_STRINGS[ix] = new String(new char[] {(char) ('A' + ix / LETTERS), (char) ('A' + ix % LETTERS)});
+        }
+    }
+
     private final String command;
-    private final String parameters;
+    private final int commandCode;
+
+    // The parameters of a command that has been read by the parser are held as bytes, the string is built
+    // lazily. Note that a racy initialization is harmless because every thread builds an equal string...
+    private final byte[] parameterBytes;
+    private String parameters;
+
+    // The numbers are decoded when they are requested for the first time...
+    private volatile double[] numbers;
 
     /**
      * Constructor of the {@link HpglCommand}.
@@ -41,9 +67,32 @@ public final class HpglCommand extends PrinterCommand {
         super(offset);
 
         this.command = command;
+        this.commandCode = toCommandCode(command);
+        this.parameterBytes = null;
         this.parameters = parameters;
     }
 
+    /**
+     * Constructor of a {@link HpglCommand} that is given the parameters as read by the parser. The parameters
+     * are copied, but the {@link String} is built when it is requested for the first time.
+     *
+     * @param offset   position within the data stream
+     * @param command   The two character HP/GL command (upper case)
+     * @param parameters   the parameters to this command (or empty string), one character for every byte
+     */
+    HpglCommand(final long offset, final String command, final CharSequence parameters) {
+        super(offset);
+
+        final byte[] bytes = new byte[parameters.length()];
+        for (int ix = 0; ix < bytes.length; ++ix) {
+            bytes[ix] = (byte) parameters.charAt(ix);
+        }
+
+        this.command = command;
+        this.commandCode = toCommandCode(command);
+        this.parameterBytes = bytes;
+    }
+
     /**
      * Returns the two letter command of the HP/GL command.
      *
@@ -59,7 +108,129 @@ public final class HpglCommand extends PrinterCommand {
      * @return the parameters of the HP/GL command or an empty string if the command has no parameters.
      */
     public String getParameters() {
-        return this.parameters;
+        String result = this.parameters;
+        if (result == null) {
+            result = new String(this.parameterBytes, ISO_8859_1);
+            this.parameters = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of parameters of the HP/GL command (see {@link HpglParameters} for the format of the
+     * parameters). The parameters are decoded when they are requested for the first time.
+     *
+     * @return the number of parameters.
+     *
+     * @throws NumberFormatException if the parameters are no list of numbers.
+     */
+    public int getParameterCount() {
+        return this.getDecodedNumbers().length;
+    }
+
+    /**
+     * Returns a parameter of the HP/GL command as a number.
+     *
+     * @param index   the index of the parameter (0 for the first parameter).
+     *
+     * @return the parameter (as a double).
+     *
+     * @throws NumberFormatException if the parameters are no list of numbers.
+     * @throws IndexOutOfBoundsException if there is no parameter with the given index.
+     */
+    public double getNumber(final int index) {
+        final double[] decoded = this.getDecodedNumbers();
+        if (index < 0 || index >= decoded.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (count " + decoded.length + ")");
+        }
+        return decoded[index];
+    }
+
+    /**
+     * Copies all parameters of the HP/GL command as numbers to the given array.
+     *
+     * @param destination   the array to which the parameters are copied.
+     * @param offset   the index within the array of the first parameter.
+     *
+     * @return the number of copied parameters.
+     *
+     * @throws NumberFormatException if the parameters are no list of numbers.
+     * @throws IndexOutOfBoundsException if the array is too small.
+     */
+    public int getNumbers(final double[] destination, final int offset) {
+        final double[] decoded = this.getDecodedNumbers();
+        System.arraycopy(decoded, 0, destination, offset, decoded.length);
+        return decoded.length;
+    }
+
+    /**
+     * Returns the decoded parameters.
+     *
+     * @return the decoded parameters.
+     */
+    private double[] getDecodedNumbers() {
+        double[] result = this.numbers;
+        if (result == null) {
+            final HpglParameters decoder = new HpglParameters();
+            decoder.parse(this.getParameters());
+            result = decoder.toArray();
+            this.numbers = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int getCommandCode() {
+        return this.commandCode;
+    }
+
+    /**
+     * Returns the command code (see {@link PrinterCommand#getCommandCode()}) of the given HP/GL command. Only
+     * the first two characters of the command are packed into the command code.
+     *
+     * @param command   the two character HP/GL command (upper case)
+     *
+     * @return the command code.
+     */
+    public static int toCommandCode(final String command) {
+        final int first = command.length() > 0 ? command.charAt(0) & 0xFF : 0;
+        final int second = command.length() > 1 ? command.charAt(1) & 0xFF : 0;
+        return HPGL_COMMAND_CODE | first << 8 | second;
+    }
+
+    /**
+     * Returns the index of the HP/GL command with the given command code within a table of
+     * {@link #TABLE_SIZE} entries.
+     *
+     * @param commandCode   the command code of a HP/GL command.
+     *
+     * @return the index or -1 if the command code is no code of a HP/GL command that consists of two upper
+     *     case letters.
+     */
+    static int tableIndex(final int commandCode) {
+        final int first = (commandCode ^ HPGL_COMMAND_CODE) >>> 8;
+        final int second = commandCode & 0xFF;
+
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return -1;
+        }
+
+        return (first - 'A') * LETTERS + second - 'A';
+    }
+
+    /**
+     * Returns the canonical {@link String} of the given HP/GL command.
+     *
+     * @param command   the two character HP/GL command packed into an int (the first character in bits 8 to 15
+     *     and the second character in bits 0 to 7).
+     *
+     * @return the HP/GL command as a {@link String}.
+     */
+    static String commandStringFor(final int command) {
+        final int index = tableIndex(HPGL_COMMAND_CODE | command);
+        return index < 0
+                ? new String(new char[] {(char) (command >>> 8), (char) (command & 0xFF)})
+                : COMMAND_STRINGS[index];
     }
 
     @Override
@@ -74,7 +245,7 @@ public final class HpglCommand extends PrinterCommand {
 
     @Override
     public int hashCode() {
-        return this.command.hashCode() ^ this.parameters.hashCode() ^ this.getOffsetHash();
+        return this.command.hashCode() ^ this.getParameters().hashCode() ^ this.getOffsetHash();
     }
 
     @Override
@@ -107,11 +278,15 @@ public final class HpglCommand extends PrinterCommand {
     @Override
     public byte[] toByteArray() {
         final byte[] cmd = this.getCommand().getBytes(ISO_8859_1);
-        final byte[] parm = (this.getParameters() + ";").getBytes(ISO_8859_1);
-        final byte[] result = new byte[cmd.length + parm.length];
+        final byte[] parm = this.parameterBytes != null
+                ? this.parameterBytes
+                : this.getParameters().getBytes(ISO_8859_1);
+
+        final byte[] result = new byte[cmd.length + parm.length + 1];
 
         System.arraycopy(cmd, 0, result, 0, cmd.length);
         System.arraycopy(parm, 0, result, cmd.length, parm.length);
+        result[result.length - 1] = ';';
 
         return result;
     }
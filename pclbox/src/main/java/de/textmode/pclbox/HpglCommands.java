@@ -16,136 +16,145 @@ package de.textmode.pclbox;
  * limitations under the License.
  */
 
-import java.util.HashMap;
-
 /**
- * This class provides a static {@link HashMap} with mappings of a "unique command string"
- * to a textual description of a {@link Pcl5Command}.
+ * This class provides a static table with mappings of a command code (see {@link PrinterCommand#getCommandCode()})
+ * to a textual description of a {@link HpglCommand}. The table is indexed directly by the command code, so
+ * no command string has to be built to find the description.
  */
 final class HpglCommands {
 
-    private static final HashMap<String, String> MAPPINGS = new HashMap<>();
+    private static final String[] DESCRIPTIONS = new String[HpglCommand.TABLE_SIZE];
 
     static {
-        MAPPINGS.put("AA", "Absolute Arc");
-        MAPPINGS.put("AC", "Anchor Corner");
-        MAPPINGS.put("AC", "Alternate Font Definition");
-        MAPPINGS.put("AF", "Advance Full Page");
-        MAPPINGS.put("AH", "Advance Full Page");
-        MAPPINGS.put("AP", "Automatic Pen Operations");
-        MAPPINGS.put("AR", "Arc Relative Three Point");
-        MAPPINGS.put("AS", "Acceleration Select");
-        MAPPINGS.put("BF", "Buffer Plot");
-        MAPPINGS.put("BL", "Buffer Label");
-        MAPPINGS.put("BP", "Begin Plot");
-        MAPPINGS.put("BR", "Bezier Relative");
-        MAPPINGS.put("BZ", "Bezier Absolute");
-        MAPPINGS.put("CA", "Designate Alternate Character Set");
-        MAPPINGS.put("CC", "Character Chord Angle");
-        MAPPINGS.put("CF", "Character Fill Mode");
-        MAPPINGS.put("CI", "Circle");
-        MAPPINGS.put("CM", "Character Selection Mode");
-        MAPPINGS.put("CO", "Comment");
-        MAPPINGS.put("CP", "Character Plot");
-        MAPPINGS.put("CS", "Designate Standard Character Set");
-        MAPPINGS.put("CT", "Chord Tolerance");
-        MAPPINGS.put("CV", "Curved Line Generator");
-        MAPPINGS.put("DC", "Digitize Clear");
-        MAPPINGS.put("DF", "Default Values");
-        MAPPINGS.put("DI", "Absolute Direction");
-        MAPPINGS.put("DL", "Download Character");
-        MAPPINGS.put("DP", "Digitize Point");
-        MAPPINGS.put("DR", "Relative Direction");
-        MAPPINGS.put("DS", "Designate Character Into Slot");
-        MAPPINGS.put("DT", "Define Label Terminator");
-        MAPPINGS.put("DV", "Define Variable Text Path");
-        MAPPINGS.put("EA", "Edge Rectangle Absolute");
-        MAPPINGS.put("EC", "Enable Cutter");
-        MAPPINGS.put("EP", "Edge Polygon");
-        MAPPINGS.put("ER", "Edge Rectangle Relative");
-        MAPPINGS.put("ES", "Extra Space");
-        MAPPINGS.put("EW", "Edge Wedge");
-        MAPPINGS.put("FI", "Primary Font Selection By ID");
-        MAPPINGS.put("FN", "Secondary Font Selection By ID");
-        MAPPINGS.put("FP", "Fill Polygon");
-        MAPPINGS.put("FR", "Frame Advance");
-        MAPPINGS.put("FS", "Force Select");
-        MAPPINGS.put("FT", "Fill Type");
-        MAPPINGS.put("GC", "Group Count");
-        MAPPINGS.put("GM", "Graphics Memory");
-        MAPPINGS.put("IM", "Input Mask");
-        MAPPINGS.put("IN", "Initialize");
-        MAPPINGS.put("IP", "Input P1 And P2");
-        MAPPINGS.put("IR", "Input Relative P1 And P2");
-        MAPPINGS.put("IV", "Invoke Character Slot");
-        MAPPINGS.put("IW", "Input Window");
-        MAPPINGS.put("KY", "Define Key");
-        MAPPINGS.put("LA", "Line Attributes");
-        MAPPINGS.put("LB", "Label");
-        MAPPINGS.put("LM", "Label Mode");
-        MAPPINGS.put("LO", "Label Origin");
-        MAPPINGS.put("LT", "Line type");
-        MAPPINGS.put("MC", "Merge Control");
-        MAPPINGS.put("MG", "Message");
-        MAPPINGS.put("MT", "Media Type");
-        MAPPINGS.put("NP", "Number Of Pens");
-        MAPPINGS.put("NR", "Not Ready");
-        MAPPINGS.put("OA", "Output Actual position And Pen Status");
-        MAPPINGS.put("OC", "Output Commanded Position And Pen Status");
-        MAPPINGS.put("OD", "Output Digitized Point And Pen Status");
-        MAPPINGS.put("OE", "Output Error");
-        MAPPINGS.put("OF", "Output Factors");
-        MAPPINGS.put("OG", "Output Group Count");
-        MAPPINGS.put("OH", "Output Hard-Clip Limits");
-        MAPPINGS.put("OI", "Output Identification");
-        MAPPINGS.put("OK", "Output Key");
-        MAPPINGS.put("OL", "Output Label Length");
-        MAPPINGS.put("OO", "Output options");
-        MAPPINGS.put("OP", "Output P1 And P2");
-        MAPPINGS.put("OS", "Output Status");
-        MAPPINGS.put("OT", "Output Carousel Type");
-        MAPPINGS.put("OW", "Output Window");
-        MAPPINGS.put("PA", "Plot Absolute");
-        MAPPINGS.put("PB", "Print Buffered Label");
-        MAPPINGS.put("PC", "Pen Color Assignment");
-        MAPPINGS.put("PD", "Pen Down");
-        MAPPINGS.put("PE", "Polyline Encoded");
-        MAPPINGS.put("PG", "Advance Full Page");
-        MAPPINGS.put("PM", "Polygon Mode");
-        MAPPINGS.put("PP", "Pixel Placement");
-        MAPPINGS.put("PR", "Plot Relative");
-        MAPPINGS.put("PS", "Plot Size");
-        MAPPINGS.put("PT", "Pen Thickness");
-        MAPPINGS.put("PU", "Pen Up");
-        MAPPINGS.put("RA", "Fill Rectangle Absolute");
-        MAPPINGS.put("RO", "Rotate Coordinate System");
-        MAPPINGS.put("RP", "Replot");
-        MAPPINGS.put("RR", "Fill Rectangle Relative");
-        MAPPINGS.put("RT", "Relative Arc Three Point");
-        MAPPINGS.put("SA", "Select Alternate Font");
-        MAPPINGS.put("SB", "Scaleable Or Bitmap Fonts");
-        MAPPINGS.put("SC", "Scale");
-        MAPPINGS.put("SD", "Standard Font Definition");
-        MAPPINGS.put("SI", "Absolute Character Size");
-        MAPPINGS.put("SL", "Character Slant");
-        MAPPINGS.put("SM", "Symbol Mode");
-        MAPPINGS.put("SP", "Select Pen");
-        MAPPINGS.put("SR", "Relative Character Size");
-        MAPPINGS.put("SS", "Select Standard Font");
-        MAPPINGS.put("ST", "Sort");
-        MAPPINGS.put("SC", "Screened Vectors");
-        MAPPINGS.put("TD", "Transparent Data");
-        MAPPINGS.put("TL", "Tick Length");
-        MAPPINGS.put("TR", "Transparency Mode");
-        MAPPINGS.put("UC", "User-Defined Character");
-        MAPPINGS.put("UF", "User-Defined Fill Type");
-        MAPPINGS.put("UL", "User-Defined Line Type");
-        MAPPINGS.put("VS", "Velocity Select");
-        MAPPINGS.put("WD", "Write To Display");
-        MAPPINGS.put("WG", "Fill Wedge");
-        MAPPINGS.put("WU", "Pen Width Unit Selection");
-        MAPPINGS.put("XT", "X-Tick");
-        MAPPINGS.put("YT", "Y-Tick");
+        put("AA", "Absolute Arc");
+        put("AC", "Anchor Corner");
+        put("AC", "Alternate Font Definition");
+        put("AF", "Advance Full Page");
+        put("AH", "Advance Full Page");
+        put("AP", "Automatic Pen Operations");
+        put("AR", "Arc Relative Three Point");
+        put("AS", "Acceleration Select");
+        put("BF", "Buffer Plot");
+        put("BL", "Buffer Label");
+        put("BP", "Begin Plot");
+        put("BR", "Bezier Relative");
+        put("BZ", "Bezier Absolute");
+        put("CA", "Designate Alternate Character Set");
+        put("CC", "Character Chord Angle");
+        put("CF", "Character Fill Mode");
+        put("CI", "Circle");
+        put("CM", "Character Selection Mode");
+        put("CO", "Comment");
+        put("CP", "Character Plot");
+        put("CS", "Designate Standard Character Set");
+        put("CT", "Chord Tolerance");
+        put("CV", "Curved Line Generator");
+        put("DC", "Digitize Clear");
+        put("DF", "Default Values");
+        put("DI", "Absolute Direction");
+        put("DL", "Download Character");
+        put("DP", "Digitize Point");
+        put("DR", "Relative Direction");
+        put("DS", "Designate Character Into Slot");
+        put("DT", "Define Label Terminator");
+        put("DV", "Define Variable Text Path");
+        put("EA", "Edge Rectangle Absolute");
+        put("EC", "Enable Cutter");
+        put("EP", "Edge Polygon");
+        put("ER", "Edge Rectangle Relative");
+        put("ES", "Extra Space");
+        put("EW", "Edge Wedge");
+        put("FI", "Primary Font Selection By ID");
+        put("FN", "Secondary Font Selection By ID");
+        put("FP", "Fill Polygon");
+        put("FR", "Frame Advance");
+        put("FS", "Force Select");
+        put("FT", "Fill Type");
+        put("GC", "Group Count");
+        put("GM", "Graphics Memory");
+        put("IM", "Input Mask");
+        put("IN", "Initialize");
+        put("IP", "Input P1 And P2");
+        put("IR", "Input Relative P1 And P2");
+        put("IV", "Invoke Character Slot");
+        put("IW", "Input Window");
+        put("KY", "Define Key");
+        put("LA", "Line Attributes");
+        put("LB", "Label");
+        put("LM", "Label Mode");
+        put("LO", "Label Origin");
+        put("LT", "Line type");
+        put("MC", "Merge Control");
+        put("MG", "Message");
+        put("MT", "Media Type");
+        put("NP", "Number Of Pens");
+        put("NR", "Not Ready");
+        put("OA", "Output Actual position And Pen Status");
+        put("OC", "Output Commanded Position And Pen Status");
+        put("OD", "Output Digitized Point And Pen Status");
+        put("OE", "Output Error");
+        put("OF", "Output Factors");
+        put("OG", "Output Group Count");
+        put("OH", "Output Hard-Clip Limits");
+        put("OI", "Output Identification");
+        put("OK", "Output Key");
+        put("OL", "Output Label Length");
+        put("OO", "Output options");
+        put("OP", "Output P1 And P2");
+        put("OS", "Output Status");
+        put("OT", "Output Carousel Type");
+        put("OW", "Output Window");
+        put("PA", "Plot Absolute");
+        put("PB", "Print Buffered Label");
+        put("PC", "Pen Color Assignment");
+        put("PD", "Pen Down");
+        put("PE", "Polyline Encoded");
+        put("PG", "Advance Full Page");
+        put("PM", "Polygon Mode");
+        put("PP", "Pixel Placement");
+        put("PR", "Plot Relative");
+        put("PS", "Plot Size");
+        put("PT", "Pen Thickness");
+        put("PU", "Pen Up");
+        put("RA", "Fill Rectangle Absolute");
+        put("RO", "Rotate Coordinate System");
+        put("RP", "Replot");
+        put("RR", "Fill Rectangle Relative");
+        put("RT", "Relative Arc Three Point");
+        put("SA", "Select Alternate Font");
+        put("SB", "Scaleable Or Bitmap Fonts");
+        put("SC", "Scale");
+        put("SD", "Standard Font Definition");
+        put("SI", "Absolute Character Size");
+        put("SL", "Character Slant");
+        put("SM", "Symbol Mode");
+        put("SP", "Select Pen");
+        put("SR", "Relative Character Size");
+        put("SS", "Select Standard Font");
+        put("ST", "Sort");
+        put("SC", "Screened Vectors");
+        put("TD", "Transparent Data");
+        put("TL", "Tick Length");
+        put("TR", "Transparency Mode");
+        put("UC", "User-Defined Character");
+        put("UF", "User-Defined Fill Type");
+        put("UL", "User-Defined Line Type");
+        put("VS", "Velocity Select");
+        put("WD", "Write To Display");
+        put("WG", "Fill Wedge");
+        put("WU", "Pen Width Unit Selection");
+        put("XT", "X-Tick");
+        put("YT", "Y-Tick");
+    }
+
+    /**
+     * Stores the textual description of a {@link HpglCommand}.
+     *
+     * @param commandString   the two letter command of the {@link HpglCommand}.
+     * @param description   the textual description of the {@link HpglCommand}.
+     */
+    private static void put(final String commandString, final String description) {
+        DESCRIPTIONS[HpglCommand.tableIndex(HpglCommand.toCommandCode(commandString))] = description;
     }
 
     /**
@@ -156,9 +165,22 @@ final class HpglCommands {
      * @return a textual description the the {@link HpglCommand}.
      */
     static String getCommandDescriptionFor(final HpglCommand command) {
-        final String cmdString = command.toCommandString();
-        final String result = MAPPINGS.get(cmdString);
+        final String result = command.getCommand().length() == 2
+                ? getCommandDescriptionFor(command.getCommandCode())
+                : null;
 
-        return result == null ? "Unknown HP/GL-Command " + cmdString : result;
+        return result == null ? "Unknown HP/GL-Command " + command.toCommandString() : result;
+    }
+
+    /**
+     * Returns the textual description of the {@link HpglCommand} with the given command code.
+     *
+     * @param commandCode   the command code of the {@link HpglCommand}.
+     *
+     * @return the textual description or <code>null</code> if the {@link HpglCommand} is unknown.
+     */
+    static String getCommandDescriptionFor(final int commandCode) {
+        final int index = HpglCommand.tableIndex(commandCode);
+        return index < 0 ? null : DESCRIPTIONS[index];
     }
 }
@@ -0,0 +1,218 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Arrays;
+
+/**
+ * The {@link HpglParameters} decodes the parameters of a HP/GL command into numbers. The parameters have to
+ * be a list of signed integers or decimals that are separated by commas and/or spaces (like "10,20" or
+ * "-1.5 2"). The numbers are held in a reusable buffer, so a {@link PrinterCommandEventHandler} may use a
+ * single {@link HpglParameters} to decode the parameters of all HP/GL commands without creating a
+ * {@link String} for every parameter.
+ */
+public final class HpglParameters {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Numbers with up to 15 digits fit exactly into a double, so they are converted by a single (correctly
+    // rounded) division. Longer numbers are left to Double.parseDouble...
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int ix = 1; ix < POWERS_OF_TEN.length; ++ix) {
+            POWERS_OF_TEN[ix] = POWERS_OF_TEN[ix - 1] * 10.0;
+        }
+    }
+
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    private int count;
+
+    /**
+     * Decodes the given parameters of a HP/GL command. The previously decoded numbers are discarded.
+     *
+     * @param parameters   the parameters of a HP/GL command (see {@link HpglCommand#getParameters()}).
+     *
+     * @return the number of decoded numbers.
+     *
+     * @throws NumberFormatException if the parameters are no list of numbers.
+     */
+    public int parse(final CharSequence parameters) {
+        final int length = parameters.length();
+        this.count = 0;
+
+        int ix = 0;
+        for (;;) {
+            while (ix < length && isSeparator(parameters.charAt(ix))) {
+                ++ix;
+            }
+
+            if (ix == length) {
+                return this.count;
+            }
+
+            final int start = ix;
+            final char sign = parameters.charAt(ix);
+            if (sign == '+' || sign == '-') {
+                ++ix;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean decimalPoint = false;
+
+            for (; ix < length; ++ix) {
+                final char digit = parameters.charAt(ix);
+                if (digit >= '0' && digit <= '9') {
+                    mantissa = mantissa * 10 + digit - '0';
+                    ++digits;
+                    if (decimalPoint) {
+                        ++fractionDigits;
+                    }
+                } else if (digit == '.' && !decimalPoint) {
+                    decimalPoint = true;
+                } else {
+                    break;
+                }
+            }
+
+            if (digits == 0 || ix < length && !isSeparator(parameters.charAt(ix))) {
+                throw new NumberFormatException(
+                        "The parameters \"" + parameters + "\" of the HP/GL command are no list of numbers");
+            }
+
+            final double value = digits <= MAX_FAST_DIGITS
+                    ? mantissa / POWERS_OF_TEN[fractionDigits]
+                    : Double.parseDouble(parameters.subSequence(start, ix).toString());
+
+            this.add(sign == '-' && digits <= MAX_FAST_DIGITS ? -value : value);
+        }
+    }
+
+    /**
+     * Returns the number of decoded numbers.
+     *
+     * @return the number of decoded numbers.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns a decoded number.
+     *
+     * @param index   the index of the number (0 for the first number).
+     *
+     * @return the number.
+     *
+     * @throws IndexOutOfBoundsException if there is no number with the given index.
+     */
+    public double getNumber(final int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (count " + this.count + ")");
+        }
+        return this.numbers[index];
+    }
+
+    /**
+     * Returns a decoded number as an int. Decimal places are truncated (so 1.5 is returned as 1).
+     *
+     * @param index   the index of the number (0 for the first number).
+     *
+     * @return the number (as an int).
+     *
+     * @throws IndexOutOfBoundsException if there is no number with the given index.
+     */
+    public int getInt(final int index) {
+        return (int) this.getNumber(index);
+    }
+
+    /**
+     * Copies all decoded numbers to the given array.
+     *
+     * @param destination   the array to which the numbers are copied.
+     * @param offset   the index within the array of the first number.
+     *
+     * @return the number of copied numbers.
+     *
+     * @throws IndexOutOfBoundsException if the array is too small.
+     */
+    public int getNumbers(final double[] destination, final int offset) {
+        System.arraycopy(this.numbers, 0, destination, offset, this.count);
+        return this.count;
+    }
+
+    /**
+     * Copies all decoded numbers as ints to the given array. Decimal places are truncated.
+     *
+     * @param destination   the array to which the numbers are copied.
+     * @param offset   the index within the array of the first number.
+     *
+     * @return the number of copied numbers.
+     *
+     * @throws IndexOutOfBoundsException if the array is too small.
+     */
+    public int getInts(final int[] destination, final int offset) {
+        if (offset < 0 || offset > destination.length - this.count) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "%1$d numbers do not fit into an array of length %2$d at offset %3$d",
+                    this.count, destination.length, offset));
+        }
+
+        for (int ix = 0; ix < this.count; ++ix) {
+            destination[offset + ix] = (int) this.numbers[ix];
+        }
+        return this.count;
+    }
+
+    /**
+     * Returns a copy of the decoded numbers.
+     *
+     * @return a new array that contains the decoded numbers.
+     */
+    double[] toArray() {
+        return Arrays.copyOf(this.numbers, this.count);
+    }
+
+    /**
+     * Appends a decoded number.
+     *
+     * @param value   the number.
+     */
+    private void add(final double value) {
+        if (this.count == this.numbers.length) {
+            this.numbers = Arrays.copyOf(this.numbers, this.numbers.length * 2);
+        }
+        this.numbers[this.count++] = value;
+    }
+
+    /**
+     * Returns true if the given character separates two numbers (a comma or a space).
+     *
+     * @param character   the character to be checked.
+     *
+     * @return true if the given character is a separator.
+     */
+    private static boolean isSeparator(final char character) {
+        return character == ',' || character <= ' ';
+    }
+}
@@ -18,22 +18,49 @@ package de.textmode.pclbox;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.nio.charset.Charset;
 
 /**
  * This {@link HpglParser} parses HP/GL and HP/GL-2 data stream. This parser is quite simple
  * and does only support HP/GL commands that are terminated by a ";". The HP/GL specification
  * does not require this termiantor in all cases, but nowadays it is a convention to use the
  * terminator.
+ *
+ * <p>If the {@link PclInputStream} provides a {@link PclInputWindow} the parameters are scanned in bulk
+ * within the window (only quoted strings are parsed byte by byte), so plot jobs that consist of millions
+ * of short commands like "PD" or "PA" are parsed without calling {@link PclInputStream#read()} for every byte.
  */
 final class HpglParser extends DataStreamParser {
 
-    private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
-
     private static final int END_OF_STREAM = -1;
     private static final int ESCAPE = 0x1B;
     private static final int TERMINATOR = ';';
     private static final int DOUBLE_QUOTES = '\"';
+    private static final int INITIAL_PARAMETER_BUFFER_SIZE = 128;
+    private static final int POLYLINE_ENCODED = 'P' << 8 | 'E';
+
+    /**
+     * Case-folding table for the letters of the commands. HP/GL commands can be upper or lower case - we'll
+     * convert to upper case because this is the most common way....
+     */
+    private static final int[] UPPER_CASE = new int[256];
+
+    static {
+        for (int ix = 0; ix < UPPER_CASE.length; ++ix) {
+            UPPER_CASE[ix] = ix >= 'a' && ix <= 'z' ? ix - ('a' - 'A') : ix;
+        }
+    }
+
+    // The parameters of a HP/GL command are completed by the terminator or the end of a quoted string. The
+    // escape byte is included because a suspended parser returns to PCL if the next command starts with it...
+    private static final boolean[] PENDING_TERMINATORS = createTerminators(TERMINATOR, DOUBLE_QUOTES, ESCAPE);
+
+    private final CharArraySequence parameters = new CharArraySequence(INITIAL_PARAMETER_BUFFER_SIZE);
+    private final PclInputWindow window;
+    private final PolylineEncodedDecoder polylineEncodedDecoder;
+
+    // The byte that has already been read when the parser has been suspended...
+    private boolean suspended;
+    private int suspendedByte;
 
     /**
      * Constructor. Just gets the {@link PclParserContext}.
@@ -42,28 +69,40 @@ final class HpglParser extends DataStreamParser {
      */
     HpglParser(PclParserContext ctx) {
         super(ctx);
+
+        final PclInputStream input = ctx.getInputStream();
+        this.window = input instanceof PclInputWindow ? (PclInputWindow) input : null;
+
+        // The decoder is not used if the "PE" commands are dropped by the filter anyway...
+        final PrinterCommandFilter filter = ctx.getFilter();
+        this.polylineEncodedDecoder = filter == null || filter.isHpglCommandAccepted(POLYLINE_ENCODED)
+                ? ctx.getPolylineEncodedDecoder()
+                : null;
     }
 
     @Override
     int parse() throws IOException, PclException {
 
-        final byte[] commandBytes = new byte[2];
-        int firstByte = this.getInputStream().read();
+        int firstByte = this.suspended ? this.suspendedByte : this.getInputStream().read();
+        this.suspended = false;
 
         while (firstByte != ESCAPE && firstByte != END_OF_STREAM) {
+            // The parser is only suspended in front of another HP/GL command - an escape byte (or the end of
+            // the stream) always returns to PCL...
+            if (this.getContext().isSuspendRequested()) {
+                this.suspended = true;
+                this.suspendedByte = firstByte;
+                return SUSPENDED;
+            }
+
             final int secondByte = this.getInputStream().read();
             if (secondByte == END_OF_STREAM) {
                 throw this.createEndOfFileException();
             }
 
-            commandBytes[0] = (byte) (firstByte & 0xFF);
-            commandBytes[1] = (byte) (secondByte & 0xFF);
-
-            // HP/GL commands can be upper or lower case - we'll convert to upper case
-            // because this is the most common way....
             firstByte = this.parseCommand(
                     this.getInputStream().tell() - 2,
-                    new String(commandBytes, ISO_8859_1).toUpperCase());
+                    UPPER_CASE[firstByte] << 8 | UPPER_CASE[secondByte]);
 
             if (firstByte == TERMINATOR) {
                 firstByte = this.getInputStream().read();
@@ -73,15 +112,25 @@ final class HpglParser extends DataStreamParser {
         return firstByte;
     }
 
+    @Override
+    void rollback() {
+        this.suspended = true;
+    }
+
+    @Override
+    boolean[] getPendingTerminators() {
+        return this.suspended && this.suspendedByte != ESCAPE ? PENDING_TERMINATORS : null;
+    }
+
     /**
      * Parses the HP/GL command from the data Stream. The first two Bytes of the command have been read
      * already, so this method reads the rest of the command - at least if the command is no "two byte command".
      *
-     * @param command   the HP/GL command (in upper case)
+     * @param command   the HP/GL command (two letters in upper case, packed into an int)
      *
      * @return the value of the last read byte that has been read from the stream
      */
-    private int parseCommand(final long offset, final String command) throws IOException {
+    private int parseCommand(final long offset, final int command) throws IOException {
 
         // HP/GL is somewhat painful. Normally, HP/GL commands do not require a terminator, but some do. Even further
         // there are commands that are terminated by a user defined termination character and not the default ";"
@@ -92,15 +141,31 @@ final class HpglParser extends DataStreamParser {
         // Currently we only support commands that are terminated with the default terminator ";". Nowadays this is
         // by convention the way HP/GL is included in PCL... At least I've never seen HP/GL (embedded in PCL) that
         // does not follow this convention...
-        final StringBuilder sb = new StringBuilder();
+        final CharArraySequence sb = this.parameters;
+        sb.clear();
+
+        if (command == POLYLINE_ENCODED && this.polylineEncodedDecoder != null) {
+            this.decodePolylineEncoded(offset);
+            this.getEventHandler().handleHpglCommand(offset, command, sb);
+
+            return TERMINATOR;
+        }
+
+        if (this.window != null && scanParameters(this.window, sb)) {
+            sb.trim();
+            this.getEventHandler().handleHpglCommand(offset, command, sb);
+
+            return TERMINATOR;
+        }
+
         boolean inQuotedString = false;
         int readByte = this.getInputStream().read();
 
         while (readByte != END_OF_STREAM) {
 
             if (readByte == TERMINATOR && !inQuotedString) {
-                this.getPrinterCommandHandler().handlePrinterCommand(
-                        new HpglCommand(offset, command, sb.toString().trim()));
+                sb.trim();
+                this.getEventHandler().handleHpglCommand(offset, command, sb);
 
                 return readByte;
             } else {
@@ -114,8 +179,8 @@ final class HpglParser extends DataStreamParser {
                 if (inQuotedString) {
                     final int nextByte = this.getInputStream().read();
                     if (nextByte != DOUBLE_QUOTES) {
-                        this.getPrinterCommandHandler().handlePrinterCommand(
-                                new HpglCommand(offset, command, sb.toString().trim()));
+                        sb.trim();
+                        this.getEventHandler().handleHpglCommand(offset, command, sb);
 
                         return nextByte;
                     }
@@ -133,6 +198,93 @@ final class HpglParser extends DataStreamParser {
         throw this.createEndOfFileException();
     }
 
+    /**
+     * Passes the parameters of a "PE" command to the {@link PolylineEncodedDecoder} while they are read (in
+     * bulk if the {@link PclInputStream} provides a {@link PclInputWindow}). The parameters of a "PE" command
+     * never contain double quotes and end at the first terminator, which is consumed.
+     *
+     * @param offset   offset of the "PE" command, measured from the beginning of the read data stream.
+     */
+    private void decodePolylineEncoded(final long offset) throws IOException {
+        final PolylineEncodedDecoder decoder = this.polylineEncodedDecoder;
+        decoder.start(offset);
+
+        if (this.window != null) {
+            for (;;) {
+                final byte[] buffer = this.window.getWindow().array();
+                final int start = this.window.getWindowPosition();
+                final int limit = this.window.getWindowLimit();
+
+                int ix = start;
+                while (ix < limit && buffer[ix] != TERMINATOR) {
+                    ++ix;
+                }
+
+                this.window.setWindowPosition(ix < limit ? ix + 1 : limit);
+                decoder.decode(buffer, start, ix - start);
+
+                if (ix < limit) {
+                    break;
+                }
+                if (!this.window.fillWindow()) {
+                    throw this.createEndOfFileException();
+                }
+            }
+        } else {
+            int readByte = this.getInputStream().read();
+            while (readByte != TERMINATOR) {
+                if (readByte == END_OF_STREAM) {
+                    throw this.createEndOfFileException();
+                }
+                decoder.decode(readByte);
+                readByte = this.getInputStream().read();
+            }
+        }
+
+        decoder.end();
+    }
+
+    /**
+     * Scans the parameters of a HP/GL command within the window of the {@link PclInputStream} and appends
+     * them to the given {@link CharArraySequence}. The scan stops at the terminator, which is consumed, or in
+     * front of double quotes, which are left to the byte by byte parsing of quoted strings (so are bytes
+     * after the end of the data stream).
+     *
+     * @param window   the {@link PclInputWindow} of the {@link PclInputStream}.
+     * @param sb   the (empty) {@link CharArraySequence} to which the parameters are appended.
+     *
+     * @return true if the terminator has been reached.
+     */
+    private static boolean scanParameters(final PclInputWindow window, final CharArraySequence sb)
+            throws IOException {
+
+        int length = 0;
+
+        for (;;) {
+            final byte[] buffer = window.getWindow().array();
+            final int start = window.getWindowPosition();
+            final int limit = window.getWindowLimit();
+            final char[] chars = sb.array(length + limit - start);
+
+            int ix = start;
+            while (ix < limit && buffer[ix] != TERMINATOR && buffer[ix] != DOUBLE_QUOTES) {
+                chars[length++] = (char) (buffer[ix++] & 0xFF);
+            }
+            sb.setLength(length);
+
+            if (ix < limit) {
+                final boolean terminated = buffer[ix] == TERMINATOR;
+                window.setWindowPosition(terminated ? ix + 1 : ix);
+                return terminated;
+            }
+
+            window.setWindowPosition(limit);
+            if (!window.fillWindow()) {
+                return false;
+            }
+        }
+    }
+
     /**
      * Returns a new {@link EOFException} that contains the offset at which the data stream
      * hits unexpectedly the end.
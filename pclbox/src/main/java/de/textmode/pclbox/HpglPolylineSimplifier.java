@@ -0,0 +1,453 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Implementation of {@link PrinterCommandHandler} that simplifies the polylines of HP/GL-2 data streams and
+ * passes the resulting (usually much smaller) data stream to another {@link PrinterCommandHandler}. Consecutive
+ * "PA", "PR", "PD" and "PU" commands are merged into as few commands as possible and the points of a line that
+ * lie within the tolerance of the simplified line are dropped (so are collinear points and points closer than
+ * the resolution of the device). Moves with the pen up are reduced to their target. All other printer commands
+ * are passed unchanged, after the merged commands that precede them. The pending commands are passed by
+ * {@link #flush()}, which has to be invoked after the data stream has been parsed:
+ *
+ * <pre>
+ * final HpglPolylineSimplifier simplifier = new HpglPolylineSimplifier(writer, 1.0);
+ * new PclParser(input, simplifier).parse();
+ * simplifier.flush();
+ * </pre>
+ *
+ * <p>The tolerance is measured in the units of the coordinates within the data stream (plotter units of
+ * 0.025 mm unless the data stream scales them). A dropped point is never farther from the simplified line than
+ * the tolerance, so a tolerance of 0 drops only points that lie exactly on a straight line. Points are only
+ * dropped as long as the plot mode (absolute or relative) is known; the pen position does not have to be known.
+ * In symbol mode ("SM" with a symbol) every point draws the symbol, so the commands are passed unchanged until
+ * symbol mode is turned off by "SM", "IN" or "DF".
+ */
+public final class HpglPolylineSimplifier implements PrinterCommandHandler, Flushable {
+
+    private static final int PLOT_ABSOLUTE = HpglCommand.toCommandCode("PA");
+    private static final int PLOT_RELATIVE = HpglCommand.toCommandCode("PR");
+    private static final int PEN_DOWN = HpglCommand.toCommandCode("PD");
+    private static final int PEN_UP = HpglCommand.toCommandCode("PU");
+    private static final int INITIALIZE = HpglCommand.toCommandCode("IN");
+    private static final int DEFAULT_VALUES = HpglCommand.toCommandCode("DF");
+    private static final int POLYLINE_ENCODED = HpglCommand.toCommandCode("PE");
+    private static final int SYMBOL_MODE = HpglCommand.toCommandCode("SM");
+
+    // State of the plot mode and the pen (both may be unknown, i. e. after leaving HP/GL-2)...
+    private static final int UNKNOWN = 0;
+    private static final int ABSOLUTE = 1;
+    private static final int RELATIVE = 2;
+    private static final int UP = 1;
+    private static final int DOWN = 2;
+
+    // Limits that keep the memory bounded: the number of points of a passed command and the number of
+    // dropped points that are checked against the tolerance...
+    private static final int MAX_POINTS_PER_COMMAND = 1024;
+    private static final int MAX_DROPPED_POINTS = 256;
+
+    private final PrinterCommandHandler handler;
+    private final double squaredTolerance;
+
+    // State of the parsed data stream and of the passed data stream...
+    private int mode;
+    private int pen;
+    private int passedMode;
+    private int passedPen;
+    private boolean positionKnown;
+    private double positionX;
+    private double positionY;
+    private long lastOffset;
+    private boolean symbolMode;
+
+    // The current polyline (all its points have the same plot mode and pen)...
+    private boolean inPolyline;
+    private int polylineMode;
+    private int polylinePen;
+    private long polylineOffset;
+    private boolean haveAnchor;
+    private double anchorX;
+    private double anchorY;
+    private boolean haveCandidate;
+    private double candidateX;
+    private double candidateY;
+    private final double[] dropped = new double[MAX_DROPPED_POINTS * 2];
+    private int droppedCount;
+    private final double[] kept = new double[MAX_POINTS_PER_COMMAND * 2];
+    private int keptCount;
+    private double passedX;
+    private double passedY;
+
+    private double[] numbers = new double[64];
+
+    /**
+     * Constructor that is given the {@link PrinterCommandHandler} that receives the simplified data stream.
+     *
+     * @param handler   the {@link PrinterCommandHandler} that receives the simplified data stream.
+     * @param tolerance   the maximum distance of a dropped point from the simplified line.
+     */
+    public HpglPolylineSimplifier(final PrinterCommandHandler handler, final double tolerance) {
+        if (!(tolerance >= 0.0)) {
+            throw new IllegalArgumentException("The tolerance must not be negative");
+        }
+
+        this.handler = handler;
+        this.squaredTolerance = tolerance * tolerance;
+    }
+
+    @Override
+    public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+        this.lastOffset = command.getOffset();
+
+        if (!(command instanceof HpglCommand)) {
+            this.pass(command);
+
+            // The state of HP/GL-2 may have been changed by PCL (i. e. the pen position is set to the cursor
+            // position when HP/GL-2 is entered again)...
+            this.setState(UNKNOWN, UNKNOWN);
+            return;
+        }
+
+        final HpglCommand hpgl = (HpglCommand) command;
+        final int code = hpgl.getCommandCode();
+        final boolean move = code == PLOT_ABSOLUTE || code == PLOT_RELATIVE || code == PEN_DOWN || code == PEN_UP;
+        final int newMode = code == PLOT_ABSOLUTE ? ABSOLUTE : code == PLOT_RELATIVE ? RELATIVE : this.mode;
+        final int newPen = code == PEN_DOWN ? DOWN : code == PEN_UP ? UP : this.pen;
+
+        if (move && !this.symbolMode && this.move(hpgl, newMode, newPen)) {
+            return;
+        }
+
+        this.pass(command);
+
+        if (move) {
+            this.setState(newMode, newPen);
+        } else if (code == INITIALIZE) {
+            this.setState(ABSOLUTE, UP);
+            this.symbolMode = false;
+        } else if (code == DEFAULT_VALUES) {
+            this.setState(ABSOLUTE, this.pen);
+            this.symbolMode = false;
+        } else if (code == SYMBOL_MODE) {
+            // "SM" without a symbol turns symbol mode off...
+            this.setState(this.mode, this.pen);
+            this.symbolMode = !hpgl.getParameters().isEmpty();
+        } else if (code == POLYLINE_ENCODED) {
+            this.setState(this.mode, UNKNOWN);
+        } else {
+            // Other commands (like labels or arcs) may move the pen...
+            this.setState(this.mode, this.pen);
+        }
+    }
+
+    /**
+     * Passes the pending commands to the handler. This method has to be invoked after the data stream has been
+     * parsed.
+     *
+     * @throws IOException if the handler fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.endPolyline();
+        this.passState(this.lastOffset);
+    }
+
+    /**
+     * Adds the points of a "PA", "PR", "PD" or "PU" command to the current polyline.
+     *
+     * @return false if the command can not be simplified (then it has to be passed unchanged).
+     */
+    private boolean move(final HpglCommand command, final int newMode, final int newPen) throws IOException {
+        final int count;
+        try {
+            count = command.getParameterCount();
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+
+        if (count % 2 != 0 || count > 0 && newMode == UNKNOWN) {
+            return false;
+        }
+
+        this.mode = newMode;
+        this.pen = newPen;
+        if (count == 0) {
+            // Just the plot mode or the pen has been changed, which is passed with the next command...
+            return true;
+        }
+
+        if (this.inPolyline && (this.polylineMode != newMode || this.polylinePen != newPen)) {
+            this.endPolyline();
+        }
+        if (!this.inPolyline) {
+            this.startPolyline(command.getOffset());
+        }
+
+        if (count > this.numbers.length) {
+            this.numbers = new double[Math.max(count, this.numbers.length * 2)];
+        }
+        command.getNumbers(this.numbers, 0);
+
+        for (int ix = 0; ix < count; ix += 2) {
+            if (newMode == ABSOLUTE) {
+                this.positionX = this.numbers[ix];
+                this.positionY = this.numbers[ix + 1];
+            } else {
+                this.positionX += this.numbers[ix];
+                this.positionY += this.numbers[ix + 1];
+            }
+            this.addPoint(this.positionX, this.positionY);
+        }
+
+        this.positionKnown |= newMode == ABSOLUTE;
+        return true;
+    }
+
+    /**
+     * Starts a new polyline at the current position. If the position is unknown, relative coordinates are
+     * measured from an arbitrary origin (only the differences are passed), but the first absolute point has to
+     * be kept.
+     */
+    private void startPolyline(final long offset) {
+        this.inPolyline = true;
+        this.polylineMode = this.mode;
+        this.polylinePen = this.pen;
+        this.polylineOffset = offset;
+        this.haveAnchor = this.mode == RELATIVE || this.positionKnown;
+        this.anchorX = this.positionX;
+        this.anchorY = this.positionY;
+        this.haveCandidate = false;
+        this.droppedCount = 0;
+        this.keptCount = 0;
+        this.passedX = this.positionX;
+        this.passedY = this.positionY;
+    }
+
+    /**
+     * Adds a point to the current polyline. The last point (the candidate) is kept back until the next point
+     * shows whether it can be dropped: this is the case if the candidate and all points dropped since the last
+     * kept point (the anchor) lie within the tolerance of the line from the anchor to the next point.
+     */
+    private void addPoint(final double x, final double y) throws IOException {
+        if (this.polylinePen == UP) {
+            // Moves with the pen up do not draw anything, so only the target matters...
+            this.setCandidate(x, y);
+        } else if (!this.haveAnchor) {
+            this.keep(x, y);
+            this.anchorX = x;
+            this.anchorY = y;
+            this.haveAnchor = true;
+        } else if (!this.haveCandidate) {
+            this.setCandidate(x, y);
+        } else if (this.droppedCount < MAX_DROPPED_POINTS && this.isCandidateDroppable(x, y)) {
+            this.dropped[this.droppedCount * 2] = this.candidateX;
+            this.dropped[this.droppedCount * 2 + 1] = this.candidateY;
+            ++this.droppedCount;
+            this.setCandidate(x, y);
+        } else {
+            this.keep(this.candidateX, this.candidateY);
+            this.anchorX = this.candidateX;
+            this.anchorY = this.candidateY;
+            this.droppedCount = 0;
+            this.setCandidate(x, y);
+        }
+    }
+
+    /**
+     * Sets the candidate, which is the last point of the current polyline.
+     */
+    private void setCandidate(final double x, final double y) {
+        this.candidateX = x;
+        this.candidateY = y;
+        this.haveCandidate = true;
+    }
+
+    /**
+     * Returns true if the candidate and all dropped points lie within the tolerance of the line from the
+     * anchor to the given point.
+     */
+    private boolean isCandidateDroppable(final double x, final double y) {
+        if (!this.isWithinTolerance(this.candidateX, this.candidateY, x, y)) {
+            return false;
+        }
+
+        for (int ix = 0; ix < this.droppedCount * 2; ix += 2) {
+            if (!this.isWithinTolerance(this.dropped[ix], this.dropped[ix + 1], x, y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if the distance of a point from the line from the anchor to the given end point is within
+     * the tolerance. The distance is computed from the cross product, which is exact for integer coordinates.
+     */
+    private boolean isWithinTolerance(final double pointX, final double pointY, final double endX, final double endY) {
+        final double dx = endX - this.anchorX;
+        final double dy = endY - this.anchorY;
+        final double px = pointX - this.anchorX;
+        final double py = pointY - this.anchorY;
+
+        final double dot = px * dx + py * dy;
+        final double squaredLength = dx * dx + dy * dy;
+
+        if (dot <= 0.0 || squaredLength == 0.0) {
+            return px * px + py * py <= this.squaredTolerance;
+        }
+        if (dot >= squaredLength) {
+            final double qx = pointX - endX;
+            final double qy = pointY - endY;
+            return qx * qx + qy * qy <= this.squaredTolerance;
+        }
+
+        final double cross = px * dy - py * dx;
+        return cross * cross <= this.squaredTolerance * squaredLength;
+    }
+
+    /**
+     * Keeps a point of the current polyline. The kept points are passed if the maximum number of points per
+     * command has been reached.
+     */
+    private void keep(final double x, final double y) throws IOException {
+        this.kept[this.keptCount * 2] = x;
+        this.kept[this.keptCount * 2 + 1] = y;
+        if (++this.keptCount == MAX_POINTS_PER_COMMAND) {
+            this.passKeptPoints();
+        }
+    }
+
+    /**
+     * Ends the current polyline (its last point is always kept) and passes the kept points.
+     */
+    private void endPolyline() throws IOException {
+        if (this.inPolyline) {
+            if (this.haveCandidate) {
+                this.keep(this.candidateX, this.candidateY);
+            }
+            this.passKeptPoints();
+            this.inPolyline = false;
+        }
+    }
+
+    /**
+     * Passes the kept points of the current polyline as a single command. If the pen is unknown or has not
+     * been changed, the points are passed by "PA" or "PR" (which also set the plot mode), otherwise by "PD"
+     * or "PU" (after the plot mode has been set).
+     */
+    private void passKeptPoints() throws IOException {
+        if (this.keptCount == 0) {
+            return;
+        }
+
+        final String command;
+        if (this.polylinePen == UNKNOWN || this.polylinePen == this.passedPen) {
+            command = this.polylineMode == ABSOLUTE ? "PA" : "PR";
+        } else {
+            this.passMode(this.polylineMode, this.polylineOffset);
+            command = this.polylinePen == DOWN ? "PD" : "PU";
+            this.passedPen = this.polylinePen;
+        }
+        this.passedMode = this.polylineMode;
+
+        final StringBuilder sb = new StringBuilder(this.keptCount * 12);
+        for (int ix = 0; ix < this.keptCount * 2; ix += 2) {
+            if (ix > 0) {
+                sb.append(',');
+            }
+
+            if (this.polylineMode == ABSOLUTE) {
+                appendNumber(sb, this.kept[ix]);
+                sb.append(',');
+                appendNumber(sb, this.kept[ix + 1]);
+            } else {
+                appendNumber(sb, this.kept[ix] - this.passedX);
+                sb.append(',');
+                appendNumber(sb, this.kept[ix + 1] - this.passedY);
+            }
+
+            this.passedX = this.kept[ix];
+            this.passedY = this.kept[ix + 1];
+        }
+
+        this.keptCount = 0;
+        this.handler.handlePrinterCommand(new HpglCommand(this.polylineOffset, command, sb.toString()));
+    }
+
+    /**
+     * Passes a printer command unchanged (after the current polyline and the changes of the plot mode and
+     * the pen that precede the printer command).
+     */
+    private void pass(final PrinterCommand command) throws IOException {
+        this.endPolyline();
+        this.passState(command.getOffset());
+        this.handler.handlePrinterCommand(command);
+    }
+
+    /**
+     * Passes the changes of the plot mode and the pen that have not been passed yet.
+     */
+    private void passState(final long offset) throws IOException {
+        this.passMode(this.mode, offset);
+
+        if (this.pen != UNKNOWN && this.pen != this.passedPen) {
+            this.handler.handlePrinterCommand(new HpglCommand(offset, this.pen == DOWN ? "PD" : "PU", ""));
+            this.passedPen = this.pen;
+        }
+    }
+
+    /**
+     * Passes a change of the plot mode if the given plot mode has not been passed yet.
+     */
+    private void passMode(final int newMode, final long offset) throws IOException {
+        if (newMode != UNKNOWN && newMode != this.passedMode) {
+            this.handler.handlePrinterCommand(new HpglCommand(offset, newMode == ABSOLUTE ? "PA" : "PR", ""));
+            this.passedMode = newMode;
+        }
+    }
+
+    /**
+     * Sets the plot mode and the pen after a printer command has been passed unchanged (which has the same
+     * effect on the parsed and the passed data stream). The pen position is unknown afterwards.
+     */
+    private void setState(final int newMode, final int newPen) {
+        this.mode = newMode;
+        this.pen = newPen;
+        this.passedMode = newMode;
+        this.passedPen = newPen;
+        this.positionKnown = false;
+    }
+
+    /**
+     * Appends a coordinate. Integers are appended without a decimal point, decimals without an exponent.
+     */
+    private static void appendNumber(final StringBuilder sb, final double value) {
+        final long integer = (long) value;
+        if (integer == value && Math.abs(integer) < (1L << 53)) {
+            sb.append(integer);
+        } else {
+            sb.append(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+        }
+    }
+}
@@ -0,0 +1,693 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link ParallelPclParser} parses a single large PCL data stream with multiple threads. The data stream
+ * is split into chunks that are parsed in parallel on a {@link ForkJoinPool}, and the printer commands of
+ * the chunks are returned in the order of the data stream.
+ *
+ * <p>A chunk starts at a resynchronization point, where a sequential parser is expected to be between two
+ * PCL commands: a printer reset ("&lt;esc&gt;E"), a universal exit language command ("&lt;esc&gt;%-12345X")
+ * or a form feed that is followed by an escape byte. These points are found by a (parallel) pre-scan of the
+ * data stream. Because such bytes may also be part of binary data (like raster data) or of PJL and HP/GL, the
+ * assumed start of a chunk is validated: every chunk is parsed beyond its end up to the first point where the
+ * parser is between two PCL commands, and the following chunk is only used from there on if it has started
+ * exactly there or has parsed a PCL command that starts there (then both parsers are in the same state).
+ * Otherwise the data stream is parsed sequentially up to a point where a chunk can be used. So the
+ * {@link ParallelPclParser} reports exactly the printer commands (and errors) the {@link PclParser} does.
+ */
+public final class ParallelPclParser {
+
+    static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int ESCAPE = 0x1B;
+    private static final int FORM_FEED = 0x0C;
+    private static final long NONE = -1;
+    private static final byte[] UNIVERSAL_EXIT_LANGUAGE = { '%', '-', '1', '2', '3', '4', '5', 'X' };
+
+    // A form feed is only used if there is no printer reset (or UEL) within the following bytes.
+    private static final int FORM_FEED_LOOKAHEAD = 64 * 1024;
+
+    // The size of the blocks that are read by the pre-scan.
+    private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+    // The number of chunks per thread that are parsed ahead of the chunk whose printer commands are returned.
+    private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    /**
+     * Source of the data stream. Every chunk is read by a {@link PclInputStream} of its own.
+     */
+    private interface Source {
+
+        /**
+         * Opens a new {@link PclInputStream} for the data stream.
+         *
+         * @return the new {@link PclInputStream}.
+         */
+        PclInputStream open() throws IOException;
+    }
+
+    private final Source source;
+    private final long size;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Constructor that parses the given file. Every chunk of the file is read by mapping it into memory.
+     *
+     * @param inputPath   the {@link Path} of the file that contains the PCL data stream.
+     *
+     * @throws IOException  if the size of the file can not be determined.
+     */
+    public ParallelPclParser(final Path inputPath) throws IOException {
+        this.size = Files.size(inputPath);
+        this.source = new Source() {
+            @Override
+            public PclInputStream open() throws IOException {
+                return new PclInputStreamForMappedFile(
+                        FileChannel.open(inputPath, StandardOpenOption.READ),
+                        PclInputStreamForMappedFile.DEFAULT_WINDOW_SIZE,
+                        ParallelPclParser.this.size);
+            }
+        };
+    }
+
+    /**
+     * Constructor that parses the PCL data stream that is held in the given byte array. Note that the byte
+     * array is not copied, so it must not be modified while it is parsed.
+     *
+     * @param input   the byte array that contains the PCL data stream.
+     */
+    public ParallelPclParser(final byte[] input) {
+        this.size = input.length;
+        this.source = new Source() {
+            @Override
+            public PclInputStream open() {
+                return new PclInputStreamForByteArray(input, 0, input.length);
+            }
+        };
+    }
+
+    /**
+     * Sets the {@link ForkJoinPool} the chunks are parsed on. The default is the common pool.
+     *
+     * @param pool   the {@link ForkJoinPool} the chunks are parsed on.
+     */
+    public void setPool(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the (approximate) size of a chunk. A chunk starts at the first resynchronization point after
+     * a multiple of the chunk size. The default is 8 MB.
+     *
+     * @param chunkSize   the size of a chunk in bytes.
+     */
+    public void setChunkSize(final long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses the data stream. The handler is invoked for every parsed printer command in the order of the
+     * data stream (by the calling thread).
+     *
+     * @param handler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
+     *
+     * @throws EOFException if the end of the stream was reached unexpectedly.
+     * @throws IOException if an I/O error occurs.
+     * @throws PclException if a PCL, PJL or HP/GL2 command if corrupt.
+     */
+    public void parse(final PrinterCommandHandler handler) throws IOException, PclException {
+        final ChunkSequence chunks = new ChunkSequence();
+        try {
+            for (List<PrinterCommand> commands = chunks.next(); commands != null; commands = chunks.next()) {
+                for (final PrinterCommand command : commands) {
+                    handler.handlePrinterCommand(command);
+                }
+            }
+        } finally {
+            chunks.close();
+        }
+    }
+
+    /**
+     * Returns a parallel {@link Stream} of the printer commands. The {@link Stream} is ordered, and every
+     * split of the {@link Stream} contains the printer commands of one chunk, so the printer commands can be
+     * processed in parallel while the following chunks are still being parsed. An {@link IOException} is
+     * rethrown as an {@link UncheckedIOException} and a {@link PclException} as an {@link UncheckedPclException}.
+     * Closing the {@link Stream} stops the parsing of the chunks that have not been consumed.
+     *
+     * @return a parallel {@link Stream} of the printer commands.
+     */
+    public Stream<PrinterCommand> stream() {
+        final ChunkSequence chunks = new ChunkSequence();
+        return StreamSupport.stream(new ChunkSpliterator(chunks), true).onClose(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    chunks.close();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Searches the resynchronization points of the data stream (the start of every chunk but the first one).
+     *
+     * @return the offsets of the start of all chunks, followed by the end of the data stream.
+     */
+    private long[] findBoundaries() throws IOException {
+        final List<ForkJoinTask<Long>> scans = new ArrayList<>();
+        for (long from = this.chunkSize; from < this.size; from += this.chunkSize) {
+            final long start = from;
+            scans.add(this.pool.submit(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    try {
+                        return ParallelPclParser.this.findResynchronizationPoint(start);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }));
+        }
+
+        final long[] found = new long[scans.size() + 2];
+        int count = 1;
+        try {
+            for (final ForkJoinTask<Long> scan : scans) {
+                final long offset = scan.join();
+                if (offset != NONE) {
+                    found[count++] = offset;
+                }
+            }
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+        found[count++] = this.size;
+
+        final long[] boundaries = new long[count];
+        System.arraycopy(found, 0, boundaries, 0, count);
+        return boundaries;
+    }
+
+    /**
+     * Searches the first printer reset or universal exit language command within the chunk that starts at
+     * the given offset. If there is none, the first form feed that is followed by an escape byte is used.
+     * The chunk is scanned in blocks, so the pre-scan does not read (and seek) byte by byte.
+     *
+     * @param from   the offset of the first byte to be searched.
+     *
+     * @return the offset of the resynchronization point or {@link #NONE}.
+     */
+    private long findResynchronizationPoint(final long from) throws IOException {
+        final PclInputStream input = this.source.open();
+        try {
+            // Every block is followed by the bytes that are needed to check a resynchronization point at its end...
+            final byte[] buffer = new byte[SCAN_BLOCK_SIZE + 1 + UNIVERSAL_EXIT_LANGUAGE.length];
+
+            long to = Math.min(from + this.chunkSize, this.size);
+            long formFeed = NONE;
+            for (long block = from; block < to; block += SCAN_BLOCK_SIZE) {
+                input.seek(block);
+                final int length = readFully(input, buffer, (int) Math.min(buffer.length, this.size - block));
+                final int end = (int) Math.min(Math.min(SCAN_BLOCK_SIZE, length), to - block);
+
+                for (int ix = 0; ix < end; ++ix) {
+                    if (buffer[ix] == ESCAPE && isPageOrJobStart(buffer, ix + 1, length)) {
+                        return block + ix;
+                    } else if (buffer[ix] == FORM_FEED && formFeed == NONE && ix + 1 < length
+                            && buffer[ix + 1] == ESCAPE) {
+
+                        formFeed = block + ix;
+                        to = Math.min(to, formFeed + FORM_FEED_LOOKAHEAD);
+                    }
+                }
+            }
+
+            return formFeed;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Returns true if the bytes after an escape byte are a printer reset or universal exit language command.
+     *
+     * @param buffer   the buffer that contains the bytes.
+     * @param start   the index of the byte after the escape byte.
+     * @param limit   the index after the last valid byte of the buffer.
+     */
+    private static boolean isPageOrJobStart(final byte[] buffer, final int start, final int limit) {
+        if (start < limit && buffer[start] == 'E') {
+            return true;
+        }
+        if (limit - start < UNIVERSAL_EXIT_LANGUAGE.length) {
+            return false;
+        }
+
+        for (int ix = 0; ix < UNIVERSAL_EXIT_LANGUAGE.length; ++ix) {
+            if (buffer[start + ix] != UNIVERSAL_EXIT_LANGUAGE[ix]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads up to the given number of bytes into the given buffer.
+     *
+     * @return the number of bytes read (which is less than the given length only at the end of the stream).
+     */
+    private static int readFully(final PclInputStream input, final byte[] buffer, final int length)
+            throws IOException {
+
+        int total = 0;
+        while (total < length) {
+            final int read = input.read(buffer, total, length - total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Parses a chunk, assuming that a sequential parser would be between two PCL commands at the start of the
+     * chunk. The chunk is parsed beyond its end up to the first point where the parser is between two PCL commands.
+     *
+     * @param start   offset of the first byte of the chunk.
+     * @param end   offset of the end of the chunk.
+     * @param limit   offset at which the parser gives up if it has not been between two PCL commands after the end.
+     *
+     * @return the parsed {@link Chunk}.
+     */
+    private Chunk parseChunk(final long start, final long end, final long limit) {
+        final Chunk chunk = new Chunk();
+        chunk.start = start;
+        chunk.end = NONE;
+
+        try {
+            final SequentialParser parser = new SequentialParser(start);
+            try {
+                chunk.end = parser.parseUntil(end, limit);
+            } catch (final IOException | PclException e) {
+                chunk.failure = e;
+            } finally {
+                chunk.commands = parser.takeCommands();
+                parser.close();
+            }
+        } catch (final IOException e) {
+            chunk.failure = e;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * The result of parsing a chunk.
+     */
+    private static final class Chunk {
+        private long start;
+        private long end;
+        private List<PrinterCommand> commands;
+        private Exception failure;
+    }
+
+    /**
+     * A {@link Pcl5Parser} that parses the data stream from a given offset (where a sequential parser is between
+     * two PCL commands) up to the first point after a given offset where it is between two PCL commands again.
+     */
+    private final class SequentialParser implements PrinterCommandHandler {
+
+        private final PclInputStream input;
+        private final PclParserContext context;
+        private final Pcl5Parser parser;
+        private List<PrinterCommand> commands = new ArrayList<>();
+        private long end;
+
+        /**
+         * Constructor.
+         *
+         * @param start   offset of the first byte to be parsed.
+         */
+        SequentialParser(final long start) throws IOException {
+            this.input = ParallelPclParser.this.source.open();
+            this.input.seek(start);
+            this.context = new PclParserContext(this.input, this);
+            this.parser = new Pcl5Parser(this.context);
+        }
+
+        @Override
+        public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+            this.commands.add(command);
+            if (this.input.tell() >= this.end) {
+                this.context.requestSuspend();
+            }
+        }
+
+        /**
+         * Parses up to the first point at (or after) the given end where the parser is between two PCL commands.
+         *
+         * @param endOffset   the offset from which on the parser looks for a point between two PCL commands.
+         * @param limitOffset   the offset at which the parser gives up (it can be continued by another call).
+         *
+         * @return the offset of the point between two PCL commands or {@link #NONE} if the parser has given up.
+         */
+        long parseUntil(final long endOffset, final long limitOffset) throws IOException, PclException {
+            this.end = endOffset;
+            for (;;) {
+                this.context.clearSuspendRequest();
+                if (this.parser.parse() != DataStreamParser.SUSPENDED) {
+                    return ParallelPclParser.this.size;
+                }
+
+                final long offset = this.parser.getSuspendedOffset();
+                if (offset >= endOffset) {
+                    return offset;
+                }
+                if (this.input.tell() >= limitOffset) {
+                    return NONE;
+                }
+            }
+        }
+
+        /**
+         * Returns the parsed printer commands and starts a new list.
+         *
+         * @return the printer commands that have been parsed since the last call.
+         */
+        List<PrinterCommand> takeCommands() {
+            final List<PrinterCommand> result = this.commands;
+            this.commands = new ArrayList<>();
+            return result;
+        }
+
+        /**
+         * Closes the {@link PclInputStream}.
+         */
+        void close() throws IOException {
+            this.input.close();
+        }
+    }
+
+    /**
+     * Returns the printer commands of the data stream in the order of the data stream. The chunks are parsed
+     * ahead (but only a few chunks per thread).
+     *
+     * <p>The printer commands of a chunk are used from the point on where a sequential parser is between two PCL
+     * commands (which is the start of the chunk if the preceding chunk has stopped there). They are also used if
+     * the chunk has been started at a wrong point but has parsed a PCL command (or text) that starts at this point,
+     * because from there on both parsers are in the same state. Otherwise the data stream is parsed sequentially
+     * (in the calling thread) up to a point where the printer commands of a chunk can be used.
+     */
+    private final class ChunkSequence {
+
+        // The tasks of the chunks from "index" (inclusive) to "submitted" (exclusive)...
+        private final ArrayDeque<ForkJoinTask<Chunk>> tasks = new ArrayDeque<>();
+        private long[] boundaries;
+        private int index;
+        private int submitted;
+
+        // The offset up to which the printer commands have been returned. Unless the sequential parser has given
+        // up, a sequential parser would be between two PCL commands there.
+        private long position;
+        private SequentialParser sequential;
+        private PclInputStream input;
+        private Exception failure;
+
+        /**
+         * Returns the next printer commands.
+         *
+         * @return the next printer commands or null if all printer commands have been returned.
+         */
+        List<PrinterCommand> next() throws IOException, PclException {
+            if (this.failure instanceof IOException) {
+                throw (IOException) this.failure;
+            } else if (this.failure != null) {
+                throw (PclException) this.failure;
+            }
+
+            if (this.boundaries == null) {
+                this.boundaries = ParallelPclParser.this.findBoundaries();
+            }
+
+            if (this.sequential == null) {
+                if (this.position == ParallelPclParser.this.size) {
+                    return null;
+                }
+
+                this.submit();
+                final Chunk chunk = this.tasks.poll().join();
+                ++this.index;
+
+                final int first = this.findStart(chunk, this.position);
+                if (first >= 0) {
+                    this.failure = chunk.failure;
+                    this.moveTo(chunk.end);
+                    return chunk.commands.subList(first, chunk.commands.size());
+                }
+
+                this.sequential = new SequentialParser(this.position);
+            }
+
+            // The data stream is parsed sequentially up to the start of the next chunk (or a bit further)...
+            final int last = this.boundaries.length - 1;
+            int next = this.index;
+            while (next < last && this.boundaries[next] <= this.position) {
+                ++next;
+            }
+
+            final SequentialParser parser = this.sequential;
+            try {
+                final long limit = next < last ? this.boundaries[next + 1] : Long.MAX_VALUE;
+                final long offset = parser.parseUntil(this.boundaries[next], limit);
+                if (offset == NONE) {
+                    this.moveTo(limit);
+                } else {
+                    this.moveTo(offset);
+                    if (offset == ParallelPclParser.this.size || this.findStart(this.peek(), offset) >= 0) {
+                        this.sequential = null;
+                        parser.close();
+                    }
+                }
+            } catch (final IOException | PclException e) {
+                this.failure = e;
+            }
+
+            return parser.takeCommands();
+        }
+
+        /**
+         * Stops parsing of the chunks that have not been returned yet.
+         */
+        void close() throws IOException {
+            for (final ForkJoinTask<Chunk> task : this.tasks) {
+                task.cancel(false);
+            }
+            this.tasks.clear();
+
+            if (this.sequential != null) {
+                this.sequential.close();
+                this.sequential = null;
+            }
+            if (this.input != null) {
+                this.input.close();
+                this.input = null;
+            }
+        }
+
+        /**
+         * Returns the index of the printer command of the given chunk from which on the printer commands
+         * are the same as a sequential parser would return from the given offset on (where the sequential
+         * parser is between two PCL commands).
+         *
+         * @return the index of the printer command or -1 if the chunk can not be used.
+         */
+        private int findStart(final Chunk chunk, final long offset) throws IOException {
+            if (chunk == null || chunk.end == NONE && chunk.failure == null) {
+                return -1; // the chunk has given up, so it is unknown where it has stopped...
+            } else if (chunk.start == offset) {
+                return 0;
+            }
+
+            final List<PrinterCommand> commands = chunk.commands;
+            int low = 0;
+            int high = commands.size() - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final long middleOffset = commands.get(middle).getOffset();
+                if (middleOffset < offset) {
+                    low = middle + 1;
+                } else if (middleOffset > offset) {
+                    high = middle - 1;
+                } else {
+                    return this.isPclStart(commands.get(middle), offset) ? middle : -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns true if the given printer command has been parsed from the start of a PCL command (or text).
+         * A PCL command starts with an escape byte, while the second PCL command of a combined escape sequence
+         * (like "&lt;esc&gt;&amp;l1a2O") starts with its value.
+         */
+        private boolean isPclStart(final PrinterCommand command, final long offset) throws IOException {
+            if (command instanceof TextCommand || command instanceof ControlCharacterCommand) {
+                return true;
+            } else if (command instanceof TwoBytePclCommand || command instanceof ParameterizedPclCommand) {
+                if (this.input == null) {
+                    this.input = ParallelPclParser.this.source.open();
+                }
+                this.input.seek(offset);
+                return this.input.read() == ESCAPE;
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * Returns the chunk "index" (or null if there is none).
+         */
+        private Chunk peek() {
+            this.submit();
+            return this.tasks.isEmpty() ? null : this.tasks.peek().join();
+        }
+
+        /**
+         * Sets the position and skips the chunks that end before it.
+         */
+        private void moveTo(final long offset) {
+            this.position = offset;
+            while (this.index < this.boundaries.length - 2 && this.boundaries[this.index + 1] <= offset) {
+                if (this.tasks.isEmpty()) {
+                    this.submitted = this.index + 1;
+                } else {
+                    this.tasks.poll().cancel(false);
+                }
+                ++this.index;
+            }
+        }
+
+        /**
+         * Submits the chunks that are parsed ahead.
+         */
+        private void submit() {
+            final int last = this.boundaries.length - 1;
+            final int ahead = ParallelPclParser.this.pool.getParallelism() * CHUNKS_AHEAD_PER_THREAD;
+            while (this.tasks.size() < ahead && this.submitted < last) {
+                final long start = this.boundaries[this.submitted];
+                final long end = this.boundaries[this.submitted + 1];
+                final long limit = this.submitted + 2 < last ? this.boundaries[this.submitted + 2] : Long.MAX_VALUE;
+                this.tasks.add(ParallelPclParser.this.pool.submit(new Callable<Chunk>() {
+                    @Override
+                    public Chunk call() {
+                        return ParallelPclParser.this.parseChunk(start, end, limit);
+                    }
+                }));
+                ++this.submitted;
+            }
+        }
+    }
+
+    /**
+     * {@link Spliterator} that splits off the printer commands of the next chunk.
+     */
+    private static final class ChunkSpliterator implements Spliterator<PrinterCommand> {
+
+        private final ChunkSequence chunks;
+        private Spliterator<PrinterCommand> commands;
+
+        /**
+         * Constructor.
+         *
+         * @param chunks   the {@link ChunkSequence} that returns the printer commands of the chunks.
+         */
+        ChunkSpliterator(final ChunkSequence chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super PrinterCommand> action) {
+            while (this.commands == null || !this.commands.tryAdvance(action)) {
+                this.commands = this.nextChunk();
+                if (this.commands == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<PrinterCommand> trySplit() {
+            // The printer commands the current spliterator has not returned yet precede the next chunk...
+            final Spliterator<PrinterCommand> prefix = this.commands;
+            this.commands = null;
+            return prefix != null ? prefix : this.nextChunk();
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        /**
+         * Returns a {@link Spliterator} for the printer commands of the next chunk.
+         */
+        private Spliterator<PrinterCommand> nextChunk() {
+            try {
+                final List<PrinterCommand> next = this.chunks.next();
+                return next != null ? next.spliterator() : null;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (final PclException e) {
+                throw new UncheckedPclException(e);
+            }
+        }
+    }
+}
@@ -16,8 +16,10 @@ package de.textmode.pclbox;
  * limitations under the License.
  */
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -36,11 +38,57 @@ public final class ParameterizedPclCommand extends Pcl5Command {
 
     private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
 
+    private static final long MAX_INTEGER_PART = Long.MAX_VALUE / PrinterCommandEventHandler.VALUE_SCALE - 1;
+
+    private static final int PARAMETERIZED_CHARACTER_MIN = 33;
+    private static final int PARAMETERIZED_CHARACTER_MAX = 47;
+    private static final int GROUP_CHARACTER_MIN = 96;
+    private static final int GROUP_CHARACTER_MAX = 126;
+    private static final int TERMINATION_CHARACTER_MIN = 64;
+    private static final int TERMINATION_CHARACTER_MAX = 94;
+
+    /**
+     * Number of entries of a table that is indexed by {@link #tableIndex(int)}.
+     */
+    static final int TABLE_SIZE = (PARAMETERIZED_CHARACTER_MAX - PARAMETERIZED_CHARACTER_MIN + 1) << 10;
+
+    // Command codes of the PCL commands that are usually written without the value...
+    private static final int END_RASTER_GRAPHICS_PCL4 = toCommandCode('*', 'r', 'B');
+    private static final int END_RASTER_GRAPHICS = toCommandCode('*', 'r', 'C');
+    private static final int DISABLE_UNDERLINE = toCommandCode('&', 'd', '@');
+
+    /**
+     * Canonical command strings, indexed by {@link #tableIndex(int)}. The strings are built on demand. Note
+     * that a racy initialization is harmless because every thread builds an equal string...
+     */
+    private static final String[] COMMAND_STRINGS = new String[TABLE_SIZE];
+
+    /**
+     * Shared instances of the most common values (the value "0" is by far the most common value).
+     */
+    private static final String[] COMMON_VALUES = new String[256];
+
+    static {
+        for (int ix = 0; ix < COMMON_VALUES.length; ++ix) {
+            COMMON_VALUES[ix] = Integer.toString(ix);
+        }
+    }
+
     private final int parameterizedCharacter;
     private final int groupCharacter;
     private final int terminationCharacter;
-    private final String value;
+    private final long scaledValue;
     private final byte[] dataSection;
+    private final int dataSectionStart;
+    private final int dataSectionLength;
+
+    // Position and source of a data section that has not been read by the parser (it is read on demand).
+    private final long dataSectionOffset;
+    private final PclInputStream dataSectionSource;
+
+    // The value string is built lazily if it can be derived from the scaled value. Note that a racy
+    // initialization is harmless because every thread builds an equal string...
+    private String value;
 
     /**
      * Constructor of a {@link ParameterizedPclCommand}.
@@ -81,13 +129,97 @@ public final class ParameterizedPclCommand extends Pcl5Command {
             final int terminationCharacter,
             final byte[] dataSection) {
 
+        this(offset, parameterizedCharacter, groupCharacter, parseValue(value), value, terminationCharacter,
+                null, -1, dataSection == null ? null : dataSection.clone(), 0,
+                dataSection == null ? 0 : dataSection.length);
+    }
+
+    /**
+     * Constructor of a {@link ParameterizedPclCommand} that is given the value as decoded by the parser and
+     * whose data section is copied from a part of the given array.
+     *
+     * @param offset   position within the data stream
+     * @param parameterizedCharacter   the parameterized character of the PCL command (ASCII range 33 to 47)
+     * @param groupCharacter   the group character of the PCL command (ASCII range 96 to 126) or 0 if the
+     *     PCL command does not contain a group character.
+     * @param scaledValue   the value scaled by {@link PrinterCommandEventHandler#VALUE_SCALE} or
+     *     {@link PrinterCommandEventHandler#NO_VALUE}
+     * @param valueText   the value as contained in the data stream. If it is empty "0" is used as the value
+     * @param terminationCharacter   the termination character of the PCL command (ASCII range 64 to 94)
+     * @param buffer   the array that contains the data section or <code>null</code> if the PCL command
+     *     does not contain a data section.
+     * @param off   the index of the first byte of the data section within the array
+     * @param len   the length of the data section
+     */
+    ParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final long scaledValue,
+            final CharSequence valueText,
+            final int terminationCharacter,
+            final byte[] buffer,
+            final int off,
+            final int len) {
+
+        this(offset, parameterizedCharacter, groupCharacter, scaledValue, valueText, terminationCharacter,
+                null, -1, buffer == null ? null : Arrays.copyOfRange(buffer, off, off + len), 0, len);
+    }
+
+    /**
+     * Constructor of a {@link ParameterizedPclCommand} that is given the value as decoded by the parser and
+     * whose data section is either a part of the given array (which is referenced, not copied) or has been
+     * skipped by the parser (then it is read on demand from the given {@link PclInputStream}).
+     *
+     * @param offset   position within the data stream
+     * @param parameterizedCharacter   the parameterized character of the PCL command (ASCII range 33 to 47)
+     * @param groupCharacter   the group character of the PCL command (ASCII range 96 to 126) or 0 if the
+     *     PCL command does not contain a group character.
+     * @param scaledValue   the value scaled by {@link PrinterCommandEventHandler#VALUE_SCALE} or
+     *     {@link PrinterCommandEventHandler#NO_VALUE}
+     * @param valueText   the value as contained in the data stream. If it is empty "0" is used as the value
+     * @param terminationCharacter   the termination character of the PCL command (ASCII range 64 to 94)
+     * @param source   the {@link PclInputStream} that contains a skipped data section
+     * @param dataOffset   position of a skipped data section within the data stream or -1
+     * @param buffer   the array that contains the data section (must not be modified afterwards) or
+     *     <code>null</code> if the PCL command does not contain a data section (or it has been skipped).
+     * @param off   the index of the first byte of the data section within the array
+     * @param len   the length of the data section
+     */
+    ParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final long scaledValue,
+            final CharSequence valueText,
+            final int terminationCharacter,
+            final PclInputStream source,
+            final long dataOffset,
+            final byte[] buffer,
+            final int off,
+            final int len) {
+
         super(offset);
 
         this.parameterizedCharacter = parameterizedCharacter;
         this.groupCharacter = groupCharacter;
-        this.value = value.isEmpty() ? "0" : value;
+        this.scaledValue = scaledValue;
         this.terminationCharacter = terminationCharacter;
-        this.dataSection = dataSection == null ? null : dataSection.clone();
+        this.dataSection = buffer;
+        this.dataSectionStart = buffer == null ? 0 : off;
+        this.dataSectionSource = buffer == null && dataOffset >= 0 ? source : null;
+        this.dataSectionOffset = this.dataSectionSource == null ? -1 : dataOffset;
+        this.dataSectionLength = buffer != null || this.dataSectionSource != null ? len : 0;
+
+        if (valueText.length() == 0) {
+            this.value = "0";
+        } else if (valueText instanceof String) {
+            this.value = (String) valueText;
+        } else if (scaledValue != PrinterCommandEventHandler.NO_VALUE && isCanonicalInteger(valueText)) {
+            this.value = null; // built lazily...
+        } else {
+            this.value = valueText.toString();
+        }
     }
 
     /**
@@ -118,22 +250,224 @@ public final class ParameterizedPclCommand extends Pcl5Command {
         return this.terminationCharacter;
     }
 
+    @Override
+    public int getCommandCode() {
+        return toCommandCode(this.parameterizedCharacter, this.groupCharacter, this.terminationCharacter);
+    }
+
+    /**
+     * Returns the command code (see {@link PrinterCommand#getCommandCode()}) of the parameterized PCL command
+     * with the given characters.
+     *
+     * @param parameterizedCharacter   the parameterized character of the PCL command (ASCII range 33 to 47)
+     * @param groupCharacter   the group character of the PCL command (ASCII range 96 to 126) or 0 if the
+     *     PCL command does not contain a group character.
+     * @param terminationCharacter   the termination character of the PCL command (ASCII range 64 to 94)
+     *
+     * @return the command code.
+     */
+    public static int toCommandCode(
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter) {
+
+        return PCL5_COMMAND_CODE
+                | (parameterizedCharacter & 0xFF) << 16
+                | (groupCharacter & 0xFF) << 8
+                | terminationCharacter & 0xFF;
+    }
+
+    /**
+     * Returns the index of the parameterized PCL command with the given command code within a table of
+     * {@link #TABLE_SIZE} entries. The index consists of four bits for the parameterized character and five
+     * bits for the group and termination character.
+     *
+     * @param commandCode   the command code of a parameterized PCL command.
+     *
+     * @return the index or -1 if the command code is no valid code of a parameterized PCL command.
+     */
+    static int tableIndex(final int commandCode) {
+        final int parameterizedCharacter = commandCode >>> 16;
+        final int groupCharacter = commandCode >>> 8 & 0xFF;
+        final int terminationCharacter = commandCode & 0xFF;
+
+        if (parameterizedCharacter < PARAMETERIZED_CHARACTER_MIN
+                || parameterizedCharacter > PARAMETERIZED_CHARACTER_MAX
+                || terminationCharacter < TERMINATION_CHARACTER_MIN
+                || terminationCharacter > TERMINATION_CHARACTER_MAX
+                || groupCharacter != 0 && (groupCharacter < GROUP_CHARACTER_MIN
+                        || groupCharacter > GROUP_CHARACTER_MAX)) {
+            return -1;
+        }
+
+        final int group = groupCharacter == 0 ? 0 : groupCharacter - GROUP_CHARACTER_MIN + 1;
+        return (parameterizedCharacter - PARAMETERIZED_CHARACTER_MIN) << 10
+                | group << 5
+                | terminationCharacter - TERMINATION_CHARACTER_MIN;
+    }
+
     /**
      * Gets the value string.
      *
      * @return the value (as a string).
      */
     public String getValue() {
-        return this.value;
+        String result = this.value;
+        if (result == null) {
+            final long integerPart = this.scaledValue / PrinterCommandEventHandler.VALUE_SCALE;
+            result = integerPart >= 0 && integerPart < COMMON_VALUES.length
+                    ? COMMON_VALUES[(int) integerPart]
+                    : Long.toString(integerPart);
+            this.value = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the value as an int. Decimal places are truncated (so "1.5" is returned as 1).
+     *
+     * @return the value (as an int).
+     *
+     * @throws NumberFormatException if the value is no valid number or out of the range of an int.
+     */
+    public int getValueAsInt() {
+        final long result = this.getValueAsLong();
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw new NumberFormatException("The value " + this.getValue() + " is out of the range of an int");
+        }
+        return (int) result;
+    }
+
+    /**
+     * Gets the value as a long. Decimal places are truncated (so "1.5" is returned as 1).
+     *
+     * @return the value (as a long).
+     *
+     * @throws NumberFormatException if the value is no valid number.
+     */
+    public long getValueAsLong() {
+        return this.getScaledValue() / PrinterCommandEventHandler.VALUE_SCALE;
+    }
+
+    /**
+     * Gets the value as a double. Note that PCL values have at most four decimal places, further decimal
+     * places are truncated.
+     *
+     * @return the value (as a double).
+     *
+     * @throws NumberFormatException if the value is no valid number.
+     */
+    public double getValueAsDouble() {
+        return (double) this.getScaledValue() / PrinterCommandEventHandler.VALUE_SCALE;
+    }
+
+    /**
+     * Gets the value scaled by {@link PrinterCommandEventHandler#VALUE_SCALE}.
+     *
+     * @return the scaled value.
+     *
+     * @throws NumberFormatException if the value is no valid number.
+     */
+    private long getScaledValue() {
+        if (this.scaledValue == PrinterCommandEventHandler.NO_VALUE) {
+            throw new NumberFormatException("The value " + this.getValue() + " is no valid number");
+        }
+        return this.scaledValue;
     }
 
     /**
      * Gets the data section of the PCL command if the PCL command contains such a data section.
      *
      * @return the data section or <code>null</code> if the PCL command does not contain a data section.
+     *
+     * @throws IllegalStateException if the data section has been skipped by the parser (use
+     *     {@link #readDataSection()} in this case).
      */
     public byte[] getDataSection() {
-        return this.dataSection == null ? null : this.dataSection.clone();
+        if (this.dataSectionSource != null) {
+            throw new IllegalStateException("The data section has been skipped by the parser");
+        }
+        return this.copyDataSection();
+    }
+
+    /**
+     * Gets the data section of the PCL command as a read-only {@link ByteBuffer} without copying it. The
+     * position of the {@link ByteBuffer} is 0 and the limit is the length of the data section.
+     *
+     * @return the data section or <code>null</code> if the PCL command does not contain a data section.
+     *
+     * @throws IllegalStateException if the data section has been skipped by the parser (use
+     *     {@link #readDataSection()} in this case).
+     */
+    public ByteBuffer getDataSectionBuffer() {
+        if (this.dataSectionSource != null) {
+            throw new IllegalStateException("The data section has been skipped by the parser");
+        }
+        return this.dataSection == null
+                ? null
+                : ByteBuffer.wrap(this.dataSection, this.dataSectionStart, this.dataSectionLength).slice()
+                        .asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns true if the PCL command contains a data section (even if it has been skipped by the parser).
+     *
+     * @return true if the PCL command contains a data section.
+     */
+    public boolean hasDataSection() {
+        return this.dataSection != null || this.dataSectionSource != null;
+    }
+
+    /**
+     * Returns the length of the data section (even if it has been skipped by the parser).
+     *
+     * @return the length of the data section or 0 if the PCL command does not contain a data section.
+     */
+    public int getDataSectionLength() {
+        return this.dataSectionLength;
+    }
+
+    /**
+     * Gets the data section of the PCL command. If the data section has been skipped by the parser
+     * (see {@link PclParser#setLazyDataSections(boolean)}) it is read from the data stream, which must
+     * not have been closed yet. The position of the data stream is not changed, so the data section may
+     * be read while the data stream is parsed.
+     *
+     * @return the data section or <code>null</code> if the PCL command does not contain a data section.
+     *
+     * @throws IOException if the data section can not be read.
+     */
+    public byte[] readDataSection() throws IOException {
+        if (this.dataSectionSource == null) {
+            return this.copyDataSection();
+        }
+
+        final PclInputStream source = this.dataSectionSource;
+        final byte[] result = new byte[this.dataSectionLength];
+        final long position = source.tell();
+        try {
+            source.seek(this.dataSectionOffset);
+            if (result.length > 0 && source.read(result) != result.length) {
+                throw new EOFException(String.format(
+                        "The data section at offset %1$d could not be read completely.", this.dataSectionOffset));
+            }
+        } finally {
+            source.seek(position);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a copy of the (not skipped) data section.
+     *
+     * @return a copy of the data section or <code>null</code> if the PCL command does not contain a data section.
+     */
+    private byte[] copyDataSection() {
+        return this.dataSection == null
+                ? null
+                : Arrays.copyOfRange(
+                        this.dataSection, this.dataSectionStart, this.dataSectionStart + this.dataSectionLength);
     }
 
     @Override
@@ -148,7 +482,10 @@ public final class ParameterizedPclCommand extends Pcl5Command {
                 ^ this.getGroupCharacter()
                 ^ this.getTerminationCharacter()
                 ^ this.getOffsetHash()
-                ^ Arrays.hashCode(this.dataSection); //do not use the getter - the getter clones!
+                ^ (this.dataSection == null
+                        ? 0
+                        : ByteArrays.hashCode(this.dataSection, this.dataSectionStart, this.dataSectionLength))
+                ^ (this.dataSectionSource == null ? 0 : (int) this.dataSectionOffset);
     }
 
     @Override
@@ -160,7 +497,12 @@ public final class ParameterizedPclCommand extends Pcl5Command {
                     && o.getGroupCharacter() == this.getGroupCharacter()
                     && o.getTerminationCharacter() == this.getTerminationCharacter()
                     && o.getOffset() == this.getOffset()
-                    && Arrays.equals(o.dataSection, this.dataSection); //do not use the getter - the getter clones!
+                    && (o.dataSection == null) == (this.dataSection == null)
+                    && (this.dataSection == null || ByteArrays.equals(
+                            o.dataSection, o.dataSectionStart, o.dataSectionLength,
+                            this.dataSection, this.dataSectionStart, this.dataSectionLength))
+                    && o.dataSectionOffset == this.dataSectionOffset
+                    && o.dataSectionLength == this.dataSectionLength;
         } else {
             return false;
         }
@@ -186,6 +528,25 @@ public final class ParameterizedPclCommand extends Pcl5Command {
 
     @Override
     public String toCommandString() {
+        final int index = tableIndex(this.getCommandCode());
+        if (index < 0) {
+            return this.buildCommandString();
+        }
+
+        String result = COMMAND_STRINGS[index];
+        if (result == null) {
+            result = this.buildCommandString();
+            COMMAND_STRINGS[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Builds the command string (see {@link #toCommandString()}).
+     *
+     * @return a new command string.
+     */
+    private String buildCommandString() {
         final StringBuilder sb = new StringBuilder();
         sb.append((char) this.getParameterizedCharacter());
 
@@ -224,27 +585,36 @@ public final class ParameterizedPclCommand extends Pcl5Command {
      * @return true if this {@link ParameterizedPclCommand} should be written without the value.
      */
     private boolean isWithoutValue() {
-        return (this.toCommandString().equals("*rB") && this.getValue().equals("0"))
-                || (this.toCommandString().equals("*rC") && this.getValue().equals("0"))
-                || (this.toCommandString().equals("&d@") && this.getValue().equals("0"));
+        final int commandCode = this.getCommandCode();
+        return (commandCode == END_RASTER_GRAPHICS_PCL4
+                || commandCode == END_RASTER_GRAPHICS
+                || commandCode == DISABLE_UNDERLINE)
+                && this.getValue().equals("0");
     }
 
     @Override
     public byte[] toByteArray() {
-        final String asString = this.toDisplayString();
-        final byte[] asByteArray = asString.getBytes(ISO_8859_1);
+        final byte[] data;
+        try {
+            data = this.dataSectionSource == null ? this.dataSection : this.readDataSection();
+        } catch (final IOException e) {
+            throw new IllegalStateException("The skipped data section could not be read", e);
+        }
+
+        final byte[] asByteArray = this.toDisplayString().getBytes(ISO_8859_1);
+        final int dataStart = this.dataSectionSource == null ? this.dataSectionStart : 0;
 
         final int resultSize = 1 // for the escape byte
                 + asByteArray.length
-                + (this.dataSection != null ? this.dataSection.length : 0);
+                + (data != null ? this.dataSectionLength : 0);
 
         final byte[] result = new byte[resultSize];
 
         result[0] = 0x1B;
         System.arraycopy(asByteArray, 0, result, 1, asByteArray.length);
 
-        if (this.dataSection != null) {
-            System.arraycopy(this.dataSection, 0, result, asByteArray.length + 1, this.dataSection.length);
+        if (data != null) {
+            System.arraycopy(data, dataStart, result, asByteArray.length + 1, this.dataSectionLength);
         }
 
         return result;
@@ -252,6 +622,90 @@ public final class ParameterizedPclCommand extends Pcl5Command {
 
     @Override
     public void writeTo(OutputStream out) throws IOException {
-        out.write(this.toByteArray());
+        // The data section is written directly from its array (there is no need to build the whole command
+        // in a new array)...
+        out.write(0x1B);
+        out.write(this.toDisplayString().getBytes(ISO_8859_1));
+
+        if (this.dataSectionSource != null) {
+            out.write(this.readDataSection());
+        } else if (this.dataSection != null) {
+            out.write(this.dataSection, this.dataSectionStart, this.dataSectionLength);
+        }
+    }
+
+    /**
+     * Converts the given value of a PCL command into a fixed-point number that is scaled by
+     * {@link PrinterCommandEventHandler#VALUE_SCALE}. Decimal places beyond the scale are truncated. An omitted
+     * value is 0.
+     *
+     * @param value   the value of the PCL command.
+     *
+     * @return the scaled value or {@link PrinterCommandEventHandler#NO_VALUE} if the value is no valid number or
+     *     too large.
+     */
+    static long parseValue(final CharSequence value) {
+        final int length = value.length();
+
+        int ix = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '+' || value.charAt(0) == '-')) {
+            negative = value.charAt(0) == '-';
+            ++ix;
+        }
+
+        long integerPart = 0;
+        for (; ix < length && value.charAt(ix) != '.'; ++ix) {
+            final char digit = value.charAt(ix);
+            if (digit < '0' || digit > '9') {
+                return PrinterCommandEventHandler.NO_VALUE;
+            }
+            integerPart = integerPart * 10 + digit - '0';
+            if (integerPart > MAX_INTEGER_PART) {
+                return PrinterCommandEventHandler.NO_VALUE;
+            }
+        }
+
+        long fractionalPart = 0;
+        long scale = PrinterCommandEventHandler.VALUE_SCALE;
+        for (++ix; ix < length; ++ix) {
+            final char digit = value.charAt(ix);
+            if (digit < '0' || digit > '9') {
+                return PrinterCommandEventHandler.NO_VALUE;
+            }
+            scale /= 10;
+            fractionalPart += (digit - '0') * scale;
+        }
+
+        final long result = integerPart * PrinterCommandEventHandler.VALUE_SCALE + fractionalPart;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Returns true if the given value is an integer in its canonical notation (no plus sign, no leading zeros and
+     * no decimal point), so it can be rebuilt from the scaled value.
+     *
+     * @param value   the value of the PCL command.
+     *
+     * @return true if the given value is an integer in its canonical notation.
+     */
+    private static boolean isCanonicalInteger(final CharSequence value) {
+        final int length = value.length();
+        final int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == length) {
+            return false;
+        }
+
+        if (value.charAt(start) == '0') {
+            return length == 1;
+        }
+
+        for (int ix = start; ix < length; ++ix) {
+            if (value.charAt(ix) < '0' || value.charAt(ix) > '9') {
+                return false;
+            }
+        }
+
+        return true;
     }
 }
@@ -16,258 +16,277 @@ package de.textmode.pclbox;
  * limitations under the License.
  */
 
-import java.util.HashMap;
-
 /**
- * This class provides a static {@link HashMap} with mappings of a "unique command string"
- * to a textual description of a {@link Pcl5Command}.
+ * This class provides static tables with mappings of a command code (see {@link PrinterCommand#getCommandCode()})
+ * to a textual description of a {@link Pcl5Command}. The tables are indexed directly by the command code, so
+ * no command string has to be built to find the description.
  */
 final class Pcl5Commands {
 
-    private static final HashMap<String, String> MAPPINGS = new HashMap<>();
+    private static final String[] TWO_BYTE_DESCRIPTIONS = new String[256];
+    private static final String[] PARAMETERIZED_DESCRIPTIONS = new String[ParameterizedPclCommand.TABLE_SIZE];
 
     static {
-        MAPPINGS.put("E", "Printer Reset");
-        MAPPINGS.put("9", "Clear Horizontal Margins");
-        MAPPINGS.put("=", "Half Line Feed");
-        MAPPINGS.put("Y", "Display Functions Enable");
-        MAPPINGS.put("Z", "Display Functions Disable");
-        MAPPINGS.put("%A", "Enter PCL Mode");
-        MAPPINGS.put("%B", "Enter HP-GL/2 Mode");
-        MAPPINGS.put("%X", "Universal Exit Language");
-        MAPPINGS.put("&aC", "Horizontal Cursor Positioning (Column)");
-        MAPPINGS.put("&aG", "Duplex Page Side Selection");
-        MAPPINGS.put("&aH", "Horizontal Cursor Positioning (Decipoints)");
-        MAPPINGS.put("&aL", "Left Margin");
-        MAPPINGS.put("&aM", "Right Margin");
-        MAPPINGS.put("&aN", "Negative Motion");
-        MAPPINGS.put("&aP", "Print Direction");
-        MAPPINGS.put("&aR", "Vertical Cursor Positioning (Rows)");
-        MAPPINGS.put("&aT", "Set Horizontal Tab");
-        MAPPINGS.put("&aU", "Clear Horizontal Tab");
-        MAPPINGS.put("&aV", "Vertical Cursor Positioning (Decipoints)");
-        MAPPINGS.put("&aW", "User Defined Logical Page");
-        MAPPINGS.put("&bF", "Finish Mode");
-        MAPPINGS.put("&bM", "Monochrome Print Mode");
-        MAPPINGS.put("&bT", "Dry Time");
-        MAPPINGS.put("&bW", "Configuration (AppleTalk)");
-        MAPPINGS.put("&cT", "Character Text Path Direction");
-        MAPPINGS.put("&cW", "Cluster Printing");
-        MAPPINGS.put("&d@", "Disable Underline");
-        MAPPINGS.put("&dD", "Enable Underline");
-        MAPPINGS.put("&fF", "Media Eject Length (Decipoints)");
-        MAPPINGS.put("&fG", "Page Width (Decipoints)");
-        MAPPINGS.put("&fS", "Push / Pop Cursor Position");
-        MAPPINGS.put("&fX", "Macro Control");
-        MAPPINGS.put("&fY", "Macro ID");
-        MAPPINGS.put("&iW", "Underware Function Configuration");
-        MAPPINGS.put("&kE", "Underline Enhancement");
-        MAPPINGS.put("&kF", "Shift In/Out Control");
-        MAPPINGS.put("&kG", "Line Termination");
-        MAPPINGS.put("&kH", "Horizontal Motion Index (1/120 inches)");
-        MAPPINGS.put("&kI", "Character Set Selection Control");
-        MAPPINGS.put("&kS", "Pitch Mode");
-        MAPPINGS.put("&kV", "Head View Mode");
-        MAPPINGS.put("&kW", "Set Print Mode");
-        MAPPINGS.put("&lA", "Page Size");
-        MAPPINGS.put("&lC", "Vertical Motion Index");
-        MAPPINGS.put("&lD", "Line Spacing");
-        MAPPINGS.put("&lE", "Top Margin");
-        MAPPINGS.put("&lF", "Text Length");
-        MAPPINGS.put("&lG", "Output Bin Selection");
-        MAPPINGS.put("&lH", "Paper Source");
-        MAPPINGS.put("&lJ", "Auto Justification");
-        MAPPINGS.put("&lL", "Perforation Skip");
-        MAPPINGS.put("&lM", "Media Type");
-        MAPPINGS.put("&lO", "Page Orientation");
-        MAPPINGS.put("&lP", "Page Length (Lines)");
-        MAPPINGS.put("&lR", "Clear Vertical Tab Absolute (Line)");
-        MAPPINGS.put("&lS", "Simplex/Duplex Print");
-        MAPPINGS.put("&lT", "Job Separation");
-        MAPPINGS.put("&lU", "Left Offset Registration (Decipoints)");
-        MAPPINGS.put("&lV", "Vertical Position Via VFC (Channel)");
-        MAPPINGS.put("&lW", "Define VFC Table");
-        MAPPINGS.put("&lX", "Number Of Copies");
-        MAPPINGS.put("&lY", "Set Vertical Tab Absolute (Line)");
-        MAPPINGS.put("&lZ", "Top Offset Registration (Decipoints)");
-        MAPPINGS.put("&nW", "Paper Type");
-        MAPPINGS.put("&pA", "ImageStream Data Container");
-        MAPPINGS.put("&pC", "Palette Control");
-        MAPPINGS.put("&pI", "Palette Control ID");
-        MAPPINGS.put("&pS", "Select Palette");
-        MAPPINGS.put("&pW", "Escapement Encapsulated Text");
-        MAPPINGS.put("&pX", "Transparent Print Data");
-        MAPPINGS.put("&rF", "Flush All Pages");
-        MAPPINGS.put("&sC", "End Of Line Wrap");
-        MAPPINGS.put("&sI", "Character Set Default Control");
-        MAPPINGS.put("&tP", "Text Parsing Method");
-        MAPPINGS.put("&uD", "Unit Of Measure");
-        MAPPINGS.put("&vS", "Text Color");
-        MAPPINGS.put("(@", "Select Primary Default Font");
-        MAPPINGS.put("(A", "Primary Symbol Set");
-        MAPPINGS.put("(B", "Primary Symbol Set");
-        MAPPINGS.put("(C", "Primary Symbol Set");
-        MAPPINGS.put("(D", "Primary Symbol Set");
-        MAPPINGS.put("(E", "Primary Symbol Set");
-        MAPPINGS.put("(F", "Primary Symbol Set");
-        MAPPINGS.put("(G", "Primary Symbol Set");
-        MAPPINGS.put("(H", "Primary Symbol Set");
-        MAPPINGS.put("(I", "Primary Symbol Set");
-        MAPPINGS.put("(J", "Primary Symbol Set");
-        MAPPINGS.put("(K", "Primary Symbol Set");
-        MAPPINGS.put("(L", "Primary Symbol Set");
-        MAPPINGS.put("(M", "Primary Symbol Set");
-        MAPPINGS.put("(N", "Primary Symbol Set");
-        MAPPINGS.put("(O", "Primary Symbol Set");
-        MAPPINGS.put("(P", "Primary Symbol Set");
-        MAPPINGS.put("(Q", "Primary Symbol Set");
-        MAPPINGS.put("(R", "Primary Symbol Set");
-        MAPPINGS.put("(S", "Primary Symbol Set");
-        MAPPINGS.put("(T", "Primary Symbol Set");
-        MAPPINGS.put("(U", "Primary Symbol Set");
-        MAPPINGS.put("(V", "Primary Symbol Set");
-        MAPPINGS.put("(W", "Primary Symbol Set");
-        MAPPINGS.put("(X", "Primary Font Selection By ID");
-        MAPPINGS.put("(Y", "Primary Symbol Set");
-        MAPPINGS.put("(Z", "Primary Symbol Set");
-        MAPPINGS.put("(fW", "Define Symbol Set");
-        MAPPINGS.put("(sB", "Primary Stroke Weight");
-        MAPPINGS.put("(sH", "Primary Pitch (Characters Per Inch)");
-        MAPPINGS.put("(sP", "Primary Spacing");
-        MAPPINGS.put("(sQ", "Primary Quality");
-        MAPPINGS.put("(sS", "Primary Style");
-        MAPPINGS.put("(sT", "Primary Typeface");
-        MAPPINGS.put("(sU", "Primary Placement");
-        MAPPINGS.put("(sV", "Primary Height (Points)");
-        MAPPINGS.put("(sW", "Character Definition");
-        MAPPINGS.put(")@", "Select Secondary Default Font");
-        MAPPINGS.put(")A", "Secondary Symbol Set");
-        MAPPINGS.put(")B", "Secondary Symbol Set");
-        MAPPINGS.put(")C", "Secondary Symbol Set");
-        MAPPINGS.put(")D", "Secondary Symbol Set");
-        MAPPINGS.put(")E", "Secondary Symbol Set");
-        MAPPINGS.put(")F", "Secondary Symbol Set");
-        MAPPINGS.put(")G", "Secondary Symbol Set");
-        MAPPINGS.put(")H", "Secondary Symbol Set");
-        MAPPINGS.put(")I", "Secondary Symbol Set");
-        MAPPINGS.put(")J", "Secondary Symbol Set");
-        MAPPINGS.put(")K", "Secondary Symbol Set");
-        MAPPINGS.put(")L", "Secondary Symbol Set");
-        MAPPINGS.put(")M", "Secondary Symbol Set");
-        MAPPINGS.put(")N", "Secondary Symbol Set");
-        MAPPINGS.put(")O", "Secondary Symbol Set");
-        MAPPINGS.put(")P", "Secondary Symbol Set");
-        MAPPINGS.put(")Q", "Secondary Symbol Set");
-        MAPPINGS.put(")R", "Secondary Symbol Set");
-        MAPPINGS.put(")S", "Secondary Symbol Set");
-        MAPPINGS.put(")T", "Secondary Symbol Set");
-        MAPPINGS.put(")U", "Secondary Symbol Set");
-        MAPPINGS.put(")V", "Secondary Symbol Set");
-        MAPPINGS.put(")W", "Secondary Symbol Set");
-        MAPPINGS.put(")X", "Secondary Font Selection By ID");
-        MAPPINGS.put(")Y", "Secondary Symbol Set");
-        MAPPINGS.put(")Z", "Secondary Symbol Set");
-        MAPPINGS.put(")sB", "Secondary Stroke Weight");
-        MAPPINGS.put(")sH", "Secondary Font: Pitch (Characters Per Pnch)");
-        MAPPINGS.put(")sP", "Secondary Spacing");
-        MAPPINGS.put(")sQ", "Secondary Quality");
-        MAPPINGS.put(")sS", "Secondary Style");
-        MAPPINGS.put(")sT", "Secondary Typeface");
-        MAPPINGS.put(")sU", "Secondary Placement");
-        MAPPINGS.put(")sV", "Secondary Height (Points)");
-        MAPPINGS.put(")sW", "Font Header");
-        MAPPINGS.put("*bB", "Set Black Optimization");
-        MAPPINGS.put("*bM", "Set Compression Method");
-        MAPPINGS.put("*bS", "Seed Row Source (Plane)");
-        MAPPINGS.put("*bV", "Transfer Raster Data By Plane");
-        MAPPINGS.put("*bW", "Transfer Raster Data By Block");
-        MAPPINGS.put("*bX", "Raster Line X Offset (Pixels)");
-        MAPPINGS.put("*bY", "Raster Y Offset (Raster lines)");
-        MAPPINGS.put("*cA", "Horizontal Rectangle Size By PCL-Units");
-        MAPPINGS.put("*cB", "Vertical Rectangle Size By PCL-Units");
-        MAPPINGS.put("*cC", "Large Character Placement (Column)");
-        MAPPINGS.put("*cD", "Font ID");
-        MAPPINGS.put("*cE", "Character Code");
-        MAPPINGS.put("*cF", "Font Control");
-        MAPPINGS.put("*cG", "Pattern ID");
-        MAPPINGS.put("*cH", "Horizontal Rectangle Size By Decipoints");
-        MAPPINGS.put("*cK", "Horizontal HP-GL/2 Plot Size (Inches)");
-        MAPPINGS.put("*cL", "Vertical HP-GL/2 Plot Size (Inches)");
-        MAPPINGS.put("*cM", "Large Character Size (Magnification)");
-        MAPPINGS.put("*cN", "Large Character Tab");
-        MAPPINGS.put("*cP", "Fill Rectangular Area");
-        MAPPINGS.put("*cQ", "Pattern Control");
-        MAPPINGS.put("*cR", "Symbol Set ID Code");
-        MAPPINGS.put("*cS", "Symbol Set Control");
-        MAPPINGS.put("*cT", "Set Picture Frame Anchor Point");
-        MAPPINGS.put("*cV", "Vertical Rectangle Size By Decipoints");
-        MAPPINGS.put("*cW", "User Defined Pattern");
-        MAPPINGS.put("*cX", "Horizontal Picture Frame Size (Decipoints)");
-        MAPPINGS.put("*cY", "Vertical Picture Frame Size (Decipoints)");
-        MAPPINGS.put("*cZ", "Large Character Print Data");
-        MAPPINGS.put("*gW", "Configure Raster Data");
-        MAPPINGS.put("*iW", "Viewing Illuminant");
-        MAPPINGS.put("*lO", "Logical Operation (ROP3)");
-        MAPPINGS.put("*lP", "Clip Mask");
-        MAPPINGS.put("*lR", "Pixel Placement");
-        MAPPINGS.put("*lW", "Color Lookup Tables");
-        MAPPINGS.put("*mW", "Download Dither Matrix");
-        MAPPINGS.put("*oD", "Color Raster Depletion");
-        MAPPINGS.put("*oM", "Print Quality");
-        MAPPINGS.put("*oQ", "Mechanical Print Quality");
-        MAPPINGS.put("*oW", "Driver Configuration");
-        MAPPINGS.put("*pN", "Set Graphics Print Mode");
-        MAPPINGS.put("*pP", "Push / Pop Palette");
-        MAPPINGS.put("*pR", "Set Pattern Reference Point");
-        MAPPINGS.put("*pX", "Horizontal Cursor Positioning (PCL-Units)");
-        MAPPINGS.put("*pY", "Vertical Cursor Positioning (PCL-Units)");
-        MAPPINGS.put("*rA", "Start Raster Graphics");
-        MAPPINGS.put("*rB", "End Raster Graphics (PCL4)");
-        MAPPINGS.put("*rC", "End Raster Graphics");
-        MAPPINGS.put("*rF", "Raster Graphics Presentation");
-        MAPPINGS.put("*rL", "Horizontal Raster Resolution (Dots Per Inch)");
-        MAPPINGS.put("*rQ", "Raster Graphics Quality");
-        MAPPINGS.put("*rS", "Source Raster Width");
-        MAPPINGS.put("*rT", "Source Raster Height");
-        MAPPINGS.put("*rU", "Simple Color");
-        MAPPINGS.put("*rV", "Vertical Raster Resolution (Dots Per Inch)");
-        MAPPINGS.put("*sI", "Inquire Status Readback Entity");
-        MAPPINGS.put("*sM", "Free Space");
-        MAPPINGS.put("*sT", "Set Status Readback Location Type");
-        MAPPINGS.put("*sU", "Set Status Readback Location Unit");
-        MAPPINGS.put("*sX", "Echo");
-        MAPPINGS.put("*s^", "Return Model Number");
-        MAPPINGS.put("*tF", "QMS Magnum-5 Interpreter");
-        MAPPINGS.put("*tG", "GPIS Data Binding");
-        MAPPINGS.put("*tH", "Destination Raster Width (Decipoints)");
-        MAPPINGS.put("*tI", "Gamma Correction");
-        MAPPINGS.put("*tJ", "Render Algorithm");
-        MAPPINGS.put("*tK", "Scale Algorithm");
-        MAPPINGS.put("*tM", "Vector Graphics Operating Mode");
-        MAPPINGS.put("*tN", "Vector Graphics Mapping Mode");
-        MAPPINGS.put("*tP", "Vector Graphics Print Control");
-        MAPPINGS.put("*tR", "Raster Graphics Resolution (Dots Per Inch)");
-        MAPPINGS.put("*tV", "Destination Raster Height");
-        MAPPINGS.put("*tW", "GPIS Data Transfer");
-        MAPPINGS.put("*vA", "Color Component 1");
-        MAPPINGS.put("*vB", "Color Component 2");
-        MAPPINGS.put("*vC", "Color Component 3");
-        MAPPINGS.put("*vI", "Assign Color Index");
-        MAPPINGS.put("*vN", "Source Transparency Mode");
-        MAPPINGS.put("*vO", "Pattern Transparency Mode");
-        MAPPINGS.put("*vS", "Foreground Color");
-        MAPPINGS.put("*vT", "Select Current Pattern");
-        MAPPINGS.put("*vW", "Configure Image Data");
-        MAPPINGS.put("*zC", "Bar Code Label Placement (Column)");
-        MAPPINGS.put("*zH", "Bar Code Label Height (1/10 inches)");
-        MAPPINGS.put("*zQ", "Bar Code Header Control");
-        MAPPINGS.put("*zR", "Bar Code Wide Bar Width (Dots)");
-        MAPPINGS.put("*zS", "Bar Code Narrow Bar Width (Dots)");
-        MAPPINGS.put("*zT", "Bar Code Wide Space Width (Dots)");
-        MAPPINGS.put("*zU", "Bar Code Narrow Space Width (Dots)");
-        MAPPINGS.put("*zV", "Bar Code Selection");
-        MAPPINGS.put("*zX", "Bar Code Label X Offset (Dots)");
-        MAPPINGS.put("*zZ", "Bar Code Label");
+        put("E", "Printer Reset");
+        put("9", "Clear Horizontal Margins");
+        put("=", "Half Line Feed");
+        put("Y", "Display Functions Enable");
+        put("Z", "Display Functions Disable");
+        put("%A", "Enter PCL Mode");
+        put("%B", "Enter HP-GL/2 Mode");
+        put("%X", "Universal Exit Language");
+        put("&aC", "Horizontal Cursor Positioning (Column)");
+        put("&aG", "Duplex Page Side Selection");
+        put("&aH", "Horizontal Cursor Positioning (Decipoints)");
+        put("&aL", "Left Margin");
+        put("&aM", "Right Margin");
+        put("&aN", "Negative Motion");
+        put("&aP", "Print Direction");
+        put("&aR", "Vertical Cursor Positioning (Rows)");
+        put("&aT", "Set Horizontal Tab");
+        put("&aU", "Clear Horizontal Tab");
+        put("&aV", "Vertical Cursor Positioning (Decipoints)");
+        put("&aW", "User Defined Logical Page");
+        put("&bF", "Finish Mode");
+        put("&bM", "Monochrome Print Mode");
+        put("&bT", "Dry Time");
+        put("&bW", "Configuration (AppleTalk)");
+        put("&cT", "Character Text Path Direction");
+        put("&cW", "Cluster Printing");
+        put("&d@", "Disable Underline");
+        put("&dD", "Enable Underline");
+        put("&fF", "Media Eject Length (Decipoints)");
+        put("&fG", "Page Width (Decipoints)");
+        put("&fS", "Push / Pop Cursor Position");
+        put("&fX", "Macro Control");
+        put("&fY", "Macro ID");
+        put("&iW", "Underware Function Configuration");
+        put("&kE", "Underline Enhancement");
+        put("&kF", "Shift In/Out Control");
+        put("&kG", "Line Termination");
+        put("&kH", "Horizontal Motion Index (1/120 inches)");
+        put("&kI", "Character Set Selection Control");
+        put("&kS", "Pitch Mode");
+        put("&kV", "Head View Mode");
+        put("&kW", "Set Print Mode");
+        put("&lA", "Page Size");
+        put("&lC", "Vertical Motion Index");
+        put("&lD", "Line Spacing");
+        put("&lE", "Top Margin");
+        put("&lF", "Text Length");
+        put("&lG", "Output Bin Selection");
+        put("&lH", "Paper Source");
+        put("&lJ", "Auto Justification");
+        put("&lL", "Perforation Skip");
+        put("&lM", "Media Type");
+        put("&lO", "Page Orientation");
+        put("&lP", "Page Length (Lines)");
+        put("&lR", "Clear Vertical Tab Absolute (Line)");
+        put("&lS", "Simplex/Duplex Print");
+        put("&lT", "Job Separation");
+        put("&lU", "Left Offset Registration (Decipoints)");
+        put("&lV", "Vertical Position Via VFC (Channel)");
+        put("&lW", "Define VFC Table");
+        put("&lX", "Number Of Copies");
+        put("&lY", "Set Vertical Tab Absolute (Line)");
+        put("&lZ", "Top Offset Registration (Decipoints)");
+        put("&nW", "Paper Type");
+        put("&pA", "ImageStream Data Container");
+        put("&pC", "Palette Control");
+        put("&pI", "Palette Control ID");
+        put("&pS", "Select Palette");
+        put("&pW", "Escapement Encapsulated Text");
+        put("&pX", "Transparent Print Data");
+        put("&rF", "Flush All Pages");
+        put("&sC", "End Of Line Wrap");
+        put("&sI", "Character Set Default Control");
+        put("&tP", "Text Parsing Method");
+        put("&uD", "Unit Of Measure");
+        put("&vS", "Text Color");
+        put("(@", "Select Primary Default Font");
+        put("(A", "Primary Symbol Set");
+        put("(B", "Primary Symbol Set");
+        put("(C", "Primary Symbol Set");
+        put("(D", "Primary Symbol Set");
+        put("(E", "Primary Symbol Set");
+        put("(F", "Primary Symbol Set");
+        put("(G", "Primary Symbol Set");
+        put("(H", "Primary Symbol Set");
+        put("(I", "Primary Symbol Set");
+        put("(J", "Primary Symbol Set");
+        put("(K", "Primary Symbol Set");
+        put("(L", "Primary Symbol Set");
+        put("(M", "Primary Symbol Set");
+        put("(N", "Primary Symbol Set");
+        put("(O", "Primary Symbol Set");
+        put("(P", "Primary Symbol Set");
+        put("(Q", "Primary Symbol Set");
+        put("(R", "Primary Symbol Set");
+        put("(S", "Primary Symbol Set");
+        put("(T", "Primary Symbol Set");
+        put("(U", "Primary Symbol Set");
+        put("(V", "Primary Symbol Set");
+        put("(W", "Primary Symbol Set");
+        put("(X", "Primary Font Selection By ID");
+        put("(Y", "Primary Symbol Set");
+        put("(Z", "Primary Symbol Set");
+        put("(fW", "Define Symbol Set");
+        put("(sB", "Primary Stroke Weight");
+        put("(sH", "Primary Pitch (Characters Per Inch)");
+        put("(sP", "Primary Spacing");
+        put("(sQ", "Primary Quality");
+        put("(sS", "Primary Style");
+        put("(sT", "Primary Typeface");
+        put("(sU", "Primary Placement");
+        put("(sV", "Primary Height (Points)");
+        put("(sW", "Character Definition");
+        put(")@", "Select Secondary Default Font");
+        put(")A", "Secondary Symbol Set");
+        put(")B", "Secondary Symbol Set");
+        put(")C", "Secondary Symbol Set");
+        put(")D", "Secondary Symbol Set");
+        put(")E", "Secondary Symbol Set");
+        put(")F", "Secondary Symbol Set");
+        put(")G", "Secondary Symbol Set");
+        put(")H", "Secondary Symbol Set");
+        put(")I", "Secondary Symbol Set");
+        put(")J", "Secondary Symbol Set");
+        put(")K", "Secondary Symbol Set");
+        put(")L", "Secondary Symbol Set");
+        put(")M", "Secondary Symbol Set");
+        put(")N", "Secondary Symbol Set");
+        put(")O", "Secondary Symbol Set");
+        put(")P", "Secondary Symbol Set");
+        put(")Q", "Secondary Symbol Set");
+        put(")R", "Secondary Symbol Set");
+        put(")S", "Secondary Symbol Set");
+        put(")T", "Secondary Symbol Set");
+        put(")U", "Secondary Symbol Set");
+        put(")V", "Secondary Symbol Set");
+        put(")W", "Secondary Symbol Set");
+        put(")X", "Secondary Font Selection By ID");
+        put(")Y", "Secondary Symbol Set");
+        put(")Z", "Secondary Symbol Set");
+        put(")sB", "Secondary Stroke Weight");
+        put(")sH", "Secondary Font: Pitch (Characters Per Pnch)");
+        put(")sP", "Secondary Spacing");
+        put(")sQ", "Secondary Quality");
+        put(")sS", "Secondary Style");
+        put(")sT", "Secondary Typeface");
+        put(")sU", "Secondary Placement");
+        put(")sV", "Secondary Height (Points)");
+        put(")sW", "Font Header");
+        put("*bB", "Set Black Optimization");
+        put("*bM", "Set Compression Method");
+        put("*bS", "Seed Row Source (Plane)");
+        put("*bV", "Transfer Raster Data By Plane");
+        put("*bW", "Transfer Raster Data By Block");
+        put("*bX", "Raster Line X Offset (Pixels)");
+        put("*bY", "Raster Y Offset (Raster lines)");
+        put("*cA", "Horizontal Rectangle Size By PCL-Units");
+        put("*cB", "Vertical Rectangle Size By PCL-Units");
+        put("*cC", "Large Character Placement (Column)");
+        put("*cD", "Font ID");
+        put("*cE", "Character Code");
+        put("*cF", "Font Control");
+        put("*cG", "Pattern ID");
+        put("*cH", "Horizontal Rectangle Size By Decipoints");
+        put("*cK", "Horizontal HP-GL/2 Plot Size (Inches)");
+        put("*cL", "Vertical HP-GL/2 Plot Size (Inches)");
+        put("*cM", "Large Character Size (Magnification)");
+        put("*cN", "Large Character Tab");
+        put("*cP", "Fill Rectangular Area");
+        put("*cQ", "Pattern Control");
+        put("*cR", "Symbol Set ID Code");
+        put("*cS", "Symbol Set Control");
+        put("*cT", "Set Picture Frame Anchor Point");
+        put("*cV", "Vertical Rectangle Size By Decipoints");
+        put("*cW", "User Defined Pattern");
+        put("*cX", "Horizontal Picture Frame Size (Decipoints)");
+        put("*cY", "Vertical Picture Frame Size (Decipoints)");
+        put("*cZ", "Large Character Print Data");
+        put("*gW", "Configure Raster Data");
+        put("*iW", "Viewing Illuminant");
+        put("*lO", "Logical Operation (ROP3)");
+        put("*lP", "Clip Mask");
+        put("*lR", "Pixel Placement");
+        put("*lW", "Color Lookup Tables");
+        put("*mW", "Download Dither Matrix");
+        put("*oD", "Color Raster Depletion");
+        put("*oM", "Print Quality");
+        put("*oQ", "Mechanical Print Quality");
+        put("*oW", "Driver Configuration");
+        put("*pN", "Set Graphics Print Mode");
+        put("*pP", "Push / Pop Palette");
+        put("*pR", "Set Pattern Reference Point");
+        put("*pX", "Horizontal Cursor Positioning (PCL-Units)");
+        put("*pY", "Vertical Cursor Positioning (PCL-Units)");
+        put("*rA", "Start Raster Graphics");
+        put("*rB", "End Raster Graphics (PCL4)");
+        put("*rC", "End Raster Graphics");
+        put("*rF", "Raster Graphics Presentation");
+        put("*rL", "Horizontal Raster Resolution (Dots Per Inch)");
+        put("*rQ", "Raster Graphics Quality");
+        put("*rS", "Source Raster Width");
+        put("*rT", "Source Raster Height");
+        put("*rU", "Simple Color");
+        put("*rV", "Vertical Raster Resolution (Dots Per Inch)");
+        put("*sI", "Inquire Status Readback Entity");
+        put("*sM", "Free Space");
+        put("*sT", "Set Status Readback Location Type");
+        put("*sU", "Set Status Readback Location Unit");
+        put("*sX", "Echo");
+        put("*s^", "Return Model Number");
+        put("*tF", "QMS Magnum-5 Interpreter");
+        put("*tG", "GPIS Data Binding");
+        put("*tH", "Destination Raster Width (Decipoints)");
+        put("*tI", "Gamma Correction");
+        put("*tJ", "Render Algorithm");
+        put("*tK", "Scale Algorithm");
+        put("*tM", "Vector Graphics Operating Mode");
+        put("*tN", "Vector Graphics Mapping Mode");
+        put("*tP", "Vector Graphics Print Control");
+        put("*tR", "Raster Graphics Resolution (Dots Per Inch)");
+        put("*tV", "Destination Raster Height");
+        put("*tW", "GPIS Data Transfer");
+        put("*vA", "Color Component 1");
+        put("*vB", "Color Component 2");
+        put("*vC", "Color Component 3");
+        put("*vI", "Assign Color Index");
+        put("*vN", "Source Transparency Mode");
+        put("*vO", "Pattern Transparency Mode");
+        put("*vS", "Foreground Color");
+        put("*vT", "Select Current Pattern");
+        put("*vW", "Configure Image Data");
+        put("*zC", "Bar Code Label Placement (Column)");
+        put("*zH", "Bar Code Label Height (1/10 inches)");
+        put("*zQ", "Bar Code Header Control");
+        put("*zR", "Bar Code Wide Bar Width (Dots)");
+        put("*zS", "Bar Code Narrow Bar Width (Dots)");
+        put("*zT", "Bar Code Wide Space Width (Dots)");
+        put("*zU", "Bar Code Narrow Space Width (Dots)");
+        put("*zV", "Bar Code Selection");
+        put("*zX", "Bar Code Label X Offset (Dots)");
+        put("*zZ", "Bar Code Label");
+    }
+
+    /**
+     * Stores the textual description of a {@link Pcl5Command}.
+     *
+     * @param commandString   the command string of the {@link Pcl5Command} (see {@link Pcl5Command#toCommandString()}).
+     * @param description   the textual description of the {@link Pcl5Command}.
+     */
+    private static void put(final String commandString, final String description) {
+        if (commandString.length() == 1) {
+            TWO_BYTE_DESCRIPTIONS[commandString.charAt(0)] = description;
+        } else {
+            final int commandCode = commandString.length() == 2
+                    ? ParameterizedPclCommand.toCommandCode(commandString.charAt(0), 0, commandString.charAt(1))
+                    : ParameterizedPclCommand.toCommandCode(
+                            commandString.charAt(0), commandString.charAt(1), commandString.charAt(2));
+
+            PARAMETERIZED_DESCRIPTIONS[ParameterizedPclCommand.tableIndex(commandCode)] = description;
+        }
     }
 
     /**
@@ -278,9 +297,23 @@ final class Pcl5Commands {
      * @return a textual description the the {@link Pcl5Command}.
      */
     static String getCommandDescriptionFor(final Pcl5Command command) {
-        final String cmdString = command.toCommandString();
-        final String result = MAPPINGS.get(cmdString);
+        final String result = getCommandDescriptionFor(command.getCommandCode());
+        return result == null ? "Unknown PCL-Command " + command.toCommandString() : result;
+    }
+
+    /**
+     * Returns the textual description of the {@link Pcl5Command} with the given command code.
+     *
+     * @param commandCode   the command code of the {@link Pcl5Command}.
+     *
+     * @return the textual description or <code>null</code> if the {@link Pcl5Command} is unknown.
+     */
+    static String getCommandDescriptionFor(final int commandCode) {
+        if (commandCode >= 0 && commandCode < TWO_BYTE_DESCRIPTIONS.length) {
+            return TWO_BYTE_DESCRIPTIONS[commandCode];
+        }
 
-        return result == null ? "Unknown PCL-Command " + cmdString : result;
+        final int index = ParameterizedPclCommand.tableIndex(commandCode);
+        return index < 0 ? null : PARAMETERIZED_DESCRIPTIONS[index];
     }
 }
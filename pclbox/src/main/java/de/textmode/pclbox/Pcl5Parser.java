@@ -16,19 +16,25 @@ package de.textmode.pclbox;
  * limitations under the License.
  */
 
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This {@link DataStreamParser} parses PCL5 printer data stream.
+ *
+ * <p>The parser is a table driven state machine. Every byte is mapped to a character class by a
+ * precomputed table and the pair of the current state and the character class determines the action
+ * to be performed (like "start a text" or "the PCL command is complete"). So every byte is handled with
+ * two table lookups, independently of the position of the byte within the data stream. Text and values
+ * (the most frequent runs of bytes) are consumed by small loops that only look at the character class.
  */
 final class Pcl5Parser extends DataStreamParser {
 
     private static final int END_OF_STREAM = -1;
 
     private static final int ESCAPE = 0x1B;
-    private static final int VERTICAL_TAB = 0x0B;
 
     private static final int OPERATION_CHARACTER_MIN = 48;
     private static final int OPERATION_CHARACTER_MAX = 126;
@@ -39,12 +45,160 @@ final class Pcl5Parser extends DataStreamParser {
     private static final int GROUP_CHARACTER_MIN = 96;
     private static final int GROUP_CHARACTER_MAX = 126;
 
-    private static final int PARAMETER_CHARACTER_MIN = 96;
-    private static final int PARAMETER_CHARACTER_MAX = 126;
-
     private static final int TERMINATION_CHARACTER_MIN = 64;
     private static final int TERMINATION_CHARACTER_MAX = 94;
 
+    private static final int MAX_DATA_SECTION_SIZE = 32767;
+    private static final String UNIVERSAL_EXIT_LANGUAGE_VALUE = "-12345";
+    private static final int INITIAL_TEXT_BUFFER_SIZE = 256;
+    private static final int INITIAL_VALUE_BUFFER_SIZE = 32;
+
+    // Constants for scanning text eight bytes at a time ("SIMD within a register").
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long ESCAPES = 0x1B1B1B1B1B1B1B1BL;
+    private static final long CONTROL_MASK = 0xF8F8F8F8F8F8F8F8L;
+    private static final long CONTROLS = 0x0808080808080808L;
+
+    // Character classes. Note that a byte may play different roles (i. e. "a" is a operation character
+    // directly after an escape byte, a group character after a parameterized character and a parameter
+    // character within a value), so the classes are the intersections of these roles.
+    private static final byte CLASS_END_OF_STREAM = 0;
+    private static final byte CLASS_ESCAPE = 1;
+    private static final byte CLASS_CONTROL = 2;         // control characters (BS, HT, LF, FF, CR, SO)
+    private static final byte CLASS_PARAMETERIZED = 3;   // parameterized characters (except the following)
+    private static final byte CLASS_SIGN = 4;            // "+", "-" and "." (parameterized and value characters)
+    private static final byte CLASS_DIGIT = 5;           // "0" to "9" (operation and value characters)
+    private static final byte CLASS_TERMINATION = 6;     // "@" to "^" (operation and termination characters)
+    private static final byte CLASS_OPERATION = 7;       // other operation characters (like "9", "=" or "<")
+    private static final byte CLASS_GROUP = 8;           // "`" to "~" (operation, group and parameter characters)
+    private static final byte CLASS_OTHER = 9;           // everything else (just text)
+    private static final int CLASS_COUNT = 10;
+
+    // States.
+    private static final int STATE_START = 0;            // between commands (or within text)
+    private static final int STATE_ESCAPE = 1;           // after an escape byte
+    private static final int STATE_PARAMETERIZED = 2;    // after a parameterized character
+    private static final int STATE_GROUP = 3;            // after a group character
+    private static final int STATE_VALUE = 4;            // within a value (or after a parameter character)
+
+    // Actions.
+    private static final byte END_OF_DATA_STREAM = 0;
+    private static final byte TEXT = 1;
+    private static final byte CONTROL_CHARACTER = 2;
+    private static final byte ESCAPE_CHARACTER = 3;
+    private static final byte OPERATION_CHARACTER = 4;
+    private static final byte PARAMETERIZED_CHARACTER = 5;
+    private static final byte GROUP_CHARACTER = 6;
+    private static final byte VALUE = 7;
+    private static final byte PARAMETER_CHARACTER = 8;
+    private static final byte TERMINATION_CHARACTER = 9;
+    private static final byte END_OF_SEQUENCE = 10;
+    private static final byte DATA_CONTAINER = 11;
+    private static final byte INVALID_PARAMETERIZED_CHARACTER = 12;
+    private static final byte INVALID_CHARACTER = 13;
+    private static final byte UNEXPECTED_ESCAPE = 14;
+    private static final byte UNEXPECTED_END = 15;
+
+    /**
+     * Character class of every byte value. The index is the byte value plus one (index 0 is the end of stream).
+     */
+    private static final byte[] CHARACTER_CLASSES = new byte[257];
+
+    /**
+     * The action for every pair of state and character class (the index is state * CLASS_COUNT + class).
+     */
+    private static final byte[] ACTIONS = {
+        // END_OF_STREAM, ESCAPE, CONTROL, PARAMETERIZED, SIGN, DIGIT, TERMINATION, OPERATION, GROUP, OTHER
+
+        // STATE_START
+        END_OF_DATA_STREAM, ESCAPE_CHARACTER, CONTROL_CHARACTER, TEXT, TEXT,
+        TEXT, TEXT, TEXT, TEXT, TEXT,
+
+        // STATE_ESCAPE
+        UNEXPECTED_END, INVALID_PARAMETERIZED_CHARACTER, INVALID_PARAMETERIZED_CHARACTER, PARAMETERIZED_CHARACTER,
+        PARAMETERIZED_CHARACTER, OPERATION_CHARACTER, OPERATION_CHARACTER, OPERATION_CHARACTER,
+        OPERATION_CHARACTER, INVALID_PARAMETERIZED_CHARACTER,
+
+        // STATE_PARAMETERIZED - note that the group character (and even the "value") is optional, depending on
+        // the command. Most common example is the command "<escape>%-12345X" that has no group character...
+        UNEXPECTED_END, UNEXPECTED_ESCAPE, INVALID_CHARACTER, INVALID_CHARACTER, VALUE,
+        VALUE, TERMINATION_CHARACTER, DATA_CONTAINER, GROUP_CHARACTER, INVALID_CHARACTER,
+
+        // STATE_GROUP - note that the value may be omitted as well. One of the most common commands that has
+        // no value is the command "<escape>&d@" (Disable Underline).
+        UNEXPECTED_END, UNEXPECTED_ESCAPE, INVALID_CHARACTER, INVALID_CHARACTER, VALUE,
+        VALUE, TERMINATION_CHARACTER, DATA_CONTAINER, PARAMETER_CHARACTER, INVALID_CHARACTER,
+
+        // STATE_VALUE
+        END_OF_SEQUENCE, END_OF_SEQUENCE, INVALID_CHARACTER, INVALID_CHARACTER, VALUE,
+        VALUE, TERMINATION_CHARACTER, INVALID_CHARACTER, PARAMETER_CHARACTER, INVALID_CHARACTER,
+    };
+
+    static {
+        Arrays.fill(CHARACTER_CLASSES, CLASS_OTHER);
+        CHARACTER_CLASSES[0] = CLASS_END_OF_STREAM;
+
+        for (int value = PARAMETERIZED_CHARACTER_MIN; value <= PARAMETERIZED_CHARACTER_MAX; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_PARAMETERIZED;
+        }
+        for (int value = OPERATION_CHARACTER_MIN; value <= OPERATION_CHARACTER_MAX; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_OPERATION;
+        }
+        for (int value = '0'; value <= '9'; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_DIGIT;
+        }
+        for (int value = TERMINATION_CHARACTER_MIN; value <= TERMINATION_CHARACTER_MAX; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_TERMINATION;
+        }
+        for (int value = GROUP_CHARACTER_MIN; value <= GROUP_CHARACTER_MAX; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_GROUP;
+        }
+        for (int value = ControlCharacterCommand.BACKSPACE; value <= ControlCharacterCommand.SHIFT_OUT; ++value) {
+            CHARACTER_CLASSES[value + 1] = CLASS_CONTROL;
+        }
+
+        // The vertical tab is no control character in PCL5...
+        CHARACTER_CLASSES[0x0B + 1] = CLASS_OTHER;
+
+        CHARACTER_CLASSES['+' + 1] = CLASS_SIGN;
+        CHARACTER_CLASSES['-' + 1] = CLASS_SIGN;
+        CHARACTER_CLASSES['.' + 1] = CLASS_SIGN;
+        CHARACTER_CLASSES[ESCAPE + 1] = CLASS_ESCAPE;
+    }
+
+    // Text is completed by an escape byte or a control character...
+    private static final boolean[] TEXT_TERMINATORS = new boolean[256];
+
+    static {
+        for (int value = 0; value < TEXT_TERMINATORS.length; ++value) {
+            TEXT_TERMINATORS[value] = CHARACTER_CLASSES[value + 1] <= CLASS_CONTROL;
+        }
+    }
+
+    private static final long MAX_INTEGER_PART = Long.MAX_VALUE / PrinterCommandEventHandler.VALUE_SCALE - 1;
+
+    /**
+     * The factor that scales a value with the given number of decimal places (the index) to a fixed-point number.
+     */
+    private static final long[] SCALES = {10000, 1000, 100, 10, 1};
+
+    private final CharArraySequence value = new CharArraySequence(INITIAL_VALUE_BUFFER_SIZE);
+    private long scaledValue;
+    private boolean integerValue;
+    private byte[] text = new byte[INITIAL_TEXT_BUFFER_SIZE];
+    private byte[] dataSection = new byte[0];
+
+    // The state of a suspended parser (see PclParserContext#requestSuspend())...
+    private boolean suspended;
+    private int suspendedState;
+    private int suspendedParameterizedCharacter;
+    private int suspendedGroupCharacter;
+    private long suspendedCommandOffset;
+    private long suspendedOffset;
+    private int suspendedByte;
+    private DataStreamParser suspendedSubParser;
+    private DataStreamParser subParser;
 
     /**
      * Constructor. Just gets the {@link PclParserContext}.
@@ -57,235 +211,573 @@ final class Pcl5Parser extends DataStreamParser {
 
     @Override
     int parse() throws IOException, PclException {
+        final PclInputStream input = this.getInputStream();
+        final PrinterCommandEventHandler handler = this.getEventHandler();
+        final PclInputWindow window = input instanceof PclInputWindow ? (PclInputWindow) input : null;
+        final PclParserContext context = this.getContext();
+        final boolean skipText = context.getFilter() != null && !context.getFilter().isTextAccepted();
+
+        int state;
+        int parameterizedCharacter;
+        int groupCharacter;
+        long commandOffset;
+        long offset;
+        int readByte;
+
+        if (this.suspended) {
+            this.suspended = false;
+            state = this.suspendedState;
+            parameterizedCharacter = this.suspendedParameterizedCharacter;
+            groupCharacter = this.suspendedGroupCharacter;
+            commandOffset = this.suspendedCommandOffset;
+            offset = this.suspendedOffset;
+            readByte = this.suspendedByte;
+
+            if (this.subParser != null) {
+                // The PJL or HP/GL parser has been suspended, so it has to be resumed first...
+                readByte = this.runSubParser(this.subParser);
+                if (readByte == SUSPENDED) {
+                    this.suspended = true;
+                    return SUSPENDED;
+                }
+                offset = offsetOf(input, readByte);
+            }
+        } else {
+            state = STATE_START;
+            parameterizedCharacter = 0;
+            groupCharacter = 0;
+            commandOffset = 0;
+
+            // We keep track of the offset by ourself - calling tell() for every byte would be too expensive.
+            offset = input.tell();
+            readByte = input.read();
+        }
+
+        for (;;) {
+            if (context.isSuspendRequested()) {
+                return this.suspend(state, parameterizedCharacter, groupCharacter, commandOffset, offset, readByte);
+            }
+
+            switch (ACTIONS[state * CLASS_COUNT + CHARACTER_CLASSES[readByte + 1]]) {
+            case TEXT:
+                commandOffset = offset;
+
+                if (skipText) {
+                    // The text is not accepted by the filter, so it is just scanned...
+                    if (window != null && window.getWindowPosition() > 0) {
+                        offset += skipText(window);
+                        readByte = input.read();
+                    } else {
+                        ++offset;
+                        readByte = input.read();
+                        while (CHARACTER_CLASSES[readByte + 1] > CLASS_CONTROL) {
+                            ++offset;
+                            readByte = input.read();
+                        }
+                    }
+                    continue; // the byte after the text has already been read...
+                }
 
-        int firstByte = this.getInputStream().read();
+                if (window != null && window.getWindowPosition() > 0) {
+                    offset += this.parseText(window, commandOffset);
+                    readByte = input.read();
+                    continue; // the byte after the text has already been read...
+                }
 
-        while (firstByte != END_OF_STREAM) {
+                // Text is the most common content of a data stream, so the text state loops by itself until
+                // the class of the read byte ends the text (escape, control character or end of stream).
+                byte[] buffer = this.text;
+                int length = 1;
+                buffer[0] = (byte) readByte;
+                readByte = input.read();
+
+                while (CHARACTER_CLASSES[readByte + 1] > CLASS_CONTROL) {
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, length * 2);
+                        this.text = buffer;
+                    }
+                    buffer[length++] = (byte) readByte;
+                    readByte = input.read();
+                }
 
-            final long offset = this.getInputStream().tell() - 1;
+                handler.handleText(commandOffset, buffer, 0, length);
+                offset += length;
+                continue; // the byte after the text has already been read...
+
+            case CONTROL_CHARACTER:
+                handler.handleControlCharacter(offset, readByte);
+                break;
+
+            case ESCAPE_CHARACTER:
+                commandOffset = offset;
+                state = STATE_ESCAPE;
+                break;
+
+            case OPERATION_CHARACTER:
+                handler.handleTwoBytePclCommand(commandOffset, readByte);
+                state = STATE_START;
+                break;
+
+            case PARAMETERIZED_CHARACTER:
+                parameterizedCharacter = readByte;
+                groupCharacter = 0x00;
+                this.clearValue();
+                state = STATE_PARAMETERIZED;
+                break;
+
+            case GROUP_CHARACTER:
+                groupCharacter = readByte;
+                state = STATE_GROUP;
+                break;
+
+            case VALUE:
+                // Like text, a value is read by a loop of its own (a value consists of digits, signs and
+                // the decimal point). The value is converted to a fixed-point number while it is read, so
+                // nobody has to parse the value string later on. Digits beyond the fourth decimal place
+                // are ignored.
+                // A value always starts directly after the parameterized, group or parameter character.
+                char[] valueBuffer = this.value.array(INITIAL_VALUE_BUFFER_SIZE);
+                int valueLength = 1;
+                valueBuffer[0] = (char) readByte;
+
+                long number = 0;
+                int digits = 0;
+                int decimals = readByte == '.' ? 0 : -1;
+                boolean valid = true;
+                if (readByte >= '0' && readByte <= '9') {
+                    number = readByte - '0';
+                    digits = 1;
+                }
 
-            if (firstByte == ESCAPE) {
-                firstByte = this.parsePclCommand(offset);
-            } else {
-                if (isControlCharacter(firstByte)) {
-                    firstByte = this.handleReadControlCharacter(offset, firstByte);
+                ++offset;
+                readByte = input.read();
+
+                int characterClass = CHARACTER_CLASSES[readByte + 1];
+                while (characterClass == CLASS_DIGIT || characterClass == CLASS_SIGN) {
+                    if (valueLength == valueBuffer.length) {
+                        valueBuffer = this.value.array(valueLength * 2);
+                    }
+                    valueBuffer[valueLength++] = (char) readByte;
+
+                    if (characterClass == CLASS_DIGIT) {
+                        if (decimals < 0) {
+                            number = number * 10 + readByte - '0';
+                            valid &= number <= MAX_INTEGER_PART;
+                            ++digits;
+                        } else if (decimals < SCALES.length - 1) {
+                            number = number * 10 + readByte - '0';
+                            ++decimals;
+                        }
+                    } else if (readByte == '.' && decimals < 0) {
+                        decimals = 0;
+                    } else {
+                        valid = false; // a misplaced sign or a second decimal point
+                    }
+
+                    ++offset;
+                    readByte = input.read();
+                    characterClass = CHARACTER_CLASSES[readByte + 1];
+                }
+
+                this.value.setLength(valueLength);
+                if (valid) {
+                    number *= SCALES[Math.max(decimals, 0)];
+                    this.scaledValue = valueBuffer[0] == '-' ? -number : number;
                 } else {
-                    firstByte = this.parseText(offset, firstByte);
+                    this.scaledValue = PrinterCommandEventHandler.NO_VALUE;
+                }
+                this.integerValue = valid && decimals < 0 && digits > 0;
+                state = STATE_VALUE;
+                continue; // the byte after the value has already been read...
+
+            case PARAMETER_CHARACTER:
+                // We've parsed one part of a PCL escape sequence, the termination character corresponds
+                // to the parameter character...
+                handler.handleParameterizedPclCommand(
+                        commandOffset,
+                        parameterizedCharacter,
+                        groupCharacter,
+                        readByte - 32,
+                        this.scaledValue,
+                        this.value,
+                        -1,
+                        null,
+                        0,
+                        0);
+
+                this.clearValue();
+                commandOffset = offset + 1;
+                state = STATE_VALUE;
+                break;
+
+            case TERMINATION_CHARACTER:
+                readByte = this.handleCommand(commandOffset, parameterizedCharacter, groupCharacter, readByte);
+                if (readByte == SUSPENDED) {
+                    return this.suspend(STATE_START, 0, 0, 0, 0, 0);
+                }
+                offset = offsetOf(input, readByte);
+                state = STATE_START;
+                continue; // the byte after the command has already been read...
+
+            case END_OF_SEQUENCE:
+                if (this.value.length() != 0) {
+                    throw this.createEndOfFileException();
                 }
+                state = STATE_START;
+                continue; // the current byte has not been processed yet...
+
+            case DATA_CONTAINER:
+                if (parameterizedCharacter != '&' || groupCharacter != 'p' || readByte != '<') {
+                    throw this.createInvalidCharacterException(offset);
+                }
+                this.parseOceImageStreamDataContainer(commandOffset);
+                offset = input.tell();
+                readByte = input.read();
+                state = STATE_START;
+                continue; // the byte after the data container has already been read...
+
+            case END_OF_DATA_STREAM:
+                return END_OF_STREAM;
+
+            case INVALID_PARAMETERIZED_CHARACTER:
+                throw new PclException(String.format(
+                        "The byte value of the parameterized character at offset %1$d is invalid", offset));
+
+            case UNEXPECTED_ESCAPE:
+                throw new PclException(String.format(
+                        "The byte at offset %1$d is invalid (unexpected escape)", offset));
+
+            case UNEXPECTED_END:
+                throw this.createEndOfFileException();
+
+            default:
+                throw this.createInvalidCharacterException(offset);
             }
-        }
-        return END_OF_STREAM;
-    }
 
-    /**
-     * Checks if a byte with the given value is a PCL5 control character.
-     *
-     * @param byteToCheck   the byte to be checked
-     *
-     * @return true if the given byte is a control character.
-     */
-    private static boolean isControlCharacter(final int byteToCheck) {
-        if (byteToCheck >= ControlCharacterCommand.BACKSPACE && byteToCheck <= ControlCharacterCommand.SHIFT_OUT) {
-            return byteToCheck != VERTICAL_TAB;
-        } else {
-            return false;
+            ++offset;
+            readByte = input.read();
         }
     }
 
     /**
-     * Continues parsing of text in the data stream. The first character/byte has already been read and now this
-     * method parses up to the end of the text.
+     * Parses text by scanning the window of the {@link PclInputStream} in bulk. The first byte of the text has
+     * already been read (so it is located directly before the window position). When this method returns,
+     * the window is positioned to the byte after the text.
      *
-     * @param offset   offset of the previous read character/byte, measured from the beginning of the read data stream.
-     * @param firstByte   the (already read) first byte of the text
+     * @param window   the {@link PclInputWindow} of the {@link PclInputStream}.
+     * @param offset   offset of the text, measured from the beginning of the read data stream.
      *
-     * @return the next byte after the read text, which is an escape, control character or just the end of the stream.
+     * @return the length of the text.
      */
-    private int parseText(final long offset, final int firstByte) throws IOException {
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        out.write(firstByte);
+    private int parseText(final PclInputWindow window, final long offset) throws IOException {
+        final ByteBuffer buffer = window.getWindow();
+        int start = window.getWindowPosition() - 1;
+        int length = 0;
+
+        for (;;) {
+            final int limit = window.getWindowLimit();
+            final int end = findEndOfText(buffer, start, limit);
+            window.setWindowPosition(end);
+
+            if (end < limit && length == 0) {
+                // The whole text is located within the window, so it is copied just once...
+                this.getEventHandler().handleText(offset, buffer.array(), start, end - start);
+                return end - start;
+            }
 
-        int readByte = this.getInputStream().read();
-        while (readByte != END_OF_STREAM && readByte != ESCAPE && !isControlCharacter(readByte)) {
-            out.write(readByte);
-            readByte = this.getInputStream().read();
-        }
+            if (length + end - start > this.text.length) {
+                this.text = Arrays.copyOf(this.text, Math.max(this.text.length * 2, length + end - start));
+            }
+            System.arraycopy(buffer.array(), start, this.text, length, end - start);
+            length += end - start;
+
+            if (end < limit || !window.fillWindow()) {
+                break;
+            }
 
-        this.getPrinterCommandHandler().handlePrinterCommand(new TextCommand(offset, out.toByteArray()));
+            start = window.getWindowPosition();
+        }
 
-        return readByte;
+        this.getEventHandler().handleText(offset, this.text, 0, length);
+        return length;
     }
 
     /**
-     * Handles the already read control character.
+     * Skips text that is not accepted by the {@link PrinterCommandFilter} by scanning the window of the
+     * {@link PclInputStream} (the text is not copied). The first byte of the text has already been read. When
+     * this method returns, the window is positioned to the byte after the text.
      *
-     * @param offset   offset of the previous read control character, measured from the beginning of the data stream.
-     * @param firstByte   the (already read) control character
+     * @param window   the {@link PclInputWindow} of the {@link PclInputStream}.
      *
-     * @return the next byte after the control character, which is an escape, control character, some text
-     *     or just the end of the stream.
+     * @return the length of the text.
      */
-    private int handleReadControlCharacter(final long offset, final int controlCharacter) throws IOException {
-        this.getPrinterCommandHandler().handlePrinterCommand(
-                new ControlCharacterCommand(offset, (byte) controlCharacter));
-
-        return this.getInputStream().read();
+    private static int skipText(final PclInputWindow window) throws IOException {
+        int start = window.getWindowPosition();
+        int length = 1;
+
+        for (;;) {
+            final int limit = window.getWindowLimit();
+            final int end = findEndOfText(window.getWindow(), start, limit);
+            window.setWindowPosition(end);
+            length += end - start;
+
+            if (end < limit || !window.fillWindow()) {
+                return length;
+            }
+            start = window.getWindowPosition();
+        }
     }
 
     /**
-     * Continues parsing of a PCL command . The first character/byte has already been read (the escape byte) and now
-     * this method parses the rest of the command or sequence.
+     * Returns the index of the first byte within the given range that ends a text (an escape or a control
+     * character). The range is scanned eight bytes at a time: a byte is a candidate if it is an escape byte
+     * or lies between 0x08 and 0x0F, which is detected for all eight bytes of a long at once by searching
+     * for zero bytes after XORing with the wanted value. The lowest flagged byte is always a real candidate,
+     * but it may still be one of the few bytes between 0x08 and 0x0F that are no control characters (the
+     * vertical tab and shift in), so every candidate is verified by the character class table.
      *
-     * @param offset   offset of the previous read escape byte , measured from the beginning of the read data stream.
+     * @param buffer   the little endian {@link ByteBuffer} to be scanned.
+     * @param from   the index of the first byte to be scanned.
+     * @param to   the index after the last byte to be scanned.
      *
-     * @return the next byte after the read text, which is an escape, control character or just the end of the stream.
+     * @return the index of the first byte that ends a text or "to" if the range contains no such byte.
      */
-    private int parsePclCommand(final long offset) throws IOException, PclException {
-
-        // The first byte after the escape byte is the parameterized character.
-        final int parameterizedCharacter = this.getInputStream().read();
-        if (parameterizedCharacter == END_OF_STREAM) {
-            throw this.createEndOfFileException();
-        }
-
-        if (isOperationCharacter(parameterizedCharacter)) {
-            this.getPrinterCommandHandler().handlePrinterCommand(
-                    new TwoBytePclCommand(offset, parameterizedCharacter));
+    static int findEndOfText(final ByteBuffer buffer, final int from, final int to) {
+        int ix = from;
+
+        while (ix <= to - 8) {
+            final long word = buffer.getLong(ix);
+            final long candidates = zeroBytes(word ^ ESCAPES) | zeroBytes((word & CONTROL_MASK) ^ CONTROLS);
+            if (candidates == 0) {
+                ix += 8;
+                continue;
+            }
 
-            return this.getInputStream().read();
+            final int candidate = ix + (Long.numberOfTrailingZeros(candidates) >>> 3);
+            if (CHARACTER_CLASSES[(buffer.get(candidate) & 0xFF) + 1] <= CLASS_CONTROL) {
+                return candidate;
+            }
+            ix = candidate + 1;
         }
 
-        if (!isParameterizedCharacter(parameterizedCharacter)) {
-            throw new PclException(String.format(
-                    "The byte value of the parameterized character at offset %1$d is invalid",
-                    this.getInputStream().tell() - 1));
+        while (ix < to && CHARACTER_CLASSES[(buffer.get(ix) & 0xFF) + 1] > CLASS_CONTROL) {
+            ++ix;
         }
 
-        // After the parameterized character the group character follows...
-        int readByte = this.getInputStream().read();
-        if (readByte == END_OF_STREAM) {
-            throw this.createEndOfFileException();
-        }
+        return ix;
+    }
 
-        // But note that the group character (and even the "value") is optional - depending on the command!
-        // Most common example is the command "<escape>%-12345X" that does not have a group character...
-        final int groupCharacter = isGroupCharacter(readByte) ? readByte : 0x00;
+    /**
+     * Returns a long where the high bit of every byte is set that is zero in the given long (and maybe some
+     * high bits of more significant bytes above a zero byte, because of the borrow).
+     */
+    private static long zeroBytes(final long value) {
+        return (value - ONES) & ~value & HIGH_BITS;
+    }
 
-        // Now parse the rest of the command or sequence... Note that the value may be omitted (according to the
-        // PCL specification, the value is optional). One of the most common commands that has no value is the
-        // command "<escape>&d@" (Disable Underline).
-        if (isGroupCharacter(readByte)) {
-            readByte = this.getInputStream().read();
-            if (readByte == END_OF_STREAM) {
-                throw this.createEndOfFileException();
+    /**
+     * Handles a complete parameterized PCL command (the termination character has just been read). Reads
+     * the data section of the PCL command (if the PCL command has one) and switches to PJL or HP/GL if required.
+     *
+     * @return the next byte after the PCL command.
+     */
+    private int handleCommand(
+            final long commandOffset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter) throws IOException, PclException {
+
+        final PclInputStream input = this.getInputStream();
+        final long dataSectionOffset;
+        final int dataSectionSize;
+        byte[] dataSectionBuffer = null;
+        int dataSectionStart = 0;
+
+        // Some PCL commands have a data section (means, some binary data that follows immediately
+        // the termination character....
+        if (isCommandWithDataSection(parameterizedCharacter, groupCharacter, terminationCharacter)) {
+            final long size = this.scaledValue / PrinterCommandEventHandler.VALUE_SCALE;
+            if (!this.integerValue || size < 0 || size > MAX_DATA_SECTION_SIZE) {
+                throw this.createInvalidValueException(commandOffset);
             }
-        }
 
-        if (readByte == ESCAPE) {
-            throw new PclException(String.format(
-                    "The byte at offset %1$d is invalid (unexpected escape)", this.getInputStream().tell() - 1));
+            dataSectionOffset = input.tell();
+            dataSectionSize = (int) size;
+
+            final PrinterCommandFilter filter = this.getContext().getFilter();
+            if (this.getContext().isLazyDataSections() || filter != null
+                    && !filter.isParameterizedPclCommandAccepted(
+                            parameterizedCharacter, groupCharacter, terminationCharacter)) {
+
+                // The data section is not needed now (or not at all), so it is not read...
+                this.skipDataSection(dataSectionOffset, dataSectionSize);
+            } else if (this.getContext().isSharedPayloads()) {
+                // The data stream is held in memory, so the data section is passed without being copied...
+                final PclInputWindow window = (PclInputWindow) input;
+                final int position = window.getWindowPosition();
+                if (window.getWindowLimit() - position < dataSectionSize) {
+                    window.setWindowPosition(window.getWindowLimit());
+                    throw this.createEndOfFileException();
+                }
+                window.setWindowPosition(position + dataSectionSize);
+                dataSectionBuffer = window.getWindow().array();
+                dataSectionStart = position;
+            } else {
+                if (dataSectionSize > this.dataSection.length) {
+                    this.dataSection = new byte[Math.max(dataSectionSize, this.dataSection.length * 2)];
+                }
+                if (dataSectionSize > 0 && input.read(this.dataSection, 0, dataSectionSize) != dataSectionSize) {
+                    throw this.createEndOfFileException();
+                }
+                dataSectionBuffer = this.dataSection;
+            }
+        } else {
+            dataSectionOffset = -1;
+            dataSectionSize = 0;
         }
 
-        //
-        if (parameterizedCharacter == '&' && groupCharacter == 'p' && readByte == '<') {
-            this.getPrinterCommandHandler().handlePrinterCommand(parseOceImageStreamDataContainer(offset));
-
-            return this.getInputStream().read();
+        this.getEventHandler().handleParameterizedPclCommand(
+                commandOffset,
+                parameterizedCharacter,
+                groupCharacter,
+                terminationCharacter,
+                this.scaledValue,
+                this.value,
+                dataSectionOffset,
+                dataSectionBuffer,
+                dataSectionStart,
+                dataSectionSize);
+
+        // If we've read a "Universal Exit Language Command", we have to switch to PJL...
+        if (groupCharacter == 0x00 && parameterizedCharacter == '%' && terminationCharacter == 'X'
+                && this.value.contentEquals(UNIVERSAL_EXIT_LANGUAGE_VALUE)) {
+            return this.runSubParser(new PjlParser(this.getContext()));
+        } else if (groupCharacter == 0x00 && parameterizedCharacter == '%' && terminationCharacter == 'B') {
+            // "Enter HP/GL Mode"...
+            return this.runSubParser(new HpglParser(this.getContext()));
+        } else {
+            return input.read();
         }
+    }
 
-        final StringBuilder sb = new StringBuilder();
-        long currentCommandOffset = offset;
-        while (readByte != ESCAPE && readByte != END_OF_STREAM) {
-
-            // If we encounter a termination character, we've reached the end of the PCL sequence or command...
-            if (isTerminationCharacter(readByte)) {
-                final byte[] dataSection;
-                // Some PCL commands have a data section (means, some binary data that follows immediately
-                // the termination character....
-                if (isCommandWithDataSection(parameterizedCharacter, groupCharacter, readByte)) {
-                    final int dataSectionSize;
-                    try {
-                        dataSectionSize = Integer.parseInt(sb.toString());
-                    } catch (final NumberFormatException e) {
-                        throw new PclException(String.format(
-                                "The PCL command at offset %1$d contains the invalid value %2$s.",
-                                currentCommandOffset,
-                                sb.toString()));
-                    }
-
-                    if (dataSectionSize < 0 || dataSectionSize > 32767) {
-                        throw new PclException(String.format(
-                                "The PCL command at offset %1$d contains the invalid value %2$s.",
-                                currentCommandOffset,
-                                sb.toString()));
-                    }
-
-                    dataSection = new byte[dataSectionSize];
-                    final int read = this.getInputStream().read(dataSection);
+    /**
+     * Runs the given PJL or HP/GL parser. If the parser gets suspended, it is kept so it can be resumed.
+     *
+     * @param parser   the {@link DataStreamParser} to run.
+     *
+     * @return the byte that has caused the parser to stop or {@link #SUSPENDED}.
+     */
+    private int runSubParser(final DataStreamParser parser) throws IOException, PclException {
+        final int result = parser.parse();
+        this.subParser = result == SUSPENDED ? parser : null;
+        return result;
+    }
 
-                    if (read != dataSectionSize) {
-                        throw this.createEndOfFileException();
-                    }
-                } else {
-                    dataSection = null;
-                }
+    /**
+     * Returns the offset of the given byte, which has just been read from the {@link PclInputStream}. At the
+     * end of the stream nothing has been read, so the offset is the current position of the stream.
+     *
+     * @param input   the {@link PclInputStream}.
+     * @param readByte   the byte that has just been read (or {@link #END_OF_STREAM}).
+     *
+     * @return the offset of the read byte.
+     */
+    private static long offsetOf(final PclInputStream input, final int readByte) throws IOException {
+        return readByte == END_OF_STREAM ? input.tell() : input.tell() - 1;
+    }
 
-                final ParameterizedPclCommand command = new ParameterizedPclCommand(
-                        currentCommandOffset,
-                        parameterizedCharacter,
-                        groupCharacter,
-                        sb.toString(),
-                        readByte,
-                        dataSection);
+    /**
+     * Returns the offset of the next byte to be parsed if the parser has been suspended between two PCL
+     * commands. From there on, a new {@link Pcl5Parser} would parse the data stream exactly like this one.
+     *
+     * @return the offset of the next byte to be parsed or -1 if the parser has not been suspended between
+     *     two PCL commands (but i. e. within PJL, HP/GL or a PCL escape sequence like "&lt;esc&gt;&amp;l1a2O").
+     */
+    long getSuspendedOffset() {
+        return this.suspended && this.subParser == null && this.suspendedState == STATE_START
+                ? this.suspendedOffset
+                : -1;
+    }
 
-                this.getPrinterCommandHandler().handlePrinterCommand(command);
+    /**
+     * Saves the state of the parser, so parsing can be resumed by the next call of {@link #parse()}.
+     *
+     * @return {@link #SUSPENDED}.
+     */
+    private int suspend(
+            final int state,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final long commandOffset,
+            final long offset,
+            final int readByte) {
+
+        this.suspended = true;
+        this.suspendedState = state;
+        this.suspendedParameterizedCharacter = parameterizedCharacter;
+        this.suspendedGroupCharacter = groupCharacter;
+        this.suspendedCommandOffset = commandOffset;
+        this.suspendedOffset = offset;
+        this.suspendedByte = readByte;
+        this.suspendedSubParser = this.subParser;
+        return SUSPENDED;
+    }
 
-                // If we've read a "Universal Exit Language Command", we have to switch to PJL...
-                if (this.isUniversalExitLanguageCommand(command)) {
-                    return new PjlParser(this.getContext()).parse();
-                } else if (this.isEnterHpglModeCommand(command)) {
-                    return new HpglParser(this.getContext()).parse();
-                } else {
-                    return this.getInputStream().read();
-                }
-            }
+    @Override
+    void rollback() {
+        // At a suspension the value is always empty (the parser is suspended directly after a printer command).
+        this.suspended = true;
+        this.clearValue();
+        this.subParser = this.suspendedSubParser;
+        if (this.subParser != null) {
+            this.subParser.rollback();
+        }
+    }
 
-            // If we encounter a parameter character, we've parsed one part of a PCL escape sequence...
-            if (isParameterCharacter(readByte)) {
-                this.getPrinterCommandHandler().handlePrinterCommand(
-                        new ParameterizedPclCommand(
-                                currentCommandOffset,
-                                parameterizedCharacter,
-                                groupCharacter,
-                                sb.toString(),
-                                parameterCharacterToTerminationCharacter(readByte)));
-
-                sb.setLength(0);
-                currentCommandOffset = this.getInputStream().tell();
-            } else {
-                if (!isValidValueCharacter(readByte)) {
-                    throw new PclException(String.format(
-                            "The byte value of the character at offset %1$d is invalid.",
-                            this.getInputStream().tell() - 1));
-                }
+    @Override
+    boolean[] getPendingTerminators() {
+        if (!this.suspended) {
+            return null;
+        } else if (this.subParser != null) {
+            return this.subParser.getPendingTerminators();
+        } else if (this.suspendedState == STATE_START && CHARACTER_CLASSES[this.suspendedByte + 1] > CLASS_CONTROL) {
+            return TEXT_TERMINATORS;
+        } else {
+            return null; // escape sequences and data sections are parsed again (they are short or read in bulk)
+        }
+    }
 
-                sb.append((char) readByte);
-            }
+    /**
+     * Skips the data section of the current PCL command. The last byte of the data section is read, so a
+     * truncated data stream is detected as if the data section had been read.
+     *
+     * @param dataSectionOffset   the offset of the data section.
+     * @param dataSectionSize   the size of the data section.
+     */
+    private void skipDataSection(final long dataSectionOffset, final int dataSectionSize) throws IOException {
+        if (dataSectionSize == 0) {
+            return;
+        }
 
-            readByte = this.getInputStream().read();
+        final PclInputStream input = this.getInputStream();
+        try {
+            input.seek(dataSectionOffset + dataSectionSize - 1);
+        } catch (final IOException e) {
+            // Some streams refuse to position behind their end...
+            final EOFException eof = this.createEndOfFileException();
+            eof.initCause(e);
+            throw eof;
         }
 
-        if (sb.length() != 0) {
+        if (input.read() == END_OF_STREAM) {
             throw this.createEndOfFileException();
         }
-
-        return readByte;
     }
 
     /**
      * Parses the proprietary PCL-Command ImageStream Data Container from Oce.
      */
-    private PrinterCommand parseOceImageStreamDataContainer(final long offset) throws IOException, PclException {
+    private void parseOceImageStreamDataContainer(final long offset) throws IOException, PclException {
         // "&", "p" and "<" are already consumed. Now we need to read the remaining
         // part of this command (which is up to ">A").
         final StringBuilder sb = new StringBuilder();
@@ -294,22 +786,37 @@ final class Pcl5Parser extends DataStreamParser {
         int readByte;
         do {
             readByte = this.getInputStream().read();
-            sb.append(Character.toString((char) readByte));
+            if (readByte == END_OF_STREAM) {
+                throw this.createEndOfFileException();
+            }
+            sb.append((char) readByte);
         } while (readByte != '>');
 
         readByte = this.getInputStream().read();
         if (readByte != 'A') {
-            throw new PclException(String.format(
-                    "The byte value of the character at offset %1$d is invalid.",
-                    this.getInputStream().tell() - 1));
+            throw this.createInvalidCharacterException(this.getInputStream().tell() - 1);
         }
 
-        return new ParameterizedPclCommand(
+        this.getEventHandler().handleParameterizedPclCommand(
                 offset,
                 '&',
                 'p',
-                sb.toString(),
-                'A');
+                'A',
+                PrinterCommandEventHandler.NO_VALUE,
+                sb,
+                -1,
+                null,
+                0,
+                0);
+    }
+
+    /**
+     * Resets the value of the current PCL command (an omitted value is 0).
+     */
+    private void clearValue() {
+        this.value.clear();
+        this.scaledValue = 0;
+        this.integerValue = false;
     }
 
     /**
@@ -325,15 +832,29 @@ final class Pcl5Parser extends DataStreamParser {
     }
 
     /**
-     * Transforms the given parameter character to a termination character.
+     * Returns a new {@link PclException} for an invalid byte at the given offset.
      *
-     * @param parameterCharacter   the value of the parameter character
+     * @param offset   offset of the invalid byte.
      *
-     * @return the termination character that corresponds to the parameter character
+     * @return a new {@link PclException}.
      */
-    private static int parameterCharacterToTerminationCharacter(final int parameterCharacter) {
-        assert isParameterCharacter(parameterCharacter);
-        return parameterCharacter - 32;
+    private PclException createInvalidCharacterException(final long offset) {
+        return new PclException(String.format(
+                "The byte value of the character at offset %1$d is invalid.", offset));
+    }
+
+    /**
+     * Returns a new {@link PclException} for a PCL command with an invalid value.
+     *
+     * @param offset   offset of the PCL command.
+     *
+     * @return a new {@link PclException}.
+     */
+    private PclException createInvalidValueException(final long offset) {
+        return new PclException(String.format(
+                "The PCL command at offset %1$d contains the invalid value %2$s.",
+                offset,
+                this.value));
     }
 
     /**
@@ -370,104 +891,4 @@ final class Pcl5Parser extends DataStreamParser {
 
         return false;
     }
-
-    /**
-     * Returns true if the given {@link ParameterizedPclCommand} is a UEL command.
-     *
-     * @param command   the {@link ParameterizedPclCommand} to be checked.
-     *
-     * @return true if the given {@link ParameterizedPclCommand} is a UEL command.
-     */
-    private boolean isUniversalExitLanguageCommand(ParameterizedPclCommand command) {
-        return command.getGroupCharacter() == 0x00
-                && command.getParameterizedCharacter() == '%'
-                && command.getValue().equals("-12345")
-                && command.getTerminationCharacter() == 'X';
-    }
-
-    /**
-     * Returns true if the given {@link ParameterizedPclCommand} is a "Enter HP/GL Mode" command.
-     *
-     * @param command   the {@link ParameterizedPclCommand} to be checked.
-     *
-     * @return true if the given {@link ParameterizedPclCommand} is a "Enter HP/GL Mode" command.
-     */
-    private boolean isEnterHpglModeCommand(ParameterizedPclCommand command) {
-        return command.getGroupCharacter() == 0x00
-                && command.getParameterizedCharacter() == '%'
-                && command.getTerminationCharacter() == 'B';
-    }
-
-
-    /**
-     * Returns true if the given value is valid for a parameter character.
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true if the given value is valid for a parameter character.
-     */
-    private static boolean isParameterCharacter(final int value) {
-        return value >= PARAMETER_CHARACTER_MIN && value <= PARAMETER_CHARACTER_MAX;
-    }
-
-    /**
-     * Returns true if the given value is valid for a parameterized character.
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true true if the given value is valid for a parameterized character.
-     */
-    private static boolean isParameterizedCharacter(final int value) {
-        return value >= PARAMETERIZED_CHARACTER_MIN && value <= PARAMETERIZED_CHARACTER_MAX;
-    }
-
-    /**
-     * Returns true if the given value is valid for a operation character.
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true if the given value is valid for a operation character.
-     */
-    private static boolean isOperationCharacter(final int value) {
-        return value >= OPERATION_CHARACTER_MIN && value <= OPERATION_CHARACTER_MAX;
-    }
-
-    /**
-     * Returns true if the given value is valid for a group character.
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true true if the given value is valid for a group character.
-     */
-    private static boolean isGroupCharacter(final int value) {
-        return value >= GROUP_CHARACTER_MIN && value <= GROUP_CHARACTER_MAX;
-    }
-
-    /**
-     * Returns true if the given value is valid for a termination character.
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true if the given value is valid for a termination character.
-     */
-    private static boolean isTerminationCharacter(final int value) {
-        return value >= TERMINATION_CHARACTER_MIN && value <= TERMINATION_CHARACTER_MAX;
-    }
-
-    /**
-     * Returns true if the given value is valid for a "value", which means that values
-     * between '0' (0x30) and '9' (0x39) are valid, as well als the decimal point '.'
-     * and "+" and "-".
-     *
-     * @param value   the value to be checked.
-     *
-     * @return true if the given value is valid for a "value".
-     */
-    private static boolean isValidValueCharacter(final int value) {
-        if (value >= '0' && value <= '9') {
-            return true;
-        } else {
-            return value == '.' || value == '-' || value == '+';
-        }
-    }
 }
@@ -0,0 +1,343 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link PclBatchParser} parses many PCL files concurrently (like an archive of print jobs). Every file is
+ * a job of its own: the {@link HandlerFactory} creates a new {@link PrinterCommandHandler} for every job and a
+ * failing job (i. e. a corrupt or missing file) does not affect the other jobs. The outcome of all jobs is
+ * returned as a {@link Result}.
+ *
+ * <p>At most {@link #setParallelism(int)} jobs are parsed at the same time (and just as many jobs are
+ * submitted, so the number of files is not limited by memory). If the Java runtime provides virtual threads
+ * (Java 21 and later), every job runs on a virtual thread of its own. Otherwise the jobs run on a
+ * work-stealing {@link java.util.concurrent.ForkJoinPool}.
+ */
+public final class PclBatchParser {
+
+    /**
+     * Creates the {@link PrinterCommandHandler} for a job. The factory is invoked concurrently by multiple
+     * threads. If the created {@link PrinterCommandHandler} is {@link Flushable}, it is flushed after the
+     * file has been parsed but before it is closed (so a {@link BatchingPrinterCommandHandler} can be used directly,
+     * even with lazy data sections).
+     */
+    public interface HandlerFactory {
+
+        /**
+         * Creates the {@link PrinterCommandHandler} for the given file.
+         *
+         * @param path   the {@link Path} of the file to be parsed.
+         *
+         * @return the {@link PrinterCommandHandler} for the file.
+         *
+         * @throws IOException if the {@link PrinterCommandHandler} can not be created (the job fails).
+         */
+        PrinterCommandHandler createHandler(final Path path) throws IOException;
+    }
+
+    /**
+     * A job that has failed.
+     */
+    public static final class Failure {
+
+        private final int index;
+        private final Path path;
+        private final Throwable exception;
+
+        /**
+         * Constructor.
+         */
+        Failure(final int index, final Path path, final Throwable exception) {
+            this.index = index;
+            this.path = path;
+            this.exception = exception;
+        }
+
+        /**
+         * Returns the {@link Path} of the file that has failed.
+         *
+         * @return the {@link Path} of the file.
+         */
+        public Path getPath() {
+            return this.path;
+        }
+
+        /**
+         * Returns the exception that has caused the failure (an {@link IOException}, a {@link PclException}
+         * or a {@link RuntimeException} or {@link Error} thrown by the handler or the Java runtime).
+         *
+         * @return the exception.
+         */
+        public Throwable getException() {
+            return this.exception;
+        }
+
+        @Override
+        public String toString() {
+            return this.path + ": " + this.exception;
+        }
+    }
+
+    /**
+     * The aggregated outcome of all jobs.
+     */
+    public static final class Result {
+
+        private final int jobCount;
+        private final long commandCount;
+        private final List<Failure> failures;
+
+        /**
+         * Constructor.
+         */
+        Result(final int jobCount, final long commandCount, final List<Failure> failures) {
+            this.jobCount = jobCount;
+            this.commandCount = commandCount;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * Returns the number of jobs.
+         *
+         * @return the number of jobs.
+         */
+        public int getJobCount() {
+            return this.jobCount;
+        }
+
+        /**
+         * Returns the number of jobs that have succeeded.
+         *
+         * @return the number of jobs that have succeeded.
+         */
+        public int getSuccessCount() {
+            return this.jobCount - this.failures.size();
+        }
+
+        /**
+         * Returns the number of printer commands that have been passed to the handlers of all jobs (including
+         * the printer commands of failed jobs that have been parsed before the failure).
+         *
+         * @return the number of printer commands.
+         */
+        public long getCommandCount() {
+            return this.commandCount;
+        }
+
+        /**
+         * Returns the failed jobs in the order of the given files.
+         *
+         * @return the failed jobs (an unmodifiable {@link List}).
+         */
+        public List<Failure> getFailures() {
+            return this.failures;
+        }
+    }
+
+    private final HandlerFactory handlerFactory;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean lazyDataSections;
+    private PrinterCommandFilter filter;
+
+    /**
+     * Constructor that is given the {@link HandlerFactory} that creates the handler of every job.
+     *
+     * @param handlerFactory   the {@link HandlerFactory}.
+     */
+    public PclBatchParser(final HandlerFactory handlerFactory) {
+        this.handlerFactory = handlerFactory;
+    }
+
+    /**
+     * Sets the maximum number of jobs that are parsed at the same time. The default is the number of
+     * available processors.
+     *
+     * @param parallelism   the maximum number of concurrent jobs.
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be greater than zero");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets if data sections shall be skipped instead of being read (see {@link PclParser#setLazyDataSections}).
+     *
+     * @param lazyDataSections   true if data sections shall be skipped.
+     */
+    public void setLazyDataSections(final boolean lazyDataSections) {
+        this.lazyDataSections = lazyDataSections;
+    }
+
+    /**
+     * Sets the {@link PrinterCommandFilter} that selects the printer commands passed to the handlers (see
+     * {@link PclParser#setFilter}).
+     *
+     * @param filter   the {@link PrinterCommandFilter} or <code>null</code> if all printer commands are passed.
+     */
+    public void setFilter(final PrinterCommandFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Parses the given files.
+     *
+     * @param files   the files to be parsed.
+     *
+     * @return the {@link Result} of all jobs.
+     *
+     * @throws InterruptedException if the current thread has been interrupted (the running jobs are interrupted
+     *     as well, no more jobs are started).
+     */
+    public Result parseFiles(final Collection<File> files) throws InterruptedException {
+        final List<Path> paths = new ArrayList<>(files.size());
+        for (final File file : files) {
+            paths.add(file.toPath());
+        }
+        return this.parse(paths);
+    }
+
+    /**
+     * Parses the given files.
+     *
+     * @param paths   the {@link Path} objects of the files to be parsed.
+     *
+     * @return the {@link Result} of all jobs.
+     *
+     * @throws InterruptedException if the current thread has been interrupted (the running jobs are interrupted
+     *     as well, no more jobs are started).
+     */
+    public Result parse(final Collection<Path> paths) throws InterruptedException {
+        final int permits = this.parallelism;
+        final Semaphore running = new Semaphore(permits);
+        final AtomicLong commandCount = new AtomicLong();
+        final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        final ExecutorService executor = createExecutor(permits);
+
+        try {
+            int index = 0;
+            for (final Path path : paths) {
+                final int job = index++;
+                running.acquire();
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                final Failure failure = PclBatchParser.this.parse(job, path, commandCount);
+                                if (failure != null) {
+                                    failures.add(failure);
+                                }
+                            } finally {
+                                running.release();
+                            }
+                        }
+                    });
+                } catch (final RuntimeException e) {
+                    // The job has not been started, so it will never release its permit...
+                    running.release();
+                    throw e;
+                }
+            }
+
+            // All jobs have ended when all permits are available again...
+            running.acquire(permits);
+
+            final List<Failure> sorted = new ArrayList<>(failures);
+            sorted.sort(new Comparator<Failure>() {
+                @Override
+                public int compare(final Failure first, final Failure second) {
+                    return Integer.compare(first.index, second.index);
+                }
+            });
+            return new Result(index, commandCount.get(), sorted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses a single file.
+     *
+     * @return the {@link Failure} or <code>null</code> if the job has succeeded.
+     */
+    private Failure parse(final int index, final Path path, final AtomicLong commandCount) {
+        long count = 0;
+        try {
+            final PrinterCommandHandler handler = this.handlerFactory.createHandler(path);
+            final long[] counter = new long[1];
+            try (final PclParser parser = new PclParser(path, new PrinterCommandHandler() {
+                @Override
+                public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+                    ++counter[0];
+                    handler.handlePrinterCommand(command);
+                }
+            })) {
+                parser.setLazyDataSections(this.lazyDataSections);
+                parser.setFilter(this.filter);
+                try {
+                    parser.parse();
+                } finally {
+                    count = counter[0];
+                }
+
+                // The handler is flushed before the parser is closed, because the printer commands it still
+                // holds may read their (lazy) data sections from the data stream...
+                if (handler instanceof Flushable) {
+                    ((Flushable) handler).flush();
+                }
+            }
+            return null;
+        } catch (final Throwable e) {
+            // Every abnormal end is a failure of the job (even an Error like an OutOfMemoryError or a
+            // StackOverflowError), otherwise the job would be counted as a success...
+            return new Failure(index, path, e);
+        } finally {
+            commandCount.addAndGet(count);
+        }
+    }
+
+    /**
+     * Creates the {@link ExecutorService} for the jobs. Virtual threads are looked up by reflection, so the
+     * library still runs on Java 8.
+     */
+    private static ExecutorService createExecutor(final int parallelism) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // No virtual threads (or they are a preview feature that is not enabled)...
+            return Executors.newWorkStealingPool(parallelism);
+        }
+    }
+}
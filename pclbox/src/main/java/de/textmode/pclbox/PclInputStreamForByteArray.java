@@ -0,0 +1,142 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementation of {@link PclInputStream} for data that is already held in a byte array.
+ * Reading, {@link #seek(long)} and {@link #tell()} are plain array operations. Offsets are
+ * measured from the first byte of the given range of the array.
+ *
+ * <p>Note that the byte array is not copied, so it must not be modified while it is parsed.
+ */
+final class PclInputStreamForByteArray implements PclInputStream, PclInputWindow {
+
+    private static final int END_OF_STREAM = -1;
+
+    private final byte[] data;
+    private final int start;
+    private final int end;
+    private final ByteBuffer window;
+    private int position;
+
+    /**
+     * Constructor that is given the byte array and the range of the array that contains the data.
+     *
+     * @param data   the byte array that contains the data.
+     * @param offset   the offset of the first byte of the data within the array.
+     * @param length   the number of bytes.
+     */
+    PclInputStreamForByteArray(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || length > data.length - offset) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "The range (offset %1$d, length %2$d) exceeds the bounds of the array (length %3$d)",
+                    offset,
+                    length,
+                    data.length));
+        }
+
+        this.data = data;
+        this.start = offset;
+        this.end = offset + length;
+        this.position = offset;
+        this.window = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Nothing to close...
+    }
+
+    @Override
+    public int read() throws IOException {
+        return this.position < this.end ? this.data[this.position++] & 0xFF : END_OF_STREAM;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        final int available = this.end - this.position;
+        if (available <= 0) {
+            return END_OF_STREAM;
+        }
+
+        final int count = Math.min(available, len);
+        System.arraycopy(this.data, this.position, b, off, count);
+        this.position += count;
+
+        return count;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (offset < 0 || offset > this.end - this.start) {
+            throw new IOException(new StringBuilder()
+                    .append("An error occurred when trying to position to offset ")
+                    .append(offset)
+                    .toString());
+        }
+
+        this.position = this.start + (int) offset;
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.position - this.start;
+    }
+
+    @Override
+    public ByteBuffer getWindow() {
+        return this.window;
+    }
+
+    @Override
+    public int getWindowPosition() {
+        return this.position;
+    }
+
+    @Override
+    public int getWindowLimit() {
+        return this.end;
+    }
+
+    @Override
+    public void setWindowPosition(final int position) {
+        this.position = position;
+    }
+
+    @Override
+    public boolean fillWindow() throws IOException {
+        return this.position < this.end;
+    }
+
+    @Override
+    public boolean isWindowStable() {
+        return true;
+    }
+}
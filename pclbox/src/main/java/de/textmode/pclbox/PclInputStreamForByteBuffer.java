@@ -0,0 +1,96 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of {@link PclInputStream} for data that is already held in a {@link ByteBuffer}
+ * (i. e. a direct buffer). The data between the position and the limit of the {@link ByteBuffer}
+ * is parsed. Offsets are measured from the position of the {@link ByteBuffer}.
+ *
+ * <p>The {@link ByteBuffer} is duplicated, so the position, limit and mark of the given
+ * {@link ByteBuffer} are not modified. The content is not copied, so it must not be modified
+ * while it is parsed.
+ */
+final class PclInputStreamForByteBuffer implements PclInputStream {
+
+    private static final int END_OF_STREAM = -1;
+
+    private final ByteBuffer data;
+    private final int start;
+
+    /**
+     * Constructor that is given the {@link ByteBuffer} that contains the data.
+     *
+     * @param data   the {@link ByteBuffer} that contains the data.
+     */
+    PclInputStreamForByteBuffer(final ByteBuffer data) {
+        this.data = data.duplicate();
+        this.start = data.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Nothing to close...
+    }
+
+    @Override
+    public int read() throws IOException {
+        return this.data.hasRemaining() ? this.data.get() & 0xFF : END_OF_STREAM;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        final int available = this.data.remaining();
+        if (available <= 0) {
+            return END_OF_STREAM;
+        }
+
+        final int count = Math.min(available, len);
+        this.data.get(b, off, count);
+
+        return count;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (offset < 0 || offset > this.data.limit() - this.start) {
+            throw new IOException(new StringBuilder()
+                    .append("An error occurred when trying to position to offset ")
+                    .append(offset)
+                    .toString());
+        }
+
+        this.data.position(this.start + (int) offset);
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.data.position() - this.start;
+    }
+}
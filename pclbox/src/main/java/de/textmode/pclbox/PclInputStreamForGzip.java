@@ -0,0 +1,193 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of {@link PclInputStream} that decompresses a gzip file (RFC 1952). A gzip file may
+ * consist of multiple members (i. e. concatenated gzip files) - the uncompressed data of all members is
+ * read as one contiguous data stream.
+ *
+ * <p>The CRC-32 and the size of each member are verified if the member has been decompressed from its
+ * beginning (which is not the case if the decompression has been resumed at a checkpoint).
+ */
+final class PclInputStreamForGzip extends CompressedPclInputStream {
+
+    private static final int END_OF_STREAM = -1;
+
+    private static final int MAGIC_1 = 0x1F;
+    private static final int MAGIC_2 = 0x8B;
+    private static final int METHOD_DEFLATE = 8;
+
+    private static final int FLAG_HCRC = 0x02;
+    private static final int FLAG_EXTRA = 0x04;
+    private static final int FLAG_NAME = 0x08;
+    private static final int FLAG_COMMENT = 0x10;
+
+    private final CRC32 crc;
+
+    private boolean finished;
+    private boolean verify;
+    private long memberOffset;
+
+    /**
+     * Constructor that is given the {@link PclInputStream} with the compressed data and the checkpoint
+     * interval.
+     *
+     * @param input   the {@link PclInputStream} that contains the gzip file.
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     */
+    PclInputStreamForGzip(final PclInputStream input, final long checkpointInterval) {
+        super(input, checkpointInterval);
+
+        this.crc = new CRC32();
+    }
+
+    @Override
+    void start() throws IOException {
+        this.getInput().seek(0);
+        this.finished = !this.readMemberHeader(true);
+    }
+
+    @Override
+    int inflate(final byte[] b, final int off, final int len) throws IOException {
+        while (!this.finished) {
+            final int read = this.decode(b, off, len);
+            if (read > 0) {
+                if (this.verify) {
+                    this.crc.update(b, off, read);
+                }
+                return read;
+            }
+
+            this.getDecoder().finishStream();
+            this.readMemberTrailer();
+            this.finished = !this.readMemberHeader(false);
+        }
+
+        return END_OF_STREAM;
+    }
+
+    @Override
+    void restored() {
+        this.finished = false;
+        this.verify = false;
+    }
+
+    /**
+     * Reads the header of the next member and prepares the {@link DeflateDecoder}.
+     *
+     * @param first   true if the first member is read.
+     *
+     * @return false if there are no more members.
+     */
+    private boolean readMemberHeader(final boolean first) throws IOException {
+        final PclInputStream input = this.getInput();
+
+        final int magic1 = input.read();
+        final int magic2 = input.read();
+        if (magic1 != MAGIC_1 || magic2 != MAGIC_2) {
+            if (first) {
+                throw new IOException("The data stream is not in gzip format");
+            }
+
+            // Like java.util.zip.GZIPInputStream we silently ignore trailing garbage...
+            return false;
+        }
+
+        final int method = this.readByte();
+        if (method != METHOD_DEFLATE) {
+            throw new IOException("The gzip compression method " + method + " is not supported");
+        }
+
+        final int flags = this.readByte();
+        this.skip(6); // MTIME, XFL and OS
+
+        if ((flags & FLAG_EXTRA) != 0) {
+            this.skip(this.readByte() | this.readByte() << 8);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            this.skipString();
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            this.skipString();
+        }
+        if ((flags & FLAG_HCRC) != 0) {
+            this.skip(2);
+        }
+
+        this.getDecoder().startStream();
+        this.crc.reset();
+        this.verify = true;
+        this.memberOffset = this.getDecoder().getTotalOut();
+
+        return true;
+    }
+
+    /**
+     * Reads the trailer of the current member and verifies the CRC-32 and the size.
+     */
+    private void readMemberTrailer() throws IOException {
+        final long expectedCrc = this.readInt();
+        final long expectedSize = this.readInt();
+
+        final long size = (this.getDecoder().getTotalOut() - this.memberOffset) & 0xFFFFFFFFL;
+        if (this.verify && (expectedCrc != this.crc.getValue() || expectedSize != size)) {
+            throw new IOException("The gzip data stream is corrupt (CRC-32 or size mismatch)");
+        }
+    }
+
+    /**
+     * Reads an unsigned little endian 32 bit integer.
+     */
+    private long readInt() throws IOException {
+        return this.readByte() | this.readByte() << 8 | this.readByte() << 16 | (long) this.readByte() << 24;
+    }
+
+    /**
+     * Reads a single byte and fails at the end of the data stream.
+     */
+    private int readByte() throws IOException {
+        final int value = this.getInput().read();
+        if (value == END_OF_STREAM) {
+            throw new EOFException("The gzip data stream unexpectedly ends. The data stream may be corrupted.");
+        }
+        return value;
+    }
+
+    /**
+     * Skips the given number of bytes.
+     */
+    private void skip(final int count) throws IOException {
+        for (int ix = 0; ix < count; ++ix) {
+            this.readByte();
+        }
+    }
+
+    /**
+     * Skips a zero terminated string.
+     */
+    private void skipString() throws IOException {
+        while (this.readByte() != 0) {
+            continue;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Implementation of {@link PclInputStream} that maps the file into memory by using
+ * {@link FileChannel#map(MapMode, long, long)}. Because a single mapping is limited to 2 GB,
+ * the file is mapped in windows of a fixed size. A window slides along the file as the
+ * parser moves forward. Reading, {@link #seek(long)} and {@link #tell()} are plain index
+ * operations as long as the position stays within the current window.
+ *
+ * <p>Note that the file must not be modified while it is mapped.
+ */
+final class PclInputStreamForMappedFile implements PclInputStream {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int END_OF_STREAM = -1;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private int index;
+
+    /**
+     * Constructor that is given the {@link FileChannel} of the file to be mapped. Windows of
+     * the default size are used.
+     *
+     * @param channel   the {@link FileChannel} of the file to be mapped.
+     *
+     * @throws IOException if the size of the file can not be determined.
+     */
+    PclInputStreamForMappedFile(final FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor that is given the {@link FileChannel} of the file to be mapped and the size
+     * of a mapped window.
+     *
+     * @param channel   the {@link FileChannel} of the file to be mapped.
+     * @param windowSize   the size of a mapped window in bytes.
+     *
+     * @throws IOException if the size of the file can not be determined.
+     */
+    PclInputStreamForMappedFile(final FileChannel channel, final int windowSize) throws IOException {
+        this(channel, windowSize, channel.size());
+    }
+
+    /**
+     * Constructor that is given the {@link FileChannel} of the file to be mapped, the size of a mapped window
+     * and the number of bytes of the file to be read. The stream ends after the given number of bytes, even if
+     * the file is longer (this is used to read a part of a file).
+     *
+     * @param channel   the {@link FileChannel} of the file to be mapped.
+     * @param windowSize   the size of a mapped window in bytes.
+     * @param size   the number of bytes of the file to be read.
+     */
+    PclInputStreamForMappedFile(final FileChannel channel, final int windowSize, final long size) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("The window size must be greater than zero");
+        }
+
+        this.channel = channel;
+        this.size = size;
+        this.windowSize = windowSize;
+        this.window = null;
+        this.windowOffset = 0;
+        this.index = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // There is no public API to unmap a MappedByteBuffer - the mapping is released
+        // when the buffer gets garbage collected.
+        this.window = null;
+        this.channel.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((this.window == null || this.index >= this.window.limit()) && !this.map()) {
+            return END_OF_STREAM;
+        }
+
+        return this.window.get(this.index++) & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        while (total < len) {
+            if ((this.window == null || this.index >= this.window.limit()) && !this.map()) {
+                break;
+            }
+
+            final int chunk = Math.min(this.window.limit() - this.index, len - total);
+            this.window.position(this.index);
+            this.window.get(b, off + total, chunk);
+            this.index += chunk;
+            total += chunk;
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (this.window != null && offset >= this.windowOffset && offset <= this.windowOffset + this.window.limit()) {
+            this.index = (int) (offset - this.windowOffset);
+        } else {
+            // The new window is mapped lazily on the next read...
+            this.window = null;
+            this.windowOffset = offset;
+            this.index = 0;
+        }
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.windowOffset + this.index;
+    }
+
+    /**
+     * Maps the window that starts at the current position.
+     *
+     * @return false if the current position is at (or after) the end of the file.
+     */
+    private boolean map() throws IOException {
+        final long offset = this.tell();
+        if (offset >= this.size) {
+            return false;
+        }
+
+        this.window = this.channel.map(MapMode.READ_ONLY, offset, Math.min(this.windowSize, this.size - offset));
+        this.windowOffset = offset;
+        this.index = 0;
+
+        return true;
+    }
+}
@@ -0,0 +1,300 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of {@link PclInputStream} for a single entry of a zip archive. The entry may either be
+ * stored (uncompressed) or compressed with DEFLATE. Stored entries support random access without any
+ * decompression. ZIP64 archives are supported, encrypted entries and split archives are not.
+ *
+ * <p>The entry is located by reading the central directory of the archive when the first byte is read.
+ */
+final class PclInputStreamForZipEntry extends CompressedPclInputStream {
+
+    private static final int END_OF_STREAM = -1;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054B50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064B50;
+    private static final int ZIP64_LOCATOR = 0x07064B50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014B50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER = 0x04034B50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    private static final long UNKNOWN_OFFSET = -1;
+
+    private final long archiveSize;
+    private final String entryName;
+    private final CRC32 crc;
+
+    private long dataOffset;
+    private int method;
+    private long expectedCrc;
+    private long uncompressedSize;
+    private boolean verify;
+
+    /**
+     * Constructor that is given the {@link PclInputStream} with the zip archive, the name of the entry and
+     * the checkpoint interval.
+     *
+     * @param input   the {@link PclInputStream} that contains the zip archive.
+     * @param archiveSize   the size of the zip archive in bytes.
+     * @param entryName   the name of the entry (as stored in the zip archive, like "jobs/job1.pcl").
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     */
+    PclInputStreamForZipEntry(
+            final PclInputStream input,
+            final long archiveSize,
+            final String entryName,
+            final long checkpointInterval) {
+
+        super(input, checkpointInterval);
+
+        this.archiveSize = archiveSize;
+        this.entryName = entryName;
+        this.crc = new CRC32();
+        this.dataOffset = UNKNOWN_OFFSET;
+    }
+
+    @Override
+    void start() throws IOException {
+        if (this.dataOffset == UNKNOWN_OFFSET) {
+            this.locateEntry();
+        }
+
+        this.getInput().seek(this.dataOffset);
+        this.getDecoder().startStream();
+        this.crc.reset();
+        this.verify = true;
+    }
+
+    @Override
+    int inflate(final byte[] b, final int off, final int len) throws IOException {
+        final long offset = this.getDecoder().getTotalOut();
+
+        final int read;
+        if (this.method == METHOD_STORED) {
+            final int chunk = (int) Math.min(len, this.uncompressedSize - offset);
+            read = chunk <= 0 ? END_OF_STREAM : this.getInput().read(b, off, chunk);
+            if (read != END_OF_STREAM) {
+                this.getDecoder().setTotalOut(offset + read);
+            } else if (chunk > 0) {
+                throw this.createEndOfFileException();
+            }
+        } else {
+            read = this.decode(b, off, len);
+        }
+
+        if (read > 0 && this.verify) {
+            this.crc.update(b, off, read);
+        } else if (read == END_OF_STREAM && this.verify
+                && (this.crc.getValue() != this.expectedCrc || offset != this.uncompressedSize)) {
+            throw new IOException("The zip entry " + this.entryName + " is corrupt (CRC-32 or size mismatch)");
+        }
+
+        return read;
+    }
+
+    @Override
+    boolean seekDirectly(final long offset) throws IOException {
+        if (this.method != METHOD_STORED) {
+            return false;
+        }
+
+        if (offset > this.uncompressedSize) {
+            throw new IOException("An error occurred when trying to position to offset " + offset);
+        }
+
+        this.getInput().seek(this.dataOffset + offset);
+        this.getDecoder().setTotalOut(offset);
+        this.verify = offset == 0;
+        this.crc.reset();
+        return true;
+    }
+
+    @Override
+    void restored() {
+        this.verify = false;
+    }
+
+    /**
+     * Reads the central directory of the zip archive and determines the offset of the data of the entry.
+     */
+    private void locateEntry() throws IOException {
+        // The end of central directory record is followed by a comment of variable length, so we have to
+        // search backwards for its signature...
+        final int tailLength = (int) Math.min(this.archiveSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_LENGTH);
+        final ByteBuffer tail = this.readBlock(this.archiveSize - tailLength, tailLength);
+
+        int end = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE;
+        while (end >= 0 && (tail.getInt(end) != END_OF_CENTRAL_DIRECTORY
+                || end + END_OF_CENTRAL_DIRECTORY_SIZE + tail.getShort(end + 20) > tailLength)) {
+            --end;
+        }
+
+        if (end < 0) {
+            throw new IOException("The data stream is not a zip archive");
+        }
+
+        long entries = tail.getShort(end + 10) & 0xFFFF;
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+        final long endOffset = this.archiveSize - tailLength + end;
+        if (endOffset >= ZIP64_LOCATOR_SIZE) {
+            final ByteBuffer locator = this.readBlock(endOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR) {
+                final ByteBuffer zip64 = this.readBlock(locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                    throw new IOException("The ZIP64 end of central directory record of the zip archive is corrupt");
+                }
+                entries = zip64.getLong(32);
+                directoryOffset = zip64.getLong(48);
+            }
+        }
+
+        this.getInput().seek(directoryOffset);
+
+        for (long ix = 0; ix < entries; ++ix) {
+            final ByteBuffer header = this.readBlock(CENTRAL_DIRECTORY_HEADER_SIZE);
+            if (header.getInt(0) != CENTRAL_DIRECTORY_HEADER) {
+                throw new IOException("The central directory of the zip archive is corrupt");
+            }
+
+            final int nameLength = header.getShort(28) & 0xFFFF;
+            final int extraLength = header.getShort(30) & 0xFFFF;
+            final int commentLength = header.getShort(32) & 0xFFFF;
+
+            final ByteBuffer nameAndExtra = this.readBlock(nameLength + extraLength);
+            this.skip(commentLength);
+
+            final String name = new String(nameAndExtra.array(), 0, nameLength, StandardCharsets.UTF_8);
+            if (name.equals(this.entryName)) {
+                this.useEntry(header, nameAndExtra, nameLength);
+                return;
+            }
+        }
+
+        throw new IOException("The zip archive does not contain an entry named " + this.entryName);
+    }
+
+    /**
+     * Takes the information of the given central directory header.
+     */
+    private void useEntry(final ByteBuffer header, final ByteBuffer nameAndExtra, final int nameLength)
+            throws IOException {
+
+        if ((header.getShort(8) & FLAG_ENCRYPTED) != 0) {
+            throw new IOException("The zip entry " + this.entryName + " is encrypted");
+        }
+
+        this.method = header.getShort(10) & 0xFFFF;
+        if (this.method != METHOD_STORED && this.method != METHOD_DEFLATED) {
+            throw new IOException("The zip compression method " + this.method + " is not supported");
+        }
+
+        this.expectedCrc = header.getInt(16) & 0xFFFFFFFFL;
+        long compressedSize = header.getInt(20) & 0xFFFFFFFFL;
+        this.uncompressedSize = header.getInt(24) & 0xFFFFFFFFL;
+        long localHeaderOffset = header.getInt(42) & 0xFFFFFFFFL;
+
+        // Values that do not fit into 32 bits are stored in the ZIP64 extra field (in this order)...
+        int pos = nameLength;
+        while (pos + 4 <= nameAndExtra.limit()) {
+            final int id = nameAndExtra.getShort(pos) & 0xFFFF;
+            final int size = nameAndExtra.getShort(pos + 2) & 0xFFFF;
+            if (id == ZIP64_EXTRA_FIELD) {
+                int field = pos + 4;
+                if (this.uncompressedSize == 0xFFFFFFFFL) {
+                    this.uncompressedSize = nameAndExtra.getLong(field);
+                    field += 8;
+                }
+                if (compressedSize == 0xFFFFFFFFL) {
+                    compressedSize = nameAndExtra.getLong(field);
+                    field += 8;
+                }
+                if (localHeaderOffset == 0xFFFFFFFFL) {
+                    localHeaderOffset = nameAndExtra.getLong(field);
+                }
+                break;
+            }
+            pos += 4 + size;
+        }
+
+        final ByteBuffer local = this.readBlock(localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+        if (local.getInt(0) != LOCAL_FILE_HEADER) {
+            throw new IOException("The local file header of the zip entry " + this.entryName + " is corrupt");
+        }
+
+        this.dataOffset = localHeaderOffset
+                + LOCAL_FILE_HEADER_SIZE
+                + (local.getShort(26) & 0xFFFF)
+                + (local.getShort(28) & 0xFFFF);
+
+        if (this.method == METHOD_STORED && compressedSize != this.uncompressedSize) {
+            throw new IOException("The zip entry " + this.entryName + " is corrupt (size mismatch)");
+        }
+    }
+
+    /**
+     * Reads a block of little endian data at the given offset.
+     */
+    private ByteBuffer readBlock(final long offset, final int length) throws IOException {
+        this.getInput().seek(offset);
+        return this.readBlock(length);
+    }
+
+    /**
+     * Reads a block of little endian data at the current position.
+     */
+    private ByteBuffer readBlock(final int length) throws IOException {
+        final byte[] block = new byte[length];
+        if (length > 0 && this.getInput().read(block, 0, length) != length) {
+            throw this.createEndOfFileException();
+        }
+        return ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Skips the given number of bytes.
+     */
+    private void skip(final int count) throws IOException {
+        this.getInput().seek(this.getInput().tell() + count);
+    }
+
+    /**
+     * Returns a new {@link EOFException} for a zip archive that ends unexpectedly.
+     */
+    private EOFException createEndOfFileException() {
+        return new EOFException("The zip archive unexpectedly ends. The data stream may be corrupted.");
+    }
+}
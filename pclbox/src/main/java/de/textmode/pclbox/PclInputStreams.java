@@ -0,0 +1,242 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class provides static factory methods for the {@link PclInputStream} implementations
+ * that come with pclbox. The created {@link PclInputStream} can be passed to the constructor
+ * of the {@link PclParser}. Note that the {@link PclParser} will not close the
+ * {@link PclInputStream} unless this is requested by the constructor of the {@link PclParser}.
+ */
+public final class PclInputStreams {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PclInputStreams() {
+    }
+
+    /**
+     * Creates a buffered {@link PclInputStream} for the given file.
+     *
+     * @param inputFile   the {@link File} that contains the PCL data stream.
+     *
+     * @return the buffered {@link PclInputStream} for the file.
+     *
+     * @throws FileNotFoundException  if the file does not exist, is a directory rather than a regular file,
+     *     or for some other reason cannot be opened for reading.
+     */
+    public static PclInputStream forFile(final File inputFile) throws FileNotFoundException {
+        return buffered(new PclInputStreamForFileInputStream(new FileInputStream(inputFile)),
+                BufferedPclInputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that maps the given file into memory. The file is mapped in
+     * windows, so files larger than 2 GB are supported as well.
+     *
+     * @param inputPath   the {@link Path} of the file that contains the PCL data stream.
+     *
+     * @return the {@link PclInputStream} for the mapped file.
+     *
+     * @throws IOException  if the file does not exist or for some other reason cannot be opened.
+     */
+    public static PclInputStream forMappedFile(final Path inputPath) throws IOException {
+        final FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ);
+        try {
+            return new PclInputStreamForMappedFile(channel);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that decompresses the given gzip file. All offsets are offsets within
+     * the uncompressed data. If the checkpoint interval is greater than zero, the state of the decompressor is
+     * stored every time the given number of uncompressed bytes has been decoded, so seeking backwards does not
+     * have to decompress the data from the beginning. Every checkpoint takes up to 32 KB of memory.
+     *
+     * @param inputPath   the {@link Path} of the gzip file that contains the PCL data stream.
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     *
+     * @return the {@link PclInputStream} for the gzip file.
+     *
+     * @throws FileNotFoundException  if the file does not exist, is a directory rather than a regular file,
+     *     or for some other reason cannot be opened for reading.
+     */
+    public static PclInputStream forGzipFile(final Path inputPath, final long checkpointInterval)
+            throws FileNotFoundException {
+        return forGzip(forFile(inputPath.toFile()), checkpointInterval);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that decompresses gzip data that is read from the given {@link PclInputStream}.
+     * See {@link #forGzipFile(Path, long)} for details.
+     *
+     * @param input   the {@link PclInputStream} that contains the gzip data.
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     *
+     * @return the {@link PclInputStream} for the gzip data.
+     */
+    public static PclInputStream forGzip(final PclInputStream input, final long checkpointInterval) {
+        return new PclInputStreamForGzip(input, checkpointInterval);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} for an entry of the given zip archive. All offsets are offsets within
+     * the uncompressed data of the entry. See {@link #forGzipFile(Path, long)} for details about the checkpoint
+     * interval (which is irrelevant for entries that are stored without compression).
+     *
+     * @param zipPath   the {@link Path} of the zip archive.
+     * @param entryName   the name of the entry that contains the PCL data stream.
+     * @param checkpointInterval   the number of uncompressed bytes between two checkpoints or zero if no
+     *     checkpoints shall be taken.
+     *
+     * @return the {@link PclInputStream} for the zip entry.
+     *
+     * @throws IOException  if the file does not exist or for some other reason cannot be opened.
+     */
+    public static PclInputStream forZipEntry(final Path zipPath, final String entryName, final long checkpointInterval)
+            throws IOException {
+
+        final FileInputStream input = new FileInputStream(zipPath.toFile());
+        try {
+            return new PclInputStreamForZipEntry(
+                    buffered(new PclInputStreamForFileInputStream(input), BufferedPclInputStream.DEFAULT_BUFFER_SIZE),
+                    input.getChannel().size(),
+                    entryName,
+                    checkpointInterval);
+        } catch (final IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a {@link PclInputStream} for the given range of a byte array. All offsets are measured from
+     * the given offset within the byte array. The byte array is not copied, so it must not be modified
+     * while it is parsed.
+     *
+     * @param input   the byte array that contains the PCL data stream.
+     * @param offset   the offset of the first byte of the PCL data stream within the byte array.
+     * @param length   the length of the PCL data stream.
+     *
+     * @return the {@link PclInputStream} for the byte array.
+     */
+    public static PclInputStream forByteArray(final byte[] input, final int offset, final int length) {
+        return new PclInputStreamForByteArray(input, offset, length);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} for the data between the position and the limit of the given
+     * {@link ByteBuffer}. All offsets are measured from the position of the {@link ByteBuffer}. The
+     * content is not copied, so it must not be modified while it is parsed.
+     *
+     * @param input   the {@link ByteBuffer} that contains the PCL data stream.
+     *
+     * @return the {@link PclInputStream} for the {@link ByteBuffer}.
+     */
+    public static PclInputStream forByteBuffer(final ByteBuffer input) {
+        if (input.hasArray()) {
+            return new PclInputStreamForByteArray(
+                    input.array(),
+                    input.arrayOffset() + input.position(),
+                    input.remaining());
+        } else {
+            return new PclInputStreamForByteBuffer(input);
+        }
+    }
+
+    /**
+     * Creates a {@link PclInputStream} for the given {@link InputStream}. Seeking is done by using
+     * {@link InputStream#reset()} and {@link InputStream#skip(long)}, so seeking is only supported if
+     * the {@link InputStream} supports {@link InputStream#mark(int)}.
+     *
+     * @param input   the {@link InputStream} that contains the PCL data stream.
+     *
+     * @return the {@link PclInputStream} for the {@link InputStream}.
+     */
+    public static PclInputStream forInputStream(final InputStream input) {
+        return new PclInputStreamForInputStream(input);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that makes the given {@link InputStream} seekable, even if the
+     * {@link InputStream} does not support {@link InputStream#mark(int)} (like pipes, sockets or decompressing
+     * streams). The most recently read data is kept in memory (up to the given limit), older data is spilled
+     * to a temporary file. So every seek backwards is O(1). The temporary file is only created if required
+     * and deleted when the returned {@link PclInputStream} is closed, so the returned {@link PclInputStream}
+     * has to be closed in any case. Note that every byte beyond the memory limit is written to the temporary
+     * file, so use this stream only if the data stream has to be read again (i. e. lazy data sections).
+     *
+     * @param input   the {@link InputStream} that contains the PCL data stream.
+     * @param memoryLimit   the maximum number of bytes that are kept in memory.
+     * @param closeInput   true if the {@link InputStream} shall be closed when the returned
+     *     {@link PclInputStream} is closed.
+     *
+     * @return the seekable {@link PclInputStream} for the {@link InputStream}.
+     */
+    public static PclInputStream spilling(final InputStream input, final int memoryLimit, final boolean closeInput) {
+        return new SpillingPclInputStream(input, memoryLimit, closeInput);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that reads the given {@link PclInputStream} through a buffer.
+     *
+     * @param input   the {@link PclInputStream} to be buffered.
+     * @param bufferSize   the size of the buffer in bytes.
+     *
+     * @return the buffered {@link PclInputStream}.
+     */
+    public static PclInputStream buffered(final PclInputStream input, final int bufferSize) {
+        return new BufferedPclInputStream(input, bufferSize);
+    }
+
+    /**
+     * Creates a {@link PclInputStream} that reads ahead from the given {@link PclInputStream} on a background
+     * thread, so reading overlaps with parsing. This is useful for storage with a high latency per read (like
+     * network mounted file systems). The background thread is started immediately and terminated when the
+     * returned {@link PclInputStream} is closed, so the returned {@link PclInputStream} has to be closed in
+     * any case.
+     *
+     * @param input   the {@link PclInputStream} to read from. This {@link PclInputStream} must not be used by
+     *     the caller anymore.
+     * @param bufferSize   the size of a single buffer in bytes.
+     * @param depth   the number of buffers that are read ahead (1 means double buffering).
+     *
+     * @return the prefetching {@link PclInputStream}.
+     *
+     * @throws IOException  if the current position of the given {@link PclInputStream} can not be determined.
+     */
+    public static PclInputStream prefetching(final PclInputStream input, final int bufferSize, final int depth)
+            throws IOException {
+        return new PrefetchingPclInputStream(input, bufferSize, depth);
+    }
+}
@@ -0,0 +1,75 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link PclInputStream} that reads through a window of buffered bytes held in a byte array can implement
+ * this interface. The parsers use the window to scan runs of bytes (like text) in bulk instead of calling
+ * {@link PclInputStream#read()} for every single byte.
+ *
+ * <p>The bytes between the window position and the window limit are the next bytes of the data stream,
+ * the byte before the window position (if any) is the last byte read.
+ */
+interface PclInputWindow {
+
+    /**
+     * Returns a little endian {@link ByteBuffer} that wraps the byte array of the window. Only absolute
+     * get methods are used, the position and the limit of the {@link ByteBuffer} are meaningless.
+     *
+     * @return the {@link ByteBuffer} that wraps the byte array of the window.
+     */
+    ByteBuffer getWindow();
+
+    /**
+     * Returns the index of the next byte to be read within the window.
+     *
+     * @return the index of the next byte to be read.
+     */
+    int getWindowPosition();
+
+    /**
+     * Returns the index after the last valid byte within the window.
+     *
+     * @return the index after the last valid byte.
+     */
+    int getWindowLimit();
+
+    /**
+     * Consumes bytes from the window by setting the index of the next byte to be read.
+     *
+     * @param position   the index of the next byte to be read (between the current position and the limit).
+     */
+    void setWindowPosition(final int position);
+
+    /**
+     * Refills the window if all bytes of the window have been consumed.
+     *
+     * @return false if the end of the data stream has been reached.
+     */
+    boolean fillWindow() throws IOException;
+
+    /**
+     * Returns true if the window holds the whole data stream and its content never changes (like the array
+     * of a data stream that is held in memory). Then ranges of the window stay valid after they have been read.
+     *
+     * @return true if the window holds the whole data stream.
+     */
+    boolean isWindowStable();
+}
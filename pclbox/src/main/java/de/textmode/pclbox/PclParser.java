@@ -22,7 +22,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 /**
  * The {@link PclParser} parses the given {@link InputStream} and interprets the printer commands.
@@ -31,11 +33,17 @@ public final class PclParser implements AutoCloseable {
 
     private final PclInputStream stream;
     private final PrinterCommandHandler commandHandler;
+    private final PrinterCommandEventHandler eventHandler;
     private final boolean closeStream;
+    private boolean lazyDataSections;
+    private boolean sharedPayloads;
+    private PrinterCommandFilter filter;
+    private PolylineEncodedHandler polylineEncodedHandler;
 
     /**
      * Constructor that internally creates a {@link FileInputStream} for reading and seeking
-     * within the PCL data stream.
+     * within the PCL data stream. The file is read through an internal buffer, so the parser
+     * does not perform a system call for every single byte.
      *
      * @param inputFile   the {@link File} that contains the PCL data stream.
      * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
@@ -44,12 +52,13 @@ public final class PclParser implements AutoCloseable {
      *     or for some other reason cannot be opened for reading.
      */
     public PclParser(final File inputFile, final PrinterCommandHandler commandHandler) throws FileNotFoundException {
-        this(new FileInputStream(inputFile), commandHandler, true);
+        this(PclInputStreams.forFile(inputFile), commandHandler, true);
     }
 
     /**
      * Constructor that internally creates a {@link FileInputStream} for reading and seeking
-     * within the PCL data stream.
+     * within the PCL data stream. The file is read through an internal buffer, so the parser
+     * does not perform a system call for every single byte.
      *
      * @param inputFileName   the name of the file that contains the PCL data stream.
      * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
@@ -59,7 +68,22 @@ public final class PclParser implements AutoCloseable {
      */
     public PclParser(final String inputFileName, final PrinterCommandHandler commandHandler)
             throws FileNotFoundException {
-        this(new FileInputStream(inputFileName), commandHandler, true);
+        this(PclInputStreams.forFile(new File(inputFileName)), commandHandler, true);
+    }
+
+    /**
+     * Constructor that maps the file into memory for reading and seeking within the PCL data stream.
+     * The file is mapped in windows, so files larger than 2 GB are supported as well. Reading a mapped
+     * file lets the operating system serve the data directly from the page cache without copying it
+     * into buffers on the heap.
+     *
+     * @param inputPath   the {@link Path} of the file that contains the PCL data stream.
+     * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
+     *
+     * @throws IOException  if the file does not exist or for some other reason cannot be opened or mapped.
+     */
+    public PclParser(final Path inputPath, final PrinterCommandHandler commandHandler) throws IOException {
+        this(PclInputStreams.forMappedFile(inputPath), commandHandler, true);
     }
 
     /**
@@ -85,6 +109,25 @@ public final class PclParser implements AutoCloseable {
             final boolean closeStream) {
         this.stream = input;
         this.commandHandler = commandHandler;
+        this.eventHandler = null;
+        this.closeStream = closeStream;
+    }
+
+    /**
+     * Constructor that uses the ready to use {@link PclInputStream} for reading and seeking within
+     * the PCL data stream and reports the parsed printer commands to a {@link PrinterCommandEventHandler}.
+     * No {@link PrinterCommand} objects are constructed. Use {@link PclInputStreams} to get a
+     * {@link PclInputStream} for files, byte arrays or any other source of the data stream.
+     *
+     * @param input   the {@link PclInputStream} that will be used to read the PCL data stream.
+     * @param eventHandler   the {@link PrinterCommandEventHandler} that is invoked for every parsed printer command.
+     * @param closeStream   true if the {@link PclInputStream} should be closed by the {@link PclParser}.
+     */
+    public PclParser(final PclInputStream input, final PrinterCommandEventHandler eventHandler,
+            final boolean closeStream) {
+        this.stream = input;
+        this.commandHandler = null;
+        this.eventHandler = eventHandler;
         this.closeStream = closeStream;
     }
 
@@ -109,16 +152,16 @@ public final class PclParser implements AutoCloseable {
      */
     public PclParser(final FileInputStream input, final PrinterCommandHandler commandHandler,
             final boolean closeStream) {
-        this.stream = new PclInputStreamForInputStream(input);
-        this.commandHandler = commandHandler;
-        this.closeStream = closeStream;
+        this(new PclInputStreamForInputStream(input), commandHandler, closeStream);
     }
 
     /**
      * Constructor that uses a base {@link InputStream} for reading and seeking within the PCL data stream.
      * Seeking is done by using a {@link InputStream#reset()} and {@link InputStream#skip(long)} that may not
      * be very fast, depending of the implementation. Also note that you must not invoke {@link InputStream#mark(int)},
-     * {@link InputStream#reset()} or {@link InputStream#skip(long)} on the given stream.
+     * {@link InputStream#reset()} or {@link InputStream#skip(long)} on the given stream. If the {@link InputStream}
+     * does not support {@link InputStream#mark(int)} (like pipes or sockets) but the handler has to seek (i. e. to
+     * read lazy data sections), use a {@link PclInputStream} created by {@link PclInputStreams#spilling}.
      *
      * @param input   the {@link InputStream} that will be used to read the PCL data stream.
      * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
@@ -131,27 +174,141 @@ public final class PclParser implements AutoCloseable {
      * Constructor that uses a base {@link InputStream} for reading and seeking within the PCL data stream.
      * Seeking is done by using a {@link InputStream#reset()} and {@link InputStream#skip(long)} that may not
      * be very fast, depending of the implementation. Also note that you must not invoke {@link InputStream#mark(int)},
-     * {@link InputStream#reset()} or {@link InputStream#skip(long)} on the given stream.
+     * {@link InputStream#reset()} or {@link InputStream#skip(long)} on the given stream. If the {@link InputStream}
+     * does not support {@link InputStream#mark(int)} (like pipes or sockets) but the handler has to seek (i. e. to
+     * read lazy data sections), use a {@link PclInputStream} created by {@link PclInputStreams#spilling}.
      *
      * @param input   the {@link InputStream} that will be used to read the PCL data stream.
      * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
      * @param closeStream   true if the {@link PclInputStream} should be closed by the {@link PclParser}.
      */
     public PclParser(final InputStream input, final PrinterCommandHandler commandHandler, final boolean closeStream) {
-        this.stream = new PclInputStreamForInputStream(input);
-        this.commandHandler = commandHandler;
-        this.closeStream = closeStream;
+        this(new PclInputStreamForInputStream(input), commandHandler, closeStream);
+    }
+
+    /**
+     * Constructor that parses the PCL data stream that is held in the given byte array. Reading and
+     * seeking are plain array operations. Note that the byte array is not copied, so it must not be
+     * modified while it is parsed.
+     *
+     * @param input   the byte array that contains the PCL data stream.
+     * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
+     */
+    public PclParser(final byte[] input, final PrinterCommandHandler commandHandler) {
+        this(input, 0, input.length, commandHandler);
+    }
+
+    /**
+     * Constructor that parses the PCL data stream that is held in a range of the given byte array. Reading
+     * and seeking are plain array operations and all offsets are measured from the given offset within the
+     * byte array. Note that the byte array is not copied, so it must not be modified while it is parsed.
+     *
+     * @param input   the byte array that contains the PCL data stream.
+     * @param offset   the offset of the first byte of the PCL data stream within the byte array.
+     * @param length   the length of the PCL data stream.
+     * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
+     */
+    public PclParser(final byte[] input, final int offset, final int length,
+            final PrinterCommandHandler commandHandler) {
+        this(new PclInputStreamForByteArray(input, offset, length), commandHandler, true);
     }
 
     /**
-     * Parses the data stream. For every parsed {@link PrinterCommand} the {@link PrinterCommandHandler} is invoked.
+     * Constructor that parses the PCL data stream that is held in the given {@link ByteBuffer}. The data
+     * between the position and the limit of the {@link ByteBuffer} is parsed and all offsets are measured
+     * from the position of the {@link ByteBuffer}. The position of the given {@link ByteBuffer} is not
+     * modified. Note that the content is not copied, so it must not be modified while it is parsed.
+     *
+     * @param input   the {@link ByteBuffer} that contains the PCL data stream.
+     * @param commandHandler   the {@link PrinterCommandHandler} that is invoked for every {@link PrinterCommand}.
+     */
+    public PclParser(final ByteBuffer input, final PrinterCommandHandler commandHandler) {
+        this(PclInputStreams.forByteBuffer(input), commandHandler, true);
+    }
+
+    /**
+     * Sets if data sections (like raster rows, font headers or transparent data) shall be skipped instead
+     * of being read. A skipped data section is read on demand by {@link ParameterizedPclCommand#readDataSection()}
+     * (as long as the {@link PclParser} has not been closed). This avoids moving huge amounts of raster data
+     * through the heap if the handler is only interested in the PCL commands themselves. The default is false.
+     *
+     * @param lazyDataSections   true if data sections shall be skipped.
+     */
+    public void setLazyDataSections(final boolean lazyDataSections) {
+        this.lazyDataSections = lazyDataSections;
+    }
+
+    /**
+     * Sets if text and data sections of the constructed {@link PrinterCommand} objects may reference the
+     * data stream instead of being copied. This is only possible if the data stream is held in memory (a
+     * byte array or a {@link ByteBuffer} that is backed by an array) - otherwise this option has no effect.
+     * For a {@link PrinterCommandEventHandler} the ranges of such a data stream stay valid after the callback.
+     * The data stream must not be modified as long as the {@link PrinterCommand} objects are in use.
+     * The default is false.
+     *
+     * @param sharedPayloads   true if text and data sections may reference the data stream.
+     */
+    public void setSharedPayloads(final boolean sharedPayloads) {
+        this.sharedPayloads = sharedPayloads;
+    }
+
+    /**
+     * Sets the {@link PrinterCommandFilter} that selects the printer commands passed to the handler. The
+     * parser does not construct the other printer commands and skips their data sections. The default is
+     * <code>null</code> (all printer commands are passed).
+     *
+     * @param filter   the {@link PrinterCommandFilter} or <code>null</code>.
+     */
+    public void setFilter(final PrinterCommandFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Sets the {@link PolylineEncodedHandler} that receives the decoded coordinates of HP/GL-2 "PE" (Polyline
+     * Encoded) commands. The parameters of "PE" commands are decoded while they are read (see
+     * {@link PolylineEncodedDecoder}), so they are never held in memory as a whole. The {@link HpglCommand}
+     * of a "PE" command is passed to the handler after its coordinates and has no parameters then. The default
+     * is <code>null</code> (the parameters of "PE" commands are passed like those of all other HP/GL commands).
+     *
+     * @param polylineEncodedHandler   the {@link PolylineEncodedHandler} or <code>null</code>.
+     */
+    public void setPolylineEncodedHandler(final PolylineEncodedHandler polylineEncodedHandler) {
+        this.polylineEncodedHandler = polylineEncodedHandler;
+    }
+
+    /**
+     * Parses the data stream. For every parsed printer command the handler is invoked.
      *
      * @throws EOFException if the end of the stream was reached unexpectedly.
      * @throws IOException if an I/O error occurs.
      * @throws PclException if a PCL, PJL or HP/GL2 command if corrupt.
      */
     public void parse() throws IOException, PclException {
-        final int lastReadBye = new Pcl5Parser(new PclParserContext(this.stream, this.commandHandler)).parse();
+        final boolean shared = this.sharedPayloads
+                && this.stream instanceof PclInputWindow
+                && ((PclInputWindow) this.stream).isWindowStable();
+
+        PrinterCommandEventHandler handler = this.eventHandler != null
+                ? this.eventHandler
+                : new PrinterCommandHandlerAdapter(
+                        this.commandHandler,
+                        this.stream,
+                        shared ? ((PclInputWindow) this.stream).getWindow().array() : null);
+
+        if (this.filter != null) {
+            handler = new FilteringEventHandler(handler, this.filter);
+        }
+
+        final PclParserContext context = new PclParserContext(this.stream, handler);
+        context.setLazyDataSections(this.lazyDataSections);
+        context.setSharedPayloads(shared);
+        context.setFilter(this.filter);
+
+        if (this.polylineEncodedHandler != null) {
+            context.setPolylineEncodedDecoder(new PolylineEncodedDecoder(this.polylineEncodedHandler));
+        }
+
+        final int lastReadBye = new Pcl5Parser(context).parse();
         if (lastReadBye != -1) {
             throw new PclException(
                     "The Pcl5Parser unexpectedly returned before the end of the data stream has been reached");
@@ -23,17 +23,34 @@ package de.textmode.pclbox;
 final class PclParserContext {
 
     private final PclInputStream stream;
-    private final PrinterCommandHandler commandHandler;
+    private final PrinterCommandEventHandler eventHandler;
+    private boolean lazyDataSections;
+    private boolean sharedPayloads;
+    private PrinterCommandFilter filter;
+    private PolylineEncodedDecoder polylineEncodedDecoder;
+    private boolean suspendRequested;
 
     /**
-     * Constructor. Gets the {@link PclInputStream} we read from and initializes the
-     * parser stack (pushes a {@link Pcl5Parser} on top of the stack).
+     * Constructor. Gets the {@link PclInputStream} we read from and the {@link PrinterCommandHandler}
+     * that handles the read {@link PrinterCommand}.
      *
      * @param stream   the stream that contains the PCL printer data stream.
+     * @param commandHandler   the {@link PrinterCommandHandler} that handles the read {@link PrinterCommand}.
      */
     PclParserContext(final PclInputStream stream, final PrinterCommandHandler commandHandler) {
+        this(stream, new PrinterCommandHandlerAdapter(commandHandler, stream, null));
+    }
+
+    /**
+     * Constructor. Gets the {@link PclInputStream} we read from and the {@link PrinterCommandEventHandler}
+     * that is invoked by the parsers.
+     *
+     * @param stream   the stream that contains the PCL printer data stream.
+     * @param eventHandler   the {@link PrinterCommandEventHandler} that is invoked by the parsers.
+     */
+    PclParserContext(final PclInputStream stream, final PrinterCommandEventHandler eventHandler) {
         this.stream = stream;
-        this.commandHandler = commandHandler;
+        this.eventHandler = eventHandler;
     }
 
     /**
@@ -46,11 +63,115 @@ final class PclParserContext {
     }
 
     /**
-     * Gets the {@link PrinterCommandHandler} that handles the read {@link PrinterCommand}.
+     * Gets the {@link PrinterCommandEventHandler} that is invoked by the parsers.
+     *
+     * @return the {@link PrinterCommandEventHandler}.
+     */
+    PrinterCommandEventHandler getEventHandler() {
+        return this.eventHandler;
+    }
+
+    /**
+     * Returns true if the parsers shall skip data sections instead of reading them.
+     *
+     * @return true if data sections shall be skipped.
+     */
+    boolean isLazyDataSections() {
+        return this.lazyDataSections;
+    }
+
+    /**
+     * Sets if the parsers shall skip data sections instead of reading them.
+     *
+     * @param lazyDataSections   true if data sections shall be skipped.
+     */
+    void setLazyDataSections(final boolean lazyDataSections) {
+        this.lazyDataSections = lazyDataSections;
+    }
+
+    /**
+     * Returns true if the parsers may pass ranges of the data stream to the handler instead of copies
+     * (if the data stream is held in memory).
      *
-     * @return the {@link PrinterCommandHandler}.
+     * @return true if ranges of the data stream may be passed to the handler.
+     */
+    boolean isSharedPayloads() {
+        return this.sharedPayloads;
+    }
+
+    /**
+     * Sets if the parsers may pass ranges of the data stream to the handler instead of copies (if the data
+     * stream is held in memory).
+     *
+     * @param sharedPayloads   true if ranges of the data stream may be passed to the handler.
+     */
+    void setSharedPayloads(final boolean sharedPayloads) {
+        this.sharedPayloads = sharedPayloads;
+    }
+
+    /**
+     * Returns the {@link PrinterCommandFilter} that selects the printer commands passed to the handler.
+     *
+     * @return the {@link PrinterCommandFilter} or <code>null</code> if all printer commands are passed.
+     */
+    PrinterCommandFilter getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * Sets the {@link PrinterCommandFilter} that selects the printer commands passed to the handler. The
+     * handler of this {@link PclParserContext} has to apply the filter itself (see {@link FilteringEventHandler}),
+     * the parsers just use it to skip the data of printer commands that are not accepted.
+     *
+     * @param filter   the {@link PrinterCommandFilter} or <code>null</code> if all printer commands are passed.
+     */
+    void setFilter(final PrinterCommandFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the {@link PolylineEncodedDecoder} to which the {@link HpglParser} passes the parameters of
+     * "PE" commands while it reads them.
+     *
+     * @return the {@link PolylineEncodedDecoder} or <code>null</code> if the parameters of "PE" commands are
+     *     passed to the handler like the parameters of all other HP/GL commands.
+     */
+    PolylineEncodedDecoder getPolylineEncodedDecoder() {
+        return this.polylineEncodedDecoder;
+    }
+
+    /**
+     * Sets the {@link PolylineEncodedDecoder} to which the {@link HpglParser} passes the parameters of
+     * "PE" commands while it reads them.
+     *
+     * @param polylineEncodedDecoder   the {@link PolylineEncodedDecoder} or <code>null</code>.
+     */
+    void setPolylineEncodedDecoder(final PolylineEncodedDecoder polylineEncodedDecoder) {
+        this.polylineEncodedDecoder = polylineEncodedDecoder;
+    }
+
+    /**
+     * Requests that the parsers return {@link DataStreamParser#SUSPENDED} after the current printer command
+     * instead of parsing the next one. This is invoked by a handler that wants to pull the printer commands
+     * one after another.
+     */
+    void requestSuspend() {
+        this.suspendRequested = true;
+    }
+
+    /**
+     * Returns true if the parsers shall suspend after the current printer command.
+     *
+     * @return true if a suspension has been requested.
+     */
+    boolean isSuspendRequested() {
+        return this.suspendRequested;
+    }
+
+    /**
+     * Clears a requested suspension, so the parsers can be resumed.
      */
-    PrinterCommandHandler getPrinterCommandHandler() {
-        return this.commandHandler;
+    void clearSuspendRequest() {
+        this.suspendRequested = false;
     }
 }
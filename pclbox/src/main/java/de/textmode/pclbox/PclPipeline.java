@@ -0,0 +1,346 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@link PclPipeline} parses a PCL data stream on the calling thread and passes the printer commands to
+ * handlers that run on threads of their own. So handlers that do expensive work (like compression or I/O) do
+ * not slow down the parser, and the parser does not slow down the handlers.
+ *
+ * <p>The printer commands are passed through a pre-allocated ring buffer with a single producer (the parser):
+ * the parser publishes a printer command by storing it in the next slot and advancing a sequence number, and
+ * every handler follows with a sequence number of its own. No locks are used and no objects are allocated
+ * per printer command. Every handler gets all printer commands in the order of the data stream. The parser
+ * waits if the slowest handler is a whole ring buffer behind, so the number of printer commands held in memory
+ * is bounded (backpressure). How a thread waits for the other side is determined by the {@link WaitStrategy}.
+ *
+ * <p>If a handler fails, parsing is stopped and the exception of the handler is thrown by {@link #parse()}.
+ * The other handlers get the printer commands that have been published before.
+ */
+public final class PclPipeline {
+
+    /**
+     * Determines how the parser and the handlers wait for each other.
+     */
+    public enum WaitStrategy {
+
+        /**
+         * Spins without giving up the CPU. This has the lowest latency but burns a CPU core per waiting thread,
+         * so it should only be used if there are more CPU cores than threads.
+         */
+        BUSY_SPIN,
+
+        /**
+         * Spins for a while and yields the CPU afterwards.
+         */
+        YIELDING,
+
+        /**
+         * Spins for a while, yields the CPU for a while and parks the thread for a short time afterwards. This
+         * uses the least CPU time and is the default.
+         */
+        SLEEPING
+    }
+
+    static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 50000;
+
+    private final PclInputStream input;
+    private final PrinterCommandHandler[] handlers;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+    private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    /**
+     * Constructor that is given the {@link PclInputStream} and the {@link PrinterCommandHandler} objects. Every
+     * {@link PrinterCommandHandler} runs on a thread of its own. The {@link PclInputStream} is not closed by the
+     * {@link PclPipeline}.
+     *
+     * @param input   the {@link PclInputStream} that will be used to read the PCL data stream.
+     * @param handlers   the {@link PrinterCommandHandler} objects that handle the parsed {@link PrinterCommand}.
+     */
+    public PclPipeline(final PclInputStream input, final PrinterCommandHandler... handlers) {
+        if (handlers.length == 0) {
+            throw new IllegalArgumentException("At least one handler is required");
+        }
+
+        this.input = input;
+        this.handlers = handlers.clone();
+    }
+
+    /**
+     * Sets the number of slots of the ring buffer (the maximum number of printer commands the parser may be ahead
+     * of the slowest handler). The default is 4096.
+     *
+     * @param bufferSize   the number of slots, a power of two.
+     */
+    public void setBufferSize(final int bufferSize) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The buffer size must be a power of two");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets the {@link WaitStrategy}. The default is {@link WaitStrategy#SLEEPING}.
+     *
+     * @param waitStrategy   the {@link WaitStrategy}.
+     */
+    public void setWaitStrategy(final WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Sets the {@link ThreadFactory} that creates the threads of the handlers. The default is
+     * {@link Executors#defaultThreadFactory()}.
+     *
+     * @param threadFactory   the {@link ThreadFactory}.
+     */
+    public void setThreadFactory(final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Parses the data stream and waits until all handlers have handled all printer commands.
+     *
+     * @throws IOException if an I/O error occurs or a handler has failed.
+     * @throws PclException if a PCL, PJL or HP/GL2 command if corrupt.
+     */
+    public void parse() throws IOException, PclException {
+        final RingBuffer ring = new RingBuffer(this.bufferSize, this.waitStrategy, this.handlers.length);
+
+        final Thread[] threads = new Thread[this.handlers.length];
+        for (int ix = 0; ix < threads.length; ++ix) {
+            threads[ix] = this.threadFactory.newThread(ring.createConsumer(ix, this.handlers[ix]));
+            threads[ix].start();
+        }
+
+        Throwable failure = null;
+        try {
+            new PclParser(this.input, ring).parse();
+        } catch (final HandlerFailedException e) {
+            // The exception of the handler is thrown below...
+        } catch (final IOException | PclException | RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            ring.end();
+        }
+
+        try {
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the handlers");
+        }
+
+        final Throwable handlerFailure = ring.failure.get();
+        if (failure == null) {
+            failure = handlerFailure;
+        } else if (handlerFailure != null) {
+            failure.addSuppressed(handlerFailure);
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof PclException) {
+            throw (PclException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Thrown to the parser if a handler has failed, so parsing is stopped. The exception carries no stack trace.
+     */
+    private static final class HandlerFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor.
+         */
+        private HandlerFailedException() {
+            super("A handler has failed");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * The ring buffer. The parser invokes it as the {@link PrinterCommandHandler} that publishes the printer
+     * commands.
+     */
+    private static final class RingBuffer implements PrinterCommandHandler {
+
+        private final PrinterCommand[] entries;
+        private final int mask;
+        private final WaitStrategy waitStrategy;
+
+        // The sequence number of the last published printer command and of the last handled one per handler...
+        private final AtomicLong cursor = new AtomicLong(-1);
+        private final AtomicLong[] sequences;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean ended;
+
+        // Used by the parser thread only...
+        private long next = -1;
+        private long gatingSequence = -1;
+
+        /**
+         * Constructor.
+         */
+        RingBuffer(final int size, final WaitStrategy waitStrategy, final int consumers) {
+            this.entries = new PrinterCommand[size];
+            this.mask = size - 1;
+            this.waitStrategy = waitStrategy;
+            this.sequences = new AtomicLong[consumers];
+            for (int ix = 0; ix < consumers; ++ix) {
+                this.sequences[ix] = new AtomicLong(-1);
+            }
+        }
+
+        @Override
+        public void handlePrinterCommand(final PrinterCommand command) {
+            final long sequence = this.next + 1;
+
+            // The slot may only be reused if all handlers have handled the printer command it contains...
+            final long wrapPoint = sequence - this.entries.length;
+            if (wrapPoint > this.gatingSequence) {
+                this.gatingSequence = this.waitForHandlers(wrapPoint);
+            }
+
+            this.entries[(int) sequence & this.mask] = command;
+            this.next = sequence;
+            this.cursor.lazySet(sequence);
+        }
+
+        /**
+         * Waits until all handlers have handled the printer command with the given sequence number.
+         *
+         * @return the sequence number of the last printer command that has been handled by all handlers.
+         */
+        private long waitForHandlers(final long sequence) {
+            int counter = 0;
+            for (;;) {
+                if (this.failure.get() != null) {
+                    throw new HandlerFailedException();
+                }
+
+                long minimum = Long.MAX_VALUE;
+                for (final AtomicLong handled : this.sequences) {
+                    minimum = Math.min(minimum, handled.get());
+                }
+                if (minimum >= sequence) {
+                    return minimum;
+                }
+
+                counter = this.waitFor(counter);
+            }
+        }
+
+        /**
+         * Signals the handlers that no more printer commands will be published.
+         */
+        void end() {
+            this.ended = true;
+        }
+
+        /**
+         * Creates the {@link Runnable} that passes the published printer commands to the given handler.
+         */
+        Runnable createConsumer(final int index, final PrinterCommandHandler handler) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    RingBuffer.this.consume(RingBuffer.this.sequences[index], handler);
+                }
+            };
+        }
+
+        /**
+         * Passes the published printer commands to the given handler until the end has been signaled.
+         */
+        private void consume(final AtomicLong sequence, final PrinterCommandHandler handler) {
+            long next = sequence.get() + 1;
+            int counter = 0;
+
+            try {
+                for (;;) {
+                    final long available = this.cursor.get();
+                    if (available < next) {
+                        // "ended" is set after the last printer command has been published...
+                        if (this.ended && this.cursor.get() < next) {
+                            return;
+                        }
+                        counter = this.waitFor(counter);
+                        continue;
+                    }
+
+                    for (; next <= available; ++next) {
+                        handler.handlePrinterCommand(this.entries[(int) next & this.mask]);
+                    }
+                    sequence.lazySet(available);
+                    counter = 0;
+                }
+            } catch (final IOException | RuntimeException | Error e) {
+                this.failure.compareAndSet(null, e);
+
+                // The failed handler must not stop the parser from publishing (the parser will stop anyway)...
+                sequence.set(Long.MAX_VALUE);
+            }
+        }
+
+        /**
+         * Waits once according to the {@link WaitStrategy}.
+         *
+         * @param counter   the number of times the thread has already waited.
+         *
+         * @return the new number of times the thread has waited.
+         */
+        private int waitFor(final int counter) {
+            if (this.waitStrategy == WaitStrategy.BUSY_SPIN || counter < SPIN_TRIES) {
+                return counter + 1;
+            } else if (this.waitStrategy == WaitStrategy.YIELDING || counter < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+                return counter + 1;
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+                return counter;
+            }
+        }
+    }
+}
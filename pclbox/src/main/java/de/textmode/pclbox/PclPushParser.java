@@ -0,0 +1,340 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@link PclPushParser} parses a PCL data stream that is pushed to it in chunks of bytes, so the caller
+ * never blocks while waiting for the data stream (i. e. a data stream that is received by a selector driven
+ * network server). Every chunk is parsed as far as possible when it is passed to {@link #feed(ByteBuffer)},
+ * and the {@link PrinterCommandHandler} is invoked for every printer command as soon as the printer command
+ * is complete. A printer command that is split between chunks (even a partial escape sequence or a partially
+ * received data section) is reported after the next chunk has completed it. The end of the data stream is
+ * signaled by {@link #endOfInput()}.
+ *
+ * <p>The parsers of PCL, PJL and HP/GL/2 are suspended after every printer command. If a chunk ends within
+ * the next printer command, the parser is rolled back to that suspension and parses the printer command again
+ * when the next chunk has been received. So just the bytes of the incomplete printer command are held in
+ * memory, independently of the size of the data stream. The reported printer commands and errors are exactly
+ * the same as reported by the {@link PclParser}.
+ *
+ * <p>Large printer commands (like long text runs, PJL commands or the parameters of HP/GL/2 commands with
+ * hundreds of thousands of coordinates) may span many chunks. To avoid parsing such a printer command again
+ * for every chunk, the received bytes are first scanned for a byte that may complete it (like the terminator of
+ * a HP/GL/2 command). The printer command is parsed again only if the chunks contain such a byte, so the time
+ * for parsing grows linearly with the size of the printer command.
+ */
+public final class PclPushParser {
+
+    private static final int END_OF_STREAM = -1;
+
+    private final PushedBytes stream = new PushedBytes();
+    private final PrinterCommandHandler commandHandler;
+    private final PclParserContext context;
+    private Pcl5Parser parser;
+    private boolean suspended;
+    private long suspendedOffset;
+    private long reportedOffset = -1;
+
+    // The bytes that may complete the pending printer command (null if any byte may complete it) and the
+    // offset from which on the received bytes have not been scanned for them...
+    private boolean[] pendingTerminators;
+    private long scannedOffset;
+    private boolean handledSinceSuspension;
+    private boolean finished;
+
+    /**
+     * Constructor that is given the {@link PrinterCommandHandler} to be invoked for every parsed printer command.
+     *
+     * @param commandHandler   the {@link PrinterCommandHandler} that handles the parsed {@link PrinterCommand}.
+     */
+    public PclPushParser(final PrinterCommandHandler commandHandler) {
+        this.commandHandler = commandHandler;
+
+        final PrinterCommandHandler handler = new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+                PclPushParser.this.handlePrinterCommand(command);
+            }
+        };
+
+        this.context = new PclParserContext(this.stream, new PrinterCommandHandlerAdapter(handler, this.stream, null));
+        this.parser = new Pcl5Parser(this.context);
+
+        // The parser is also suspended in front of the first printer command, so there is always a suspension
+        // to roll back to...
+        this.context.requestSuspend();
+    }
+
+    /**
+     * Parses the given chunk of the data stream. All remaining bytes of the {@link ByteBuffer} are consumed
+     * (the {@link ByteBuffer} is not referenced after this method has returned, so it may be reused by
+     * the caller).
+     *
+     * @param chunk   the next bytes of the data stream.
+     *
+     * @throws IOException if the {@link PrinterCommandHandler} has failed.
+     * @throws PclException if the data stream is invalid.
+     */
+    public void feed(final ByteBuffer chunk) throws IOException, PclException {
+        this.checkNotFinished();
+        this.stream.append(chunk);
+
+        if (this.pendingTerminators != null) {
+            final long end = this.stream.getEndOffset();
+            final boolean complete = this.stream.contains(this.scannedOffset, end, this.pendingTerminators);
+            this.scannedOffset = end;
+            if (!complete) {
+                return; // the pending printer command is still incomplete...
+            }
+        }
+
+        this.parse();
+    }
+
+    /**
+     * Signals that the end of the data stream has been reached and parses the remaining bytes.
+     *
+     * @throws IOException if the data stream ends within a printer command or the {@link PrinterCommandHandler}
+     *     has failed.
+     * @throws PclException if the data stream is invalid.
+     */
+    public void endOfInput() throws IOException, PclException {
+        this.checkNotFinished();
+        this.stream.end();
+        this.parse();
+    }
+
+    /**
+     * Parses the received bytes up to the end of the last complete printer command. After every printer command
+     * the parser is suspended and its position is remembered (the bytes before this position are no longer needed).
+     */
+    private void parse() throws IOException, PclException {
+        this.pendingTerminators = null;
+        this.handledSinceSuspension = false;
+        try {
+            for (;;) {
+                final int lastReadByte = this.parser.parse();
+                this.context.clearSuspendRequest();
+
+                if (lastReadByte == DataStreamParser.SUSPENDED) {
+                    this.suspended = true;
+                    this.handledSinceSuspension = false;
+                    this.suspendedOffset = this.stream.tell();
+                    this.stream.release(this.suspendedOffset);
+                } else if (lastReadByte == END_OF_STREAM) {
+                    this.finished = true;
+                    return;
+                } else {
+                    throw new PclException(
+                            "The Pcl5Parser unexpectedly returned before the end of the data stream has been reached");
+                }
+            }
+        } catch (final MoreBytesRequiredException e) {
+            // The received bytes end within a printer command, so it is parsed again with the next chunk. If the
+            // handler has requested a suspension, the parser just suspends again where it is rolled back to...
+            if (this.suspended) {
+                this.parser.rollback();
+
+                // If the pending printer command has been completed (and the parser has just run out of bytes
+                // in front of the next one), any byte lets the parser get on...
+                this.pendingTerminators = this.handledSinceSuspension ? null : this.parser.getPendingTerminators();
+                this.scannedOffset = this.stream.getEndOffset();
+            } else {
+                this.parser = new Pcl5Parser(this.context);
+            }
+            this.stream.seek(this.suspendedOffset);
+        } catch (final IOException | PclException | RuntimeException e) {
+            this.finished = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Invokes the {@link PrinterCommandHandler} and requests the suspension of the parser. Printer commands
+     * that are parsed again after a rollback have already been reported (the offsets of the printer commands
+     * are strictly increasing).
+     */
+    private void handlePrinterCommand(final PrinterCommand command) throws IOException {
+        this.handledSinceSuspension = true;
+        if (command.getOffset() > this.reportedOffset) {
+            this.reportedOffset = command.getOffset();
+            this.commandHandler.handlePrinterCommand(command);
+        }
+        this.context.requestSuspend();
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if the data stream has been parsed completely or parsing has failed.
+     */
+    private void checkNotFinished() {
+        if (this.finished) {
+            throw new IllegalStateException(
+                    "The data stream has already been parsed completely (or parsing has failed)");
+        }
+    }
+
+    /**
+     * Thrown by {@link PushedBytes} if the parser wants to read beyond the received bytes (but the end of the data
+     * stream has not been signaled yet). The exception is thrown very often, so there is just one instance and
+     * it carries no stack trace.
+     */
+    private static final class MoreBytesRequiredException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final MoreBytesRequiredException INSTANCE = new MoreBytesRequiredException();
+
+        /**
+         * Constructor.
+         */
+        private MoreBytesRequiredException() {
+            super("More bytes are required");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Implementation of {@link PclInputStream} that holds the received bytes that have not been parsed yet (and
+     * the bytes of the printer command that is currently parsed). Bytes before the offset of the last suspension
+     * of the parser are discarded when more space is needed.
+     */
+    private static final class PushedBytes implements PclInputStream {
+
+        private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private long bufferOffset;
+        private int position;
+        private int count;
+        private int released;
+        private boolean ended;
+
+        /**
+         * Appends the remaining bytes of the given {@link ByteBuffer}.
+         */
+        void append(final ByteBuffer chunk) {
+            final int length = chunk.remaining();
+            if (this.count + length > this.buffer.length && this.released > 0) {
+                System.arraycopy(this.buffer, this.released, this.buffer, 0, this.count - this.released);
+                this.bufferOffset += this.released;
+                this.position -= this.released;
+                this.count -= this.released;
+                this.released = 0;
+            }
+            if (this.count + length > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.count + length));
+            }
+
+            chunk.get(this.buffer, this.count, length);
+            this.count += length;
+        }
+
+        /**
+         * Returns the offset of the end of the received bytes.
+         */
+        long getEndOffset() {
+            return this.bufferOffset + this.count;
+        }
+
+        /**
+         * Returns true if the received bytes between the given offsets contain a byte for which the given table
+         * is true.
+         */
+        boolean contains(final long from, final long to, final boolean[] table) {
+            final byte[] bytes = this.buffer;
+            final int end = (int) (to - this.bufferOffset);
+            for (int ix = (int) Math.max(from - this.bufferOffset, 0); ix < end; ++ix) {
+                if (table[bytes[ix] & 0xFF]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Signals that no more bytes will be appended.
+         */
+        void end() {
+            this.ended = true;
+        }
+
+        /**
+         * Allows to discard the bytes before the given offset.
+         */
+        void release(final long offset) {
+            this.released = (int) Math.min(offset - this.bufferOffset, this.count);
+        }
+
+        @Override
+        public void close() {
+            // Nothing to do...
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.position < this.count) {
+                return this.buffer[this.position++] & 0xFF;
+            } else if (this.ended) {
+                return END_OF_STREAM;
+            } else {
+                throw MoreBytesRequiredException.INSTANCE;
+            }
+        }
+
+        @Override
+        public int read(final byte[] b) throws IOException {
+            return this.read(b, 0, b.length);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int available = Math.max(this.count - this.position, 0);
+            if (available < len && !this.ended) {
+                throw MoreBytesRequiredException.INSTANCE;
+            } else if (available == 0 && len > 0) {
+                return END_OF_STREAM;
+            }
+
+            final int length = Math.min(available, len);
+            System.arraycopy(this.buffer, this.position, b, off, length);
+            this.position += length;
+            return length;
+        }
+
+        @Override
+        public void seek(final long offset) throws IOException {
+            if (offset < this.bufferOffset + this.released) {
+                throw new IOException("The bytes at offset " + offset + " have already been discarded");
+            }
+            this.position = (int) (offset - this.bufferOffset);
+        }
+
+        @Override
+        public long tell() {
+            return this.bufferOffset + this.position;
+        }
+    }
+}
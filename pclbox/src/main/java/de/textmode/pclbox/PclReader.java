@@ -0,0 +1,253 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link PclReader} reads the printer commands of a PCL data stream one after another. Unlike the
+ * {@link PclParser}, which invokes a handler for every printer command, the caller pulls the next printer
+ * command whenever it wants one. The data stream is parsed on demand (without any additional threads), so
+ * just the next one or two printer commands are held in memory, independently of the size of the data
+ * stream. Switches to PJL and HP/GL/2 (and back to PCL) are handled like by the {@link PclParser}.
+ *
+ * <p>The returned {@link PrinterCommand} objects stay valid after the next printer command has been read.
+ */
+public final class PclReader implements AutoCloseable {
+
+    private static final int END_OF_STREAM = -1;
+
+    private final PclInputStream stream;
+    private final boolean closeStream;
+    private final ArrayDeque<PrinterCommand> pending = new ArrayDeque<>();
+    private boolean lazyDataSections;
+    private boolean sharedPayloads;
+    private PrinterCommandFilter filter;
+    private PclParserContext context;
+    private Pcl5Parser parser;
+    private boolean endOfStream;
+
+    /**
+     * Constructor that uses the ready to use {@link PclInputStream} for reading and seeking within
+     * the PCL data stream. Use {@link PclInputStreams} to get a {@link PclInputStream} for files, byte
+     * arrays or any other source of the data stream.
+     *
+     * @param input   the {@link PclInputStream} that will be used to read the PCL data stream.
+     */
+    public PclReader(final PclInputStream input) {
+        this(input, false);
+    }
+
+    /**
+     * Constructor that uses the ready to use {@link PclInputStream} for reading and seeking within
+     * the PCL data stream. Use {@link PclInputStreams} to get a {@link PclInputStream} for files, byte
+     * arrays or any other source of the data stream.
+     *
+     * @param input   the {@link PclInputStream} that will be used to read the PCL data stream.
+     * @param closeStream   true if the {@link PclInputStream} should be closed by the {@link PclReader}.
+     */
+    public PclReader(final PclInputStream input, final boolean closeStream) {
+        this.stream = input;
+        this.closeStream = closeStream;
+    }
+
+    /**
+     * Sets if data sections shall be skipped instead of being read (see {@link PclParser#setLazyDataSections}).
+     * This method must be invoked before the first printer command is read.
+     *
+     * @param lazyDataSections   true if data sections shall be skipped.
+     */
+    public void setLazyDataSections(final boolean lazyDataSections) {
+        this.lazyDataSections = lazyDataSections;
+    }
+
+    /**
+     * Sets if text and data sections may reference the data stream instead of being copied (see
+     * {@link PclParser#setSharedPayloads}). This method must be invoked before the first printer command is read.
+     *
+     * @param sharedPayloads   true if text and data sections may reference the data stream.
+     */
+    public void setSharedPayloads(final boolean sharedPayloads) {
+        this.sharedPayloads = sharedPayloads;
+    }
+
+    /**
+     * Sets the {@link PrinterCommandFilter} that selects the printer commands to be returned (see
+     * {@link PclParser#setFilter}). This method must be invoked before the first printer command is read.
+     *
+     * @param filter   the {@link PrinterCommandFilter} or <code>null</code> if all printer commands are returned.
+     */
+    public void setFilter(final PrinterCommandFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Returns true if the data stream contains another printer command. The data stream is parsed until
+     * the next printer command has been read (or the end of the data stream has been reached).
+     *
+     * @return true if {@link #next()} will return another printer command.
+     *
+     * @throws EOFException if the end of the stream was reached unexpectedly.
+     * @throws IOException if an I/O error occurs.
+     * @throws PclException if a PCL, PJL or HP/GL2 command if corrupt.
+     */
+    public boolean hasNext() throws IOException, PclException {
+        while (this.pending.isEmpty() && !this.endOfStream) {
+            if (this.parser == null) {
+                this.start();
+            }
+
+            // The parser gets suspended by the handler as soon as it has read a printer command. If the
+            // parser fails, there is no way to continue...
+            this.endOfStream = true;
+            this.context.clearSuspendRequest();
+
+            final int lastReadByte = this.parser.parse();
+            if (lastReadByte == DataStreamParser.SUSPENDED) {
+                this.endOfStream = false;
+            } else if (lastReadByte != END_OF_STREAM) {
+                throw new PclException(
+                        "The Pcl5Parser unexpectedly returned before the end of the data stream has been reached");
+            }
+        }
+
+        return !this.pending.isEmpty();
+    }
+
+    /**
+     * Returns the next printer command of the data stream. A {@link NoSuchElementException} is thrown if
+     * the data stream contains no more printer commands.
+     *
+     * @return the next {@link PrinterCommand}.
+     *
+     * @throws EOFException if the end of the stream was reached unexpectedly.
+     * @throws IOException if an I/O error occurs.
+     * @throws PclException if a PCL, PJL or HP/GL2 command if corrupt.
+     */
+    public PrinterCommand next() throws IOException, PclException {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException("The end of the data stream has been reached");
+        }
+
+        return this.pending.poll();
+    }
+
+    /**
+     * Returns an {@link Iterator} over the remaining printer commands. The {@link Iterator} is backed by
+     * this {@link PclReader}, so both share the same position within the data stream. An {@link IOException}
+     * is rethrown as an {@link UncheckedIOException} and a {@link PclException} as an {@link UncheckedPclException}.
+     *
+     * @return an {@link Iterator} over the remaining printer commands.
+     */
+    public Iterator<PrinterCommand> iterator() {
+        return new Iterator<PrinterCommand>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return PclReader.this.hasNext();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (final PclException e) {
+                    throw new UncheckedPclException(e);
+                }
+            }
+
+            @Override
+            public PrinterCommand next() {
+                try {
+                    return PclReader.this.next();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (final PclException e) {
+                    throw new UncheckedPclException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a sequential {@link Stream} of the remaining printer commands (see {@link #iterator()}). The
+     * data stream is parsed while the {@link Stream} is consumed. Closing the {@link Stream} closes
+     * this {@link PclReader}.
+     *
+     * @return a sequential {@link Stream} of the remaining printer commands.
+     */
+    public Stream<PrinterCommand> stream() {
+        final Spliterator<PrinterCommand> spliterator = Spliterators.spliteratorUnknownSize(
+                this.iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PclReader.this.close();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closeStream) {
+            this.stream.close();
+        }
+    }
+
+    /**
+     * Creates the parser. The handler collects the printer commands and suspends the parser after every
+     * printer command.
+     */
+    private void start() {
+        final boolean shared = this.sharedPayloads
+                && this.stream instanceof PclInputWindow
+                && ((PclInputWindow) this.stream).isWindowStable();
+
+        final PrinterCommandHandler handler = new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                PclReader.this.pending.add(command);
+                PclReader.this.context.requestSuspend();
+            }
+        };
+
+        final PrinterCommandEventHandler adapter = new PrinterCommandHandlerAdapter(
+                handler,
+                this.stream,
+                shared ? ((PclInputWindow) this.stream).getWindow().array() : null);
+
+        this.context = new PclParserContext(
+                this.stream,
+                this.filter == null ? adapter : new FilteringEventHandler(adapter, this.filter));
+
+        this.context.setLazyDataSections(this.lazyDataSections);
+        this.context.setSharedPayloads(shared);
+        this.context.setFilter(this.filter);
+        this.parser = new Pcl5Parser(this.context);
+    }
+}
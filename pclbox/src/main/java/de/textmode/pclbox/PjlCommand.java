@@ -19,16 +19,29 @@ package de.textmode.pclbox;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
- * A {@link PjlCommand} describes a PJL command.
+ * A {@link PjlCommand} describes a PJL command. A PJL command has the form
+ * "@PJL command [modifier : value] [option [= value]]..." (like "@PJL SET LPARM : PCL SYMSET = ROMAN8" or
+ * "@PJL JOB NAME = "Report""). The command is split into these parts when one of them is requested for the
+ * first time.
  */
 public final class PjlCommand extends PrinterCommand {
 
     private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
 
+    private static final String PJL_PREFIX = "@PJL";
+
     final String commandString;
 
+    // The parts of the command are built lazily. Note that a racy initialization is harmless because every
+    // thread builds equal (and immutable) parts...
+    private Parts parts;
+
     /**
      * Constructor for the {@link PjlCommand}.
      *
@@ -49,6 +62,61 @@ public final class PjlCommand extends PrinterCommand {
         return this.commandString;
     }
 
+    /**
+     * Returns the command keyword in upper case (like "SET", "JOB" or "ENTER").
+     *
+     * @return the command keyword or an empty string if the PJL command is just "@PJL".
+     */
+    public String getKeyword() {
+        return this.getParts().keyword;
+    }
+
+    /**
+     * Returns the command modifier and its value in upper case, separated by a colon (like "LPARM:PCL").
+     *
+     * @return the command modifier or <code>null</code> if the PJL command has no modifier.
+     */
+    public String getModifier() {
+        return this.getParts().modifier;
+    }
+
+    /**
+     * Returns the options of the PJL command (the variables and their values). The names of the options
+     * are in upper case, values that are enclosed in double quotes are returned without the quotes. An
+     * option without a value (like the option of "@PJL INQUIRE COPIES") has an empty value. The options
+     * of the commands "COMMENT" and "ECHO" are not parsed (they contain arbitrary text).
+     *
+     * @return an unmodifiable {@link Map} of the options (in the order of the PJL command).
+     */
+    public Map<String, String> getVariables() {
+        return this.getParts().variables;
+    }
+
+    /**
+     * Returns the value of an option of the PJL command (see {@link #getVariables()}).
+     *
+     * @param name   the name of the option (in upper case).
+     *
+     * @return the value or <code>null</code> if the PJL command does not contain the option.
+     */
+    public String getVariable(final String name) {
+        return this.getParts().variables.get(name);
+    }
+
+    /**
+     * Returns the parts of the PJL command, which are built when they are requested for the first time.
+     *
+     * @return the parts of the PJL command.
+     */
+    private Parts getParts() {
+        Parts result = this.parts;
+        if (result == null) {
+            result = new Parts(this.commandString);
+            this.parts = result;
+        }
+        return result;
+    }
+
     @Override
     public String getTextualDescription() {
         return "PJL Command";
@@ -81,10 +149,14 @@ public final class PjlCommand extends PrinterCommand {
 
     @Override
     public String toCommandString() {
-        // We currently do not parse the PJL-Commands, so we use a static "command string" for all
-        // PJL commands.... Remember: The primary use of the toCommandString() method is to provide a
-        // "key" for HashMaps....
-        return "PJL";
+        // Remember: The primary use of the toCommandString() method is to provide a "key" for HashMaps....
+        // So the command string is "PJL" followed by the command keyword (like "PJL SET")
+        return this.getParts().commandString;
+    }
+
+    @Override
+    public int getCommandCode() {
+        return PJL_COMMAND_CODE;
     }
 
     @Override
@@ -102,4 +174,114 @@ public final class PjlCommand extends PrinterCommand {
         out.write(this.toByteArray());
     }
 
-}
\ No newline at end of file
+    /**
+     * The parts of a PJL command.
+     */
+    private static final class Parts {
+
+        private static final int END = -1;
+
+        private final String keyword;
+        private final String modifier;
+        private final Map<String, String> variables;
+        private final String commandString;
+
+        private final String command;
+        private int position;
+
+        /**
+         * Constructor that splits the given PJL command into its parts.
+         *
+         * @param command   the complete PJL command including the "@PJL" prefix.
+         */
+        Parts(final String command) {
+            this.command = command;
+            this.position = command.startsWith(PJL_PREFIX) ? PJL_PREFIX.length() : 0;
+
+            this.keyword = this.nextName();
+            this.commandString = this.keyword.isEmpty() ? "PJL" : "PJL " + this.keyword;
+
+            if (this.keyword.equals("COMMENT") || this.keyword.equals("ECHO")) {
+                this.modifier = null;
+                this.variables = Collections.emptyMap();
+                return;
+            }
+
+            // A modifier is a name followed by a colon and a value...
+            final int start = this.position;
+            final String name = this.nextName();
+            if (!name.isEmpty() && this.next() == ':') {
+                ++this.position;
+                this.modifier = name + ":" + this.nextName();
+            } else {
+                this.position = start;
+                this.modifier = null;
+            }
+
+            final Map<String, String> result = new LinkedHashMap<>();
+            while (this.next() != END) {
+                final String option = this.nextName();
+                if (option.isEmpty()) {
+                    ++this.position; // skip an unexpected character...
+                } else if (this.next() == '=') {
+                    ++this.position;
+                    result.put(option, this.nextValue());
+                } else {
+                    result.put(option, "");
+                }
+            }
+            this.variables = Collections.unmodifiableMap(result);
+        }
+
+        /**
+         * Skips white space and returns the next character (without consuming it).
+         *
+         * @return the next character or {@link #END}.
+         */
+        private int next() {
+            while (this.position < this.command.length() && this.command.charAt(this.position) <= ' ') {
+                ++this.position;
+            }
+            return this.position < this.command.length() ? this.command.charAt(this.position) : END;
+        }
+
+        /**
+         * Reads the next name (a keyword, modifier or option), which ends at white space, "=", ":" or a double
+         * quote.
+         *
+         * @return the name in upper case or an empty string if there is no name.
+         */
+        private String nextName() {
+            this.next();
+            final int start = this.position;
+            while (this.position < this.command.length()) {
+                final char character = this.command.charAt(this.position);
+                if (character <= ' ' || character == '=' || character == ':' || character == '"') {
+                    break;
+                }
+                ++this.position;
+            }
+            return this.command.substring(start, this.position).toUpperCase(Locale.ROOT);
+        }
+
+        /**
+         * Reads the next value, which is either enclosed in double quotes or ends at white space.
+         *
+         * @return the value (without the double quotes).
+         */
+        private String nextValue() {
+            if (this.next() == '"') {
+                final int start = this.position + 1;
+                final int end = this.command.indexOf('"', start);
+                this.position = end < 0 ? this.command.length() : end + 1;
+                return this.command.substring(start, end < 0 ? this.command.length() : end);
+            }
+
+            final int start = this.position;
+            while (this.position < this.command.length() && this.command.charAt(this.position) > ' ') {
+                ++this.position;
+            }
+            return this.command.substring(start, this.position);
+        }
+    }
+}
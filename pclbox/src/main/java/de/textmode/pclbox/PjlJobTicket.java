@@ -0,0 +1,260 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link PjlJobTicket} contains the PJL commands at the beginning of a print job (the "PJL header") and
+ * provides the job ticket of the print job (the job name, user name, number of copies, duplex mode and the
+ * printer language of the job). The PJL header is read by {@link #read(PclInputStream)}, which stops at the
+ * first byte that does not belong to a PJL command (or after the "ENTER LANGUAGE" command), so the job ticket
+ * of a print job is available without parsing the whole (and maybe very large) data stream.
+ *
+ * <p>An optional "Universal Exit Language" command (ESC%-12345X) in front of the PJL commands is skipped.
+ */
+public final class PjlJobTicket {
+
+    private static final int END_OF_STREAM = -1;
+    private static final int CARRIAGE_RETURN = 0x0D;
+    private static final int LINE_FEED = 0x0A;
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private static final String PJL_PREFIX = "@PJL";
+    private static final String UNIVERSAL_EXIT_LANGUAGE = "\u001B%-12345X";
+
+    private final List<PjlCommand> commands;
+    private final long headerLength;
+    private String jobName;
+    private String userName;
+    private int copies = -1;
+    private String duplex;
+    private String language;
+
+    /**
+     * Constructor that builds the job ticket from the given PJL commands.
+     *
+     * @param commands   the PJL commands of the PJL header.
+     * @param headerLength   the length of the PJL header.
+     */
+    private PjlJobTicket(final List<PjlCommand> commands, final long headerLength) {
+        this.commands = Collections.unmodifiableList(commands);
+        this.headerLength = headerLength;
+
+        for (final PjlCommand command : commands) {
+            final String keyword = command.getKeyword();
+            if (keyword.equals("JOB")) {
+                this.jobName = valueOf(command, "NAME", this.jobName);
+            } else if (keyword.equals("ENTER")) {
+                this.language = valueOf(command, "LANGUAGE", this.language);
+            } else if (keyword.equals("SET") && command.getModifier() == null) {
+                // Settings for a specific printer language (like "@PJL SET LPARM:PCL ...") are ignored...
+                this.userName = valueOf(command, "USERNAME", this.userName);
+                this.duplex = valueOf(command, "DUPLEX", this.duplex);
+                this.copies = copiesOf(command, "COPIES", copiesOf(command, "QTY", this.copies));
+            }
+        }
+    }
+
+    /**
+     * Reads the PJL header from the current position of the given {@link PclInputStream}. The reading stops
+     * at the first byte that does not belong to a PJL command or after the "ENTER LANGUAGE" command. Note
+     * that the first byte that does not belong to a PJL command has been read from the {@link PclInputStream}
+     * when this method returns (use {@link #getHeaderLength()} to seek to the end of the PJL header). A PJL
+     * command that is not terminated by a line feed is not part of the PJL header.
+     *
+     * @param input   the {@link PclInputStream} to read from.
+     *
+     * @return the {@link PjlJobTicket} (which contains no PJL commands if the data stream has no PJL header).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static PjlJobTicket read(final PclInputStream input) throws IOException {
+        final List<PjlCommand> commands = new ArrayList<>();
+        final StringBuilder sb = new StringBuilder();
+        final long start = input.tell();
+
+        long offset = start;
+        int readByte = input.read();
+
+        // Skip the "Universal Exit Language" command if the data stream starts with it...
+        if (readByte == UNIVERSAL_EXIT_LANGUAGE.charAt(0)) {
+            int ix = 1;
+            while (ix < UNIVERSAL_EXIT_LANGUAGE.length() && input.read() == UNIVERSAL_EXIT_LANGUAGE.charAt(ix)) {
+                ++ix;
+            }
+            if (ix < UNIVERSAL_EXIT_LANGUAGE.length()) {
+                return new PjlJobTicket(commands, 0);
+            }
+
+            offset = input.tell();
+            readByte = input.read();
+        }
+
+        while (readByte != END_OF_STREAM) {
+            // The line must start with "@PJL" - we check this byte by byte, so the reading stops as soon as
+            // the language data (that follows the PJL header) has been reached...
+            final int length = sb.length();
+            if (length < PJL_PREFIX.length() ? readByte != PJL_PREFIX.charAt(length) : length >= MAX_LINE_LENGTH) {
+                break;
+            }
+
+            if (readByte == LINE_FEED) {
+                final PjlCommand command = new PjlCommand(offset, sb.toString().trim());
+                commands.add(command);
+                sb.setLength(0);
+                offset = input.tell();
+
+                if (command.getKeyword().equals("ENTER")) {
+                    break;
+                }
+            } else if (readByte != CARRIAGE_RETURN) {
+                sb.append((char) readByte);
+            }
+
+            readByte = input.read();
+        }
+
+        return new PjlJobTicket(commands, offset - start);
+    }
+
+    /**
+     * Reads the PJL header of the given file (see {@link #read(PclInputStream)}).
+     *
+     * @param file   the file to read from.
+     *
+     * @return the {@link PjlJobTicket} (which contains no PJL commands if the file has no PJL header).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static PjlJobTicket read(final File file) throws IOException {
+        final PclInputStream input = PclInputStreams.forFile(file);
+        try {
+            return read(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Returns the PJL commands of the PJL header.
+     *
+     * @return an unmodifiable {@link List} of the PJL commands.
+     */
+    public List<PjlCommand> getCommands() {
+        return this.commands;
+    }
+
+    /**
+     * Returns the length of the PJL header (including a leading "Universal Exit Language" command). The
+     * length is measured from the position of the {@link PclInputStream} when the reading has been started.
+     *
+     * @return the length of the PJL header or 0 if the data stream has no PJL header.
+     */
+    public long getHeaderLength() {
+        return this.headerLength;
+    }
+
+    /**
+     * Returns the name of the job ("@PJL JOB NAME = ...").
+     *
+     * @return the name of the job or <code>null</code> if the PJL header does not contain a job name.
+     */
+    public String getJobName() {
+        return this.jobName;
+    }
+
+    /**
+     * Returns the name of the user ("@PJL SET USERNAME = ...").
+     *
+     * @return the name of the user or <code>null</code> if the PJL header does not contain a user name.
+     */
+    public String getUserName() {
+        return this.userName;
+    }
+
+    /**
+     * Returns the number of copies ("@PJL SET COPIES = ..." or "@PJL SET QTY = ...").
+     *
+     * @return the number of copies or -1 if the PJL header does not contain a (valid) number of copies.
+     */
+    public int getCopies() {
+        return this.copies;
+    }
+
+    /**
+     * Returns the duplex mode ("@PJL SET DUPLEX = ...", which is "ON" or "OFF").
+     *
+     * @return the duplex mode or <code>null</code> if the PJL header does not contain the duplex mode.
+     */
+    public String getDuplex() {
+        return this.duplex;
+    }
+
+    /**
+     * Returns the printer language of the job ("@PJL ENTER LANGUAGE = ...", like "PCL" or "POSTSCRIPT").
+     *
+     * @return the printer language or <code>null</code> if the PJL header does not contain an "ENTER LANGUAGE"
+     *     command.
+     */
+    public String getLanguage() {
+        return this.language;
+    }
+
+    /**
+     * Returns the value of an option of the given PJL command. If the PJL command sets an option more than
+     * once, the last value wins (like it does on the printer).
+     *
+     * @param command   the PJL command.
+     * @param name   the name of the option.
+     * @param defaultValue   the value that is returned if the PJL command does not contain the option.
+     *
+     * @return the value of the option or the given default value.
+     */
+    private static String valueOf(final PjlCommand command, final String name, final String defaultValue) {
+        final String value = command.getVariable(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the number of copies that is set by an option of the given PJL command.
+     *
+     * @param command   the PJL command.
+     * @param name   the name of the option.
+     * @param defaultValue   the value that is returned if the PJL command does not contain a valid number.
+     *
+     * @return the number of copies or the given default value.
+     */
+    private static int copiesOf(final PjlCommand command, final String name, final int defaultValue) {
+        final String value = command.getVariable(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            final int result = Integer.parseInt(value);
+            return result > 0 ? result : defaultValue;
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -31,6 +31,16 @@ final class PjlParser extends DataStreamParser {
     private static final int LINE_FEED = 0x0A;
 
     private static final String PJL_PREFIX = "@PJL";
+    private static final int INITIAL_LINE_BUFFER_SIZE = 128;
+
+    // A PJL command is completed by the line feed (or ended by an escape byte)...
+    private static final boolean[] PENDING_TERMINATORS = createTerminators(LINE_FEED, ESCAPE);
+
+    private final CharArraySequence line = new CharArraySequence(INITIAL_LINE_BUFFER_SIZE);
+
+    // The byte that has already been read when the parser has been suspended...
+    private boolean suspended;
+    private int suspendedByte;
 
     /**
      * Constructor. Just gets the {@link PclParserContext}.
@@ -43,13 +53,29 @@ final class PjlParser extends DataStreamParser {
 
     @Override
     public int parse() throws IOException, PclException {
-        final StringBuilder sb = new StringBuilder();
+        final CharArraySequence sb = this.line;
 
-        long offset = this.getInputStream().tell();
-        int readByte = this.getInputStream().read();
+        long offset;
+        int readByte;
+        if (this.suspended) {
+            offset = this.getInputStream().tell() - 1;
+            readByte = this.suspendedByte;
+            this.suspended = false;
+        } else {
+            offset = this.getInputStream().tell();
+            readByte = this.getInputStream().read();
+        }
 
         while (readByte != END_OF_STREAM && readByte != ESCAPE) {
 
+            // The parser is only suspended in front of another PJL command - an escape byte (or the end of
+            // the stream) always returns to PCL...
+            if (sb.length() == 0 && this.getContext().isSuspendRequested()) {
+                this.suspended = true;
+                this.suspendedByte = readByte;
+                return SUSPENDED;
+            }
+
             // we check the first byte to be sure that we start parsing a PJL command...
             if (sb.length() == 0 && readByte != '@') {
                 throw new PclException("No PJL command is found at offset " + offset);
@@ -58,9 +84,9 @@ final class PjlParser extends DataStreamParser {
             // The carriage return is optional and stripped...
             if (readByte != CARRIAGE_RETURN) {
                 if (readByte == LINE_FEED) {
-                    this.invokeHandler(offset, sb.toString());
+                    this.invokeHandler(offset, sb);
                     offset = this.getInputStream().tell();
-                    sb.setLength(0);
+                    sb.clear();
                 } else {
                     sb.append((char) readByte);
                 }
@@ -77,16 +103,28 @@ final class PjlParser extends DataStreamParser {
         return readByte;
     }
 
+    @Override
+    void rollback() {
+        this.suspended = true;
+        this.line.clear();
+    }
+
+    @Override
+    boolean[] getPendingTerminators() {
+        return this.suspended && this.suspendedByte == '@' ? PENDING_TERMINATORS : null;
+    }
+
     /**
-     * Invokes the {@link PrinterCommandHandler}.
+     * Invokes the {@link PrinterCommandEventHandler}.
      *
      * @param offset   the start offset of the PJL command
-     * @param command   the PJL command including the prefix "@PJL"
+     * @param command   the PJL command including the prefix "@PJL" (gets trimmed)
      */
-    private void invokeHandler(final long offset, final String command) throws PclException, IOException {
+    private void invokeHandler(final long offset, final CharArraySequence command) throws PclException, IOException {
         // TODO Check for "ENTER LANGUAGE" command - if not "PCL", then throw an exception!
         if (command.startsWith(PJL_PREFIX)) {
-            this.getPrinterCommandHandler().handlePrinterCommand(new PjlCommand(offset, command.trim()));
+            command.trim();
+            this.getEventHandler().handlePjlCommand(offset, command);
         } else {
             throw new PclException("No PJL command is found at offset " + offset);
         }
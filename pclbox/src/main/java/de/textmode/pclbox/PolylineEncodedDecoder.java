@@ -0,0 +1,298 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * The {@link PolylineEncodedDecoder} decodes the parameters of HP/GL-2 "PE" (Polyline Encoded) commands and
+ * passes the coordinates in chunks to a {@link PolylineEncodedHandler}. The parameters may be passed to the
+ * decoder in pieces of any size (so the {@link HpglParser} passes them while it reads them, see
+ * {@link PclParser#setPolylineEncodedHandler(PolylineEncodedHandler)}).
+ *
+ * <p>Every number is encoded as a sequence of base 64 digits (or base 32 digits after the "7" flag), starting
+ * with the least significant digit. All digits but the last one are in the range 63 to 126 (63 to 94), the
+ * last digit is in the range 191 to 254 (95 to 126). The least significant bit of the number is its sign.
+ * Other characters are either flags (":" selects a pen, "&lt;" lifts the pen for the next coordinate pair,
+ * "=" makes the next coordinate pair absolute, "&gt;" sets the number of fractional bits of the following
+ * coordinates) or ignored.
+ */
+public final class PolylineEncodedDecoder {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final int FLAG_PEN_SELECT = ':';
+    private static final int FLAG_PEN_UP = '<';
+    private static final int FLAG_ABSOLUTE = '=';
+    private static final int FLAG_FRACTIONAL_BINARY = '>';
+    private static final int FLAG_SEVEN_BIT_MODE = '7';
+
+    private static final int DIGIT_MIN = 63;
+    private static final int BASE_64_DIGIT_MAX = 126;
+    private static final int BASE_64_LAST_DIGIT_MIN = 191;
+    private static final int BASE_64_LAST_DIGIT_MAX = 254;
+    private static final int BASE_32_DIGIT_MAX = 94;
+    private static final int BASE_32_LAST_DIGIT_MIN = 95;
+    private static final int BASE_32_LAST_DIGIT_MAX = 126;
+
+    private static final int MAX_SHIFT = 63;
+
+    // Meaning of the next decoded number...
+    private static final int COORDINATE = 0;
+    private static final int PEN_NUMBER = 1;
+    private static final int FRACTIONAL_BITS = 2;
+
+    private final PolylineEncodedHandler handler;
+    private final double[] coordinates;
+    private final int[] flags;
+    private int count;
+
+    private long offset;
+    private boolean sevenBitMode;
+    private double scale;
+    private int expected;
+    private int pairFlags;
+    private boolean haveX;
+    private double pendingX;
+    private long value;
+    private int shift;
+
+    /**
+     * Constructor that is given the {@link PolylineEncodedHandler}. The coordinates are passed in chunks
+     * of up to 1024 coordinate pairs.
+     *
+     * @param handler   the {@link PolylineEncodedHandler} that receives the decoded coordinates.
+     */
+    public PolylineEncodedDecoder(final PolylineEncodedHandler handler) {
+        this(handler, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor that is given the {@link PolylineEncodedHandler} and the size of the chunks.
+     *
+     * @param handler   the {@link PolylineEncodedHandler} that receives the decoded coordinates.
+     * @param chunkSize   the maximum number of coordinate pairs that are passed to the handler at once.
+     */
+    public PolylineEncodedDecoder(final PolylineEncodedHandler handler, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero");
+        }
+
+        this.handler = handler;
+        this.coordinates = new double[chunkSize * 2];
+        this.flags = new int[chunkSize];
+        this.start(0);
+    }
+
+    /**
+     * Starts decoding the parameters of a "PE" command. The state of a previous command is discarded (the
+     * decoder is reset to base 64 encoding, no fractional bits and relative coordinates).
+     *
+     * @param commandOffset   offset of the "PE" command, measured from the beginning of the read data stream.
+     */
+    public void start(final long commandOffset) {
+        this.count = 0;
+        this.offset = commandOffset;
+        this.sevenBitMode = false;
+        this.scale = 1.0;
+        this.expected = COORDINATE;
+        this.pairFlags = 0;
+        this.haveX = false;
+        this.value = 0;
+        this.shift = 0;
+    }
+
+    /**
+     * Decodes the parameters of a complete "PE" command.
+     *
+     * @param command   the "PE" command.
+     *
+     * @throws IOException if the handler fails.
+     */
+    public void decode(final HpglCommand command) throws IOException {
+        this.start(command.getOffset());
+        this.decode(command.getParameters());
+        this.end();
+    }
+
+    /**
+     * Decodes a part of the parameters of the "PE" command.
+     *
+     * @param buffer   the array that contains the parameters.
+     * @param start   the index of the first byte within the array.
+     * @param length   the number of bytes.
+     *
+     * @throws IOException if the handler fails.
+     */
+    public void decode(final byte[] buffer, final int start, final int length) throws IOException {
+        final int end = start + length;
+        for (int ix = start; ix < end; ++ix) {
+            this.decode(buffer[ix] & 0xFF);
+        }
+    }
+
+    /**
+     * Decodes a part of the parameters of the "PE" command (one character for every byte).
+     *
+     * @param parameters   the parameters.
+     *
+     * @throws IOException if the handler fails.
+     */
+    public void decode(final CharSequence parameters) throws IOException {
+        final int length = parameters.length();
+        for (int ix = 0; ix < length; ++ix) {
+            this.decode(parameters.charAt(ix) & 0xFF);
+        }
+    }
+
+    /**
+     * Decodes the next byte of the parameters of the "PE" command.
+     *
+     * @param character   the byte (0 to 255).
+     *
+     * @throws IOException if the handler fails.
+     */
+    public void decode(final int character) throws IOException {
+        if (this.sevenBitMode) {
+            if (character >= DIGIT_MIN && character <= BASE_32_DIGIT_MAX) {
+                this.addDigit(character - DIGIT_MIN, 5);
+            } else if (character >= BASE_32_LAST_DIGIT_MIN && character <= BASE_32_LAST_DIGIT_MAX) {
+                this.addDigit(character - BASE_32_LAST_DIGIT_MIN, 5);
+                this.handleNumber();
+            } else {
+                this.handleFlag(character);
+            }
+        } else {
+            if (character >= DIGIT_MIN && character <= BASE_64_DIGIT_MAX) {
+                this.addDigit(character - DIGIT_MIN, 6);
+            } else if (character >= BASE_64_LAST_DIGIT_MIN && character <= BASE_64_LAST_DIGIT_MAX) {
+                this.addDigit(character - BASE_64_LAST_DIGIT_MIN, 6);
+                this.handleNumber();
+            } else {
+                this.handleFlag(character);
+            }
+        }
+    }
+
+    /**
+     * Ends decoding the parameters of the "PE" command and passes the remaining coordinates to the handler.
+     * An incomplete number or coordinate pair at the end of the parameters is ignored.
+     *
+     * @throws IOException if the handler fails.
+     */
+    public void end() throws IOException {
+        this.flush();
+        this.haveX = false;
+        this.value = 0;
+        this.shift = 0;
+    }
+
+    /**
+     * Adds a digit to the current number. Digits beyond the range of a long are ignored.
+     */
+    private void addDigit(final long digit, final int bits) {
+        if (this.shift < MAX_SHIFT) {
+            this.value |= digit << this.shift;
+            this.shift += bits;
+        }
+    }
+
+    /**
+     * Handles a complete number (the last digit has been added).
+     */
+    private void handleNumber() throws IOException {
+        final long encoded = this.value;
+        final long number = (encoded & 1) == 0 ? encoded >>> 1 : -(encoded >>> 1);
+        this.value = 0;
+        this.shift = 0;
+
+        switch (this.expected) {
+        case PEN_NUMBER:
+            this.flush();
+            this.handler.handlePenSelect(this.offset, (int) number);
+            break;
+
+        case FRACTIONAL_BITS:
+            this.scale = Math.scalb(1.0, (int) -number);
+            break;
+
+        default:
+            if (this.haveX) {
+                this.addPair(this.pendingX, number * this.scale);
+            } else {
+                this.pendingX = number * this.scale;
+                this.haveX = true;
+            }
+            break;
+        }
+
+        this.expected = COORDINATE;
+    }
+
+    /**
+     * Handles a character that is no digit.
+     */
+    private void handleFlag(final int character) {
+        switch (character) {
+        case FLAG_PEN_SELECT:
+            this.expected = PEN_NUMBER;
+            break;
+        case FLAG_PEN_UP:
+            this.pairFlags |= PolylineEncodedHandler.PEN_UP;
+            break;
+        case FLAG_ABSOLUTE:
+            this.pairFlags |= PolylineEncodedHandler.ABSOLUTE;
+            break;
+        case FLAG_FRACTIONAL_BINARY:
+            this.expected = FRACTIONAL_BITS;
+            break;
+        case FLAG_SEVEN_BIT_MODE:
+            this.sevenBitMode = true;
+            break;
+        default:
+            // Other characters (like spaces or line breaks) are ignored...
+            break;
+        }
+    }
+
+    /**
+     * Adds a coordinate pair to the current chunk and passes the chunk to the handler if it is full.
+     */
+    private void addPair(final double pairX, final double pairY) throws IOException {
+        this.coordinates[this.count * 2] = pairX;
+        this.coordinates[this.count * 2 + 1] = pairY;
+        this.flags[this.count] = this.pairFlags;
+        this.pairFlags = 0;
+        this.haveX = false;
+
+        if (++this.count == this.flags.length) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Passes the current chunk to the handler (if it is not empty).
+     */
+    private void flush() throws IOException {
+        if (this.count > 0) {
+            final int chunk = this.count;
+            this.count = 0;
+            this.handler.handleCoordinates(this.offset, this.coordinates, this.flags, chunk);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * A {@link PolylineEncodedHandler} receives the coordinates of HP/GL-2 "PE" (Polyline Encoded) commands,
+ * decoded by a {@link PolylineEncodedDecoder}. The coordinates are passed in chunks of a limited size, so
+ * even a "PE" command with millions of coordinates is decoded with bounded memory.
+ */
+public interface PolylineEncodedHandler {
+
+    /**
+     * Flag of a coordinate pair that is moved to with the pen up (the "&lt;" flag of the "PE" command).
+     */
+    int PEN_UP = 1;
+
+    /**
+     * Flag of a coordinate pair that is absolute (the "=" flag of the "PE" command). Coordinate pairs without
+     * this flag are relative to the previous pen location.
+     */
+    int ABSOLUTE = 2;
+
+    /**
+     * Handles a chunk of decoded coordinate pairs. The arrays are reused by the {@link PolylineEncodedDecoder},
+     * so they are only valid during this callback.
+     *
+     * @param offset   offset of the "PE" command, measured from the beginning of the read data stream.
+     * @param coordinates   the coordinate pairs (x at even and y at odd indices), in plotter units.
+     * @param flags   the flags of the coordinate pairs (a combination of {@link #PEN_UP} and {@link #ABSOLUTE}).
+     * @param count   the number of coordinate pairs.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleCoordinates(final long offset, final double[] coordinates, final int[] flags, final int count)
+            throws IOException;
+
+    /**
+     * Handles the selection of a pen (the ":" flag of the "PE" command). All coordinate pairs that precede
+     * the selection have been passed to {@link #handleCoordinates} before.
+     *
+     * @param offset   offset of the "PE" command, measured from the beginning of the read data stream.
+     * @param pen   the number of the selected pen.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handlePenSelect(final long offset, final int pen) throws IOException;
+}
@@ -0,0 +1,375 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Implementation of {@link PclInputStream} that reads ahead from another {@link PclInputStream}
+ * on a background thread. While the parser works on one buffer, the background thread already
+ * fills the next buffers, so slow reads (i. e. from network mounted storage) overlap with the
+ * parsing.
+ *
+ * <p>The number of buffers that are read ahead is called the depth. With a depth of one this is
+ * classic double buffering. A {@link #seek(long)} to an offset within the current buffer is just
+ * an adjustment of the read position. Any other {@link #seek(long)} invalidates the buffers that
+ * have been read ahead and lets the background thread continue at the new offset.
+ *
+ * <p>The underlying {@link PclInputStream} is only accessed by the background thread (except
+ * for the initial {@link PclInputStream#tell()} and the final {@link PclInputStream#close()}).
+ */
+final class PrefetchingPclInputStream implements PclInputStream {
+
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    static final int DEFAULT_DEPTH = 2;
+
+    private static final int END_OF_STREAM = -1;
+
+    private final PclInputStream input;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final Thread worker;
+
+    // The following fields are shared with the background thread and guarded by "lock".
+    private final Object lock = new Object();
+    private int generation;
+    private long requestedOffset;
+    private boolean seekRequested;
+    private boolean stopped;
+    private boolean closed;
+
+    // The following fields are only used by the thread that reads from this stream.
+    private int expectedGeneration;
+    private Chunk current;
+    private long currentOffset;
+    private int position;
+    private boolean endOfStream;
+
+    /**
+     * Constructor that is given the underlying {@link PclInputStream}, the size of a buffer
+     * and the number of buffers that are read ahead. The background thread is started immediately.
+     *
+     * @param input   the underlying {@link PclInputStream}.
+     * @param bufferSize   the size of a single buffer in bytes.
+     * @param depth   the number of buffers that are read ahead.
+     *
+     * @throws IOException if the current position of the underlying stream can not be determined.
+     */
+    PrefetchingPclInputStream(final PclInputStream input, final int bufferSize, final int depth)
+            throws IOException {
+
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be greater than zero");
+        }
+
+        if (depth <= 0) {
+            throw new IllegalArgumentException("The depth must be greater than zero");
+        }
+
+        this.input = input;
+        this.filledChunks = new ArrayBlockingQueue<>(depth + 1);
+        this.freeBuffers = new ArrayBlockingQueue<>(depth + 1);
+
+        // One buffer more than the depth - that is the one the parser is currently working on...
+        for (int ix = 0; ix <= depth; ++ix) {
+            this.freeBuffers.add(new byte[bufferSize]);
+        }
+
+        this.currentOffset = input.tell();
+
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                PrefetchingPclInputStream.this.prefetch();
+            }
+        }, "pclbox-prefetch");
+
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.lock.notifyAll();
+        }
+
+        this.worker.interrupt();
+        try {
+            this.worker.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.input.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((this.current == null || this.position >= this.current.length) && !this.nextChunk()) {
+            return END_OF_STREAM;
+        }
+
+        return this.current.data[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        while (total < len) {
+            if ((this.current == null || this.position >= this.current.length) && !this.nextChunk()) {
+                break;
+            }
+
+            final int chunk = Math.min(this.current.length - this.position, len - total);
+            System.arraycopy(this.current.data, this.position, b, off + total, chunk);
+            this.position += chunk;
+            total += chunk;
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (this.current != null
+                && offset >= this.currentOffset
+                && offset <= this.currentOffset + this.current.length) {
+            this.position = (int) (offset - this.currentOffset);
+            return;
+        }
+
+        synchronized (this.lock) {
+            ++this.generation;
+            this.requestedOffset = offset;
+            this.seekRequested = true;
+            this.expectedGeneration = this.generation;
+            this.lock.notifyAll();
+        }
+
+        // Everything that has been read ahead so far is recognized by its generation and
+        // thrown away when the next chunk is fetched...
+        this.releaseCurrentChunk();
+
+        this.currentOffset = offset;
+        this.position = 0;
+        this.endOfStream = false;
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.currentOffset + this.position;
+    }
+
+    /**
+     * Switches to the next chunk that has been read ahead by the background thread.
+     *
+     * @return false if the end of the stream has been reached.
+     */
+    private boolean nextChunk() throws IOException {
+        if (this.endOfStream) {
+            return false;
+        }
+
+        final long offset = this.tell();
+        this.releaseCurrentChunk();
+        this.currentOffset = offset;
+        this.position = 0;
+
+        while (true) {
+            final Chunk chunk;
+            try {
+                chunk = this.filledChunks.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for data");
+            }
+
+            if (chunk.generation != this.expectedGeneration) {
+                this.release(chunk);
+            } else if (chunk.error != null) {
+                this.endOfStream = true;
+                throw new IOException(chunk.error.getMessage(), chunk.error);
+            } else if (chunk.length == END_OF_STREAM) {
+                this.endOfStream = true;
+                return false;
+            } else {
+                this.current = chunk;
+                this.currentOffset = chunk.offset;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives the buffer of the current chunk back to the background thread.
+     */
+    private void releaseCurrentChunk() {
+        if (this.current != null) {
+            this.currentOffset += this.position;
+            this.position = 0;
+            this.release(this.current);
+            this.current = null;
+        }
+    }
+
+    /**
+     * Gives the buffer of the given chunk back to the background thread.
+     *
+     * @param chunk   the {@link Chunk} that is not needed anymore.
+     */
+    private void release(final Chunk chunk) {
+        if (chunk.data != null) {
+            this.freeBuffers.add(chunk.data);
+        }
+    }
+
+    /**
+     * The main loop of the background thread.
+     */
+    private void prefetch() {
+        int currentGeneration = 0;
+        long offset = this.currentOffset;
+
+        try {
+            while (true) {
+                boolean seekRequired = false;
+
+                synchronized (this.lock) {
+                    while (!this.closed && this.stopped && !this.seekRequested) {
+                        this.lock.wait();
+                    }
+
+                    if (this.closed) {
+                        return;
+                    }
+
+                    if (this.seekRequested) {
+                        this.seekRequested = false;
+                        this.stopped = false;
+                        currentGeneration = this.generation;
+                        offset = this.requestedOffset;
+                        seekRequired = true;
+                    }
+                }
+
+                final byte[] buffer = this.freeBuffers.take();
+
+                int length;
+                try {
+                    if (seekRequired) {
+                        this.input.seek(offset);
+                    }
+                    length = this.readFully(buffer);
+                } catch (final IOException e) {
+                    this.freeBuffers.add(buffer);
+                    this.stop();
+                    this.filledChunks.put(new Chunk(currentGeneration, offset, null, 0, e));
+                    continue;
+                }
+
+                if (length == END_OF_STREAM) {
+                    this.freeBuffers.add(buffer);
+                    this.stop();
+                    this.filledChunks.put(new Chunk(currentGeneration, offset, null, END_OF_STREAM, null));
+                } else {
+                    this.filledChunks.put(new Chunk(currentGeneration, offset, buffer, length, null));
+                    offset += length;
+                }
+            }
+        } catch (final InterruptedException e) {
+            // The stream has been closed...
+            return;
+        }
+    }
+
+    /**
+     * Lets the background thread wait until the next seek (or close) after the end of the stream
+     * has been reached or an error occurred.
+     */
+    private void stop() {
+        synchronized (this.lock) {
+            this.stopped = true;
+        }
+    }
+
+    /**
+     * Fills the given buffer from the underlying {@link PclInputStream}.
+     *
+     * @param buffer   the buffer to be filled.
+     *
+     * @return the number of bytes read or -1 if the end of the stream has been reached.
+     */
+    private int readFully(final byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            final int read = this.input.read(buffer, total, buffer.length - total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    /**
+     * A chunk of data that has been read ahead by the background thread.
+     */
+    private static final class Chunk {
+
+        private final int generation;
+        private final long offset;
+        private final byte[] data;
+        private final int length;
+        private final IOException error;
+
+        /**
+         * Constructor of a {@link Chunk}.
+         *
+         * @param generation   the generation (incremented with every seek) the chunk belongs to.
+         * @param offset   the offset of the first byte of the chunk.
+         * @param data   the buffer that holds the data (may be null for an error or the end of the stream).
+         * @param length   the number of valid bytes in the buffer or -1 for the end of the stream.
+         * @param error   the {@link IOException} that occurred while reading or null.
+         */
+        Chunk(final int generation, final long offset, final byte[] data, final int length,
+                final IOException error) {
+            this.generation = generation;
+            this.offset = offset;
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+    }
+}
@@ -24,6 +24,41 @@ import java.io.OutputStream;
  */
 public abstract class PrinterCommand {
 
+    /**
+     * Kind of the command code (see {@link #getCommandCode()}) of a {@link Pcl5Command}. The parameterized,
+     * group and termination characters of a {@link ParameterizedPclCommand} are packed into bits 16 to 23,
+     * 8 to 15 and 0 to 7 (the group character is 0 if the command does not contain one). The command code
+     * of a {@link TwoBytePclCommand} is just its operation character.
+     */
+    public static final int PCL5_COMMAND_CODE = 0x00000000;
+
+    /**
+     * Kind of the command code of a {@link HpglCommand}. The two letters of the command are packed into
+     * bits 8 to 15 and 0 to 7.
+     */
+    public static final int HPGL_COMMAND_CODE = 0x01000000;
+
+    /**
+     * Kind of the command code of a {@link PjlCommand}. All PJL commands have the same command code.
+     */
+    public static final int PJL_COMMAND_CODE = 0x02000000;
+
+    /**
+     * Kind of the command code of a {@link TextCommand}. All text commands have the same command code.
+     */
+    public static final int TEXT_COMMAND_CODE = 0x03000000;
+
+    /**
+     * Kind of the command code of a {@link ControlCharacterCommand}. The control character is packed into
+     * bits 0 to 7.
+     */
+    public static final int CONTROL_CHARACTER_COMMAND_CODE = 0x04000000;
+
+    /**
+     * Mask for the kind of a command code.
+     */
+    public static final int COMMAND_CODE_KIND_MASK = 0xFF000000;
+
     private final long offset;
 
     /**
@@ -80,6 +115,17 @@ public abstract class PrinterCommand {
      */
     public abstract String toCommandString();
 
+    /**
+     * Returns a compact code of the {@link PrinterCommand}. Like the {@link String} returned by
+     * {@link #toCommandString()} the code contains the command without any parameter values or additional
+     * data, so equal commands have equal codes (and a code may be used as a key or an index instead of the
+     * {@link String}). The highest eight bits contain the kind of the command (like {@link #HPGL_COMMAND_CODE}),
+     * the other bits contain the characters of the command.
+     *
+     * @return the command code of the {@link PrinterCommand}.
+     */
+    public abstract int getCommandCode();
+
     /**
      * Returns a {@link String} representation of the {@link PrinterCommand}. This String contains the command
      * and parameter value, but no additional data (like the binary data of a PCL Font Header command.
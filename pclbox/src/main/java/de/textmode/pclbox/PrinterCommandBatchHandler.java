@@ -0,0 +1,39 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * This is the handler interface for batches of constructed {@link PrinterCommand} objects. Batches are
+ * collected by the {@link BatchingPrinterCommandHandler}, so a handler that writes the printer commands to
+ * a database or a queue is invoked once per batch instead of once per printer command.
+ */
+public interface PrinterCommandBatchHandler {
+
+    /**
+     * Handles a batch of {@link PrinterCommand} objects. The array is reused for the next batch, so the
+     * handler must not keep a reference to the array (the {@link PrinterCommand} objects may be kept).
+     *
+     * @param commands   the array that contains the {@link PrinterCommand} objects.
+     * @param count   the number of {@link PrinterCommand} objects in the array (starting at index 0).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handlePrinterCommands(final PrinterCommand[] commands, final int count) throws IOException;
+}
@@ -0,0 +1,136 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * This is the low-level handler interface of the parsers. Unlike the {@link PrinterCommandHandler} no
+ * {@link PrinterCommand} objects are constructed - every callback gets the parts of the printer command as
+ * primitives. Text and data sections are passed as slices (an array, the offset of the first byte within
+ * the array and the length) and values and parameters as a {@link CharSequence}. The arrays and
+ * {@link CharSequence} instances are reused by the parsers, so they are valid only during the callback and
+ * must be copied if the handler needs them later on.
+ *
+ * <p>So parsing does not produce any garbage, which makes this interface the first choice for tools that
+ * process huge data streams but are only interested in a few printer commands. A {@link PrinterCommandHandler}
+ * is driven by an adapter that constructs the {@link PrinterCommand} objects.
+ */
+public interface PrinterCommandEventHandler {
+
+    /**
+     * The scale of the numeric values passed to
+     * {@link #handleParameterizedPclCommand(long, int, int, int, long, CharSequence, long, byte[], int, int)}. A value
+     * is passed as a fixed-point number with four decimal places (the precision of PCL values), so the value
+     * "1.5" is passed as 15000.
+     */
+    long VALUE_SCALE = 10000;
+
+    /**
+     * The numeric value passed for values that are no valid numbers (or are out of the range of a long).
+     */
+    long NO_VALUE = Long.MIN_VALUE;
+
+    /**
+     * Handles text (printable data between the commands).
+     *
+     * @param offset   position of the text within the data stream.
+     * @param buffer   the array that contains the text (valid only during the callback).
+     * @param start   the index of the first byte of the text within the array.
+     * @param length   the length of the text.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleText(final long offset, final byte[] buffer, final int start, final int length) throws IOException;
+
+    /**
+     * Handles a control character (backspace, horizontal tab, line feed, form feed, carriage return,
+     * shift in or shift out).
+     *
+     * @param offset   position of the control character within the data stream.
+     * @param controlCharacter   the control character.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleControlCharacter(final long offset, final int controlCharacter) throws IOException;
+
+    /**
+     * Handles a two byte PCL command (an escape byte followed by the operation character).
+     *
+     * @param offset   position of the PCL command within the data stream.
+     * @param operationCharacter   the operation character (ASCII range 48 to 126).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleTwoBytePclCommand(final long offset, final int operationCharacter) throws IOException;
+
+    /**
+     * Handles a parameterized PCL command. PCL sequences (combined commands) are passed as multiple
+     * parameterized PCL commands.
+     *
+     * @param offset   position of the PCL command within the data stream.
+     * @param parameterizedCharacter   the parameterized character (ASCII range 33 to 47).
+     * @param groupCharacter   the group character (ASCII range 96 to 126) or 0 if the PCL command does not
+     *     contain a group character.
+     * @param terminationCharacter   the termination character (ASCII range 64 to 94).
+     * @param value   the value scaled by {@link #VALUE_SCALE} (0 if the value is omitted) or {@link #NO_VALUE}.
+     * @param valueText   the value as it is contained in the data stream (empty if the value is omitted, valid
+     *     only during the callback).
+     * @param dataOffset   position of the data section within the data stream or -1 if the PCL command does not
+     *     contain a data section.
+     * @param dataSection   the array that contains the data section of the PCL command (valid only during the
+     *     callback) or <code>null</code> if the PCL command does not contain a data section or the data section
+     *     has been skipped (see {@link PclParser#setLazyDataSections(boolean)}).
+     * @param dataStart   the index of the first byte of the data section within the array.
+     * @param dataLength   the length of the data section (even if it has been skipped).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter,
+            final long value,
+            final CharSequence valueText,
+            final long dataOffset,
+            final byte[] dataSection,
+            final int dataStart,
+            final int dataLength) throws IOException;
+
+    /**
+     * Handles a PJL command.
+     *
+     * @param offset   position of the PJL command within the data stream.
+     * @param command   the PJL command including the prefix "@PJL" (valid only during the callback).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handlePjlCommand(final long offset, final CharSequence command) throws IOException;
+
+    /**
+     * Handles a HP/GL command.
+     *
+     * @param offset   position of the HP/GL command within the data stream.
+     * @param command   the two letters of the HP/GL command in upper case, packed into an int (the first
+     *     letter in bits 8 to 15 and the second letter in bits 0 to 7).
+     * @param parameters   the parameters of the HP/GL command (valid only during the callback).
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void handleHpglCommand(final long offset, final int command, final CharSequence parameters) throws IOException;
+}
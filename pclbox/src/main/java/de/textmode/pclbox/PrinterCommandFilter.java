@@ -0,0 +1,202 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.BitSet;
+
+/**
+ * A {@link PrinterCommandFilter} selects the printer commands that are passed to the handler of a parser (see
+ * {@link PclParser#setFilter(PrinterCommandFilter)}). The parser does not construct {@link PrinterCommand}
+ * objects for the other printer commands, it skips the data sections of other PCL commands (like raster data)
+ * by seeking and it scans text that is not wanted without copying it.
+ *
+ * <p>Printer commands are selected by their type (i. e. all {@link PjlCommand} objects) or by the string that
+ * is returned by {@link PrinterCommand#toCommandString()}, like "&amp;lA" (Page Size), "%X" (Universal Exit
+ * Language), "E" (Printer Reset) or "IN" (the HP/GL command Initialize). A new {@link PrinterCommandFilter}
+ * accepts no printer command at all:
+ *
+ * <pre>
+ * parser.setFilter(new PrinterCommandFilter()
+ *         .acceptCommand("&amp;lA")
+ *         .acceptCommand("&amp;lX")
+ *         .acceptType(PjlCommand.class));
+ * </pre>
+ *
+ * <p>Note that the parsers still switch to PJL and HP/GL if the commands that switch the language are not
+ * accepted.
+ */
+public final class PrinterCommandFilter {
+
+    private static final int PARAMETERIZED_CHARACTER_MIN = 33;
+    private static final int PARAMETERIZED_CHARACTER_MAX = 47;
+    private static final int GROUP_CHARACTER_MIN = 96;
+    private static final int GROUP_CHARACTER_MAX = 126;
+    private static final int TERMINATION_CHARACTER_MIN = 64;
+    private static final int TERMINATION_CHARACTER_MAX = 94;
+    private static final int OPERATION_CHARACTER_MIN = 48;
+    private static final int OPERATION_CHARACTER_MAX = 126;
+
+    private boolean text;
+    private boolean controlCharacters;
+    private boolean pjlCommands;
+    private boolean twoBytePclCommands;
+    private boolean parameterizedPclCommands;
+    private boolean hpglCommands;
+
+    private final BitSet twoBytePclCommand = new BitSet();
+    private final BitSet parameterizedPclCommand = new BitSet();
+    private final BitSet hpglCommand = new BitSet();
+
+    /**
+     * Accepts all printer commands of the given type.
+     *
+     * @param type   the type of the printer commands (like {@link TextCommand} or {@link ParameterizedPclCommand}).
+     *
+     * @return this {@link PrinterCommandFilter}.
+     */
+    public PrinterCommandFilter acceptType(final Class<? extends PrinterCommand> type) {
+        if (type == TextCommand.class) {
+            this.text = true;
+        } else if (type == ControlCharacterCommand.class) {
+            this.controlCharacters = true;
+        } else if (type == PjlCommand.class) {
+            this.pjlCommands = true;
+        } else if (type == TwoBytePclCommand.class) {
+            this.twoBytePclCommands = true;
+        } else if (type == ParameterizedPclCommand.class) {
+            this.parameterizedPclCommands = true;
+        } else if (type == HpglCommand.class) {
+            this.hpglCommands = true;
+        } else {
+            throw new IllegalArgumentException("The printer command type " + type.getName() + " is unknown");
+        }
+
+        return this;
+    }
+
+    /**
+     * Accepts the PCL or HP/GL command with the given command string (see {@link PrinterCommand#toCommandString()}).
+     *
+     * @param command   the command string, like "&amp;lA", "%X", "E" or "IN".
+     *
+     * @return this {@link PrinterCommandFilter}.
+     */
+    public PrinterCommandFilter acceptCommand(final String command) {
+        final int length = command.length();
+        final int first = length == 0 ? 0 : command.charAt(0);
+
+        if (length == 1 && first >= OPERATION_CHARACTER_MIN && first <= OPERATION_CHARACTER_MAX) {
+            this.twoBytePclCommand.set(first);
+        } else if (length == 2 && isLetter(first) && isLetter(command.charAt(1))) {
+            this.hpglCommand.set(Character.toUpperCase(first) << 8 | Character.toUpperCase(command.charAt(1)));
+        } else if ((length == 2 || length == 3)
+                && first >= PARAMETERIZED_CHARACTER_MIN && first <= PARAMETERIZED_CHARACTER_MAX) {
+
+            final int group = length == 3 ? command.charAt(1) : 0;
+            final int termination = Character.toUpperCase(command.charAt(length - 1));
+            if (length == 3 && (group < GROUP_CHARACTER_MIN || group > GROUP_CHARACTER_MAX)
+                    || termination < TERMINATION_CHARACTER_MIN || termination > TERMINATION_CHARACTER_MAX) {
+                throw createInvalidCommandException(command);
+            }
+            this.parameterizedPclCommand.set(parameterizedIndex(first, group, termination));
+        } else {
+            throw createInvalidCommandException(command);
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns true if text is accepted.
+     */
+    boolean isTextAccepted() {
+        return this.text;
+    }
+
+    /**
+     * Returns true if control characters are accepted.
+     */
+    boolean isControlCharacterAccepted() {
+        return this.controlCharacters;
+    }
+
+    /**
+     * Returns true if PJL commands are accepted.
+     */
+    boolean isPjlCommandAccepted() {
+        return this.pjlCommands;
+    }
+
+    /**
+     * Returns true if the two byte PCL command with the given operation character is accepted.
+     */
+    boolean isTwoBytePclCommandAccepted(final int operationCharacter) {
+        return this.twoBytePclCommands || this.twoBytePclCommand.get(operationCharacter);
+    }
+
+    /**
+     * Returns true if the parameterized PCL command with the given characters is accepted (the group
+     * character is 0 if the PCL command has no group character).
+     */
+    boolean isParameterizedPclCommandAccepted(
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter) {
+
+        return this.parameterizedPclCommands || this.parameterizedPclCommand.get(
+                parameterizedIndex(parameterizedCharacter, groupCharacter, terminationCharacter));
+    }
+
+    /**
+     * Returns true if the HP/GL command is accepted.
+     *
+     * @param command   the two letters of the HP/GL command in upper case, packed into an int.
+     */
+    boolean isHpglCommandAccepted(final int command) {
+        return this.hpglCommands || this.hpglCommand.get(command);
+    }
+
+    /**
+     * Returns the index of a parameterized PCL command within the {@link BitSet}. The index consists of
+     * four bits for the parameterized character and five bits for the group and termination character.
+     */
+    private static int parameterizedIndex(
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter) {
+
+        final int group = groupCharacter == 0 ? 0 : groupCharacter - GROUP_CHARACTER_MIN + 1;
+        return (parameterizedCharacter - PARAMETERIZED_CHARACTER_MIN) << 10
+                | group << 5
+                | terminationCharacter - TERMINATION_CHARACTER_MIN;
+    }
+
+    /**
+     * Returns true if the given character is an ASCII letter.
+     */
+    private static boolean isLetter(final int character) {
+        return character >= 'A' && character <= 'Z' || character >= 'a' && character <= 'z';
+    }
+
+    /**
+     * Returns a new {@link IllegalArgumentException} for an invalid command string.
+     */
+    private static IllegalArgumentException createInvalidCommandException(final String command) {
+        return new IllegalArgumentException("The command string \"" + command + "\" is invalid");
+    }
+}
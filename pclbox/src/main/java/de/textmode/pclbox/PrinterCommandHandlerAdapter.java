@@ -0,0 +1,109 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Adapter that constructs a {@link PrinterCommand} for every callback of the {@link PrinterCommandEventHandler}
+ * and passes it to a {@link PrinterCommandHandler}.
+ */
+final class PrinterCommandHandlerAdapter implements PrinterCommandEventHandler {
+
+    private final PrinterCommandHandler handler;
+    private final PclInputStream stream;
+    private final byte[] sharedBuffer;
+
+    /**
+     * Constructor that is given the {@link PrinterCommandHandler} to be invoked.
+     *
+     * @param handler   the {@link PrinterCommandHandler} to be invoked.
+     * @param stream   the parsed {@link PclInputStream} (skipped data sections are read from it on demand).
+     * @param sharedBuffer   the array that holds the whole data stream if the constructed {@link PrinterCommand}
+     *     objects may reference ranges of it instead of copying them (or <code>null</code>).
+     */
+    PrinterCommandHandlerAdapter(
+            final PrinterCommandHandler handler,
+            final PclInputStream stream,
+            final byte[] sharedBuffer) {
+
+        this.handler = handler;
+        this.stream = stream;
+        this.sharedBuffer = sharedBuffer;
+    }
+
+    @Override
+    public void handleText(final long offset, final byte[] buffer, final int start, final int length)
+            throws IOException {
+
+        this.handler.handlePrinterCommand(
+                new TextCommand(offset, buffer, start, length, buffer != this.sharedBuffer));
+    }
+
+    @Override
+    public void handleControlCharacter(final long offset, final int controlCharacter) throws IOException {
+        this.handler.handlePrinterCommand(new ControlCharacterCommand(offset, (byte) controlCharacter));
+    }
+
+    @Override
+    public void handleTwoBytePclCommand(final long offset, final int operationCharacter) throws IOException {
+        this.handler.handlePrinterCommand(new TwoBytePclCommand(offset, operationCharacter));
+    }
+
+    @Override
+    public void handleParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter,
+            final long value,
+            final CharSequence valueText,
+            final long dataOffset,
+            final byte[] dataSection,
+            final int dataStart,
+            final int dataLength) throws IOException {
+
+        final boolean copy = dataSection != null && dataSection != this.sharedBuffer;
+
+        this.handler.handlePrinterCommand(new ParameterizedPclCommand(
+                offset,
+                parameterizedCharacter,
+                groupCharacter,
+                value,
+                valueText,
+                terminationCharacter,
+                this.stream,
+                dataOffset,
+                copy ? Arrays.copyOfRange(dataSection, dataStart, dataStart + dataLength) : dataSection,
+                copy ? 0 : dataStart,
+                dataLength));
+    }
+
+    @Override
+    public void handlePjlCommand(final long offset, final CharSequence command) throws IOException {
+        this.handler.handlePrinterCommand(new PjlCommand(offset, command.toString()));
+    }
+
+    @Override
+    public void handleHpglCommand(final long offset, final int command, final CharSequence parameters)
+            throws IOException {
+
+        this.handler.handlePrinterCommand(
+                new HpglCommand(offset, HpglCommand.commandStringFor(command), parameters));
+    }
+}
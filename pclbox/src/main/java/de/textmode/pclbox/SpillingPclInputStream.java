@@ -0,0 +1,252 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Implementation of {@link PclInputStream} that makes any {@link InputStream} seekable (even pipes,
+ * sockets or decompressing streams that do not support {@link InputStream#mark(int)}).
+ *
+ * <p>The most recently read bytes are kept in a ring buffer in memory. The ring buffer starts small
+ * and grows up to the given memory limit. When it is full, the oldest bytes are spilled to a temporary
+ * file before they get overwritten. So every byte that has been read from the {@link InputStream} stays
+ * available and a {@link #seek(long)} backwards is always O(1) - either an index into the ring buffer or
+ * a position within the temporary file. A {@link #seek(long)} forward reads (and keeps) the data up to
+ * the requested offset. The temporary file is only created if the data exceeds the memory limit and it
+ * is deleted when this stream is closed.
+ */
+final class SpillingPclInputStream implements PclInputStream {
+
+    static final int DEFAULT_MEMORY_LIMIT = 4 * 1024 * 1024;
+
+    private static final int END_OF_STREAM = -1;
+    private static final int INITIAL_RING_SIZE = 8 * 1024;
+    private static final int SPILL_CACHE_SIZE = 8 * 1024;
+
+    private final InputStream source;
+    private final boolean closeSource;
+    private final int capacity;
+
+    private byte[] ring;
+    private long limit;
+    private long position;
+    private boolean endOfSource;
+
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long spilled;
+
+    private final byte[] spillCache;
+    private long spillCacheOffset;
+    private int spillCacheLength;
+
+    /**
+     * Constructor that is given the {@link InputStream} and the maximum size of the ring buffer.
+     *
+     * @param source   the {@link InputStream} to read from.
+     * @param memoryLimit   the maximum size of the ring buffer in bytes (rounded up to a power of two).
+     * @param closeSource   true if the {@link InputStream} shall be closed when this stream is closed.
+     */
+    SpillingPclInputStream(final InputStream source, final int memoryLimit, final boolean closeSource) {
+        if (memoryLimit <= 0 || memoryLimit > 1 << 30) {
+            throw new IllegalArgumentException("The memory limit must be between 1 byte and 1 GB");
+        }
+
+        this.source = source;
+        this.closeSource = closeSource;
+        this.capacity = memoryLimit == 1 ? 1 : Integer.highestOneBit(memoryLimit - 1) << 1;
+        this.ring = new byte[Math.min(this.capacity, INITIAL_RING_SIZE)];
+        this.spillCache = new byte[SPILL_CACHE_SIZE];
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.closeSource) {
+                this.source.close();
+            }
+        } finally {
+            if (this.spill != null) {
+                this.spill.close();
+                this.spill = null;
+            }
+
+            if (this.spillFile != null) {
+                if (!this.spillFile.delete()) {
+                    this.spillFile.deleteOnExit();
+                }
+                this.spillFile = null;
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (this.position == this.limit) {
+            if (!this.fill()) {
+                return END_OF_STREAM;
+            }
+        }
+
+        final long ringStart = this.limit - this.ring.length;
+        if (this.position >= ringStart) {
+            return this.ring[(int) this.position++ & (this.ring.length - 1)] & 0xFF;
+        }
+
+        if (this.position < this.spillCacheOffset
+                || this.position >= this.spillCacheOffset + this.spillCacheLength) {
+            this.loadSpillCache();
+        }
+
+        return this.spillCache[(int) (this.position++ - this.spillCacheOffset)] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        while (total < len) {
+            if (this.position == this.limit) {
+                if (!this.fill()) {
+                    break;
+                }
+                continue;
+            }
+
+            final long ringStart = this.limit - this.ring.length;
+            final int chunk;
+            if (this.position >= ringStart) {
+                // Copy up to the end of the valid data or the end of the array (the ring may wrap).
+                final int index = (int) this.position & (this.ring.length - 1);
+                chunk = (int) Math.min(Math.min(this.limit - this.position, this.ring.length - index), len - total);
+                System.arraycopy(this.ring, index, b, off + total, chunk);
+            } else {
+                chunk = (int) Math.min(ringStart - this.position, len - total);
+                this.spill.seek(this.position);
+                this.spill.readFully(b, off + total, chunk);
+            }
+
+            this.position += chunk;
+            total += chunk;
+        }
+
+        return total == 0 ? END_OF_STREAM : total;
+    }
+
+    @Override
+    public void seek(final long offset) throws IOException {
+        if (offset < 0) {
+            throw new IOException("An error occurred when trying to position to offset " + offset);
+        }
+
+        while (offset > this.limit) {
+            if (!this.fill()) {
+                throw new IOException("An error occurred when trying to position to offset " + offset);
+            }
+        }
+
+        this.position = offset;
+    }
+
+    @Override
+    public long tell() throws IOException {
+        return this.position;
+    }
+
+    /**
+     * Reads the next chunk of data from the {@link InputStream} into the ring buffer. The ring buffer
+     * grows until it reaches the memory limit. After that, the bytes that get overwritten are spilled
+     * to the temporary file first.
+     *
+     * @return false if the end of the {@link InputStream} has been reached.
+     */
+    private boolean fill() throws IOException {
+        if (this.endOfSource) {
+            return false;
+        }
+
+        if (this.limit == this.ring.length && this.ring.length < this.capacity) {
+            // The ring buffer has not wrapped yet, so the content can be copied as it is...
+            final byte[] larger = new byte[Math.min(this.ring.length * 2, this.capacity)];
+            System.arraycopy(this.ring, 0, larger, 0, this.ring.length);
+            this.ring = larger;
+        }
+
+        final int index = (int) this.limit & (this.ring.length - 1);
+        final int length = Math.min(this.ring.length - index, this.ring.length / 2 + 1);
+
+        // The bytes that are about to be overwritten have to be saved in the temporary file...
+        final long spillEnd = this.limit + length - this.ring.length;
+        if (spillEnd > this.spilled) {
+            final int count = (int) (spillEnd - this.spilled);
+            final int spillIndex = (int) this.spilled & (this.ring.length - 1);
+            this.getSpillFile().seek(this.spilled);
+            this.spill.write(this.ring, spillIndex, count);
+            this.spilled = spillEnd;
+        }
+
+        // Note that if less bytes are read than requested the ring buffer content is still valid
+        // (the spilled bytes have just been copied to the temporary file and were not modified)...
+        final int read = this.source.read(this.ring, index, length);
+        if (read == END_OF_STREAM) {
+            this.endOfSource = true;
+            return false;
+        }
+
+        this.limit += read;
+        return true;
+    }
+
+    /**
+     * Loads the part of the temporary file that contains the byte at the current position.
+     */
+    private void loadSpillCache() throws IOException {
+        final long start = this.position - this.position % SPILL_CACHE_SIZE;
+        final int length = (int) Math.min(SPILL_CACHE_SIZE, this.spilled - start);
+
+        this.spill.seek(start);
+        this.spill.readFully(this.spillCache, 0, length);
+
+        this.spillCacheOffset = start;
+        this.spillCacheLength = length;
+    }
+
+    /**
+     * Returns the temporary file. The temporary file is created on the first call of this method.
+     *
+     * @return the temporary file.
+     */
+    private RandomAccessFile getSpillFile() throws IOException {
+        if (this.spill == null) {
+            this.spillFile = File.createTempFile("pclbox", ".spill");
+            this.spill = new RandomAccessFile(this.spillFile, "rw");
+        }
+        return this.spill;
+    }
+}
@@ -18,6 +18,7 @@ package de.textmode.pclbox;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -31,7 +32,9 @@ public final class TextCommand extends PrinterCommand {
 
     private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
 
-    final byte[] text;
+    private final byte[] text;
+    private final int textStart;
+    private final int textLength;
 
     /**
      * Constructor of the {@link TextCommand}.
@@ -40,8 +43,25 @@ public final class TextCommand extends PrinterCommand {
      * @param text  the text
      */
     public TextCommand(final long offset, final byte[] text) {
+        this(offset, text, 0, text.length, true);
+    }
+
+    /**
+     * Constructor of the {@link TextCommand} that gets the text from a range of a byte array. The text is
+     * either copied or the {@link TextCommand} references the range of the byte array (which must not be
+     * modified afterwards).
+     *
+     * @param offset   position within the data stream
+     * @param buffer   the byte array that contains the text
+     * @param off   the start offset of the text within the byte array
+     * @param len   the length of the text
+     * @param copy   true if the text has to be copied
+     */
+    TextCommand(final long offset, final byte[] buffer, final int off, final int len, final boolean copy) {
         super(offset);
-        this.text = text.clone();
+        this.text = copy ? Arrays.copyOfRange(buffer, off, off + len) : buffer;
+        this.textStart = copy ? 0 : off;
+        this.textLength = len;
     }
 
     /**
@@ -52,7 +72,26 @@ public final class TextCommand extends PrinterCommand {
      * @return the text as a byte array.
      */
     public byte[] getText() {
-        return this.text.clone();
+        return Arrays.copyOfRange(this.text, this.textStart, this.textStart + this.textLength);
+    }
+
+    /**
+     * Gets the text as a read-only {@link ByteBuffer} without copying it. The position of the
+     * {@link ByteBuffer} is 0 and the limit is the length of the text.
+     *
+     * @return the text as a read-only {@link ByteBuffer}.
+     */
+    public ByteBuffer getTextBuffer() {
+        return ByteBuffer.wrap(this.text, this.textStart, this.textLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the length of the text in bytes.
+     *
+     * @return the length of the text.
+     */
+    public int getTextLength() {
+        return this.textLength;
     }
 
     @Override
@@ -67,14 +106,15 @@ public final class TextCommand extends PrinterCommand {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(this.getText()) ^ this.getOffsetHash();
+        return ByteArrays.hashCode(this.text, this.textStart, this.textLength) ^ this.getOffsetHash();
     }
 
     @Override
     public boolean equals(final Object other) {
         if (other instanceof TextCommand) {
             final TextCommand o = (TextCommand) other;
-            return Arrays.equals(o.getText(), this.getText()) && o.getOffset() == this.getOffset();
+            return ByteArrays.equals(o.text, o.textStart, o.textLength, this.text, this.textStart, this.textLength)
+                    && o.getOffset() == this.getOffset();
         } else {
             return false;
         }
@@ -82,7 +122,7 @@ public final class TextCommand extends PrinterCommand {
 
     @Override
     public String toString() {
-        return new String(this.getText(), ISO_8859_1) + "@" + this.getOffset();
+        return this.toDisplayString() + "@" + this.getOffset();
     }
 
     @Override
@@ -92,18 +132,23 @@ public final class TextCommand extends PrinterCommand {
         return "TEXT";
     }
 
+    @Override
+    public int getCommandCode() {
+        return TEXT_COMMAND_CODE;
+    }
+
     @Override
     public String toDisplayString() {
-        return new String(this.getText(), ISO_8859_1);
+        return new String(this.text, this.textStart, this.textLength, ISO_8859_1);
     }
 
     @Override
     public byte[] toByteArray() {
-        return this.getText().clone();
+        return this.getText();
     }
 
     @Override
     public void writeTo(final OutputStream out) throws IOException {
-        out.write(this.getText());
+        out.write(this.text, this.textStart, this.textLength);
     }
 }
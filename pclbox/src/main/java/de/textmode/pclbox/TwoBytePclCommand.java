@@ -30,6 +30,17 @@ public final class TwoBytePclCommand extends Pcl5Command {
 
     private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
 
+    /**
+     * Canonical command strings, indexed by the operation character.
+     */
+    private static final String[] COMMAND_STRINGS = new String[256];
+
+    static {
+        for (int ix = 0; ix < COMMAND_STRINGS.length; ++ix) {
+            COMMAND_STRINGS[ix] = new String(new byte[] { (byte) ix }, ISO_8859_1);
+        }
+    }
+
     private final int operationCharacter;
 
     /**
@@ -52,6 +63,11 @@ public final class TwoBytePclCommand extends Pcl5Command {
         return this.operationCharacter;
     }
 
+    @Override
+    public int getCommandCode() {
+        return PCL5_COMMAND_CODE | this.getOperationCharacter() & 0xFF;
+    }
+
     @Override
     public void accept(PrinterCommandVisitor visitor) throws IOException {
         visitor.handle(this);
@@ -84,12 +100,12 @@ public final class TwoBytePclCommand extends Pcl5Command {
 
     @Override
     public String toCommandString() {
-        return new String(new byte[] { (byte) this.getOperationCharacter() }, ISO_8859_1);
+        return COMMAND_STRINGS[this.getOperationCharacter() & 0xFF];
     }
 
     @Override
     public String toDisplayString() {
-        return new String(new byte[] { (byte) this.getOperationCharacter() }, ISO_8859_1);
+        return COMMAND_STRINGS[this.getOperationCharacter() & 0xFF];
     }
 
     @Override
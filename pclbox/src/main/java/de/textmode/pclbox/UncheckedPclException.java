@@ -0,0 +1,40 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Unchecked exception that wraps a {@link PclException}. It is thrown where a {@link PclException} can not
+ * be thrown directly, like by the {@link java.util.Iterator} of a {@link PclReader}.
+ */
+public final class UncheckedPclException extends RuntimeException {
+
+    private static final long serialVersionUID = 4126981327551082746L;
+
+    /**
+     * Constructs an {@code UncheckedPclException} with the specified cause.
+     *
+     * @param cause   the {@link PclException}.
+     */
+    public UncheckedPclException(final PclException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public PclException getCause() {
+        return (PclException) super.getCause();
+    }
+}
@@ -0,0 +1,163 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link BatchingPrinterCommandHandler}.
+ */
+public final class BatchingPrinterCommandHandlerTest extends TestCase {
+
+    private static final String DATA_STREAM = "\u001B%-12345X@PJL JOB\r\n@PJL ENTER LANGUAGE=PCL\n"
+            + "\u001BEHello\r\n\u001B&l1a2x3O\u001B*b3WABC\u001B%0BIN;SP1;PD10,20;\u001B%0AWorld\f"
+            + "\u001B%-12345X@PJL EOJ\n";
+
+    /**
+     * {@link PrinterCommandBatchHandler} that records the batches.
+     */
+    private static final class Recorder implements PrinterCommandBatchHandler {
+        private final List<PrinterCommand[]> batches = new ArrayList<>();
+        private final Set<PrinterCommand[]> arrays = new HashSet<>();
+
+        @Override
+        public void handlePrinterCommands(final PrinterCommand[] commands, final int count) {
+            this.batches.add(Arrays.copyOf(commands, count));
+            this.arrays.add(commands);
+        }
+    }
+
+    /**
+     * Parses the data stream and passes the printer commands to the given {@link PrinterCommandHandler}.
+     */
+    private static void parse(final PrinterCommandHandler handler) throws Exception {
+        final byte[] data = DATA_STREAM.getBytes("iso-8859-1");
+        try (final PclParser parser = new PclParser(data, handler)) {
+            parser.parse();
+        }
+    }
+
+    /**
+     * Returns all printer commands of the data stream.
+     */
+    private static List<PrinterCommand> parse() throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        parse(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+        return commands;
+    }
+
+    /**
+     * Checks that the printer commands are passed in batches of the given size (in the order of the data stream).
+     */
+    public void testBatches() throws Exception {
+        final List<PrinterCommand> expected = parse();
+        assertEquals(20, expected.size());
+
+        final Recorder recorder = new Recorder();
+        final BatchingPrinterCommandHandler batcher = new BatchingPrinterCommandHandler(recorder, 3, false);
+        parse(batcher);
+        assertEquals(6, recorder.batches.size());
+
+        batcher.flush();
+        assertEquals(7, recorder.batches.size());
+        assertEquals(2, recorder.batches.get(6).length);
+        assertEquals(1, recorder.arrays.size());
+        assertTrue(Arrays.asList(recorder.arrays.iterator().next()).stream().allMatch(command -> command == null));
+
+        final List<PrinterCommand> commands = new ArrayList<>();
+        for (final PrinterCommand[] batch : recorder.batches) {
+            commands.addAll(Arrays.asList(batch));
+        }
+        assertEquals(expected, commands);
+
+        // Nothing is left, so flush() does not pass an empty batch...
+        batcher.flush();
+        assertEquals(7, recorder.batches.size());
+    }
+
+    /**
+     * Checks that the printer commands are passed in batches of a single type if they are batched by type.
+     */
+    public void testBatchesByType() throws Exception {
+        final List<PrinterCommand> expected = parse();
+
+        final Recorder recorder = new Recorder();
+        final BatchingPrinterCommandHandler batcher = new BatchingPrinterCommandHandler(recorder, 2, true);
+        parse(batcher);
+        batcher.flush();
+
+        final List<PrinterCommand> commands = new ArrayList<>();
+        for (final PrinterCommand[] batch : recorder.batches) {
+            for (final PrinterCommand command : batch) {
+                assertSame(batch.getClass().getComponentType(), command.getClass());
+                assertTrue(batch.length <= 2);
+            }
+            commands.addAll(Arrays.asList(batch));
+        }
+
+        assertEquals(6, recorder.arrays.size());
+        assertTrue(recorder.arrays.stream().anyMatch(array -> array instanceof ParameterizedPclCommand[]));
+
+        commands.sort((first, second) -> Long.compare(first.getOffset(), second.getOffset()));
+        assertEquals(expected, commands);
+    }
+
+    /**
+     * Checks that the batch is cleared even if the {@link PrinterCommandBatchHandler} fails.
+     */
+    public void testFailingBatchHandler() throws Exception {
+        final BatchingPrinterCommandHandler batcher = new BatchingPrinterCommandHandler((commands, count) -> {
+            throw new IOException("Failed");
+        }, 1000, false);
+
+        batcher.handlePrinterCommand(new TextCommand(0, new byte[] {'A'}));
+        try {
+            batcher.flush();
+            fail("Should fail because the batch handler fails");
+        } catch (final IOException e) {
+            assertEquals("Failed", e.getMessage());
+        }
+
+        // The failed batch has been passed, so it is not passed again...
+        batcher.flush();
+    }
+
+    /**
+     * Checks that the batch size is checked.
+     */
+    public void testInvalidBatchSize() {
+        try {
+            new BatchingPrinterCommandHandler((commands, count) -> { }, 0, true);
+            fail("Should fail because the batch size is zero");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("The batch size must be greater than zero", e.getMessage());
+        }
+    }
+}
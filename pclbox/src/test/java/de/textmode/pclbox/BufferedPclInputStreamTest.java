@@ -0,0 +1,139 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link BufferedPclInputStream}.
+ */
+public final class BufferedPclInputStreamTest extends TestCase {
+
+    /**
+     * Creates a temporary file with the given content.
+     */
+    private File createTestFile(final byte[] content) throws Exception {
+        final File testFile = File.createTempFile(this.getClass().getSimpleName(), null);
+        testFile.deleteOnExit(); // in case the test method throws an exception...
+
+        final FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        return testFile;
+    }
+
+    /**
+     * Happy-Flow test with an underlying {@link PclInputStreamForFileInputStream}.
+     */
+    public void testAllMethodsOfInterface() throws Exception {
+        final File testFile = this.createTestFile("TEST".getBytes("utf-8"));
+
+        final PclInputStream pclStream = new BufferedPclInputStream(
+                new PclInputStreamForFileInputStream(new FileInputStream(testFile)));
+
+        assertEquals(0, pclStream.tell());
+        assertEquals(84, pclStream.read());
+        assertEquals(1, pclStream.tell());
+
+        final byte[] buffer = new byte[3];
+        assertEquals(3, pclStream.read(buffer, 0, 3));
+        assertEquals(69, buffer[0]);
+        assertEquals(83, buffer[1]);
+        assertEquals(84, buffer[2]);
+        assertEquals(4, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+        assertEquals(-1, pclStream.read(buffer));
+
+        pclStream.seek(1);
+        assertEquals(1, pclStream.tell());
+        assertEquals(69, pclStream.read());
+        assertEquals(2, pclStream.tell());
+
+        assertEquals(2, pclStream.read(buffer));
+        assertEquals(83, buffer[0]);
+        assertEquals(84, buffer[1]);
+        assertEquals(4, pclStream.tell());
+
+        pclStream.close();
+
+        assertTrue(testFile.delete());
+    }
+
+    /**
+     * Checks reading and seeking if the data is larger than the buffer.
+     */
+    public void testDataLargerThanBuffer() throws Exception {
+        final byte[] content = new byte[1000];
+        for (int ix = 0; ix < content.length; ++ix) {
+            content[ix] = (byte) ix;
+        }
+
+        final File testFile = this.createTestFile(content);
+        final PclInputStream pclStream = new BufferedPclInputStream(
+                new PclInputStreamForFileInputStream(new FileInputStream(testFile)), 16);
+
+        for (int ix = 0; ix < 100; ++ix) {
+            assertEquals(ix, pclStream.tell());
+            assertEquals(content[ix] & 0xFF, pclStream.read());
+        }
+
+        // A read that spans more than the buffer must return all requested bytes...
+        final byte[] buffer = new byte[50];
+        assertEquals(50, pclStream.read(buffer));
+        assertEquals(150, pclStream.tell());
+        for (int ix = 0; ix < buffer.length; ++ix) {
+            assertEquals(content[100 + ix], buffer[ix]);
+        }
+
+        assertEquals(content[150] & 0xFF, pclStream.read());
+
+        // Seek backwards (outside the current buffer) and forward...
+        pclStream.seek(10);
+        assertEquals(10, pclStream.tell());
+        assertEquals(content[10] & 0xFF, pclStream.read());
+
+        pclStream.seek(990);
+        assertEquals(10, pclStream.read(buffer));
+        assertEquals(1000, pclStream.tell());
+        assertEquals(content[999], buffer[9]);
+        assertEquals(-1, pclStream.read());
+
+        pclStream.close();
+
+        assertTrue(testFile.delete());
+    }
+
+    /**
+     * Checks that a buffer size of zero is rejected.
+     */
+    public void testInvalidBufferSize() throws Exception {
+        try {
+            new BufferedPclInputStream(null, 0);
+            fail("Should fail because the buffer size is invalid.");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("buffer size"));
+        }
+    }
+}
@@ -87,6 +87,17 @@ public final class ControlCharacterCommandTest extends TestCase {
         assertEquals("0x09", TAB_AT_1.toCommandString());
     }
 
+    /**
+     * Checks the method getCommandCode.
+     */
+    public void testGetCommandCode() {
+        assertEquals(PrinterCommand.CONTROL_CHARACTER_COMMAND_CODE | 0x0D, CR_AT_1.getCommandCode());
+        assertEquals(CR_AT_1.getCommandCode(), CR_AT_2.getCommandCode());
+        assertEquals(PrinterCommand.CONTROL_CHARACTER_COMMAND_CODE | 0xFF,
+                new ControlCharacterCommand(1, (byte) 0xFF).getCommandCode());
+        assertSame(TAB_AT_1.toCommandString(), TAB_AT_2.toCommandString());
+    }
+
     /**
      * Checks the method toDisplayString.
      */
@@ -87,6 +87,42 @@ public final class HpglCommandTest extends TestCase {
         assertEquals("CO", CO_AT_1.toCommandString());
     }
 
+    /**
+     * Checks the method getCommandCode.
+     */
+    public void testGetCommandCode() {
+        assertEquals(PrinterCommand.HPGL_COMMAND_CODE | 'I' << 8 | 'N', IN_AT_1.getCommandCode());
+        assertEquals(IN_AT_1.getCommandCode(), IN_AT_2.getCommandCode());
+        assertEquals(HpglCommand.toCommandCode("CO"), CO_AT_2_WITH_TEXT.getCommandCode());
+        assertFalse(IN_AT_1.getCommandCode() == CO_AT_1.getCommandCode());
+
+        assertEquals("IN", HpglCommand.commandStringFor('I' << 8 | 'N'));
+        assertSame(HpglCommand.commandStringFor('P' << 8 | 'A'), HpglCommand.commandStringFor('P' << 8 | 'A'));
+        assertEquals("P1", HpglCommand.commandStringFor('P' << 8 | '1'));
+    }
+
+    /**
+     * Checks the methods that return the parameters as numbers.
+     */
+    public void testGetNumbers() {
+        final HpglCommand plot = new HpglCommand(1, "PA", "10,-20.5 30");
+        assertEquals(3, plot.getParameterCount());
+        assertEquals(-20.5, plot.getNumber(1));
+
+        final double[] numbers = new double[3];
+        assertEquals(3, plot.getNumbers(numbers, 0));
+        assertTrue(Arrays.equals(new double[] {10.0, -20.5, 30.0}, numbers));
+
+        assertEquals(0, IN_AT_1.getParameterCount());
+
+        try {
+            CO_AT_2_WITH_TEXT.getParameterCount();
+            fail("Should fail because the parameters are no numbers.");
+        } catch (final NumberFormatException e) {
+            assertEquals("The parameters \"X\" of the HP/GL command are no list of numbers", e.getMessage());
+        }
+    }
+
     /**
      * Checks the method toDisplayString.
      */
@@ -0,0 +1,98 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link HpglParameters}.
+ */
+public final class HpglParametersTest extends TestCase {
+
+    /**
+     * Checks decoding of integers and decimals with different separators.
+     */
+    public void testParse() {
+        final HpglParameters parameters = new HpglParameters();
+
+        assertEquals(0, parameters.parse(""));
+        assertEquals(0, parameters.parse("  "));
+
+        assertEquals(2, parameters.parse("10,20"));
+        assertEquals(10.0, parameters.getNumber(0));
+        assertEquals(20.0, parameters.getNumber(1));
+
+        assertEquals(5, parameters.parse(" -1.5 +2 , .25,3.,-0.001 "));
+        final double[] numbers = new double[6];
+        assertEquals(5, parameters.getNumbers(numbers, 1));
+        assertTrue(Arrays.equals(new double[] {0.0, -1.5, 2.0, 0.25, 3.0, -0.001}, numbers));
+
+        final int[] ints = new int[5];
+        assertEquals(5, parameters.getInts(ints, 0));
+        assertTrue(Arrays.equals(new int[] {-1, 2, 0, 3, 0}, ints));
+        assertEquals(-1, parameters.getInt(0));
+
+        assertEquals(1, parameters.parse("12345678901234567890.5"));
+        assertEquals(12345678901234567890.5, parameters.getNumber(0));
+        assertEquals(1, parameters.parse("-12345678901234567890"));
+        assertEquals(-12345678901234567890.0, parameters.getNumber(0));
+    }
+
+    /**
+     * Checks that the buffer grows and is reused.
+     */
+    public void testManyNumbers() {
+        final HpglParameters parameters = new HpglParameters();
+        final StringBuilder sb = new StringBuilder();
+        for (int ix = 0; ix < 1000; ++ix) {
+            sb.append(ix).append(',');
+        }
+
+        assertEquals(1000, parameters.parse(sb));
+        assertEquals(999, parameters.getInt(999));
+
+        assertEquals(1, parameters.parse("7"));
+        assertEquals(1, parameters.getCount());
+        try {
+            parameters.getNumber(1);
+            fail("Should fail because there is only one number.");
+        } catch (final IndexOutOfBoundsException e) {
+            assertEquals("Index 1 is out of bounds (count 1)", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that parameters that are no list of numbers are rejected.
+     */
+    public void testInvalidParameters() {
+        final HpglParameters parameters = new HpglParameters();
+
+        for (final String invalid : new String[] {"\"Hello\"", "1;2", "-", "1..2", "1.2.3", "12a", ".", "1e5"}) {
+            try {
+                parameters.parse(invalid);
+                fail("Should fail because \"" + invalid + "\" is no list of numbers.");
+            } catch (final NumberFormatException e) {
+                assertEquals(
+                        "The parameters \"" + invalid + "\" of the HP/GL command are no list of numbers",
+                        e.getMessage());
+            }
+        }
+    }
+}
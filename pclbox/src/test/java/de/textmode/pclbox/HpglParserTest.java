@@ -113,4 +113,40 @@ public final class HpglParserTest extends DataStreamParserTest {
                         new HpglCommand(50, "IN", "")),
                 this.getCommands());
     }
+
+    /**
+     * Checks that parameters are scanned within the window of a buffered stream, even if they cross the
+     * boundary of the window or contain quoted strings.
+     */
+    public void testParametersScannedInWindow() throws Exception {
+        final String data = "in;PU10,20;CO\"Hello \"\"World\"\"\";pd 1234, 5678 ;IN;";
+
+        for (int bufferSize = 1; bufferSize <= data.length(); ++bufferSize) {
+            this.getCommands().clear();
+
+            final ByteArrayInputStream input = new ByteArrayInputStream(data.getBytes("iso-8859-1"));
+            final PclInputStream pclStream = new BufferedPclInputStream(
+                    new PclInputStreamForInputStream(input),
+                    bufferSize);
+
+            new HpglParser(new PclParserContext(pclStream, this)).parse();
+
+            assertEquals(
+                    buildExpected(
+                            new HpglCommand(0, "IN", ""),
+                            new HpglCommand(3, "PU", "10,20"),
+                            new HpglCommand(11, "CO", "\"Hello \"World\"\""),
+                            new HpglCommand(31, "PD", "1234, 5678"),
+                            new HpglCommand(46, "IN", "")),
+                    this.getCommands());
+        }
+
+        try {
+            new HpglParser(new PclParserContext(new PclInputStreamForByteArray(new byte[] {'P', 'D', '1'}, 0, 3), this))
+                    .parse();
+            fail();
+        } catch (final EOFException e) {
+            assertTrue(e.getMessage().startsWith("The HP/GL data stream unexpectedly "));
+        }
+    }
 }
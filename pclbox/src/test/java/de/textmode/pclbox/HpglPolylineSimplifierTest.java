@@ -0,0 +1,192 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link HpglPolylineSimplifier}.
+ */
+public final class HpglPolylineSimplifierTest extends TestCase {
+
+    private final List<String> passed = new ArrayList<String>();
+
+    /**
+     * Simplifies the given HP/GL commands (separated by ";") and returns the passed commands.
+     */
+    private List<String> simplify(final double tolerance, final PrinterCommand... commands) throws Exception {
+        final HpglPolylineSimplifier simplifier = new HpglPolylineSimplifier(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                HpglPolylineSimplifierTest.this.passed.add(command.toDisplayString());
+            }
+        }, tolerance);
+
+        for (final PrinterCommand command : commands) {
+            simplifier.handlePrinterCommand(command);
+        }
+        simplifier.flush();
+
+        return this.passed;
+    }
+
+    /**
+     * Builds the {@link HpglCommand} objects for the given HP/GL commands (separated by ";").
+     */
+    private static PrinterCommand[] hpgl(final String commands) {
+        final String[] parts = commands.split(";");
+        final PrinterCommand[] result = new PrinterCommand[parts.length];
+        for (int ix = 0; ix < parts.length; ++ix) {
+            result[ix] = new HpglCommand(ix, parts[ix].substring(0, 2), parts[ix].substring(2));
+        }
+        return result;
+    }
+
+    /**
+     * Builds a list of the expected commands (separated by ";").
+     */
+    private static List<String> expected(final String commands) {
+        final List<String> result = new ArrayList<String>();
+        for (final String command : commands.split(";")) {
+            result.add(command);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that collinear points are dropped and consecutive commands are merged.
+     */
+    public void testCollinearPoints() throws Exception {
+        assertEquals(
+                expected("PA0,0;PD30,0,30,10;PU"),
+                this.simplify(0.0, hpgl("PA0,0;PD10,0,20,0,30,0;PD30,10;PU")));
+    }
+
+    /**
+     * Checks relative coordinates (the pen position is unknown).
+     */
+    public void testRelativeCoordinates() throws Exception {
+        assertEquals(
+                expected("PR;PD2,0,1,1,0,1"),
+                this.simplify(0.0, hpgl("PR;PD1,0,1,0,1,1,0,1")));
+
+        // A point that reverses the direction is never dropped...
+        this.passed.clear();
+        assertEquals(
+                expected("PR;PD10,0,-5,0"),
+                this.simplify(0.0, hpgl("PR;PD10,0;PD-5,0")));
+    }
+
+    /**
+     * Checks that points within the tolerance are dropped.
+     */
+    public void testTolerance() throws Exception {
+        assertEquals(
+                expected("PA0,0;PD5,0"),
+                this.simplify(1.0, hpgl("PA0,0;PD1,0,2,0.5,3,0,4,-0.5,5,0")));
+
+        this.passed.clear();
+        assertEquals(
+                expected("PA0,0;PD2,1.5,5,0"),
+                this.simplify(1.0, hpgl("PA0,0;PD1,0,2,1.5,3,0,4,0.5,5,0")));
+
+        try {
+            new HpglPolylineSimplifier(null, -1.0);
+            fail("Should fail because the tolerance is negative.");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("The tolerance must not be negative", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that moves with the pen up are reduced to their target.
+     */
+    public void testPenUpMoves() throws Exception {
+        assertEquals(
+                expected("PA;PU5,5;PD6,6"),
+                this.simplify(0.0, hpgl("PA;PU10,10,20,20,5,5;PD6,6")));
+    }
+
+    /**
+     * Checks that other commands are passed unchanged after the pending changes.
+     */
+    public void testOtherCommands() throws Exception {
+        final PrinterCommand[] commands = {
+            new ParameterizedPclCommand(0, '%', 0, "0", 'B'),
+            new HpglCommand(1, "PA", "0,0"),
+            new HpglCommand(2, "PD", ""),
+            new HpglCommand(3, "SP", "1"),
+            new HpglCommand(4, "PD", "10,10"),
+            new HpglCommand(5, "LB", "Hello"),
+            new HpglCommand(6, "PA", "1,x"),
+            new ParameterizedPclCommand(7, '%', 0, "0", 'A'),
+        };
+
+        assertEquals(
+                expected("%0B;PA0,0;PD;SP1;PA10,10;LBHello;PA1,x;%0A"),
+                this.simplify(0.0, commands));
+    }
+
+    /**
+     * Checks that coordinates are not interpreted while the plot mode is unknown.
+     */
+    public void testUnknownPlotMode() throws Exception {
+        assertEquals(
+                expected("PD10,10,10,20;PD0,0;IN;PD0,0,5,0"),
+                this.simplify(0.0, hpgl("PD10,10,10,20;PD0,0;IN;PD0,0,5,0,5,0")));
+    }
+
+    /**
+     * Checks that the points are passed unchanged in symbol mode (every point draws the symbol).
+     */
+    public void testSymbolMode() throws Exception {
+        assertEquals(
+                expected("IN;SM*;PD0,0,5,0,10,0"),
+                this.simplify(0.0, hpgl("IN;SM*;PD0,0,5,0,10,0")));
+
+        this.passed.clear();
+        assertEquals(
+                expected("PA0,0;SM*;PD0,0,5,0,10,0;PU20,20,30,30;SM;PD40,0,60,0"),
+                this.simplify(0.0, hpgl("PA0,0;SM*;PD0,0,5,0,10,0;PU20,20,30,30;SM;PD40,0,50,0,60,0")));
+
+        this.passed.clear();
+        assertEquals(
+                expected("SM*;PA0,0,5,0,10,0;IN;PD0,0,10,0"),
+                this.simplify(0.0, hpgl("SM*;PA0,0,5,0,10,0;IN;PD0,0,5,0,10,0")));
+    }
+
+    /**
+     * Checks that long polylines are split into several commands.
+     */
+    public void testLongPolyline() throws Exception {
+        final StringBuilder sb = new StringBuilder("PA0,0;PD");
+        for (int ix = 1; ix <= 3000; ++ix) {
+            sb.append(ix > 1 ? "," : "").append(ix).append(',').append(ix % 2);
+        }
+
+        final List<String> result = this.simplify(0.0, hpgl(sb.toString()));
+
+        assertEquals(4, result.size());
+        assertEquals("PA0,0", result.get(0));
+        assertTrue(result.get(1).startsWith("PD1,1,2,0,"));
+        assertTrue(result.get(3).endsWith(",3000,0"));
+    }
+}
@@ -0,0 +1,294 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link ParallelPclParser}.
+ */
+public final class ParallelPclParserTest extends TestCase {
+
+    private ForkJoinPool pool;
+
+    @Override
+    protected void setUp() {
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @Override
+    protected void tearDown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Builds a data stream with several pages. The raster data contains bytes that look like
+     * resynchronization points and a form feed is located within HP/GL, so some chunks are invalid.
+     */
+    private static byte[] createDataStream() throws Exception {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write("\u001B%-12345X@PJL JOB\r\n@PJL ENTER LANGUAGE=PCL\n".getBytes("iso-8859-1"));
+
+        for (int page = 0; page < 5; ++page) {
+            data.write(("\u001BEPage " + page + "\r\n\u001B&l1a2O").getBytes("iso-8859-1"));
+            data.write("\u001B*b12W\u001BE\f\u001B%-12345X\f".getBytes("iso-8859-1"));
+            data.write("\u001B%0BIN;\fSP1;PD10,20;\u001B%0A\u001B*b2W\f\f".getBytes("iso-8859-1"));
+            data.write("Text\f".getBytes("iso-8859-1"));
+        }
+
+        data.write("\u001B%-12345X@PJL EOJ\n".getBytes("iso-8859-1"));
+        return data.toByteArray();
+    }
+
+    /**
+     * Returns the printer commands the (sequential) {@link PclParser} reports for the given data stream.
+     */
+    private static List<PrinterCommand> parse(final byte[] data) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser parser = new PclParser(data, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        parser.parse();
+        parser.close();
+        return commands;
+    }
+
+    /**
+     * Returns the printer commands the {@link ParallelPclParser} reports for the given data stream.
+     */
+    private List<PrinterCommand> parseParallel(final byte[] data, final long chunkSize) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final ParallelPclParser parser = new ParallelPclParser(data);
+        parser.setPool(this.pool);
+        parser.setChunkSize(chunkSize);
+        parser.parse(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+        return commands;
+    }
+
+    /**
+     * Parses the data stream with all kinds of chunk sizes. The result must always be the result
+     * of the {@link PclParser}.
+     */
+    public void testParse() throws Exception {
+        final byte[] data = createDataStream();
+        final List<PrinterCommand> expected = parse(data);
+
+        for (int chunkSize = 1; chunkSize <= data.length + 1; ++chunkSize) {
+            assertEquals("chunk size " + chunkSize, expected, this.parseParallel(data, chunkSize));
+        }
+    }
+
+    /**
+     * Returns the printer commands and the error the given parser reports (so the results of two parsers can
+     * be compared even if the data stream is corrupt).
+     */
+    private static String outcome(final ParserRun run) {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        try {
+            run.parse(new PrinterCommandHandler() {
+                @Override
+                public void handlePrinterCommand(final PrinterCommand command) {
+                    commands.add(command);
+                }
+            });
+            return commands.toString();
+        } catch (final Exception e) {
+            return commands + " " + e;
+        }
+    }
+
+    /**
+     * Runs a parser with the given handler.
+     */
+    private interface ParserRun {
+        void parse(final PrinterCommandHandler handler) throws Exception;
+    }
+
+    /**
+     * Compares the results of the {@link ParallelPclParser} (with all chunk sizes) and the {@link PclParser}.
+     */
+    private void assertParsedLikePclParser(final byte[] data) throws Exception {
+        final String expected = outcome(handler -> {
+            try (final PclParser parser = new PclParser(data, handler)) {
+                parser.parse();
+            }
+        });
+
+        for (int chunkSize = 1; chunkSize <= data.length + 1; ++chunkSize) {
+            final ParallelPclParser parser = new ParallelPclParser(data);
+            parser.setPool(this.pool);
+            parser.setChunkSize(chunkSize);
+            assertEquals("chunk size " + chunkSize, expected, outcome(parser::parse));
+        }
+    }
+
+    /**
+     * Parses data streams that end with a data section that contains bytes that look like resynchronization
+     * points. A chunk that starts within the data section parses up to the end of the data stream, and the
+     * sequential parsing must go on exactly behind the data section.
+     */
+    public void testDataSectionAtEndOfDataStream() throws Exception {
+        this.assertParsedLikePclParser("\u001B*b5W\u001BE\f\u001B%".getBytes("iso-8859-1"));
+        this.assertParsedLikePclParser("\u001BEText\u001B*b6WE\u001BEx\f\u001B".getBytes("iso-8859-1"));
+        this.assertParsedLikePclParser("\u001B*b12W\u001B%-12345X\f\u001B%".getBytes("iso-8859-1"));
+    }
+
+    /**
+     * Parses random data streams (with a fixed seed), which consist of PCL commands, data sections with bytes that
+     * look like resynchronization points, PJL and HP/GL.
+     */
+    public void testRandomDataStreams() throws Exception {
+        final String[] parts = {
+            "\u001BE", "Text", "\f", "\u001B&l1a2O", "\u001B%0BIN;SP1;PD1,2;\u001B%0A",
+            "\u001B%-12345X@PJL JOB\n@PJL ENTER LANGUAGE=PCL\n",
+        };
+        final String[] dataBytes = { "\u001B", "E", "\f", "%", "-12345X", "A", "\r\n", "@PJL A\n", "*b", "3W" };
+
+        final Random random = new Random(4711);
+        for (int run = 0; run < 500; ++run) {
+            final StringBuilder sb = new StringBuilder();
+            for (int part = random.nextInt(8); part >= 0; --part) {
+                if (random.nextInt(parts.length + 1) < parts.length) {
+                    sb.append(parts[random.nextInt(parts.length)]);
+                } else {
+                    final StringBuilder data = new StringBuilder();
+                    for (int ix = random.nextInt(12); ix > 0; --ix) {
+                        data.append(dataBytes[random.nextInt(dataBytes.length)]);
+                    }
+                    sb.append("\u001B*b").append(data.length()).append('W').append(data);
+                }
+            }
+            this.assertParsedLikePclParser(sb.toString().getBytes("iso-8859-1"));
+        }
+    }
+
+    /**
+     * Parses an empty data stream.
+     */
+    public void testEmptyDataStream() throws Exception {
+        assertTrue(this.parseParallel(new byte[0], 16).isEmpty());
+    }
+
+    /**
+     * Parses the data stream by the parallel {@link Stream}.
+     */
+    public void testStream() throws Exception {
+        final byte[] data = createDataStream();
+        final ParallelPclParser parser = new ParallelPclParser(data);
+        parser.setPool(this.pool);
+        parser.setChunkSize(32);
+
+        try (final Stream<PrinterCommand> stream = parser.stream()) {
+            assertTrue(stream.isParallel());
+            assertEquals(parse(data), stream.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Parses a file.
+     */
+    public void testParseFile() throws Exception {
+        final byte[] data = createDataStream();
+        final File file = File.createTempFile("pclbox", ".pcl");
+        try {
+            Files.write(file.toPath(), data);
+
+            final List<PrinterCommand> commands = new ArrayList<>();
+            final ParallelPclParser parser = new ParallelPclParser(file.toPath());
+            parser.setPool(this.pool);
+            parser.setChunkSize(100);
+            parser.parse(new PrinterCommandHandler() {
+                @Override
+                public void handlePrinterCommand(final PrinterCommand command) {
+                    commands.add(command);
+                }
+            });
+
+            assertEquals(parse(data), commands);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    /**
+     * Parses corrupt data streams. The errors are reported like by the {@link PclParser}, independently of
+     * the chunk size.
+     */
+    public void testCorruptDataStream() throws Exception {
+        final byte[] invalid = "\u001BEText\u001B&l1a\f\u001BEText".getBytes("iso-8859-1");
+        final byte[] truncated = "\u001BEText\u001B*b9W\u001BE\f".getBytes("iso-8859-1");
+
+        for (int chunkSize = 1; chunkSize <= invalid.length; ++chunkSize) {
+            try {
+                this.parseParallel(invalid, chunkSize);
+                fail("Should fail because of the form feed within the PCL command");
+            } catch (final PclException e) {
+                assertEquals("The byte value of the character at offset 11 is invalid.", e.getMessage());
+            }
+
+            try {
+                this.parseParallel(truncated, chunkSize);
+                fail("Should fail because the data section is truncated");
+            } catch (final EOFException e) {
+                assertTrue(e.getMessage().contains("unexpectedly ends"));
+            }
+        }
+
+        final ParallelPclParser parser = new ParallelPclParser(truncated);
+        parser.setPool(this.pool);
+        parser.setChunkSize(4);
+        try (final Stream<PrinterCommand> stream = parser.stream()) {
+            stream.count();
+            fail("Should fail because the data section is truncated");
+        } catch (final UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+    }
+
+    /**
+     * Checks that the chunk size must be greater than zero.
+     */
+    public void testInvalidChunkSize() {
+        try {
+            new ParallelPclParser(new byte[0]).setChunkSize(0);
+            fail("Should fail because the chunk size is zero");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("The chunk size must be greater than zero", e.getMessage());
+        }
+    }
+}
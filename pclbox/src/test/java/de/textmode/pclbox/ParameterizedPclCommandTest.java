@@ -17,6 +17,7 @@ package de.textmode.pclbox;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -139,6 +140,29 @@ public final class ParameterizedPclCommandTest extends TestCase {
         assertEquals("&pX", TRANSPARENT_DATA_0.toCommandString());
     }
 
+    /**
+     * Checks the method getCommandCode and that the command strings are cached.
+     */
+    public void testGetCommandCode() {
+        assertEquals(0x266C53, SIMPLEX_AT_1.getCommandCode());
+        assertEquals(SIMPLEX_AT_1.getCommandCode(), DUPLEX_AT_2.getCommandCode());
+        assertEquals(ParameterizedPclCommand.toCommandCode('&', 'l', 'S'), DUPLEX_AT_1.getCommandCode());
+        assertEquals(0x250058, UEL_AT_0.getCommandCode());
+        assertFalse(TRANSPARENT_DATA_0.getCommandCode() == SIMPLEX_AT_1.getCommandCode());
+        assertEquals(
+                PrinterCommand.PCL5_COMMAND_CODE,
+                UEL_AT_0.getCommandCode() & PrinterCommand.COMMAND_CODE_KIND_MASK);
+
+        assertSame(SIMPLEX_AT_1.toCommandString(), DUPLEX_AT_2.toCommandString());
+
+        // Commands with characters out of range have a code but no cached command string...
+        final ParameterizedPclCommand invalid = new ParameterizedPclCommand(1, '&', 'L', "0", 'S');
+        assertEquals(0x264C53, invalid.getCommandCode());
+        assertEquals(-1, ParameterizedPclCommand.tableIndex(invalid.getCommandCode()));
+        assertEquals("&LS", invalid.toCommandString());
+        assertEquals("Unknown PCL-Command &LS", invalid.getTextualDescription());
+    }
+
     /**
      * Checks the method toDisplayString.
      */
@@ -204,4 +228,107 @@ public final class ParameterizedPclCommandTest extends TestCase {
         assertTrue(Arrays.equals(pclExpected, baos.toByteArray()));
 
     }
+
+    /**
+     * Checks the conversion of values into scaled fixed-point numbers.
+     */
+    public void testParseValue() throws Exception {
+        assertEquals(0, ParameterizedPclCommand.parseValue(""));
+        assertEquals(0, ParameterizedPclCommand.parseValue("+"));
+        assertEquals(10000, ParameterizedPclCommand.parseValue("1"));
+        assertEquals(10000, ParameterizedPclCommand.parseValue("+1"));
+        assertEquals(-123450, ParameterizedPclCommand.parseValue("-12.345"));
+        assertEquals(5000, ParameterizedPclCommand.parseValue(".5"));
+        assertEquals(20000, ParameterizedPclCommand.parseValue("2."));
+        assertEquals(12345, ParameterizedPclCommand.parseValue("1.234567"));
+        assertEquals(-123450000, ParameterizedPclCommand.parseValue("-12345"));
+
+        assertEquals(PrinterCommandEventHandler.NO_VALUE, ParameterizedPclCommand.parseValue("1.2.3"));
+        assertEquals(PrinterCommandEventHandler.NO_VALUE, ParameterizedPclCommand.parseValue("1+2"));
+        assertEquals(PrinterCommandEventHandler.NO_VALUE, ParameterizedPclCommand.parseValue("<ABC>"));
+        assertEquals(PrinterCommandEventHandler.NO_VALUE, ParameterizedPclCommand.parseValue("99999999999999999999"));
+    }
+
+    /**
+     * Checks the methods getValueAsInt, getValueAsLong and getValueAsDouble.
+     */
+    public void testGetValueAsNumber() {
+        assertEquals(-12345, UEL_AT_0.getValueAsInt());
+        assertEquals(-12345L, UEL_AT_0.getValueAsLong());
+        assertEquals(-12345.0, UEL_AT_0.getValueAsDouble());
+
+        final ParameterizedPclCommand pointSize = new ParameterizedPclCommand(0, '(', 's', "12.25", 'V');
+        assertEquals(12, pointSize.getValueAsInt());
+        assertEquals(12L, pointSize.getValueAsLong());
+        assertEquals(12.25, pointSize.getValueAsDouble());
+
+        final ParameterizedPclCommand negative = new ParameterizedPclCommand(0, '&', 'a', "-.5", 'V');
+        assertEquals(0, negative.getValueAsInt());
+        assertEquals(-0.5, negative.getValueAsDouble());
+
+        assertEquals(0, new ParameterizedPclCommand(0, '&', 'd', "", '@').getValueAsInt());
+
+        final ParameterizedPclCommand large = new ParameterizedPclCommand(0, '&', 'a', "3000000000", 'V');
+        assertEquals(3000000000L, large.getValueAsLong());
+        try {
+            large.getValueAsInt();
+            fail("Should fail because the value is out of the range of an int");
+        } catch (final NumberFormatException e) {
+            assertTrue(e.getMessage().contains("3000000000"));
+        }
+
+        try {
+            new ParameterizedPclCommand(0, '&', 'p', "<ABC>", 'A').getValueAsLong();
+            fail("Should fail because the value is no valid number");
+        } catch (final NumberFormatException e) {
+            assertTrue(e.getMessage().contains("<ABC>"));
+        }
+    }
+
+    /**
+     * Checks that the value string is rebuilt from the scaled value only if the value is written in its
+     * canonical notation (and that common values share a single instance).
+     */
+    public void testValueFromScaledValue() {
+        final String[] values = {"0", "1", "-1", "255", "256", "-12345", "007", "+1", "-0", "1.50", "-", "."};
+        for (final String value : values) {
+            final ParameterizedPclCommand command = new ParameterizedPclCommand(0, '&', 'l',
+                    ParameterizedPclCommand.parseValue(value), new StringBuilder(value), 'S', null, 0, 0);
+
+            assertEquals(value, command.getValue());
+            assertEquals(new ParameterizedPclCommand(0, '&', 'l', value, 'S'), command);
+        }
+
+        final ParameterizedPclCommand one = new ParameterizedPclCommand(0, '&', 'l', 10000,
+                new StringBuilder("1"), 'S', null, 0, 0);
+        assertSame(one.getValue(), new ParameterizedPclCommand(5, '*', 'r', 10000,
+                new StringBuilder("1"), 'A', null, 0, 0).getValue());
+    }
+
+    /**
+     * Checks a {@link ParameterizedPclCommand} whose data section references a range of a byte array (and the
+     * method getDataSectionBuffer).
+     */
+    public void testSharedDataSection() throws Exception {
+        final byte[] data = { 0x00, 0x11, 0x22, 0x33, 0x44, 0x55 };
+        final ParameterizedPclCommand shared = new ParameterizedPclCommand(0, ')', 's', 40000, "4", 'W',
+                null, -1, data, 1, 4);
+
+        assertEquals(FONT_HEADER, shared);
+        assertEquals(FONT_HEADER.hashCode(), shared.hashCode());
+        assertTrue(Arrays.equals(FONT_HEADER.toByteArray(), shared.toByteArray()));
+        assertTrue(Arrays.equals(new byte[] { 0x11, 0x22, 0x33, 0x44 }, shared.getDataSection()));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        shared.writeTo(os);
+        assertTrue(Arrays.equals(FONT_HEADER.toByteArray(), os.toByteArray()));
+
+        final ByteBuffer buffer = shared.getDataSectionBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(4, buffer.remaining());
+        assertEquals(0x11, buffer.get(0));
+
+        assertNull(SIMPLEX_AT_1.getDataSectionBuffer());
+        assertEquals(0, TRANSPARENT_DATA_0.getDataSectionBuffer().remaining());
+    }
 }
@@ -18,7 +18,14 @@ package de.textmode.pclbox;
 
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 /**
  * JUnit-Tests for {@link Pcl5Parser}.
@@ -359,6 +366,47 @@ public final class Pcl5ParserTest extends DataStreamParserTest {
                 this.getCommands());
     }
 
+    /**
+     * Parses the given PCL data stream and suspends the parser after every printer command.
+     *
+     * @return the suspended offsets (see {@link Pcl5Parser#getSuspendedOffset()}).
+     */
+    private List<Long> getSuspendedOffsetsFor(final String data) throws Exception {
+        final byte[] bytes = data.replace('~', (char) 0x1B).getBytes("iso-8859-1");
+        final PclInputStream input = PclInputStreams.forByteArray(bytes, 0, bytes.length);
+        final PclParserContext[] context = new PclParserContext[1];
+
+        context[0] = new PclParserContext(input, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+                Pcl5ParserTest.this.handlePrinterCommand(command);
+                context[0].requestSuspend();
+            }
+        });
+
+        final Pcl5Parser parser = new Pcl5Parser(context[0]);
+        final List<Long> offsets = new ArrayList<>();
+        while (parser.parse() == DataStreamParser.SUSPENDED) {
+            offsets.add(parser.getSuspendedOffset());
+            context[0].clearSuspendRequest();
+        }
+        return offsets;
+    }
+
+    /**
+     * Checks the suspended offset at the end of the data stream (nothing has been read there, so the
+     * offset is the length of the data stream).
+     */
+    public void testSuspendedOffsetAtEndOfStream() throws Exception {
+        assertEquals(Arrays.asList(2L, 12L), this.getSuspendedOffsetsFor("~E~*b5WABCDE"));
+        assertEquals(Arrays.asList(2L, 12L, 14L), this.getSuspendedOffsetsFor("~E~*b5WABCDE~E"));
+        assertEquals(Arrays.asList(2L, 7L), this.getSuspendedOffsetsFor("~E~&l1O"));
+        assertEquals(Arrays.asList(9L), this.getSuspendedOffsetsFor("~&p<ABC>A"));
+
+        // Within PJL there is no suspended offset, but after PJL has been left at the end of the stream...
+        assertEquals(Arrays.asList(-1L, 14L), this.getSuspendedOffsetsFor("~%-12345X@PJL\n"));
+    }
+
     /**
      * Checks that the properitary command "Data Container" (by Oce) is parsed as expected.
      */
@@ -372,4 +420,84 @@ public final class Pcl5ParserTest extends DataStreamParserTest {
                         new TwoBytePclCommand(11, 'E')),
                 this.getCommands());
     }
+
+    /**
+     * Checks that a truncated "Data Container" (by Oce) without the closing ">" triggers an exception.
+     */
+    public void testProperitaryCommandDataContainerTruncated() throws Exception {
+        try {
+            this.getPcl5ParserFor("~E~&p<ABC").parse();
+            fail("Should fail because the data stream ends within the data container.");
+        } catch (final EOFException e) {
+            assertTrue(e.getMessage().contains("unexpectedly ends"));
+        }
+
+        assertEquals(
+                buildExpected(
+                        new TwoBytePclCommand(0, 'E')),
+                this.getCommands());
+    }
+
+    /**
+     * Checks that the scanning of text (eight bytes at a time) finds the same end of the text as a
+     * byte by byte scan - for every byte value at every position.
+     */
+    public void testFindEndOfText() throws Exception {
+        final byte[] data = new byte[64];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int value = 0; value < 256; ++value) {
+            for (int position = 0; position < data.length; ++position) {
+                Arrays.fill(data, (byte) 'A');
+                data[position] = (byte) value;
+
+                final boolean endsText = value == 0x1B || value >= 0x08 && value <= 0x0E && value != 0x0B;
+                final int expected = endsText ? position : data.length;
+
+                assertEquals(expected, Pcl5Parser.findEndOfText(buffer, 0, data.length));
+                assertEquals(position >= 3 ? expected : data.length, Pcl5Parser.findEndOfText(buffer, 3, data.length));
+                assertEquals(Math.min(expected, 40), Pcl5Parser.findEndOfText(buffer, 0, 40));
+            }
+        }
+
+        final Random random = new Random(0);
+        for (int ix = 0; ix < 1000; ++ix) {
+            random.nextBytes(data);
+            final int from = random.nextInt(data.length);
+
+            int expected = from;
+            while (expected < data.length && (data[expected] != 0x1B
+                    && (data[expected] < 0x08 || data[expected] > 0x0E || data[expected] == 0x0B))) {
+                ++expected;
+            }
+
+            assertEquals(expected, Pcl5Parser.findEndOfText(buffer, from, data.length));
+        }
+    }
+
+    /**
+     * Checks that text that is read from a window (and spans several windows) is parsed correctly,
+     * including the vertical tab and shift in, which look like control characters to the bulk scan.
+     */
+    public void testTextInWindows() throws Exception {
+        final String text = "Some text with a vertical tab \u000B and shift in \u000F that spans some windows";
+        final byte[] data = ("~E" + text + "\r" + text + "~E").replace('~', (char) 0x1B).getBytes("iso-8859-1");
+
+        for (final int windowSize : new int[] {1, 7, 16, 1000}) {
+            this.getCommands().clear();
+
+            final PclInputStream pclStream = new BufferedPclInputStream(
+                    new PclInputStreamForByteArray(data, 0, data.length), windowSize);
+            new Pcl5Parser(new PclParserContext(pclStream, this)).parse();
+
+            assertEquals(
+                    buildExpected(
+                            new TwoBytePclCommand(0, 'E'),
+                            new TextCommand(2, text.getBytes("iso-8859-1")),
+                            new ControlCharacterCommand(2 + text.length(), (byte) 0x0D),
+                            new TextCommand(3 + text.length(), text.getBytes("iso-8859-1")),
+                            new TwoBytePclCommand(3 + 2 * text.length(), 'E')),
+                    this.getCommands());
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclBatchParser}.
+ */
+public final class PclBatchParserTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("pclbox");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (final File file : this.directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(this.directory);
+    }
+
+    /**
+     * Writes a file with the given data stream.
+     */
+    private Path write(final String name, final String data) throws IOException {
+        return Files.write(this.directory.resolve(name), data.getBytes("iso-8859-1"));
+    }
+
+    /**
+     * Returns the printer commands the {@link PclParser} reports for the given file.
+     */
+    private static List<PrinterCommand> parse(final Path path) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        try (final PclParser parser = new PclParser(path, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        })) {
+            parser.parse();
+        }
+        return commands;
+    }
+
+    /**
+     * Parses valid, corrupt and missing files and checks the handlers and the {@link PclBatchParser.Result}.
+     */
+    public void testParse() throws Exception {
+        final List<Path> paths = new ArrayList<>();
+        for (int ix = 0; ix < 50; ++ix) {
+            paths.add(this.write("job" + ix + ".pcl", "\u001BE\u001B&l" + ix + "X" + "Page " + ix + "\f\u001BE"));
+        }
+        paths.add(10, this.write("corrupt.pcl", "\u001BE\u001B*b5WABC"));
+        paths.add(20, this.directory.resolve("missing.pcl"));
+
+        final Map<Path, List<PrinterCommand>> handled = new ConcurrentHashMap<>();
+        final AtomicInteger flushed = new AtomicInteger();
+        final PclBatchParser batchParser = new PclBatchParser(path -> {
+            final List<PrinterCommand> commands = Collections.synchronizedList(new ArrayList<>());
+            handled.put(path, commands);
+            return new BatchingPrinterCommandHandler((batch, count) -> {
+                commands.addAll(Arrays.asList(batch).subList(0, count));
+                flushed.incrementAndGet();
+            }, 100, false);
+        });
+        batchParser.setParallelism(3);
+
+        final PclBatchParser.Result result = batchParser.parse(paths);
+        assertEquals(52, result.getJobCount());
+        assertEquals(50, result.getSuccessCount());
+        assertEquals(50 * 5 + 1, result.getCommandCount());
+        assertEquals(50, flushed.get());
+
+        assertEquals(2, result.getFailures().size());
+        assertEquals(paths.get(10), result.getFailures().get(0).getPath());
+        assertTrue(result.getFailures().get(0).getException() instanceof EOFException);
+        assertEquals(paths.get(20), result.getFailures().get(1).getPath());
+        assertTrue(result.getFailures().get(1).getException() instanceof IOException);
+
+        for (int ix = 0; ix < 50; ++ix) {
+            final Path path = this.directory.resolve("job" + ix + ".pcl");
+            assertEquals(parse(path), handled.get(path));
+        }
+    }
+
+    /**
+     * Checks that the printer commands a {@link BatchingPrinterCommandHandler} still holds when the file has been
+     * parsed can read their lazy data sections (the handler is flushed before the file is closed).
+     */
+    public void testBatchingWithLazyDataSections() throws Exception {
+        final Path path = this.write("raster.pcl", "\u001BE\u001B*b3WABC\u001B*b2WDEText");
+
+        final List<String> dataSections = Collections.synchronizedList(new ArrayList<>());
+        final PclBatchParser batchParser = new PclBatchParser(file -> new BatchingPrinterCommandHandler(
+            (batch, count) -> {
+                for (int ix = 0; ix < count; ++ix) {
+                    if (batch[ix] instanceof ParameterizedPclCommand) {
+                        dataSections.add(new String(((ParameterizedPclCommand) batch[ix]).readDataSection(),
+                                "iso-8859-1"));
+                    }
+                }
+            }, 100, false));
+        batchParser.setLazyDataSections(true);
+
+        final PclBatchParser.Result result = batchParser.parse(Collections.singletonList(path));
+        assertEquals(Collections.emptyList(), result.getFailures());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(Arrays.asList("ABC", "DE"), dataSections);
+    }
+
+    /**
+     * Checks that a failing {@link PclBatchParser.HandlerFactory} fails just the job.
+     */
+    public void testFailingHandlerFactory() throws Exception {
+        final File first = this.write("first.pcl", "Hello").toFile();
+        final File second = this.write("second.pcl", "World").toFile();
+
+        final PclBatchParser batchParser = new PclBatchParser(path -> {
+            if (path.endsWith("first.pcl")) {
+                throw new IOException("No handler");
+            }
+            return command -> { };
+        });
+
+        final PclBatchParser.Result result = batchParser.parseFiles(Arrays.asList(first, second));
+        assertEquals(2, result.getJobCount());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, result.getCommandCount());
+        assertEquals("No handler", result.getFailures().get(0).getException().getMessage());
+        assertEquals(first.toPath() + ": java.io.IOException: No handler", result.getFailures().get(0).toString());
+    }
+
+    /**
+     * Checks that an {@link Error} thrown by a handler fails just the job.
+     */
+    public void testFailingHandlerWithError() throws Exception {
+        final File first = this.write("first.pcl", "Hello").toFile();
+        final File second = this.write("second.pcl", "World").toFile();
+
+        final PclBatchParser batchParser = new PclBatchParser(path -> command -> {
+            if (path.endsWith("second.pcl")) {
+                throw new AssertionError("Broken handler");
+            }
+        });
+
+        final PclBatchParser.Result result = batchParser.parseFiles(Arrays.asList(first, second));
+        assertEquals(2, result.getJobCount());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(second.toPath(), result.getFailures().get(0).getPath());
+        assertTrue(result.getFailures().get(0).getException() instanceof AssertionError);
+        assertEquals("Broken handler", result.getFailures().get(0).getException().getMessage());
+    }
+
+    /**
+     * Checks the parallelism.
+     */
+    public void testInvalidParallelism() {
+        try {
+            new PclBatchParser(path -> command -> { }).setParallelism(0);
+            fail("Should fail because the parallelism is zero");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("The parallelism must be greater than zero", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclInputStreamForByteBuffer}.
+ */
+public final class PclInputStreamForByteBufferTest extends TestCase {
+
+    /**
+     * Happy-Flow test with a direct {@link ByteBuffer}.
+     */
+    public void testAllMethodsOfInterface() throws Exception {
+        final ByteBuffer data = ByteBuffer.allocateDirect(8);
+        data.put("xxTESTyy".getBytes("utf-8"));
+        data.position(2);
+        data.limit(6);
+
+        final PclInputStream pclStream = new PclInputStreamForByteBuffer(data);
+
+        assertEquals(0, pclStream.tell());
+        assertEquals(84, pclStream.read());
+        assertEquals(1, pclStream.tell());
+
+        final byte[] buffer = new byte[5];
+        assertEquals(3, pclStream.read(buffer, 0, 5));
+        assertEquals(69, buffer[0]);
+        assertEquals(83, buffer[1]);
+        assertEquals(84, buffer[2]);
+        assertEquals(4, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+        assertEquals(-1, pclStream.read(buffer));
+
+        pclStream.seek(1);
+        assertEquals(1, pclStream.tell());
+        assertEquals(69, pclStream.read());
+        assertEquals(2, pclStream.tell());
+
+        assertEquals(2, pclStream.read(buffer));
+        assertEquals(83, buffer[0]);
+        assertEquals(84, buffer[1]);
+        assertEquals(4, pclStream.tell());
+
+        try {
+            pclStream.seek(5);
+            fail("Seek should fail we tried to seek after the end of the data");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("to position to offset 5"));
+        }
+
+        pclStream.close();
+
+        // The position of the given ByteBuffer must not be modified...
+        assertEquals(2, data.position());
+    }
+}
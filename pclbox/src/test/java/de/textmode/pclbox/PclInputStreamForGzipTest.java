@@ -0,0 +1,247 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclInputStreamForGzip} (and the {@link DeflateDecoder}).
+ */
+public final class PclInputStreamForGzipTest extends TestCase {
+
+    /**
+     * Creates test data that contains well compressible PCL commands and text as well as incompressible
+     * (random) data sections.
+     */
+    static byte[] createTestData(final int size) {
+        final Random random = new Random(4711);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        final String[] words = {"\u001B&l0O", "\u001B*p300x400Y", "Hello ", "World ", "PCL ", "\r\n", "\f"};
+
+        while (out.size() < size) {
+            if (random.nextInt(20) == 0) {
+                final byte[] raster = new byte[random.nextInt(5000)];
+                random.nextBytes(raster);
+                out.write(raster, 0, raster.length);
+            } else {
+                final byte[] word = words[random.nextInt(words.length)].getBytes();
+                out.write(word, 0, word.length);
+            }
+        }
+
+        return Arrays.copyOf(out.toByteArray(), size);
+    }
+
+    /**
+     * Compresses the given data to a gzip member.
+     */
+    static byte[] gzip(final byte[] data, final int level, final int strategy) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF}, 0, 10);
+
+        final Deflater deflater = new Deflater(level, true);
+        deflater.setStrategy(strategy);
+        deflater.setInput(data);
+        deflater.finish();
+
+        final byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        writeInt(out, crc.getValue());
+        writeInt(out, data.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes an little endian 32 bit integer.
+     */
+    private static void writeInt(final ByteArrayOutputStream out, final long value) {
+        for (int ix = 0; ix < 4; ++ix) {
+            out.write((int) (value >>> (ix * 8)));
+        }
+    }
+
+    /**
+     * Creates a {@link PclInputStreamForGzip} for the given gzip data.
+     */
+    private static PclInputStreamForGzip open(final byte[] compressed, final long checkpointInterval) {
+        return new PclInputStreamForGzip(new PclInputStreamForByteArray(compressed, 0, compressed.length),
+                checkpointInterval);
+    }
+
+    /**
+     * Reads the whole data stream byte by byte and by using read(byte[]) and compares it with the expected data.
+     */
+    private static void assertContent(final byte[] expected, final byte[] compressed) throws Exception {
+        PclInputStream pclStream = open(compressed, 0);
+        for (int ix = 0; ix < expected.length; ++ix) {
+            assertEquals(ix, pclStream.tell());
+            assertEquals(expected[ix] & 0xFF, pclStream.read());
+        }
+        assertEquals(-1, pclStream.read());
+        pclStream.close();
+
+        pclStream = open(compressed, 0);
+        final byte[] buffer = new byte[expected.length + 100];
+        assertEquals(expected.length == 0 ? -1 : expected.length, pclStream.read(buffer));
+        assertTrue(Arrays.equals(expected, Arrays.copyOf(buffer, expected.length)));
+        assertEquals(-1, pclStream.read(buffer));
+        pclStream.close();
+    }
+
+    /**
+     * Checks that data compressed with different levels and strategies (stored, fixed and dynamic Huffman
+     * blocks) is decompressed correctly.
+     */
+    public void testLevelsAndStrategies() throws Exception {
+        final byte[] data = createTestData(300000);
+
+        assertContent(data, gzip(data, Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+        assertContent(data, gzip(data, Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY));
+        assertContent(data, gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+        assertContent(data, gzip(data, Deflater.BEST_COMPRESSION, Deflater.FILTERED));
+        assertContent(data, gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.HUFFMAN_ONLY));
+
+        final byte[] small = "\u001BE\u001B&l1OHello World\u001BE".getBytes("iso-8859-1");
+        assertContent(small, gzip(small, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+
+        assertContent(new byte[0], gzip(new byte[0], Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+    }
+
+    /**
+     * Checks that the members of a multi member gzip file are read as one data stream.
+     */
+    public void testMultipleMembers() throws Exception {
+        final byte[] first = createTestData(70000);
+        final byte[] second = "\u001BE\u001B&l1OSecond member\u001BE".getBytes("iso-8859-1");
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final byte[] firstMember = gzip(first, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        final byte[] secondMember = gzip(second, Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+        compressed.write(firstMember, 0, firstMember.length);
+        compressed.write(secondMember, 0, secondMember.length);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first, 0, first.length);
+        expected.write(second, 0, second.length);
+
+        assertContent(expected.toByteArray(), compressed.toByteArray());
+    }
+
+    /**
+     * Checks random seeks with and without a checkpoint index.
+     */
+    public void testRandomSeeks() throws Exception {
+        final byte[] data = createTestData(2000000);
+        final byte[] compressed = gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+        for (final int interval : new int[] {0, 100000}) {
+            final PclInputStreamForGzip pclStream = open(compressed, interval);
+
+            // Read the whole data stream once, so the checkpoints are taken...
+            pclStream.seek(data.length);
+            assertEquals(-1, pclStream.read());
+            if (interval == 0) {
+                assertEquals(0, pclStream.getCheckpointCount());
+            } else {
+                assertTrue(pclStream.getCheckpointCount() >= 10);
+            }
+
+            final Random random = new Random(interval);
+            final byte[] buffer = new byte[100];
+            for (int ix = 0; ix < 50; ++ix) {
+                final int offset = random.nextInt(data.length - buffer.length);
+                pclStream.seek(offset);
+                assertEquals(offset, pclStream.tell());
+                assertEquals(data[offset] & 0xFF, pclStream.read());
+                assertEquals(buffer.length, pclStream.read(buffer));
+                assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset + 1, offset + 1 + buffer.length), buffer));
+            }
+
+            pclStream.close();
+        }
+    }
+
+    /**
+     * Checks that seeking after the end of the uncompressed data fails.
+     */
+    public void testSeekAfterEnd() throws Exception {
+        final byte[] data = createTestData(1000);
+        final byte[] compressed = gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        final PclInputStream pclStream = open(compressed, 0);
+
+        pclStream.seek(1000);
+        assertEquals(-1, pclStream.read());
+
+        try {
+            pclStream.seek(1001);
+            fail("Should fail because the offset is after the end of the data stream.");
+        } catch (final IOException e) {
+            assertEquals("An error occurred when trying to position to offset 1001", e.getMessage());
+        }
+
+        pclStream.close();
+    }
+
+    /**
+     * Checks that invalid and corrupt data streams are detected.
+     */
+    public void testCorruptData() throws Exception {
+        try {
+            final byte[] text = "TEST".getBytes("utf-8");
+            open(text, 0).read();
+            fail("Should fail because the data stream is not in gzip format.");
+        } catch (final IOException e) {
+            assertEquals("The data stream is not in gzip format", e.getMessage());
+        }
+
+        final byte[] data = createTestData(1000);
+        final byte[] compressed = gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+        final byte[] wrongCrc = compressed.clone();
+        wrongCrc[wrongCrc.length - 8] ^= 0xFF;
+        try {
+            final PclInputStream pclStream = open(wrongCrc, 0);
+            pclStream.seek(data.length);
+            pclStream.read(); // the trailer is read at the end of the member
+            fail("Should fail because the CRC-32 is wrong.");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("CRC-32"));
+        }
+
+        final byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        try {
+            open(truncated, 0).seek(data.length);
+            fail("Should fail because the data stream is truncated.");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("unexpectedly ends"));
+        }
+    }
+}
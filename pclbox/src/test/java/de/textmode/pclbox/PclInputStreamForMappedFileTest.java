@@ -0,0 +1,126 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclInputStreamForMappedFile}.
+ */
+public final class PclInputStreamForMappedFileTest extends TestCase {
+
+    /**
+     * Creates a temporary file with the given content.
+     */
+    private File createTestFile(final byte[] content) throws Exception {
+        final File testFile = File.createTempFile(this.getClass().getSimpleName(), null);
+        testFile.deleteOnExit(); // in case the test method throws an exception...
+
+        final FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        return testFile;
+    }
+
+    /**
+     * Happy-Flow test with a small file.
+     */
+    public void testAllMethodsOfInterface() throws Exception {
+        final File testFile = this.createTestFile("TEST".getBytes("utf-8"));
+
+        final PclInputStream pclStream = new PclInputStreamForMappedFile(
+                FileChannel.open(testFile.toPath(), StandardOpenOption.READ));
+
+        assertEquals(0, pclStream.tell());
+        assertEquals(84, pclStream.read());
+        assertEquals(1, pclStream.tell());
+
+        final byte[] buffer = new byte[3];
+        assertEquals(3, pclStream.read(buffer, 0, 3));
+        assertEquals(69, buffer[0]);
+        assertEquals(83, buffer[1]);
+        assertEquals(84, buffer[2]);
+        assertEquals(4, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+        assertEquals(-1, pclStream.read(buffer));
+
+        pclStream.seek(1);
+        assertEquals(1, pclStream.tell());
+        assertEquals(69, pclStream.read());
+        assertEquals(2, pclStream.tell());
+
+        assertEquals(2, pclStream.read(buffer));
+        assertEquals(83, buffer[0]);
+        assertEquals(84, buffer[1]);
+        assertEquals(4, pclStream.tell());
+
+        pclStream.close();
+
+        // The mapping is released lazily (by the garbage collector), so some platforms refuse
+        // to delete the file right now. The file gets deleted on exit anyway...
+    }
+
+    /**
+     * Checks that the mapped window slides along the file.
+     */
+    public void testSlidingWindow() throws Exception {
+        final byte[] content = new byte[1000];
+        for (int ix = 0; ix < content.length; ++ix) {
+            content[ix] = (byte) ix;
+        }
+
+        final File testFile = this.createTestFile(content);
+        final PclInputStream pclStream = new PclInputStreamForMappedFile(
+                FileChannel.open(testFile.toPath(), StandardOpenOption.READ), 64);
+
+        for (int ix = 0; ix < 100; ++ix) {
+            assertEquals(ix, pclStream.tell());
+            assertEquals(content[ix] & 0xFF, pclStream.read());
+        }
+
+        // A read that spans multiple windows must return all requested bytes...
+        final byte[] buffer = new byte[150];
+        assertEquals(150, pclStream.read(buffer));
+        assertEquals(250, pclStream.tell());
+        for (int ix = 0; ix < buffer.length; ++ix) {
+            assertEquals(content[100 + ix], buffer[ix]);
+        }
+
+        pclStream.seek(3);
+        assertEquals(content[3] & 0xFF, pclStream.read());
+
+        pclStream.seek(995);
+        assertEquals(5, pclStream.read(buffer));
+        assertEquals(content[999], buffer[4]);
+        assertEquals(1000, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+
+        pclStream.close();
+
+        // The mapping is released lazily (by the garbage collector), so some platforms refuse
+        // to delete the file right now. The file gets deleted on exit anyway...
+    }
+}
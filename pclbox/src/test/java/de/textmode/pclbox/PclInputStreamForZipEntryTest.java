@@ -0,0 +1,139 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclInputStreamForZipEntry}.
+ */
+public final class PclInputStreamForZipEntryTest extends TestCase {
+
+    /**
+     * Creates a temporary zip archive with a compressed and a stored entry.
+     */
+    private File createTestArchive(final byte[] deflated, final byte[] stored) throws Exception {
+        final File testFile = File.createTempFile(this.getClass().getSimpleName(), ".zip");
+        testFile.deleteOnExit(); // in case the test method throws an exception...
+
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(testFile));
+        try {
+            out.setComment("pclbox test archive");
+
+            out.putNextEntry(new ZipEntry("jobs/deflated.pcl"));
+            out.write(deflated);
+            out.closeEntry();
+
+            final CRC32 crc = new CRC32();
+            crc.update(stored);
+
+            final ZipEntry entry = new ZipEntry("jobs/stored.pcl");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.length);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(stored);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+
+        return testFile;
+    }
+
+    /**
+     * Checks reading and random seeks of both entries.
+     */
+    public void testReadAndSeek() throws Exception {
+        final byte[] deflated = PclInputStreamForGzipTest.createTestData(500000);
+        final byte[] stored = "\u001BE\u001B&l1OThis entry is stored\u001BE".getBytes("iso-8859-1");
+        final File testFile = this.createTestArchive(deflated, stored);
+
+        for (final byte[] expected : new byte[][] {deflated, stored}) {
+            final String name = expected == deflated ? "jobs/deflated.pcl" : "jobs/stored.pcl";
+            final PclInputStream pclStream = PclInputStreams.forZipEntry(testFile.toPath(), name, 50000);
+
+            final byte[] buffer = new byte[expected.length];
+            assertEquals(0, pclStream.tell());
+            assertEquals(expected.length, pclStream.read(buffer));
+            assertTrue(Arrays.equals(expected, buffer));
+            assertEquals(-1, pclStream.read());
+
+            final Random random = new Random(expected.length);
+            for (int ix = 0; ix < 20; ++ix) {
+                final int offset = random.nextInt(expected.length);
+                pclStream.seek(offset);
+                assertEquals(offset, pclStream.tell());
+                assertEquals(expected[offset] & 0xFF, pclStream.read());
+            }
+
+            try {
+                pclStream.seek(expected.length + 1);
+                fail("Should fail because the offset is after the end of the entry.");
+            } catch (final IOException e) {
+                assertTrue(e.getMessage().contains("position to offset"));
+            }
+
+            pclStream.close();
+        }
+
+        assertTrue(testFile.delete());
+    }
+
+    /**
+     * Checks that a missing entry is reported.
+     */
+    public void testMissingEntry() throws Exception {
+        final File testFile = this.createTestArchive(new byte[10], new byte[10]);
+
+        final PclInputStream pclStream = PclInputStreams.forZipEntry(testFile.toPath(), "missing.pcl", 0);
+        try {
+            pclStream.read();
+            fail("Should fail because the entry does not exist.");
+        } catch (final IOException e) {
+            assertEquals("The zip archive does not contain an entry named missing.pcl", e.getMessage());
+        } finally {
+            pclStream.close();
+        }
+
+        assertTrue(testFile.delete());
+    }
+
+    /**
+     * Checks that a file that is not a zip archive is detected.
+     */
+    public void testNoZipArchive() throws Exception {
+        final byte[] data = "TEST".getBytes("utf-8");
+        final PclInputStream pclStream =
+                new PclInputStreamForZipEntry(new PclInputStreamForByteArray(data, 0, data.length), 4, "test", 0);
+        try {
+            pclStream.read();
+            fail("Should fail because the data is not a zip archive.");
+        } catch (final IOException e) {
+            assertEquals("The data stream is not a zip archive", e.getMessage());
+        }
+    }
+}
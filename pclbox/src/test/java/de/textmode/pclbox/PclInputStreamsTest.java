@@ -0,0 +1,64 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclInputStreams}.
+ */
+public final class PclInputStreamsTest extends TestCase {
+
+    /**
+     * Checks that every factory method creates the expected {@link PclInputStream}.
+     */
+    public void testFactoryMethods() throws Exception {
+        final File testFile = File.createTempFile(this.getClass().getSimpleName(), null);
+        testFile.deleteOnExit(); // in case this method throws an exception...
+
+        final PclInputStream file = PclInputStreams.forFile(testFile);
+        assertTrue(file instanceof BufferedPclInputStream);
+        assertEquals(-1, file.read());
+        file.close();
+
+        final PclInputStream mapped = PclInputStreams.forMappedFile(testFile.toPath());
+        assertTrue(mapped instanceof PclInputStreamForMappedFile);
+        assertEquals(-1, mapped.read());
+        mapped.close();
+
+        assertTrue(PclInputStreams.forByteArray(new byte[1], 0, 1) instanceof PclInputStreamForByteArray);
+        assertTrue(PclInputStreams.forByteBuffer(ByteBuffer.allocate(1)) instanceof PclInputStreamForByteArray);
+        assertTrue(PclInputStreams.forByteBuffer(ByteBuffer.allocateDirect(1)) instanceof PclInputStreamForByteBuffer);
+
+        assertTrue(PclInputStreams.forInputStream(new ByteArrayInputStream(new byte[1]))
+                instanceof PclInputStreamForInputStream);
+
+        final PclInputStream array = PclInputStreams.forByteArray(new byte[] { 1, 2, 3 }, 1, 2);
+        assertTrue(PclInputStreams.buffered(array, 1) instanceof BufferedPclInputStream);
+
+        final PclInputStream prefetching = PclInputStreams.prefetching(array, 1, 1);
+        assertTrue(prefetching instanceof PrefetchingPclInputStream);
+        assertEquals(2, prefetching.read());
+        assertEquals(3, prefetching.read());
+        assertEquals(-1, prefetching.read());
+        prefetching.close();
+    }
+}
@@ -17,9 +17,14 @@ package de.textmode.pclbox;
  */
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -38,6 +43,118 @@ public final class PclParserTest extends TestCase {
         pclParser.close();
     }
 
+    /**
+     * Parses a PCL data stream that is held in a range of a byte array.
+     */
+    public void testParseByteArray() throws Exception {
+        final byte[] data = "xx\u001BE123\u001B&u300Dyy".getBytes("iso-8859-1");
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser pclParser = new PclParser(data, 2, data.length - 4, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        pclParser.parse();
+        pclParser.close();
+
+        assertEquals(3, commands.size());
+        assertEquals(new TwoBytePclCommand(0, 'E'), commands.get(0));
+        assertEquals(new TextCommand(2, new byte[] { '1', '2', '3' }), commands.get(1));
+        assertEquals(new ParameterizedPclCommand(5, '&', 'u', "300", 'D'), commands.get(2));
+    }
+
+    /**
+     * Parses a PCL data stream with lazy data sections. The data sections are read on demand, while the data
+     * stream is parsed as well as afterwards.
+     */
+    public void testLazyDataSections() throws Exception {
+        final byte[] data = "\u001B*b3WABC\u001B)s2Wxy123\u001B&d@".getBytes("iso-8859-1");
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final List<byte[]> dataSections = new ArrayList<>();
+        final PclParser pclParser = new PclParser(data, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+                commands.add(command);
+                if (command instanceof ParameterizedPclCommand) {
+                    dataSections.add(((ParameterizedPclCommand) command).readDataSection());
+                }
+            }
+        });
+
+        pclParser.setLazyDataSections(true);
+        pclParser.parse();
+
+        assertEquals(4, commands.size());
+        assertEquals(new TextCommand(15, new byte[] { '1', '2', '3' }), commands.get(2));
+        assertEquals(new ParameterizedPclCommand(18, '&', 'd', "", '@'), commands.get(3));
+        assertTrue(Arrays.equals(new byte[] { 'A', 'B', 'C' }, dataSections.get(0)));
+        assertTrue(Arrays.equals(new byte[] { 'x', 'y' }, dataSections.get(1)));
+        assertNull(dataSections.get(2));
+
+        final ParameterizedPclCommand fontHeader = (ParameterizedPclCommand) commands.get(1);
+        assertTrue(fontHeader.hasDataSection());
+        assertEquals(2, fontHeader.getDataSectionLength());
+        assertTrue(Arrays.equals(new byte[] { 'x', 'y' }, fontHeader.readDataSection()));
+        assertEquals("\u001B)s2Wxy", new String(fontHeader.toByteArray(), "iso-8859-1"));
+
+        try {
+            fontHeader.getDataSection();
+            fail("Should fail because the data section has been skipped");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("skipped"));
+        }
+
+        pclParser.close();
+    }
+
+    /**
+     * Checks that a truncated data section is detected even if data sections are skipped.
+     */
+    public void testLazyDataSectionTruncated() throws Exception {
+        final PclParser pclParser = new PclParser("\u001B*b5WABC".getBytes("iso-8859-1"), null);
+        pclParser.setLazyDataSections(true);
+
+        try {
+            pclParser.parse();
+            fail("Should fail because the data section is truncated");
+        } catch (final EOFException e) {
+            assertTrue(e.getMessage().contains("unexpectedly ends"));
+        }
+
+        pclParser.close();
+    }
+
+    /**
+     * Parses a PCL data stream that is held in a byte array with shared payloads, so text and data sections
+     * reference the byte array.
+     */
+    public void testSharedPayloads() throws Exception {
+        final byte[] data = "Text\u001B*b3WABC".getBytes("iso-8859-1");
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser pclParser = new PclParser(data, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        pclParser.setSharedPayloads(true);
+        pclParser.parse();
+        pclParser.close();
+
+        assertEquals(new TextCommand(0, "Text".getBytes("iso-8859-1")), commands.get(0));
+        assertEquals(new ParameterizedPclCommand(4, '*', 'b', "3", 'W', "ABC".getBytes("iso-8859-1")),
+                commands.get(1));
+
+        // Both commands reference the byte array...
+        data[0] = 'N';
+        data[9] = 'X';
+        assertEquals("Next", ((TextCommand) commands.get(0)).toDisplayString());
+        assertEquals('X', ((ParameterizedPclCommand) commands.get(1)).getDataSectionBuffer().get(0));
+    }
+
     /**
      * Just invokes every constructor once. This test is more or less useless - it is just
      * here to pimp the code coverage...
@@ -48,9 +165,14 @@ public final class PclParserTest extends TestCase {
 
         new PclParser(testFile.getAbsolutePath(), null).close();
         new PclParser(testFile, null).close();
+        new PclParser(testFile.toPath(), null).close();
         new PclParser(new FileInputStream(testFile), null).close();
         new PclParser(new ByteArrayInputStream(new byte[0]), null).close();
         new PclParser(new ByteArrayInputStream(new byte[0]), null, true).close();
+        new PclParser(new byte[0], null).close();
+        new PclParser(new byte[10], 2, 5, null).close();
+        new PclParser(ByteBuffer.allocate(10), null).close();
+        new PclParser(ByteBuffer.allocateDirect(10), null).close();
 
         new PclParser(new PclInputStream() {
 
@@ -0,0 +1,168 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclPipeline}.
+ */
+public final class PclPipelineTest extends TestCase {
+
+    /**
+     * {@link PrinterCommandHandler} that collects the printer commands (and fails after a given number).
+     */
+    private static final class Collector implements PrinterCommandHandler {
+        private final List<PrinterCommand> commands = new ArrayList<>();
+        private final int failAfter;
+        private String threadName;
+
+        Collector(final int failAfter) {
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public void handlePrinterCommand(final PrinterCommand command) throws IOException {
+            this.threadName = Thread.currentThread().getName();
+            if (this.commands.size() == this.failAfter) {
+                throw new IOException("Handler failed");
+            }
+            this.commands.add(command);
+        }
+    }
+
+    /**
+     * Returns a data stream with many printer commands.
+     */
+    private static byte[] createDataStream() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write("\u001B%-12345X@PJL JOB\n@PJL ENTER LANGUAGE=PCL\n\u001BE".getBytes("iso-8859-1"));
+        for (int row = 0; row < 1000; ++row) {
+            output.write(("\u001B*b3WRow" + row + "\r\n\u001B%0BPD" + row + ",1;\u001B%0A").getBytes("iso-8859-1"));
+        }
+        output.write("\u001B%-12345X".getBytes("iso-8859-1"));
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns the printer commands the {@link PclParser} reports for the given data stream.
+     */
+    private static List<PrinterCommand> parse(final byte[] data) throws Exception {
+        final Collector collector = new Collector(-1);
+        try (final PclParser parser = new PclParser(data, collector)) {
+            parser.parse();
+        }
+        return collector.commands;
+    }
+
+    /**
+     * Checks that every handler gets all printer commands in the order of the data stream (with every
+     * {@link PclPipeline.WaitStrategy} and a ring buffer that is much smaller than the data stream).
+     */
+    public void testPipeline() throws Exception {
+        final byte[] data = createDataStream();
+        final List<PrinterCommand> expected = parse(data);
+
+        for (final PclPipeline.WaitStrategy strategy : PclPipeline.WaitStrategy.values()) {
+            final Collector first = new Collector(-1);
+            final Collector second = new Collector(-1);
+            final PclPipeline pipeline = new PclPipeline(
+                    PclInputStreams.forByteArray(data, 0, data.length), first, second);
+
+            pipeline.setBufferSize(64);
+            pipeline.setWaitStrategy(strategy);
+            pipeline.setThreadFactory(runnable -> new Thread(runnable, "handler"));
+            pipeline.parse();
+
+            assertEquals(expected, first.commands);
+            assertEquals(expected, second.commands);
+            assertEquals("handler", first.threadName);
+        }
+    }
+
+    /**
+     * Checks that parsing is stopped if a handler fails and that the exception of the handler is thrown.
+     */
+    public void testFailingHandler() throws Exception {
+        final byte[] data = createDataStream();
+        final List<PrinterCommand> expected = parse(data);
+
+        final Collector failing = new Collector(100);
+        final Collector other = new Collector(-1);
+        final PclPipeline pipeline = new PclPipeline(
+                PclInputStreams.forByteArray(data, 0, data.length), failing, other);
+        pipeline.setBufferSize(16);
+
+        try {
+            pipeline.parse();
+            fail("Should fail because the handler fails");
+        } catch (final IOException e) {
+            assertEquals("Handler failed", e.getMessage());
+        }
+
+        assertEquals(expected.subList(0, 100), failing.commands);
+        assertTrue(other.commands.size() < expected.size());
+        assertEquals(expected.subList(0, other.commands.size()), other.commands);
+    }
+
+    /**
+     * Checks that an invalid data stream is reported after the handlers have handled the printer commands
+     * before the error.
+     */
+    public void testInvalidDataStream() throws Exception {
+        final byte[] data = "Hello\r\u001B%-12345XNo PJL\n".getBytes("iso-8859-1");
+        final Collector collector = new Collector(-1);
+
+        try {
+            new PclPipeline(PclInputStreams.forByteArray(data, 0, data.length), collector).parse();
+            fail("Should fail because there is no PJL command");
+        } catch (final PclException e) {
+            assertEquals("No PJL command is found at offset 15", e.getMessage());
+        }
+
+        assertEquals(3, collector.commands.size());
+    }
+
+    /**
+     * Checks the arguments.
+     */
+    public void testInvalidArguments() throws Exception {
+        final PclInputStream input = PclInputStreams.forByteArray(new byte[0], 0, 0);
+        try {
+            new PclPipeline(input);
+            fail("Should fail because there is no handler");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("At least one handler is required", e.getMessage());
+        }
+
+        final PclPipeline pipeline = new PclPipeline(input, new Collector(-1));
+        for (final int size : new int[] {0, -4, 100}) {
+            try {
+                pipeline.setBufferSize(size);
+                fail("Should fail because the buffer size is no power of two");
+            } catch (final IllegalArgumentException e) {
+                assertEquals("The buffer size must be a power of two", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclPushParser}.
+ */
+public final class PclPushParserTest extends TestCase {
+
+    private static final String DATA_STREAM = "\u001B%-12345X@PJL JOB\r\n@PJL ENTER LANGUAGE=PCL\n"
+            + "\u001BEHello\r\u001B&l1a2O\u001B%0BIN;SP1;LB\"A;B\"\"\";PD10,20;\u001B%0AWorld\u001B*b3WABC"
+            + "\u001B&p<abc>A\u001B%-12345X@PJL EOJ\n";
+
+    /**
+     * Returns the printer commands the {@link PclParser} reports for the given data stream.
+     */
+    private static List<PrinterCommand> parse(final byte[] data) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser parser = new PclParser(data, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        parser.parse();
+        parser.close();
+        return commands;
+    }
+
+    /**
+     * Pushes the given data stream in chunks of the given size to a {@link PclPushParser} and returns
+     * the reported printer commands.
+     */
+    private static List<PrinterCommand> push(final byte[] data, final int chunkSize) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclPushParser parser = new PclPushParser(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            parser.feed(ByteBuffer.wrap(data, offset, Math.min(chunkSize, data.length - offset)));
+        }
+        parser.endOfInput();
+        return commands;
+    }
+
+    /**
+     * Pushes a data stream with PJL, PCL and HP/GL/2 in chunks of every size and checks that the
+     * {@link PclPushParser} reports the same printer commands as the {@link PclParser}.
+     */
+    public void testChunks() throws Exception {
+        final byte[] data = DATA_STREAM.getBytes("iso-8859-1");
+        final List<PrinterCommand> expected = parse(data);
+        assertEquals(19, expected.size());
+
+        for (int chunkSize = 1; chunkSize <= data.length; ++chunkSize) {
+            assertEquals("chunk size " + chunkSize, expected, push(data, chunkSize));
+        }
+    }
+
+    /**
+     * Checks that every printer command is reported as soon as it is complete.
+     */
+    public void testReportedWhenComplete() throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclPushParser parser = new PclPushParser(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        parser.feed(ByteBuffer.wrap("\u001BE\u001B*b5WAB".getBytes("iso-8859-1")));
+        assertEquals(1, commands.size());
+
+        parser.feed(ByteBuffer.wrap("CDEText".getBytes("iso-8859-1")));
+        assertEquals(2, commands.size());
+        assertEquals(new ParameterizedPclCommand(2, '*', 'b', "5", 'W', "ABCDE".getBytes("iso-8859-1")),
+                commands.get(1));
+
+        // The text may continue with the next chunk...
+        parser.feed(ByteBuffer.wrap("\r".getBytes("iso-8859-1")));
+        assertEquals(4, commands.size());
+        assertEquals(new TextCommand(12, "Text".getBytes("iso-8859-1")), commands.get(2));
+
+        parser.endOfInput();
+        assertEquals(4, commands.size());
+    }
+
+    /**
+     * Pushes a large data stream in small chunks, so the buffered bytes are discarded many times.
+     */
+    public void testLargeDataStream() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int row = 0; row < 2000; ++row) {
+            output.write(("\u001B*b" + row % 100 + "W").getBytes("iso-8859-1"));
+            for (int ix = 0; ix < row % 100; ++ix) {
+                output.write(ix * 7);
+            }
+            output.write(("Row " + row + "\r\n").getBytes("iso-8859-1"));
+        }
+
+        final byte[] data = output.toByteArray();
+        assertEquals(parse(data), push(data, 1000));
+        assertEquals(parse(data), push(data, 97));
+    }
+
+    /**
+     * Pushes printer commands that span thousands of chunks (a text run, a PJL command and a HP/GL/2 command
+     * with a huge number of parameters). They must not be parsed again for every chunk, otherwise the time grows
+     * with the square of the size of the printer command (which would take minutes here).
+     */
+    public void testLargePrinterCommands() throws Exception {
+        final byte[] text = new byte[8 * 1024 * 1024];
+        Arrays.fill(text, (byte) 'x');
+
+        final byte[] pjl = new byte[4 * 1024 * 1024];
+        Arrays.fill(pjl, (byte) 'x');
+        System.arraycopy("@PJL COMMENT ".getBytes("iso-8859-1"), 0, pjl, 0, 13);
+        pjl[pjl.length - 1] = '\n';
+
+        final byte[] polylineEncoded = new byte[4 * 1024 * 1024];
+        Arrays.fill(polylineEncoded, (byte) '?');
+        System.arraycopy("\u001B%0BPE".getBytes("iso-8859-1"), 0, polylineEncoded, 0, 6);
+        polylineEncoded[polylineEncoded.length - 1] = ';';
+
+        for (final byte[] data : new byte[][] { text, pjl, polylineEncoded }) {
+            final long start = System.nanoTime();
+            final List<PrinterCommand> commands = push(data, 4096);
+            final long millis = (System.nanoTime() - start) / 1000000;
+
+            assertEquals(parse(data), commands);
+            assertTrue("took " + millis + " ms", millis < 5000);
+        }
+    }
+
+    /**
+     * Pushes a truncated data stream. The end of the data stream is detected by {@link PclPushParser#endOfInput()}.
+     */
+    public void testTruncatedDataStream() throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclPushParser parser = new PclPushParser(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        parser.feed(ByteBuffer.wrap("ABC\u001B*b5WABC".getBytes("iso-8859-1")));
+        assertEquals(1, commands.size());
+
+        try {
+            parser.endOfInput();
+            fail("Should fail because the data section is truncated");
+        } catch (final EOFException e) {
+            assertTrue(e.getMessage().contains("unexpectedly ends at offset"));
+        }
+
+        try {
+            parser.feed(ByteBuffer.wrap(new byte[1]));
+            fail("Should fail because the parser has failed");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("parsing has failed"));
+        }
+    }
+
+    /**
+     * Pushes an invalid data stream. The {@link PclException} is thrown by {@link PclPushParser#feed(ByteBuffer)}.
+     */
+    public void testInvalidDataStream() throws Exception {
+        final PclPushParser parser = new PclPushParser(new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+            }
+        });
+
+        parser.feed(ByteBuffer.wrap("\u001B%-12345X@PJL".getBytes("iso-8859-1")));
+        try {
+            parser.feed(ByteBuffer.wrap(" JOB\nNo PJL\n".getBytes("iso-8859-1")));
+            fail("Should fail because there is no PJL command");
+        } catch (final PclException e) {
+            assertEquals("No PJL command is found at offset 18", e.getMessage());
+        }
+    }
+}
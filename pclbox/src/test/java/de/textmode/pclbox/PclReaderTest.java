@@ -0,0 +1,165 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PclReader}.
+ */
+public final class PclReaderTest extends TestCase {
+
+    private static final String DATA_STREAM = "\u001B%-12345X@PJL JOB\r\n@PJL ENTER LANGUAGE=PCL\n"
+            + "\u001BEHello\r\u001B&l1a2O\u001B%0BIN;SP1;PD10,20;\u001B%0AWorld\u001B*b3WABC"
+            + "\u001B%-12345X@PJL EOJ\n";
+
+    /**
+     * Returns the given data stream as a {@link PclInputStream}.
+     */
+    private static PclInputStream streamOf(final String data) throws Exception {
+        final byte[] bytes = data.getBytes("iso-8859-1");
+        return PclInputStreams.forByteArray(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the printer commands the {@link PclParser} reports for the given data stream.
+     */
+    private static List<PrinterCommand> parse(final String data) throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser parser = new PclParser(streamOf(data), new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        });
+
+        parser.parse();
+        parser.close();
+        return commands;
+    }
+
+    /**
+     * Reads a data stream with PJL, PCL and HP/GL/2 and checks that the {@link PclReader} returns the same
+     * printer commands as the {@link PclParser}.
+     */
+    public void testReader() throws Exception {
+        final List<PrinterCommand> commands = new ArrayList<>();
+        try (final PclReader reader = new PclReader(streamOf(DATA_STREAM), true)) {
+            while (reader.hasNext()) {
+                commands.add(reader.next());
+            }
+            assertFalse(reader.hasNext());
+        }
+
+        assertEquals(parse(DATA_STREAM), commands);
+        assertEquals(17, commands.size());
+        assertEquals(new PjlCommand(9, "@PJL JOB"), commands.get(1));
+        assertEquals(new TextCommand(45, "Hello".getBytes("iso-8859-1")), commands.get(4));
+        assertEquals(new ParameterizedPclCommand(51, '&', 'l', "1", 'A'), commands.get(6));
+        assertEquals(new ParameterizedPclCommand(56, '&', 'l', "2", 'O'), commands.get(7));
+        assertEquals(new HpglCommand(62, "IN", ""), commands.get(9));
+        assertEquals(new HpglCommand(69, "PD", "10,20"), commands.get(11));
+        assertEquals(new PjlCommand(103, "@PJL EOJ"), commands.get(16));
+    }
+
+    /**
+     * Reads the printer commands by the {@link Iterator} and the {@link Stream} of the {@link PclReader}.
+     */
+    public void testIteratorAndStream() throws Exception {
+        final PclReader reader = new PclReader(streamOf(DATA_STREAM));
+        final Iterator<PrinterCommand> iterator = reader.iterator();
+        assertTrue(iterator.hasNext());
+        assertEquals(new ParameterizedPclCommand(0, '%', 0, "-12345", 'X'), iterator.next());
+
+        final List<PrinterCommand> remaining;
+        try (final Stream<PrinterCommand> stream = reader.stream()) {
+            remaining = stream.collect(Collectors.toList());
+        }
+
+        final List<PrinterCommand> expected = parse(DATA_STREAM);
+        assertEquals(expected.subList(1, expected.size()), remaining);
+        assertFalse(iterator.hasNext());
+
+        try {
+            reader.next();
+            fail("Should fail because the end of the data stream has been reached");
+        } catch (final NoSuchElementException e) {
+            assertTrue(e.getMessage().contains("end of the data stream"));
+        }
+    }
+
+    /**
+     * Reads a truncated data stream. The {@link Iterator} wraps the exception.
+     */
+    public void testTruncatedDataStream() throws Exception {
+        final PclReader reader = new PclReader(streamOf("ABC\u001B*b5WABC"));
+        assertEquals(new TextCommand(0, "ABC".getBytes("iso-8859-1")), reader.next());
+
+        try {
+            reader.iterator().hasNext();
+            fail("Should fail because the data section is truncated");
+        } catch (final UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+
+        assertFalse(reader.hasNext());
+        reader.close();
+    }
+
+    /**
+     * Reads an invalid data stream. The {@link Iterator} wraps the {@link PclException}.
+     */
+    public void testInvalidDataStream() throws Exception {
+        final PclReader reader = new PclReader(streamOf("\u001B%-12345XNo PJL\n"));
+
+        try {
+            reader.iterator().forEachRemaining(command -> { });
+            fail("Should fail because the PJL command is invalid");
+        } catch (final UncheckedPclException e) {
+            assertTrue(e.getCause().getMessage().contains("No PJL command"));
+        }
+
+        reader.close();
+    }
+
+    /**
+     * Reads a data stream with lazy data sections, which are read while the data stream is read.
+     */
+    public void testLazyDataSections() throws Exception {
+        final PclReader reader = new PclReader(streamOf("\u001B*b3WABC\u001B)s2Wxy123"));
+        reader.setLazyDataSections(true);
+
+        final ParameterizedPclCommand raster = (ParameterizedPclCommand) reader.next();
+        assertTrue(Arrays.equals(new byte[] { 'A', 'B', 'C' }, raster.readDataSection()));
+
+        final ParameterizedPclCommand fontHeader = (ParameterizedPclCommand) reader.next();
+        assertEquals(new TextCommand(15, "123".getBytes("iso-8859-1")), reader.next());
+        assertTrue(Arrays.equals(new byte[] { 'x', 'y' }, fontHeader.readDataSection()));
+        assertFalse(reader.hasNext());
+        reader.close();
+    }
+}
@@ -17,6 +17,7 @@ package de.textmode.pclbox;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -74,8 +75,55 @@ public final class PjlCommandTest extends TestCase {
      * Checks the method toCommandString.
      */
     public void testToCommandString() {
-        assertEquals("PJL", COMMENT_AT_1.toCommandString());
-        assertEquals("PJL", ENTER_AT_1.toCommandString());
+        assertEquals("PJL COMMENT", COMMENT_AT_1.toCommandString());
+        assertEquals("PJL ENTER", ENTER_AT_1.toCommandString());
+        assertEquals("PJL", new PjlCommand(1, "@PJL").toCommandString());
+        assertEquals("PJL SET", new PjlCommand(1, "@PJL set COPIES=2").toCommandString());
+    }
+
+    /**
+     * Checks the methods getKeyword, getModifier and getVariables.
+     */
+    public void testParts() {
+        assertEquals("COMMENT", COMMENT_AT_1.getKeyword());
+        assertNull(COMMENT_AT_1.getModifier());
+        assertTrue(COMMENT_AT_1.getVariables().isEmpty());
+
+        assertEquals("ENTER", ENTER_AT_1.getKeyword());
+        assertNull(ENTER_AT_1.getModifier());
+        assertEquals("PCL", ENTER_AT_1.getVariable("LANGUAGE"));
+        assertEquals(1, ENTER_AT_1.getVariables().size());
+
+        final PjlCommand bare = new PjlCommand(1, "@PJL");
+        assertEquals("", bare.getKeyword());
+        assertNull(bare.getModifier());
+        assertTrue(bare.getVariables().isEmpty());
+
+        final PjlCommand set = new PjlCommand(1, "@PJL SET LPARM : PCL SYMSET = ROMAN8");
+        assertEquals("SET", set.getKeyword());
+        assertEquals("LPARM:PCL", set.getModifier());
+        assertEquals("ROMAN8", set.getVariable("SYMSET"));
+
+        final PjlCommand job = new PjlCommand(1, "@PJL JOB NAME = \"My Report\" start=2");
+        assertEquals("JOB", job.getKeyword());
+        assertNull(job.getModifier());
+        assertEquals("My Report", job.getVariable("NAME"));
+        assertEquals("2", job.getVariable("START"));
+        assertEquals(Arrays.asList("NAME", "START"), new ArrayList<String>(job.getVariables().keySet()));
+
+        final PjlCommand inquire = new PjlCommand(1, "@PJL INQUIRE COPIES");
+        assertEquals("", inquire.getVariable("COPIES"));
+        assertNull(inquire.getVariable("DUPLEX"));
+
+        final PjlCommand unterminated = new PjlCommand(1, "@PJL JOB NAME=\"Report");
+        assertEquals("Report", unterminated.getVariable("NAME"));
+
+        try {
+            job.getVariables().put("USER", "FOO");
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            // expected...
+        }
     }
 
     /**
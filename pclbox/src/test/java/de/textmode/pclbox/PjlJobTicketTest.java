@@ -0,0 +1,134 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PjlJobTicket}.
+ */
+public final class PjlJobTicketTest extends TestCase {
+
+    private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
+
+    private static final String HEADER = "\u001B%-12345X"
+            + "@PJL JOB NAME=\"Monthly Report\"\r\n"
+            + "@PJL SET USERNAME=\"jdoe\"\r\n"
+            + "@PJL SET LPARM:PCL COPIES=7\r\n"
+            + "@PJL SET QTY=2\n"
+            + "@PJL SET DUPLEX=ON\n"
+            + "@PJL ENTER LANGUAGE=PCL\n";
+
+    /**
+     * Reads the PJL header from the given string.
+     */
+    private static PjlJobTicket read(final String data) throws Exception {
+        final byte[] bytes = data.getBytes(ISO_8859_1);
+        return PjlJobTicket.read(PclInputStreams.forByteArray(bytes, 0, bytes.length));
+    }
+
+    /**
+     * Checks the job ticket of a typical PJL header.
+     */
+    public void testJobTicket() throws Exception {
+        final PjlJobTicket ticket = read(HEADER + "\u001BE\u001B&l1X");
+
+        assertEquals(6, ticket.getCommands().size());
+        assertEquals(HEADER.length(), ticket.getHeaderLength());
+        assertEquals("Monthly Report", ticket.getJobName());
+        assertEquals("jdoe", ticket.getUserName());
+        assertEquals(2, ticket.getCopies());
+        assertEquals("ON", ticket.getDuplex());
+        assertEquals("PCL", ticket.getLanguage());
+
+        final PjlCommand first = ticket.getCommands().get(0);
+        assertEquals(9, first.getOffset());
+        assertEquals("@PJL JOB NAME=\"Monthly Report\"", first.getCommand());
+    }
+
+    /**
+     * Checks that the reading stops at the end of the PJL header.
+     */
+    public void testStopsAtEndOfHeader() throws Exception {
+        // The reading stops after the "ENTER LANGUAGE" command without reading any language data...
+        final byte[] bytes = (HEADER + "\u001BE").getBytes(ISO_8859_1);
+        final PclInputStream input = PclInputStreams.forByteArray(bytes, 0, bytes.length);
+        PjlJobTicket.read(input);
+        assertEquals(HEADER.length(), input.tell());
+
+        // Without "ENTER LANGUAGE" just the first byte after the PJL header is read...
+        final PjlJobTicket ticket = read("@PJL SET COPIES=3\n@PJL SET COPIES=4\n\u001BE@PJL SET COPIES=5\n");
+        assertEquals(2, ticket.getCommands().size());
+        assertEquals(36, ticket.getHeaderLength());
+        assertEquals(4, ticket.getCopies());
+        assertNull(ticket.getLanguage());
+
+        // A line that starts with "@" but is no PJL command also ends the PJL header...
+        assertEquals(1, read("@PJL SET COPIES=3\n@PCL\n").getCommands().size());
+    }
+
+    /**
+     * Checks data streams without (or with an incomplete) PJL header.
+     */
+    public void testNoHeader() throws Exception {
+        final PjlJobTicket none = read("\u001BE\u001B&l1X");
+        assertTrue(none.getCommands().isEmpty());
+        assertEquals(0, none.getHeaderLength());
+        assertNull(none.getJobName());
+        assertNull(none.getUserName());
+        assertEquals(-1, none.getCopies());
+        assertNull(none.getDuplex());
+        assertNull(none.getLanguage());
+
+        assertTrue(read("").getCommands().isEmpty());
+        assertTrue(read("\u001B%-12345").getCommands().isEmpty());
+        assertTrue(read("\u001B%-12345X").getCommands().isEmpty());
+
+        // A PJL command that is not terminated is not part of the PJL header...
+        final PjlJobTicket truncated = read("@PJL SET COPIES=3\n@PJL SET COPIES=4");
+        assertEquals(1, truncated.getCommands().size());
+        assertEquals(3, truncated.getCopies());
+
+        assertEquals(-1, read("@PJL SET COPIES=MANY\n").getCopies());
+    }
+
+    /**
+     * Checks the method read(File).
+     */
+    public void testReadFile() throws Exception {
+        final File testFile = File.createTempFile(this.getClass().getSimpleName(), null);
+        testFile.deleteOnExit(); // in case this method throws an exception...
+
+        final FileOutputStream output = new FileOutputStream(testFile);
+        try {
+            output.write((HEADER + "\u001BE").getBytes(ISO_8859_1));
+        } finally {
+            output.close();
+        }
+
+        final PjlJobTicket ticket = PjlJobTicket.read(testFile);
+        assertEquals("Monthly Report", ticket.getJobName());
+        assertEquals("PCL", ticket.getLanguage());
+
+        assertTrue(testFile.delete());
+    }
+}
@@ -0,0 +1,162 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JUnit-Tests for {@link PolylineEncodedDecoder}.
+ */
+public final class PolylineEncodedDecoderTest extends DataStreamParserTest implements PolylineEncodedHandler {
+
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void handleCoordinates(final long offset, final double[] coordinates, final int[] flags, final int count) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(offset).append(":");
+        for (int ix = 0; ix < count; ++ix) {
+            sb.append(" ").append(coordinates[ix * 2]).append(",").append(coordinates[ix * 2 + 1]);
+            sb.append(flags[ix] == 0 ? "" : "/" + flags[ix]);
+        }
+        this.events.add(sb.toString());
+    }
+
+    @Override
+    public void handlePenSelect(final long offset, final int pen) {
+        this.events.add(offset + ": SP" + pen);
+    }
+
+    /**
+     * Encodes the given numbers in base 64 (or base 32).
+     */
+    private static String encode(final boolean sevenBitMode, final long... numbers) {
+        final int bits = sevenBitMode ? 5 : 6;
+        final StringBuilder sb = new StringBuilder();
+        for (final long number : numbers) {
+            long value = number < 0 ? -number << 1 | 1 : number << 1;
+            while (value >= 1 << bits) {
+                sb.append((char) (63 + (value & (1 << bits) - 1)));
+                value >>>= bits;
+            }
+            sb.append((char) ((sevenBitMode ? 95 : 191) + value));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks decoding of coordinates, flags and pen selections.
+     */
+    public void testDecode() throws Exception {
+        final String parameters = "<=" + encode(false, 100, 200) + encode(false, 10, -20)
+                + ":" + encode(false, 2) + " \r\n" + encode(false, 5000, -123456789, 7);
+
+        new PolylineEncodedDecoder(this).decode(new HpglCommand(5, "PE", parameters));
+
+        assertEquals(
+                Arrays.asList("5: 100.0,200.0/3 10.0,-20.0", "5: SP2", "5: 5000.0,-1.23456789E8"),
+                this.events);
+    }
+
+    /**
+     * Checks decoding in seven bit mode with fractional coordinates.
+     */
+    public void testSevenBitModeAndFractionalBinary() throws Exception {
+        final String parameters = "7>" + encode(true, 2) + encode(true, 6, -2) + "<" + encode(true, 1024, 0);
+
+        new PolylineEncodedDecoder(this).decode(new HpglCommand(0, "PE", parameters));
+
+        assertEquals(Arrays.asList("0: 1.5,-0.5 256.0,0.0/1"), this.events);
+    }
+
+    /**
+     * Checks that the coordinates are passed in chunks and that the parameters may be passed in pieces.
+     */
+    public void testChunks() throws Exception {
+        final byte[] parameters = encode(false, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10).getBytes("iso-8859-1");
+
+        final PolylineEncodedDecoder decoder = new PolylineEncodedDecoder(this, 2);
+        decoder.start(1);
+        for (final byte character : parameters) {
+            decoder.decode(new byte[] {character}, 0, 1);
+        }
+        decoder.end();
+
+        assertEquals(Arrays.asList("1: 1.0,2.0 3.0,4.0", "1: 5.0,6.0 7.0,8.0", "1: 9.0,10.0"), this.events);
+
+        try {
+            new PolylineEncodedDecoder(this, 0);
+            fail("Should fail because the chunk size is invalid.");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("The chunk size must be greater than zero", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the {@link PclParser} passes the parameters of "PE" commands to the decoder.
+     */
+    public void testParser() throws Exception {
+        final String pe = "PE<=" + encode(false, 10, 20, 30, 40) + ";";
+        final byte[] data = ("\u001B%0BIN;" + pe + "PA1,2;\u001B%0A").getBytes("iso-8859-1");
+
+        final PclParser parser = new PclParser(data, this);
+        parser.setPolylineEncodedHandler(this);
+        parser.parse();
+
+        assertEquals(Arrays.asList("7: 10.0,20.0/3 30.0,40.0"), this.events);
+        assertEquals(
+                buildExpected(
+                        new ParameterizedPclCommand(0, '%', 0, "0", 'B'),
+                        new HpglCommand(4, "IN", ""),
+                        new HpglCommand(7, "PE", ""),
+                        new HpglCommand(7 + pe.length(), "PA", "1,2"),
+                        new ParameterizedPclCommand(13 + pe.length(), '%', 0, "0", 'A')),
+                this.getCommands());
+
+        // The same without a window...
+        this.events.clear();
+        this.getCommands().clear();
+
+        final PclParserContext context = new PclParserContext(
+                new PclInputStreamForInputStream(new ByteArrayInputStream(pe.getBytes("iso-8859-1"))), this);
+        context.setPolylineEncodedDecoder(new PolylineEncodedDecoder(this));
+        new HpglParser(context).parse();
+
+        assertEquals(Arrays.asList("0: 10.0,20.0/3 30.0,40.0"), this.events);
+        assertEquals(buildExpected(new HpglCommand(0, "PE", "")), this.getCommands());
+    }
+
+    /**
+     * Checks that a truncated "PE" command triggers an exception.
+     */
+    public void testTruncatedCommand() throws Exception {
+        final PclParser parser = new PclParser(("\u001B%0BPE" + encode(false, 10, 20)).getBytes("iso-8859-1"), this);
+        parser.setPolylineEncodedHandler(this);
+
+        try {
+            parser.parse();
+            fail("Should fail because the PE command is not terminated.");
+        } catch (final EOFException e) {
+            assertTrue(e.getMessage().startsWith("The HP/GL data stream unexpectedly "));
+        }
+    }
+}
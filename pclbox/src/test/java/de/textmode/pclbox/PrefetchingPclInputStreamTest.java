@@ -0,0 +1,169 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PrefetchingPclInputStream}.
+ */
+public final class PrefetchingPclInputStreamTest extends TestCase {
+
+    /**
+     * Creates test data with the given length.
+     */
+    private static byte[] createTestData(final int length) {
+        final byte[] content = new byte[length];
+        for (int ix = 0; ix < content.length; ++ix) {
+            content[ix] = (byte) (ix * 7);
+        }
+        return content;
+    }
+
+    /**
+     * Happy-Flow test with a small buffer (so the data is spread over multiple buffers).
+     */
+    public void testAllMethodsOfInterface() throws Exception {
+        final byte[] content = createTestData(1000);
+        final PclInputStream pclStream = new PrefetchingPclInputStream(
+                new PclInputStreamForByteArray(content, 0, content.length), 16, 1);
+
+        for (int ix = 0; ix < 100; ++ix) {
+            assertEquals(ix, pclStream.tell());
+            assertEquals(content[ix] & 0xFF, pclStream.read());
+        }
+
+        // A read that spans multiple buffers must return all requested bytes...
+        final byte[] buffer = new byte[150];
+        assertEquals(150, pclStream.read(buffer));
+        assertEquals(250, pclStream.tell());
+        for (int ix = 0; ix < buffer.length; ++ix) {
+            assertEquals(content[100 + ix], buffer[ix]);
+        }
+
+        // Seek within the current buffer, backwards and forwards...
+        pclStream.seek(249);
+        assertEquals(content[249] & 0xFF, pclStream.read());
+
+        pclStream.seek(3);
+        assertEquals(3, pclStream.tell());
+        assertEquals(content[3] & 0xFF, pclStream.read());
+        assertEquals(content[4] & 0xFF, pclStream.read());
+
+        pclStream.seek(995);
+        assertEquals(5, pclStream.read(buffer));
+        assertEquals(content[999], buffer[4]);
+        assertEquals(1000, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+        assertEquals(-1, pclStream.read(buffer));
+
+        // Seek after the end of the stream has been reached...
+        pclStream.seek(500);
+        assertEquals(content[500] & 0xFF, pclStream.read());
+        assertEquals(501, pclStream.tell());
+
+        pclStream.close();
+        pclStream.close(); // must be idempotent
+    }
+
+    /**
+     * Reads a larger amount of data with many seeks, so the background thread gets interrupted
+     * at various states.
+     */
+    public void testManySeeks() throws Exception {
+        final byte[] content = createTestData(100000);
+        final PclInputStream pclStream = new PrefetchingPclInputStream(
+                new PclInputStreamForByteArray(content, 0, content.length), 64, 3);
+
+        for (int round = 0; round < 200; ++round) {
+            final int offset = (round * 7919) % content.length;
+            pclStream.seek(offset);
+
+            for (int ix = offset; ix < Math.min(offset + 300, content.length); ++ix) {
+                assertEquals(content[ix] & 0xFF, pclStream.read());
+            }
+        }
+
+        pclStream.close();
+    }
+
+    /**
+     * Checks that errors of the underlying stream are reported to the reader.
+     */
+    public void testErrorIsReported() throws Exception {
+        final PclInputStream pclStream = new PrefetchingPclInputStream(new PclInputStream() {
+
+            @Override
+            public long tell() throws IOException {
+                return 0;
+            }
+
+            @Override
+            public void seek(long offset) throws IOException {
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Disk on fire");
+            }
+
+            @Override
+            public int read(byte[] b) throws IOException {
+                throw new IOException("Disk on fire");
+            }
+
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Disk on fire");
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        }, 16, 1);
+
+        try {
+            pclStream.read();
+            fail("Should fail because the underlying stream fails.");
+        } catch (final IOException e) {
+            assertEquals("Disk on fire", e.getMessage());
+        }
+
+        pclStream.close();
+    }
+
+    /**
+     * Checks that invalid parameters are rejected.
+     */
+    public void testInvalidParameters() throws Exception {
+        try {
+            new PrefetchingPclInputStream(null, 0, 1);
+            fail("Should fail because the buffer size is invalid.");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("buffer size"));
+        }
+
+        try {
+            new PrefetchingPclInputStream(null, 1, 0);
+            fail("Should fail because the depth is invalid.");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("depth"));
+        }
+    }
+}
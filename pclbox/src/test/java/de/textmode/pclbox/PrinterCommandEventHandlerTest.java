@@ -0,0 +1,141 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PrinterCommandEventHandler}. The handler records every callback as a string.
+ */
+public final class PrinterCommandEventHandlerTest extends TestCase implements PrinterCommandEventHandler {
+
+    private static final String ISO_8859_1 = "iso-8859-1";
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void handleText(final long offset, final byte[] buffer, final int start, final int length)
+            throws IOException {
+
+        this.events.add(offset + " text " + new String(buffer, start, length, ISO_8859_1));
+    }
+
+    @Override
+    public void handleControlCharacter(final long offset, final int controlCharacter) {
+        this.events.add(offset + " control " + controlCharacter);
+    }
+
+    @Override
+    public void handleTwoBytePclCommand(final long offset, final int operationCharacter) {
+        this.events.add(offset + " pcl " + (char) operationCharacter);
+    }
+
+    @Override
+    public void handleParameterizedPclCommand(
+            final long offset,
+            final int parameterizedCharacter,
+            final int groupCharacter,
+            final int terminationCharacter,
+            final long value,
+            final CharSequence valueText,
+            final long dataOffset,
+            final byte[] dataSection,
+            final int dataStart,
+            final int dataLength) throws IOException {
+
+        final String data = dataSection == null
+                ? dataOffset < 0 ? "" : " skipped " + dataOffset + "+" + dataLength
+                : " " + dataOffset + " " + new String(dataSection, dataStart, dataLength, ISO_8859_1);
+
+        this.events.add(offset + " pcl " + (char) parameterizedCharacter + (char) groupCharacter
+                + (char) terminationCharacter + " " + value + " " + valueText + data);
+    }
+
+    @Override
+    public void handlePjlCommand(final long offset, final CharSequence command) {
+        this.events.add(offset + " pjl " + command);
+    }
+
+    @Override
+    public void handleHpglCommand(final long offset, final int command, final CharSequence parameters) {
+        this.events.add(offset + " hpgl " + Integer.toHexString(command) + " " + parameters);
+    }
+
+    /**
+     * Parses the given data stream (the character "~" is replaced by an escape byte).
+     */
+    private void parse(final String data) throws Exception {
+        final byte[] bytes = data.replace('~', (char) 0x1B).getBytes(ISO_8859_1);
+        try (final PclParser parser = new PclParser(PclInputStreams.forByteArray(bytes, 0, bytes.length), this, true)) {
+            parser.parse();
+        }
+    }
+
+    /**
+     * Checks the callbacks for PCL commands, text and control characters.
+     */
+    public void testPcl() throws Exception {
+        this.parse("~E~&l1.5a-2O~(s3WABCText\r~&p<x>A~*rB");
+
+        assertEquals(Arrays.asList(
+                "0 pcl E",
+                "2 pcl &lA 15000 1.5",
+                "9 pcl &lO -20000 -2",
+                "12 pcl (sW 30000 3 17 ABC",
+                "20 text Text",
+                "24 control 13",
+                "25 pcl &pA " + NO_VALUE + " <x>",
+                "32 pcl *rB 0 "), this.events);
+    }
+
+    /**
+     * Checks the callbacks for PJL and HP/GL commands.
+     */
+    public void testPjlAndHpgl() throws Exception {
+        this.parse("~%-12345X@PJL ENTER LANGUAGE = PCL  \r\n~%0Bin;pa 10,20 ;~%0A");
+
+        assertEquals(Arrays.asList(
+                "0 pcl %\u0000X -123450000 -12345",
+                "9 pjl @PJL ENTER LANGUAGE = PCL",
+                "38 pcl %\u0000B 0 0",
+                "42 hpgl 494e ",
+                "45 hpgl 5041 10,20",
+                "55 pcl %\u0000A 0 0"), this.events);
+    }
+
+    /**
+     * Checks that the values that are converted while they are read match the values converted by
+     * {@link ParameterizedPclCommand#parseValue(CharSequence)}.
+     */
+    public void testScaledValues() throws Exception {
+        final String[] values = {"", "0", "7", "-7", "+7", "12.5", "-.25", "1.23456", "3.", ".", "-", "+-1", "1.2.3",
+            "1-", "922337203685476", "922337203685477", "-0000000000000000000001"};
+
+        for (final String value : values) {
+            this.events.clear();
+            this.parse("~&l" + value + "X");
+
+            assertEquals(value, Arrays.asList("0 pcl &lX " + ParameterizedPclCommand.parseValue(value) + " " + value),
+                    this.events);
+        }
+    }
+}
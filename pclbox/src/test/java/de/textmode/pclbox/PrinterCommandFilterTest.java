@@ -0,0 +1,164 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link PrinterCommandFilter}.
+ */
+public final class PrinterCommandFilterTest extends TestCase {
+
+    private static final String DATA_STREAM = "\u001B%-12345X@PJL JOB\r\n@PJL ENTER LANGUAGE=PCL\n"
+            + "\u001BEHello\r\n\u001B&l1a2x3O\u001B*b3WA\u001BC\u001B%0BIN;SP1;PD10,20;\u001B%0AWorld"
+            + "\u001B*b0W\u001B&p<abc>A\u001B9\f\u001B%-12345X@PJL EOJ\n";
+
+    /**
+     * Returns the printer commands the {@link PclParser} reports for the given data stream.
+     */
+    private static List<PrinterCommand> parse(final PclInputStream input, final PrinterCommandFilter filter)
+            throws Exception {
+
+        final List<PrinterCommand> commands = new ArrayList<>();
+        final PclParser parser = new PclParser(input, new PrinterCommandHandler() {
+            @Override
+            public void handlePrinterCommand(final PrinterCommand command) {
+                commands.add(command);
+            }
+        }, true);
+
+        parser.setFilter(filter);
+        parser.parse();
+        parser.close();
+        return commands;
+    }
+
+    /**
+     * Returns the data stream as a {@link PclInputStream} that provides a window (a byte array) and one that
+     * does not (a direct {@link ByteBuffer}), so both ways of skipping text are used.
+     */
+    private static PclInputStream[] streams() throws Exception {
+        final byte[] data = DATA_STREAM.getBytes("iso-8859-1");
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+
+        return new PclInputStream[] {
+            PclInputStreams.forByteArray(data, 0, data.length),
+            PclInputStreams.forByteBuffer(direct),
+        };
+    }
+
+    /**
+     * Returns the printer commands of the data stream that have the given command strings or types.
+     */
+    private static List<PrinterCommand> select(final List<PrinterCommand> commands, final Object... selection) {
+        final List<PrinterCommand> result = new ArrayList<>();
+        for (final PrinterCommand command : commands) {
+            for (final Object selected : selection) {
+                if (selected.equals(command.getClass()) || selected.equals(command.toCommandString())) {
+                    result.add(command);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks that just the selected PCL and HP/GL commands are passed to the handler.
+     */
+    public void testAcceptCommand() throws Exception {
+        for (final PclInputStream input : streams()) {
+            final List<PrinterCommand> all = parse(streams()[0], null);
+            final PrinterCommandFilter filter = new PrinterCommandFilter()
+                    .acceptCommand("&lA")
+                    .acceptCommand("&lO")
+                    .acceptCommand("*bW")
+                    .acceptCommand("%X")
+                    .acceptCommand("E")
+                    .acceptCommand("pd");
+
+            final List<PrinterCommand> filtered = parse(input, filter);
+            assertEquals(select(all, "&lA", "&lO", "*bW", "%X", "E", "PD"), filtered);
+            assertEquals(8, filtered.size());
+        }
+    }
+
+    /**
+     * Checks that the printer commands of the selected types are passed to the handler.
+     */
+    public void testAcceptType() throws Exception {
+        for (final PclInputStream input : streams()) {
+            final List<PrinterCommand> all = parse(streams()[0], null);
+            final PrinterCommandFilter filter = new PrinterCommandFilter()
+                    .acceptType(PjlCommand.class)
+                    .acceptType(ControlCharacterCommand.class)
+                    .acceptCommand("&lX");
+
+            assertEquals(select(all, PjlCommand.class, ControlCharacterCommand.class, "&lX"), parse(input, filter));
+            assertEquals(select(all, TextCommand.class),
+                    parse(streams()[1], new PrinterCommandFilter().acceptType(TextCommand.class)));
+            assertEquals(select(all, HpglCommand.class, TwoBytePclCommand.class, ParameterizedPclCommand.class),
+                    parse(streams()[0], new PrinterCommandFilter()
+                            .acceptType(HpglCommand.class)
+                            .acceptType(TwoBytePclCommand.class)
+                            .acceptType(ParameterizedPclCommand.class)));
+        }
+    }
+
+    /**
+     * Checks that a filter that accepts nothing still detects a corrupt data stream.
+     */
+    public void testAcceptNothing() throws Exception {
+        assertTrue(parse(streams()[1], new PrinterCommandFilter()).isEmpty());
+
+        final byte[] data = "Hello\u001B*b5WABC".getBytes("iso-8859-1");
+        try {
+            parse(PclInputStreams.forByteArray(data, 0, data.length), new PrinterCommandFilter());
+            fail("Should fail because the data section is truncated");
+        } catch (final java.io.EOFException e) {
+            assertTrue(e.getMessage().contains("unexpectedly ends"));
+        }
+    }
+
+    /**
+     * Checks that invalid command strings and types are rejected.
+     */
+    public void testInvalidArguments() {
+        final PrinterCommandFilter filter = new PrinterCommandFilter();
+        for (final String command : new String[] {"", "\u0001", "&lAB", "&1", "&Aa", "1Z", "&l{"}) {
+            try {
+                filter.acceptCommand(command);
+                fail("Should fail because the command string \"" + command + "\" is invalid");
+            } catch (final IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("is invalid"));
+            }
+        }
+
+        try {
+            filter.acceptType(PrinterCommand.class);
+            fail("Should fail because the type is abstract");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("is unknown"));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package de.textmode.pclbox;
+
+/*
+ * Copyright 2017 Michael Knigge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit-Tests for {@link SpillingPclInputStream}.
+ */
+public final class SpillingPclInputStreamTest extends TestCase {
+
+    /**
+     * An {@link InputStream} that does not support mark() and returns at most seven bytes per read.
+     */
+    private static final class PipeLikeInputStream extends InputStream {
+
+        private final byte[] data;
+        private int position;
+        private boolean closed;
+
+        PipeLikeInputStream(final byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return this.position < this.data.length ? this.data[this.position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (this.position >= this.data.length) {
+                return -1;
+            }
+
+            final int count = Math.min(Math.min(len, 7), this.data.length - this.position);
+            System.arraycopy(this.data, this.position, b, off, count);
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+    /**
+     * Creates test data with the given length.
+     */
+    private static byte[] createTestData(final int length) {
+        final byte[] content = new byte[length];
+        for (int ix = 0; ix < content.length; ++ix) {
+            content[ix] = (byte) (ix * 13);
+        }
+        return content;
+    }
+
+    /**
+     * Happy-Flow test with data that fits into memory.
+     */
+    public void testAllMethodsOfInterface() throws Exception {
+        final ByteArrayInputStream in = new ByteArrayInputStream("TEST".getBytes("utf-8"));
+        final PclInputStream pclStream = new SpillingPclInputStream(in, 1024, true);
+
+        assertEquals(0, pclStream.tell());
+        assertEquals(84, pclStream.read());
+        assertEquals(1, pclStream.tell());
+
+        final byte[] buffer = new byte[5];
+        assertEquals(3, pclStream.read(buffer, 0, 5));
+        assertEquals(69, buffer[0]);
+        assertEquals(83, buffer[1]);
+        assertEquals(84, buffer[2]);
+        assertEquals(4, pclStream.tell());
+        assertEquals(-1, pclStream.read());
+
+        pclStream.seek(1);
+        assertEquals(1, pclStream.tell());
+        assertEquals(69, pclStream.read());
+        assertEquals(2, pclStream.tell());
+
+        assertEquals(2, pclStream.read(buffer));
+        assertEquals(83, buffer[0]);
+        assertEquals(84, buffer[1]);
+        assertEquals(4, pclStream.tell());
+
+        try {
+            pclStream.seek(5);
+            fail("Seek should fail we tried to seek after the end of the file");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("to position to offset 5"));
+        }
+
+        pclStream.close();
+    }
+
+    /**
+     * Checks seeking on an {@link InputStream} that does not support mark() with data that
+     * exceeds the memory limit (so data gets spilled to the temporary file).
+     */
+    public void testSpillToFile() throws Exception {
+        final byte[] content = createTestData(10000);
+        final PipeLikeInputStream in = new PipeLikeInputStream(content);
+        final PclInputStream pclStream = new SpillingPclInputStream(in, 64, false);
+
+        for (int ix = 0; ix < 5000; ++ix) {
+            assertEquals(ix, pclStream.tell());
+            assertEquals(content[ix] & 0xFF, pclStream.read());
+        }
+
+        // Back to the beginning (this is in the temporary file)...
+        pclStream.seek(0);
+        assertEquals(content[0] & 0xFF, pclStream.read());
+
+        // A bulk read that spans the temporary file and the ring buffer...
+        pclStream.seek(4900);
+        final byte[] buffer = new byte[200];
+        assertEquals(200, pclStream.read(buffer));
+        for (int ix = 0; ix < buffer.length; ++ix) {
+            assertEquals(content[4900 + ix], buffer[ix]);
+        }
+        assertEquals(5100, pclStream.tell());
+
+        // Forward seek reads (and keeps) everything up to the requested offset...
+        pclStream.seek(9990);
+        assertEquals(content[9990] & 0xFF, pclStream.read());
+
+        for (int round = 0; round < 500; ++round) {
+            final int offset = (round * 7919) % content.length;
+            pclStream.seek(offset);
+            assertEquals(content[offset] & 0xFF, pclStream.read());
+        }
+
+        pclStream.seek(content.length);
+        assertEquals(-1, pclStream.read());
+
+        pclStream.close();
+        assertFalse(in.closed);
+    }
+
+    /**
+     * Checks very small memory limits.
+     */
+    public void testTinyMemoryLimits() throws Exception {
+        final byte[] content = createTestData(100);
+        for (int memoryLimit = 1; memoryLimit <= 5; ++memoryLimit) {
+            final PclInputStream pclStream = new SpillingPclInputStream(
+                    new PipeLikeInputStream(content), memoryLimit, true);
+
+            for (int ix = 0; ix < content.length; ++ix) {
+                assertEquals(content[ix] & 0xFF, pclStream.read());
+            }
+            assertEquals(-1, pclStream.read());
+
+            pclStream.seek(0);
+            final byte[] buffer = new byte[content.length];
+            assertEquals(content.length, pclStream.read(buffer));
+            for (int ix = 0; ix < content.length; ++ix) {
+                assertEquals(content[ix], buffer[ix]);
+            }
+
+            pclStream.close();
+        }
+    }
+
+    /**
+     * Checks that the {@link InputStream} is closed if requested.
+     */
+    public void testCloseSource() throws Exception {
+        final PipeLikeInputStream in = new PipeLikeInputStream(new byte[1]);
+        new SpillingPclInputStream(in, 1, true).close();
+        assertTrue(in.closed);
+    }
+
+    /**
+     * Checks that an invalid memory limit is rejected.
+     */
+    public void testInvalidMemoryLimit() throws Exception {
+        try {
+            new SpillingPclInputStream(null, 0, true);
+            fail("Should fail because the memory limit is invalid.");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("memory limit"));
+        }
+    }
+}
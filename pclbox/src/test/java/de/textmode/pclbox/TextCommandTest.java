@@ -17,6 +17,7 @@ package de.textmode.pclbox;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -98,4 +99,35 @@ public final class TextCommandTest extends TestCase {
         TEXT_B_AT_1.writeTo(baos2);
         assertTrue(Arrays.equals(TEXT_B_AT_1.toByteArray(), baos2.toByteArray()));
     }
+
+    /**
+     * Checks a {@link TextCommand} that references a range of a byte array (and the method getTextBuffer).
+     */
+    public void testSharedRange() throws Exception {
+        final byte[] data = "xxABCyy".getBytes("iso-8859-1");
+        final TextCommand shared = new TextCommand(1, data, 2, 3, false);
+        final TextCommand copied = new TextCommand(1, data, 2, 3, true);
+
+        assertEquals(new TextCommand(1, "ABC".getBytes("iso-8859-1")), shared);
+        assertEquals(copied, shared);
+        assertEquals(copied.hashCode(), shared.hashCode());
+        assertEquals("ABC@1", shared.toString());
+        assertEquals(3, shared.getTextLength());
+        assertTrue(Arrays.equals("ABC".getBytes("iso-8859-1"), shared.toByteArray()));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        shared.writeTo(os);
+        assertEquals("ABC", os.toString("iso-8859-1"));
+
+        final ByteBuffer buffer = shared.getTextBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(0, buffer.position());
+        assertEquals(3, buffer.remaining());
+        assertEquals('A', buffer.get(0));
+
+        // The shared TextCommand references the array, the copied TextCommand does not...
+        data[2] = 'Z';
+        assertEquals("ZBC", shared.toDisplayString());
+        assertEquals("ABC", copied.toDisplayString());
+    }
 }
@@ -79,6 +79,16 @@ public final class TwoBytePclCommandTest extends TestCase {
         assertEquals("9", ESC_9_AT_1.toCommandString());
     }
 
+    /**
+     * Checks the method getCommandCode.
+     */
+    public void testGetCommandCode() {
+        assertEquals(0x45, ESC_E_AT_1.getCommandCode());
+        assertEquals(ESC_E_AT_1.getCommandCode(), ESC_E_AT_2.getCommandCode());
+        assertEquals(0x39, ESC_9_AT_1.getCommandCode());
+        assertSame(ESC_E_AT_1.toCommandString(), ESC_E_AT_2.toCommandString());
+    }
+
     /**
      * Checks the method toDisplayString.
      */